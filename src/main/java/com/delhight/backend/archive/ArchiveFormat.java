@@ -0,0 +1,65 @@
+package com.delhight.backend.archive;
+
+import java.nio.ByteOrder;
+
+/**
+ * On-disk layout of the response archive (little endian throughout).
+ *
+ * Segment files seg-00000001.dat, append-only, never rewritten in place:
+ *
+ *   header   int SEGMENT_MAGIC | int formatVersion | long createdAtMillis
+ *   records  { int length (bytes after this field) | int crc32 (of those bytes)
+ *              | long keyHash | long storedAtMillis | byte flags
+ *              | short stageLength | stage (UTF-8) | short keyLength | key (UTF-8)
+ *              | int bodyLength (uncompressed) | body (deflate) }
+ *
+ * A record is position independent, so compaction copies live records byte for byte.
+ * Reading stops at the first record whose length or crc does not check out (a torn write
+ * at the tail after a crash).
+ *
+ * Index file index.dat, memory-mapped, open addressing with linear probing:
+ *
+ *   header   int INDEX_MAGIC | int formatVersion | int capacity (power of two) | int used
+ *            | int coveredSegment | int coveredOffset | padding to INDEX_HEADER_BYTES
+ *   slots    capacity x { long keyHash (0 = empty) | int segment (TOMBSTONE = dropped)
+ *                         | int offset | long storedAtMillis }
+ *
+ * The index is derived data: (coveredSegment, coveredOffset) is the end of the last record
+ * it has seen, and records after it are indexed again on startup. An index with another
+ * magic or version is rebuilt from the segments.
+ */
+public final class ArchiveFormat {
+
+    public static final int SEGMENT_MAGIC = 0x52414844;   // "DHAR"
+    public static final int INDEX_MAGIC = 0x58494844;     // "DHIX"
+    public static final int FORMAT_VERSION = 1;
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int SEGMENT_HEADER_BYTES = 4 + 4 + 8;
+    // length, crc, keyHash, storedAt, flags, stageLength, keyLength, bodyLength
+    public static final int RECORD_OVERHEAD_BYTES = 4 + 4 + 8 + 8 + 1 + 2 + 2 + 4;
+
+    public static final int INDEX_HEADER_BYTES = 64;
+    public static final int SLOT_BYTES = 8 + 4 + 4 + 8;
+    public static final int TOMBSTONE = -1;
+
+    /** The response had status OK or ZERO_RESULTS, so it may be served as a cached answer. */
+    public static final byte FLAG_SERVABLE = 1;
+
+    private ArchiveFormat() {
+    }
+
+    static String segmentName(int segment) {
+        return String.format("seg-%08d.dat", segment);
+    }
+
+    /** Segment number of a segment file name, or -1. */
+    static int segmentNumber(String fileName) {
+        if (!fileName.startsWith("seg-") || !fileName.endsWith(".dat")) return -1;
+        try {
+            return Integer.parseInt(fileName.substring(4, fileName.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.delhight.backend.archive;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped hash index of the archive: key hash -> newest record (segment, offset,
+ * storedAt). See {@link ArchiveFormat} for the layout.
+ *
+ * One writer at a time (ResponseArchive's write lock); readers do not lock. A reader may see
+ * a slot half written, so whatever it finds is only a candidate: the record itself (hash,
+ * key, crc) decides.
+ *
+ * Dropped records leave tombstones that keep their hash, so probing still passes them and
+ * the same key reuses the slot. When used slots (tombstones included) pass MAX_LOAD the
+ * index is copied into one twice the size (grow()).
+ */
+final class ArchiveIndex {
+
+    private static final double MAX_LOAD = 0.7;
+
+    private final Path path;
+    private final int capacity;
+    private final int mask;
+    private final MappedByteBuffer map;
+
+    private ArchiveIndex(Path path, int capacity, MappedByteBuffer map) {
+        this.path = path;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.map = map;
+    }
+
+    /**
+     * Maps an existing index, or creates an empty one (covering nothing) if there is none or
+     * it is not a usable index file.
+     */
+    static ArchiveIndex open(Path path, int capacity) throws IOException {
+        if (Files.exists(path)) {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (ch.size() >= ArchiveFormat.INDEX_HEADER_BYTES) {
+                    MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, ArchiveFormat.INDEX_HEADER_BYTES);
+                    header.order(ArchiveFormat.ORDER);
+                    int existing = header.getInt(8);
+                    if (header.getInt(0) == ArchiveFormat.INDEX_MAGIC
+                            && header.getInt(4) == ArchiveFormat.FORMAT_VERSION
+                            && Integer.bitCount(existing) == 1
+                            && ch.size() == bytes(existing)) {
+                        return new ArchiveIndex(path, existing, map(ch, existing));
+                    }
+                }
+            }
+        }
+        return create(path, capacity);
+    }
+
+    private static ArchiveIndex create(Path path, int capacity) throws IOException {
+        int cap = Integer.highestOneBit(Math.max(1024, capacity - 1) << 1);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = map(ch, cap);   // a new file maps as zeros: every slot empty
+            map.putInt(0, ArchiveFormat.INDEX_MAGIC);
+            map.putInt(4, ArchiveFormat.FORMAT_VERSION);
+            map.putInt(8, cap);
+            map.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new ArchiveIndex(path, cap, map(ch, cap));
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel ch, int capacity) throws IOException {
+        MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes(capacity));
+        map.order(ArchiveFormat.ORDER);
+        return map;
+    }
+
+    private static long bytes(int capacity) {
+        return ArchiveFormat.INDEX_HEADER_BYTES + (long) capacity * ArchiveFormat.SLOT_BYTES;
+    }
+
+    // ----------------------------
+    // Slots
+    // ----------------------------
+
+    /** Slot holding hash (possibly a tombstone), or -1. */
+    int find(long hash) {
+        int i = (int) hash & mask;
+        for (int probes = 0; probes < capacity; probes++) {
+            long h = map.getLong(slot(i));
+            if (h == 0) return -1;
+            if (h == hash) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    int segment(int slot) {
+        return map.getInt(slot(slot) + 8);
+    }
+
+    int offset(int slot) {
+        return map.getInt(slot(slot) + 12);
+    }
+
+    long storedAt(int slot) {
+        return map.getLong(slot(slot) + 16);
+    }
+
+    /** Points hash at a record (the newest one for its key). */
+    void put(long hash, int segment, int offset, long storedAtMillis) {
+        int i = (int) hash & mask;
+        while (true) {
+            long h = map.getLong(slot(i));
+            if (h == hash) break;
+            if (h == 0) {
+                map.putInt(12, map.getInt(12) + 1);
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        int at = slot(i);
+        // the hash goes in last, so a reader never pairs it with a stale location of another key
+        map.putInt(at + 8, segment);
+        map.putInt(at + 12, offset);
+        map.putLong(at + 16, storedAtMillis);
+        map.putLong(at, hash);
+    }
+
+    /** Tombstones hash if it still points at (segment, offset). */
+    boolean remove(long hash, int segment, int offset) {
+        int i = find(hash);
+        if (i < 0 || segment(i) != segment || offset(i) != offset) return false;
+        map.putInt(slot(i) + 8, ArchiveFormat.TOMBSTONE);
+        return true;
+    }
+
+    boolean pointsAt(long hash, int segment, int offset) {
+        int i = find(hash);
+        return i >= 0 && segment(i) == segment && offset(i) == offset;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int used() {
+        return map.getInt(12);
+    }
+
+    int live() {
+        int n = 0;
+        for (int i = 0; i < capacity; i++) {
+            int at = slot(i);
+            if (map.getLong(at) != 0 && map.getInt(at + 8) != ArchiveFormat.TOMBSTONE) n++;
+        }
+        return n;
+    }
+
+    boolean needsGrow() {
+        return used() > capacity * MAX_LOAD;
+    }
+
+    // ----------------------------
+    // Coverage / resizing
+    // ----------------------------
+
+    int coveredSegment() {
+        return map.getInt(16);
+    }
+
+    int coveredOffset() {
+        return map.getInt(20);
+    }
+
+    void setCovered(int segment, int offset) {
+        map.putInt(16, segment);
+        map.putInt(20, offset);
+    }
+
+    /** A copy of the live slots in an index twice the size, replacing this file. */
+    ArchiveIndex grow() throws IOException {
+        Path next = path.resolveSibling(path.getFileName() + ".next");
+        ArchiveIndex bigger = create(next, capacity * 2);
+        for (int i = 0; i < capacity; i++) {
+            int at = slot(i);
+            long h = map.getLong(at);
+            int segment = map.getInt(at + 8);
+            if (h != 0 && segment != ArchiveFormat.TOMBSTONE) {
+                bigger.put(h, segment, map.getInt(at + 12), map.getLong(at + 16));
+            }
+        }
+        bigger.setCovered(coveredSegment(), coveredOffset());
+        bigger.force();
+        Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new ArchiveIndex(path, bigger.capacity, bigger.map);
+    }
+
+    void force() {
+        map.force();
+    }
+
+    private static int slot(int i) {
+        return ArchiveFormat.INDEX_HEADER_BYTES + i * ArchiveFormat.SLOT_BYTES;
+    }
+}
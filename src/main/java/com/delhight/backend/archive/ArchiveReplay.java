@@ -0,0 +1,119 @@
+package com.delhight.backend.archive;
+
+import com.delhight.backend.service.AutocompleteService;
+import com.delhight.backend.service.GeocodingService;
+import com.delhight.backend.service.GoogleDirectionsService;
+import com.delhight.backend.service.NearestStationsService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the current response parsers over archived responses, to see what a parser change
+ * does to real history before it ships (and to find responses the parsers choke on).
+ *
+ * Every response is parsed the way its stage is parsed live (geocode, stations,
+ * directions.<mode>, autocomplete) and counted per stage as
+ *   ok            the parser produced a result
+ *   empty         no result, and Google had none either (not an OK / ZERO_RESULTS answer)
+ *   lost          no result although Google answered OK / ZERO_RESULTS (ZERO_RESULTS is
+ *                 expected here; OK is a parser regression)
+ *   failed        the parser threw
+ * with a few sample keys of lost and failed responses.
+ */
+@Component
+public class ArchiveReplay {
+
+    private static final int SAMPLES = 10;
+    private static final String[] OUTCOMES = {"ok", "empty", "lost", "failed"};
+
+    private final ResponseArchive responseArchive;
+    private final GeocodingService geocodingService;
+    private final NearestStationsService nearestStationsService;
+    private final GoogleDirectionsService googleDirectionsService;
+    private final AutocompleteService autocompleteService;
+
+    public ArchiveReplay(ResponseArchive responseArchive, GeocodingService geocodingService,
+                         NearestStationsService nearestStationsService,
+                         GoogleDirectionsService googleDirectionsService,
+                         AutocompleteService autocompleteService) {
+        this.responseArchive = responseArchive;
+        this.geocodingService = geocodingService;
+        this.nearestStationsService = nearestStationsService;
+        this.googleDirectionsService = googleDirectionsService;
+        this.autocompleteService = autocompleteService;
+    }
+
+    /**
+     * Replays archived responses (stagePrefix null = all; latestOnly = only the response per
+     * request that lookups would serve; limit <= 0 = everything).
+     */
+    public Map<String, Object> replay(String stagePrefix, boolean latestOnly, long limit) throws IOException {
+        Map<String, long[]> counts = new TreeMap<>();
+        List<String> samples = new ArrayList<>();
+        long started = System.nanoTime();
+
+        long scanned = responseArchive.scan(stagePrefix, limit, entry -> {
+            if (latestOnly && !entry.latest()) return;
+            int outcome;
+            try {
+                Object parsed = parse(entry);
+                boolean found = parsed != null && !(parsed instanceof Collection<?> c && c.isEmpty());
+                outcome = found ? 0 : entry.servable() ? 2 : 1;
+            } catch (RuntimeException e) {
+                outcome = 3;
+            }
+            counts.computeIfAbsent(entry.stage(), k -> new long[OUTCOMES.length])[outcome]++;
+            if (outcome >= 2 && samples.size() < SAMPLES) {
+                samples.add(OUTCOMES[outcome] + " " + entry.stage() + " " + entry.key());
+            }
+        });
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("scanned", scanned);
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> e : counts.entrySet()) {
+            Map<String, Long> c = new LinkedHashMap<>();
+            for (int i = 0; i < OUTCOMES.length; i++) c.put(OUTCOMES[i], e.getValue()[i]);
+            stages.put(e.getKey(), c);
+        }
+        out.put("stages", stages);
+        out.put("samples", samples);
+        out.put("tookMillis", (System.nanoTime() - started) / 1_000_000);
+        return out;
+    }
+
+    private Object parse(ResponseArchive.Entry entry) {
+        String stage = entry.stage();
+        String body = entry.body();
+        if (stage.equals("geocode")) return geocodingService.parseGeocode(body);
+        if (stage.equals("autocomplete")) return autocompleteService.parsePredictions(body);
+        if (stage.startsWith("directions.")) {
+            return googleDirectionsService.parseRouteLeg(body, stage.substring("directions.".length()),
+                    "Source", "Destination");
+        }
+        if (stage.equals("stations")) {
+            String location = param(entry.key(), "location");
+            int comma = location == null ? -1 : location.indexOf(',');
+            if (comma < 0) throw new IllegalArgumentException("no location in " + entry.key());
+            return nearestStationsService.parseStations(body, Double.parseDouble(location.substring(0, comma)),
+                    Double.parseDouble(location.substring(comma + 1)), Integer.MAX_VALUE);
+        }
+        throw new IllegalArgumentException("no parser for stage " + stage);
+    }
+
+    private static String param(String key, String name) {
+        int q = key.indexOf('?');
+        if (q < 0) return null;
+        for (String p : key.substring(q + 1).split("&")) {
+            if (p.startsWith(name + "=")) return p.substring(name.length() + 1);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,646 @@
+package com.delhight.backend.archive;
+
+import com.delhight.backend.utils.ConsistentHashRing;
+import com.delhight.backend.utils.RequestTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only archive of raw Google responses on local disk, keyed by the normalized
+ * request (path and sorted query, without the API key). See {@link ArchiveFormat}.
+ *
+ *   delhight.archive.enabled = true
+ *   delhight.archive.dir     = /var/lib/delhight/archive
+ *
+ * Two uses:
+ * - a disk tier behind the in-memory and shared caches: GoogleApiClient asks get() before
+ *   calling Google, and a response archived less than serveMaxAgeHours ago with status OK
+ *   or ZERO_RESULTS is answered from disk
+ * - history for replay (scan()): every response we paid for stays on disk for
+ *   retentionDays, so a changed parser can be run again over real responses (ArchiveReplay)
+ *
+ * Writes are queued to one writer thread (compress, append with a positional NIO write,
+ * update the mapped index), so requests never wait on the disk; when the queue is full
+ * the response is not archived. Segments roll over at segmentBytes. Compaction copies the
+ * live records of sealed segments that are mostly dead (superseded or past retention)
+ * into the current segment and deletes them.
+ */
+@Component
+public class ResponseArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseArchive.class);
+
+    private static final String INDEX_FILE = "index.dat";
+    private static final String[] RESULTS = {"hit", "stale", "miss"};
+
+    @Value("${delhight.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${delhight.archive.dir:archive}")
+    private String dir;
+
+    // answer lookups from the archive (false: write-only, for replay)
+    @Value("${delhight.archive.serve:true}")
+    private boolean serve;
+
+    @Value("${delhight.archive.serveMaxAgeHours:24}")
+    private long serveMaxAgeHours;
+
+    @Value("${delhight.archive.retentionDays:30}")
+    private long retentionDays;
+
+    @Value("${delhight.archive.segmentBytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${delhight.archive.indexSlots:262144}")
+    private int indexSlots;
+
+    @Value("${delhight.archive.queueSize:1024}")
+    private int queueSize;
+
+    // sealed segments with less than this share of live bytes are compacted
+    @Value("${delhight.archive.compactLiveRatio:0.5}")
+    private double compactLiveRatio;
+
+    private record Pending(String key, String stage, String body, long storedAtMillis) {}
+
+    /** One archived response, as scan() visits it; latest = the one the index serves. */
+    public record Entry(String key, String stage, long storedAtMillis, boolean servable, boolean latest,
+                        String body) {}
+
+    private Path root;
+    private final ConcurrentSkipListMap<Integer, FileChannel> segments = new ConcurrentSkipListMap<>();
+    private volatile ArchiveIndex index;
+    private BlockingQueue<Pending> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    // writer state, guarded by writeLock
+    private final Object writeLock = new Object();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private byte[] deflateBuffer = new byte[64 * 1024];
+    private int currentSegment;
+    private int currentSize;
+
+    private final Counter[] lookups = new Counter[RESULTS.length];
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong compactedSegments = new AtomicLong();
+
+    public ResponseArchive(MeterRegistry registry) {
+        for (int i = 0; i < RESULTS.length; i++) {
+            lookups[i] = Counter.builder("delhight.archive.lookups").tag("result", RESULTS[i]).register(registry);
+        }
+        Gauge.builder("delhight.archive.bytes", this, ResponseArchive::diskBytes).register(registry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        root = Paths.get(dir);
+        Files.createDirectories(root);
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                int n = ArchiveFormat.segmentNumber(p.getFileName().toString());
+                if (n > 0) segments.put(n, FileChannel.open(p, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            }
+        }
+        index = ArchiveIndex.open(root.resolve(INDEX_FILE), indexSlots);
+        int caughtUp = catchUp();
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            currentSegment = segments.lastKey();
+            currentSize = (int) segments.lastEntry().getValue().size();
+        }
+
+        queue = new ArrayBlockingQueue<>(Math.max(16, queueSize));
+        running = true;
+        writer = new Thread(this::writeLoop, "response-archive-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Response archive: {} ({} segments, {} keys, {} records indexed on startup)",
+                root.toAbsolutePath(), segments.size(), index.live(), caughtUp);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) return;
+        running = false;
+        if (writer != null) {
+            // no interrupt: an interrupted FileChannel write closes the channel
+            try {
+                writer.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (writeLock) {
+            drain();
+            index.force();
+            for (FileChannel ch : segments.values()) {
+                try {
+                    ch.force(false);
+                    ch.close();
+                } catch (IOException ignored) {
+                }
+            }
+            deflater.end();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ----------------------------
+    // Lookups
+    // ----------------------------
+
+    /**
+     * Archived response body for a request URL, if one is fresh enough to be served; null
+     * otherwise (also when disabled or in write-only mode).
+     */
+    public String get(String url) {
+        if (!enabled || !serve) return null;
+        String key = normalize(url);
+        long hash = hash(key);
+        ArchiveIndex idx = index;
+        int slot = idx.find(hash);
+        int segment = slot < 0 ? ArchiveFormat.TOMBSTONE : idx.segment(slot);
+        if (segment == ArchiveFormat.TOMBSTONE) {
+            lookups[2].increment();
+            return null;
+        }
+        if (idx.storedAt(slot) < System.currentTimeMillis() - TimeUnit.HOURS.toMillis(serveMaxAgeHours)) {
+            lookups[1].increment();
+            return null;
+        }
+        Entry entry = read(segment, idx.offset(slot), hash, key);
+        if (entry == null || !entry.servable()) {
+            lookups[2].increment();
+            return null;
+        }
+        lookups[0].increment();
+        RequestTrace.cache("disk");
+        return entry.body();
+    }
+
+    /** Queues a response for archiving (dropped if the writer is behind). */
+    public void put(String url, String stage, String body) {
+        if (!enabled || body == null || !running) return;
+        if (!queue.offer(new Pending(normalize(url), stage, body, System.currentTimeMillis()))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Request identity: path and query parameters sorted, without scheme, host, API key and
+     * Places session token, so the same request made against another host, with another key
+     * or in another autocomplete session is the same entry.
+     */
+    public static String normalize(String url) {
+        int scheme = url.indexOf("://");
+        int pathStart = scheme < 0 ? 0 : url.indexOf('/', scheme + 3);
+        String rest = pathStart < 0 ? "/" : url.substring(pathStart);
+        int q = rest.indexOf('?');
+        if (q < 0) return rest;
+        String[] params = rest.substring(q + 1).split("&");
+        List<String> kept = new ArrayList<>(params.length);
+        for (String p : params) {
+            if (!p.isEmpty() && !p.startsWith("key=") && !p.startsWith("sessiontoken=")) kept.add(p);
+        }
+        kept.sort(null);
+        return rest.substring(0, q) + "?" + String.join("&", kept);
+    }
+
+    private static long hash(String key) {
+        long h = ConsistentHashRing.hash(key);
+        return h == 0 ? 1 : h;   // 0 marks an empty index slot
+    }
+
+    // ----------------------------
+    // Writing
+    // ----------------------------
+
+    private void writeLoop() {
+        while (running) {
+            try {
+                Pending p = queue.poll(1, TimeUnit.SECONDS);
+                if (p == null) continue;
+                synchronized (writeLock) {
+                    write(p);
+                    drain();
+                }
+            } catch (InterruptedException e) {
+                if (!running) return;
+            }
+        }
+    }
+
+    // writeLock held
+    private void drain() {
+        Pending p;
+        while ((p = queue.poll()) != null) write(p);
+    }
+
+    // writeLock held
+    private void write(Pending p) {
+        try {
+            byte[] raw = p.body().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer record = encode(p, raw);
+            append(record, hash(p.key()), p.storedAtMillis());
+            written.incrementAndGet();
+            rawBytes.addAndGet(raw.length);
+            storedBytes.addAndGet(record.limit());
+        } catch (IOException | RuntimeException e) {
+            if (writeErrors.incrementAndGet() == 1) log.warn("Response archive: write failed: {}", e.toString());
+        }
+    }
+
+    // writeLock held
+    private ByteBuffer encode(Pending p, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int compressed = 0;
+        while (!deflater.finished()) {
+            if (compressed == deflateBuffer.length) deflateBuffer = Arrays.copyOf(deflateBuffer, compressed * 2);
+            compressed += deflater.deflate(deflateBuffer, compressed, deflateBuffer.length - compressed);
+        }
+
+        byte[] stage = utf8(p.stage());
+        byte[] key = utf8(p.key());
+        int length = ArchiveFormat.RECORD_OVERHEAD_BYTES - 4 + stage.length + key.length + compressed;
+        ByteBuffer b = ByteBuffer.allocate(4 + length).order(ArchiveFormat.ORDER);
+        b.putInt(length);
+        b.putInt(0);   // crc, below
+        b.putLong(hash(p.key()));
+        b.putLong(p.storedAtMillis());
+        b.put(servable(p.body()) ? ArchiveFormat.FLAG_SERVABLE : 0);
+        b.putShort((short) stage.length).put(stage);
+        b.putShort((short) key.length).put(key);
+        b.putInt(raw.length);
+        b.put(deflateBuffer, 0, compressed);
+        CRC32 crc = new CRC32();
+        crc.update(b.array(), 8, length - 4);
+        b.putInt(4, (int) crc.getValue());
+        return b.flip();
+    }
+
+    // writeLock held: writes one encoded record at the end of the current segment and indexes it
+    private void append(ByteBuffer record, long hash, long storedAtMillis) throws IOException {
+        if (currentSize + record.remaining() > segmentBytes && currentSize > ArchiveFormat.SEGMENT_HEADER_BYTES) {
+            segments.get(currentSegment).force(false);
+            openSegment(currentSegment + 1);
+        }
+        FileChannel ch = segments.get(currentSegment);
+        int offset = currentSize;
+        long pos = offset;
+        while (record.hasRemaining()) pos += ch.write(record, pos);
+        currentSize = (int) pos;
+
+        index.put(hash, currentSegment, offset, storedAtMillis);
+        index.setCovered(currentSegment, currentSize);
+        if (index.needsGrow()) {
+            index = index.grow();
+            log.info("Response archive: index grown to {} slots", index.capacity());
+        }
+    }
+
+    // writeLock held (or startup)
+    private void openSegment(int n) throws IOException {
+        FileChannel ch = FileChannel.open(root.resolve(ArchiveFormat.segmentName(n)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.SEGMENT_HEADER_BYTES).order(ArchiveFormat.ORDER);
+        header.putInt(ArchiveFormat.SEGMENT_MAGIC).putInt(ArchiveFormat.FORMAT_VERSION)
+                .putLong(System.currentTimeMillis()).flip();
+        while (header.hasRemaining()) ch.write(header, header.position());
+        segments.put(n, ch);
+        currentSegment = n;
+        currentSize = ArchiveFormat.SEGMENT_HEADER_BYTES;
+    }
+
+    /** Whether a Google response is a real answer (status OK or ZERO_RESULTS), not an error. */
+    static boolean servable(String body) {
+        int at = body.lastIndexOf("\"status\"");
+        if (at < 0) return false;
+        int open = body.indexOf('"', body.indexOf(':', at + 8) + 1);
+        int close = open < 0 ? -1 : body.indexOf('"', open + 1);
+        if (close < 0) return false;
+        String status = body.substring(open + 1, close);
+        return "OK".equals(status) || "ZERO_RESULTS".equals(status);
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        return b.length <= 0xffff ? b : Arrays.copyOf(b, 0xffff);
+    }
+
+    // ----------------------------
+    // Reading
+    // ----------------------------
+
+    /** Reads the whole record at (segment, offset); null if it is gone, torn or another key's. */
+    private Entry read(int segment, int offset, long expectedHash, String expectedKey) {
+        ByteBuffer record = readRecord(segment, offset);
+        if (record == null || record.getLong(8) != expectedHash) return null;
+        Entry entry = decode(record, true);
+        return entry != null && entry.key().equals(expectedKey) ? entry : null;
+    }
+
+    // the record at offset, length and crc checked; null if there is no valid record there
+    private ByteBuffer readRecord(int segment, long offset) {
+        FileChannel ch = segments.get(segment);
+        if (ch == null) return null;
+        try {
+            ByteBuffer len = ByteBuffer.allocate(4).order(ArchiveFormat.ORDER);
+            if (ch.read(len, offset) != 4) return null;
+            int length = len.getInt(0);
+            if (length < ArchiveFormat.RECORD_OVERHEAD_BYTES - 4 || offset + 4 + length > ch.size()) return null;
+            ByteBuffer b = ByteBuffer.allocate(4 + length).order(ArchiveFormat.ORDER);
+            long pos = offset;
+            while (b.hasRemaining()) {
+                int n = ch.read(b, pos);
+                if (n < 0) return null;
+                pos += n;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(b.array(), 8, length - 4);
+            return (int) crc.getValue() == b.getInt(4) ? b.flip() : null;
+        } catch (ClosedByInterruptException e) {
+            reopen(segment, ch);   // the interrupt closed the channel for every thread
+            return null;
+        } catch (IOException e) {
+            return null;   // segment compacted away meanwhile, or unreadable
+        }
+    }
+
+    private void reopen(int segment, FileChannel closed) {
+        synchronized (segments) {
+            Path file = root.resolve(ArchiveFormat.segmentName(segment));
+            if (segments.get(segment) != closed || !Files.exists(file)) return;
+            try {
+                segments.put(segment, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            } catch (IOException e) {
+                log.warn("Response archive: cannot reopen {}: {}", file, e.toString());
+            }
+        }
+    }
+
+    private static Entry decode(ByteBuffer b, boolean latest) {
+        try {
+            b.position(16);
+            long storedAt = b.getLong();
+            boolean servable = (b.get() & ArchiveFormat.FLAG_SERVABLE) != 0;
+            String stage = string(b, b.getShort() & 0xffff);
+            String key = string(b, b.getShort() & 0xffff);
+            int rawLength = b.getInt();
+            byte[] raw = new byte[rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(b.array(), b.position(), b.remaining());
+                int n = 0;
+                while (n < rawLength && !inflater.finished()) {
+                    int got = inflater.inflate(raw, n, rawLength - n);
+                    if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) return null;
+                    n += got;
+                }
+                if (n != rawLength) return null;
+            } finally {
+                inflater.end();
+            }
+            return new Entry(key, stage, storedAt, servable, latest, new String(raw, StandardCharsets.UTF_8));
+        } catch (DataFormatException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String string(ByteBuffer b, int length) {
+        String s = new String(b.array(), b.position(), length, StandardCharsets.UTF_8);
+        b.position(b.position() + length);
+        return s;
+    }
+
+    /** Visitor of scanned records: offset of the record and its checked bytes. */
+    private interface RecordVisitor {
+        void visit(int offset, ByteBuffer record) throws IOException;
+    }
+
+    // walks the valid records of a segment from offset; returns where the valid data ends
+    private int scanSegment(int segment, int from, RecordVisitor visitor) throws IOException {
+        int offset = Math.max(from, ArchiveFormat.SEGMENT_HEADER_BYTES);
+        while (true) {
+            ByteBuffer record = readRecord(segment, offset);
+            if (record == null) return offset;
+            visitor.visit(offset, record);
+            offset += record.limit();
+        }
+    }
+
+    // startup: index what the index has not seen yet, and cut a torn tail off the last segment
+    private int catchUp() throws IOException {
+        int fromSegment = index.coveredSegment();
+        int fromOffset = index.coveredOffset();
+        if (!segments.containsKey(fromSegment)) {
+            fromSegment = segments.isEmpty() ? 0 : segments.firstKey();
+            fromOffset = 0;
+        }
+        int[] indexed = {0};
+        for (Map.Entry<Integer, FileChannel> e : segments.tailMap(fromSegment).entrySet()) {
+            int segment = e.getKey();
+            int end = scanSegment(segment, segment == fromSegment ? fromOffset : 0, (offset, record) -> {
+                index.put(record.getLong(8), segment, offset, record.getLong(16));
+                indexed[0]++;
+                if (index.needsGrow()) index = index.grow();
+            });
+            if (end < e.getValue().size()) {
+                log.warn("Response archive: {} has {} bytes of torn or invalid data after offset {}, truncating",
+                        ArchiveFormat.segmentName(segment), e.getValue().size() - end, end);
+                e.getValue().truncate(end);
+            }
+            index.setCovered(segment, end);
+        }
+        return indexed[0];
+    }
+
+    /**
+     * Visits every readable archived record, oldest segment first (superseded responses
+     * included; Entry.latest() tells which one lookups would serve). stagePrefix = null
+     * visits all stages; limit <= 0 means no limit. Returns the number visited.
+     */
+    public long scan(String stagePrefix, long limit, Consumer<Entry> visitor) throws IOException {
+        if (!enabled) return 0;
+        long[] visited = {0};
+        for (int segment : new ArrayList<>(segments.keySet())) {
+            if (limit > 0 && visited[0] >= limit) break;
+            scanSegment(segment, 0, (offset, record) -> {
+                if (limit > 0 && visited[0] >= limit) return;
+                long hash = record.getLong(8);
+                Entry entry = decode(record, index.pointsAt(hash, segment, offset));
+                if (entry == null || (stagePrefix != null && !entry.stage().startsWith(stagePrefix))) return;
+                visited[0]++;
+                visitor.accept(entry);
+            });
+        }
+        return visited[0];
+    }
+
+    // ----------------------------
+    // Compaction
+    // ----------------------------
+
+    /**
+     * Rewrites sealed segments that hold mostly dead records: live ones (still indexed and
+     * within retentionDays) are copied to the current segment, expired ones leave the index,
+     * and the segment file is deleted.
+     */
+    public Map<String, Object> compact() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        if (!enabled) return out;
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays);
+        int compacted = 0;
+        long copied = 0;
+        long expired = 0;
+        for (int segment : new ArrayList<>(segments.keySet())) {
+            synchronized (writeLock) {
+                if (segment == currentSegment) continue;
+                try {
+                    long[] counts = compactSegment(segment, cutoff);
+                    if (counts != null) {
+                        compacted++;
+                        copied += counts[0];
+                        expired += counts[1];
+                    }
+                } catch (IOException e) {
+                    log.warn("Response archive: compacting {} failed: {}", ArchiveFormat.segmentName(segment), e.toString());
+                }
+            }
+        }
+        if (compacted > 0) {
+            compactedSegments.addAndGet(compacted);
+            log.info("Response archive: compacted {} segments ({} records kept, {} expired)", compacted, copied, expired);
+        }
+        out.put("compactedSegments", compacted);
+        out.put("recordsCopied", copied);
+        out.put("recordsExpired", expired);
+        return out;
+    }
+
+    @Scheduled(fixedDelayString = "${delhight.archive.compactMillis:3600000}",
+            initialDelayString = "${delhight.archive.compactMillis:3600000}")
+    public void scheduledCompact() {
+        compact();
+    }
+
+    // writeLock held; {copied, expired}, or null if the segment was worth keeping as it is
+    private long[] compactSegment(int segment, long cutoff) throws IOException {
+        FileChannel ch = segments.get(segment);
+        long total = ch.size() - ArchiveFormat.SEGMENT_HEADER_BYTES;
+        List<int[]> live = new ArrayList<>();        // offset, length
+        List<long[]> expiring = new ArrayList<>();   // hash, offset
+        long[] liveBytes = {0};
+        scanSegment(segment, 0, (offset, record) -> {
+            long hash = record.getLong(8);
+            if (!index.pointsAt(hash, segment, offset)) return;   // superseded
+            if (record.getLong(16) < cutoff) {
+                expiring.add(new long[]{hash, offset});
+            } else {
+                live.add(new int[]{offset, record.limit()});
+                liveBytes[0] += record.limit();
+            }
+        });
+        if (expiring.isEmpty() && total > 0 && liveBytes[0] >= total * compactLiveRatio) return null;
+
+        for (int[] r : live) {
+            ByteBuffer record = readRecord(segment, r[0]);
+            if (record == null) continue;
+            append(record, record.getLong(8), record.getLong(16));
+        }
+        for (long[] e : expiring) index.remove(e[0], segment, (int) e[1]);
+        segments.get(currentSegment).force(false);
+        index.force();
+
+        segments.remove(segment);
+        ch.close();
+        Files.deleteIfExists(root.resolve(ArchiveFormat.segmentName(segment)));
+        return new long[]{live.size(), expiring.size()};
+    }
+
+    // ----------------------------
+    // Stats
+    // ----------------------------
+
+    private double diskBytes() {
+        long total = 0;
+        for (FileChannel ch : segments.values()) {
+            try {
+                total += ch.size();
+            } catch (IOException ignored) {
+            }
+        }
+        return total;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        if (!enabled) return out;
+        out.put("dir", root.toAbsolutePath().toString());
+        out.put("serve", serve);
+        out.put("segments", segments.size());
+        out.put("currentSegment", currentSegment);
+        out.put("diskBytes", (long) diskBytes());
+        ArchiveIndex idx = index;
+        out.put("indexCapacity", idx.capacity());
+        out.put("indexUsed", idx.used());
+        Map<String, Long> results = new LinkedHashMap<>();
+        for (int i = 0; i < RESULTS.length; i++) results.put(RESULTS[i], (long) lookups[i].count());
+        out.put("lookups", results);
+        out.put("written", written.get());
+        out.put("dropped", dropped.get());
+        out.put("writeErrors", writeErrors.get());
+        long raw = rawBytes.get();
+        out.put("compressionRatio", raw == 0 ? 0 : Math.round(raw * 100.0 / storedBytes.get()) / 100.0);
+        out.put("queued", queue.size());
+        out.put("compactedSegments", compactedSegments.get());
+        return out;
+    }
+}
@@ -0,0 +1,91 @@
+package com.delhight.backend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Guards the operational endpoints (/admin/**, AdminController) with a shared token:
+ *
+ *   delhight.admin.token = <long random string>
+ *
+ *   curl -H "Authorization: Bearer $TOKEN" -X POST http://host:8080/admin/route-cache/clear
+ *
+ * (X-Delhight-Admin-Token: <token> works too). Without a configured token the admin
+ * endpoints are disabled: every request gets 403. A wrong or missing token gets 401.
+ *
+ * Runs before every other filter, so an admin request never reaches affinity forwarding
+ * or load shedding before it is authenticated.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 50)
+public class AdminAuthFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdminAuthFilter.class);
+
+    public static final String TOKEN_HEADER = "X-Delhight-Admin-Token";
+    private static final String BEARER = "Bearer ";
+
+    @Value("${delhight.admin.token:}")
+    private String token;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // servlet path: decoded and normalized, as the handler mapping sees it
+        String path = request.getServletPath() + (request.getPathInfo() != null ? request.getPathInfo() : "");
+        return !(path.equals("/admin") || path.startsWith("/admin/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        if (token.isBlank()) {
+            reject(response, HttpServletResponse.SC_FORBIDDEN, "admin endpoints are disabled (delhight.admin.token is not set)");
+            return;
+        }
+        if (!matches(presented(request))) {
+            log.warn("Rejected {} {} from {}: missing or wrong admin token",
+                    request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+            response.setHeader("WWW-Authenticate", "Bearer");
+            reject(response, HttpServletResponse.SC_UNAUTHORIZED, "admin token required");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static String presented(HttpServletRequest request) {
+        String header = request.getHeader(TOKEN_HEADER);
+        if (header != null) return header.trim();
+        String auth = request.getHeader("Authorization");
+        if (auth != null && auth.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return auth.substring(BEARER.length()).trim();
+        }
+        return null;
+    }
+
+    // constant time, so the token cannot be guessed byte by byte from response times
+    private boolean matches(String presented) {
+        if (presented == null) return false;
+        return MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"status\":\"error\",\"message\":\"" + message + "\"}");
+    }
+}
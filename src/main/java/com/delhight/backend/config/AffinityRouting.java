@@ -0,0 +1,322 @@
+package com.delhight.backend.config;
+
+import com.delhight.backend.service.RouteResultCache;
+import com.delhight.backend.utils.ConsistentHashRing;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Membership, health and load of the backend nodes that share /routes traffic by trip
+ * (used by AffinityRoutingFilter).
+ *
+ *   delhight.affinity.self  = http://10.0.0.1:8080            (this node, as peers reach it)
+ *   delhight.affinity.peers = http://10.0.0.1:8080,http://10.0.0.2:8080,...
+ *
+ * Each trip (RouteResultCache.TripKey: snapped origin, destination, departure bucket) is
+ * owned by one node on a consistent-hash ring of the healthy members, so repeated trips
+ * meet the same node's route cache whichever node the load balancer picked.
+ *
+ * - bounded load: a node is skipped for new trips while it has more than
+ *   delhight.affinity.loadFactor x the average in-flight /routes requests (as counted by
+ *   this node); its trips go to the next node on the ring
+ * - health: peers are probed on /ping every probeMillis; after failuresToEvict failures in a
+ *   row (failed probes and timed-out forwards alike; any other failed forward at once) a peer
+ *   leaves the ring, and it rejoins after a successful probe
+ * - peers can be taken out of the ring and put back at runtime (/admin/affinity/peers), but
+ *   only the configured ones: a node outside delhight.affinity.peers never joins the ring,
+ *   since it would receive (and answer) a share of real users' /routes traffic
+ *
+ * Only the keys of a joining or leaving node move, so the other nodes keep their caches.
+ */
+@Component
+public class AffinityRouting {
+
+    private static final Logger log = LoggerFactory.getLogger(AffinityRouting.class);
+
+    private final RouteResultCache routeResultCache;
+
+    @Value("${delhight.affinity.enabled:false}")
+    private boolean enabled;
+
+    @Value("${delhight.affinity.self:}")
+    private String self;
+
+    @Value("${delhight.affinity.peers:}")
+    private String configuredPeers;
+
+    @Value("${delhight.affinity.virtualNodes:128}")
+    private int virtualNodes;
+
+    // max in-flight per node relative to the average, before its trips spill over (>= 1)
+    @Value("${delhight.affinity.loadFactor:1.25}")
+    private double loadFactor;
+
+    @Value("${delhight.affinity.probeTimeoutMillis:500}")
+    private long probeTimeoutMillis;
+
+    @Value("${delhight.affinity.failuresToEvict:2}")
+    private int failuresToEvict;
+
+    private final HttpClient probeClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(500))
+            .build();
+
+    /** Health and counters of one member. */
+    private static final class Member {
+        volatile boolean up = true;
+        final AtomicInteger failures = new AtomicInteger();   // probes and timed-out forwards, in a row
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicLong routed = new AtomicLong();
+        final AtomicLong spilledTo = new AtomicLong();
+    }
+
+    private final Set<String> allowed = new HashSet<>();
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+    private volatile ConsistentHashRing ring = new ConsistentHashRing(List.of(), 1);
+    private final AtomicInteger totalInFlight = new AtomicInteger();
+    private final Map<String, AtomicLong> outcomes = new ConcurrentHashMap<>();
+
+    public AffinityRouting(RouteResultCache routeResultCache) {
+        this.routeResultCache = routeResultCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        if (self.isBlank()) throw new IllegalStateException("delhight.affinity.self is required when affinity is enabled");
+        self = normalize(self);
+        members.put(self, new Member());
+        allowed.add(self);
+        for (String peer : configuredPeers.split(",")) {
+            if (peer.isBlank()) continue;
+            allowed.add(normalize(peer));
+            members.putIfAbsent(normalize(peer), new Member());
+        }
+        rebuild("startup");
+    }
+
+    public boolean isEnabled() {
+        return enabled && members.size() > 1;
+    }
+
+    public String self() {
+        return self;
+    }
+
+    // ----------------------------
+    // Routing
+    // ----------------------------
+
+    /** One routing decision; release() when the request is done. */
+    public final class Route {
+        private final String node;
+        private final Member member;
+        private final boolean spilled;
+        private boolean released;
+
+        private Route(String node, Member member, boolean spilled) {
+            this.node = node;
+            this.member = member;
+            this.spilled = spilled;
+        }
+
+        public String node() { return node; }
+
+        public boolean isLocal() { return node.equals(self); }
+
+        public boolean isSpilled() { return spilled; }
+
+        public void release() {
+            if (released) return;
+            released = true;
+            member.inFlight.decrementAndGet();
+            totalInFlight.decrementAndGet();
+        }
+    }
+
+    /** The node that should serve a trip, accounting the request against its load. */
+    public Route route(double oLat, double oLng, double dLat, double dLng) {
+        RouteResultCache.TripKey key = routeResultCache.tripKey(oLat, oLng, dLat, dLng);
+        long hash = ConsistentHashRing.mix(key.origin() * 0x9E3779B97F4A7C15L
+                ^ ConsistentHashRing.mix(key.destination()) ^ key.bucket());
+
+        ConsistentHashRing current = ring;
+        String owner = current.owner(hash);
+        String chosen = current.owner(hash, this::hasCapacity);
+        if (chosen == null) chosen = self;
+
+        Member m = members.get(chosen);
+        if (m == null) {   // removed meanwhile
+            chosen = self;
+            m = members.get(self);
+        }
+        boolean spilled = !chosen.equals(owner);
+        m.inFlight.incrementAndGet();
+        m.routed.incrementAndGet();
+        if (spilled) m.spilledTo.incrementAndGet();
+        totalInFlight.incrementAndGet();
+        return new Route(chosen, m, spilled);
+    }
+
+    // bounded loads: at most ceil(loadFactor x (in flight + this one) / nodes) per node
+    private boolean hasCapacity(String node) {
+        Member m = members.get(node);
+        if (m == null) return false;
+        int nodes = Math.max(1, ring.nodes().size());
+        double cap = Math.ceil(loadFactor * (totalInFlight.get() + 1) / nodes);
+        return m.inFlight.get() + 1 <= cap;
+    }
+
+    /**
+     * A forward to the node failed: take it out of the ring until a probe succeeds. A timeout
+     * only counts towards failuresToEvict, like a failed probe: a node that is slow under load
+     * is not down, and evicting it would move all its trips to cold caches.
+     */
+    public void forwardFailed(String node, Exception e) {
+        Member m = members.get(node);
+        if (m == null || node.equals(self) || !m.up) return;
+        if (e instanceof HttpTimeoutException) {
+            int failures = m.failures.incrementAndGet();
+            if (failures < failuresToEvict) return;
+            log.warn("Affinity: {} failed {} times in a row (last: forward timed out), removing it from the ring",
+                    node, failures);
+        } else {
+            log.warn("Affinity: forward to {} failed ({}), removing it from the ring", node, e.toString());
+        }
+        m.up = false;
+        rebuild(node + " failed");
+    }
+
+    /** A forward to the node was answered: its run of failures is over. */
+    public void forwardSucceeded(String node) {
+        Member m = members.get(node);
+        if (m != null && m.failures.get() != 0) m.failures.set(0);
+    }
+
+    /** Counts what the filter did with a request (local, forwarded, fallback, ...). */
+    public void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    // ----------------------------
+    // Membership
+    // ----------------------------
+
+    @Scheduled(fixedDelayString = "${delhight.affinity.probeMillis:2000}")
+    public void probePeers() {
+        if (!enabled) return;
+        boolean changed = false;
+        for (Map.Entry<String, Member> e : members.entrySet()) {
+            if (e.getKey().equals(self)) continue;
+            Member m = e.getValue();
+            boolean ok = probe(e.getKey());
+            if (ok) {
+                m.failures.set(0);
+                if (!m.up) {
+                    m.up = true;
+                    changed = true;
+                    log.info("Affinity: {} is healthy again, adding it to the ring", e.getKey());
+                }
+            } else if (m.failures.incrementAndGet() >= failuresToEvict && m.up) {
+                m.up = false;
+                changed = true;
+                log.warn("Affinity: {} failed {} times in a row (last: probe), removing it from the ring",
+                        e.getKey(), m.failures.get());
+            }
+        }
+        if (changed) rebuild("probe");
+    }
+
+    private boolean probe(String node) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(node + "/ping"))
+                    .timeout(Duration.ofMillis(probeTimeoutMillis)).GET().build();
+            return probeClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Puts a configured peer back after removePeer (it joins the ring right away; probes
+     * remove it if it is not reachable). Nodes outside delhight.affinity.peers are refused.
+     */
+    public void addPeer(String node) {
+        if (!enabled) throw new IllegalStateException("affinity routing is disabled");
+        String n = normalize(node);
+        if (!allowed.contains(n)) throw new IllegalArgumentException(n + " is not in delhight.affinity.peers");
+        if (members.putIfAbsent(n, new Member()) == null) rebuild("added " + n);
+    }
+
+    public void removePeer(String node) {
+        if (!enabled) throw new IllegalStateException("affinity routing is disabled");
+        String n = normalize(node);
+        if (n.equals(self)) throw new IllegalArgumentException("cannot remove this node");
+        if (members.remove(n) != null) rebuild("removed " + node);
+    }
+
+    private synchronized void rebuild(String reason) {
+        List<String> live = new ArrayList<>();
+        for (Map.Entry<String, Member> e : members.entrySet()) {
+            if (e.getValue().up) live.add(e.getKey());
+        }
+        live.sort(null);   // same ring on every node, whatever the configured order
+        ring = new ConsistentHashRing(live, virtualNodes);
+        log.info("Affinity ring ({}): {}", reason, ring.describe());
+    }
+
+    private static String normalize(String url) {
+        String u = url.trim();
+        return u.endsWith("/") ? u.substring(0, u.length() - 1) : u;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        if (!enabled) return out;
+        out.put("self", self);
+        out.put("loadFactor", loadFactor);
+        out.put("ring", ring.describe());
+        Map<String, Object> nodes = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(members.keySet())) {
+            Member m = members.get(name);
+            if (m == null) continue;
+            Map<String, Object> n = new LinkedHashMap<>();
+            n.put("up", m.up);
+            n.put("inFlight", m.inFlight.get());
+            n.put("routed", m.routed.get());
+            n.put("spilledTo", m.spilledTo.get());
+            nodes.put(name, n);
+        }
+        out.put("nodes", nodes);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String outcome : new TreeSet<>(outcomes.keySet())) counts.put(outcome, outcomes.get(outcome).get());
+        out.put("requests", counts);
+        return out;
+    }
+}
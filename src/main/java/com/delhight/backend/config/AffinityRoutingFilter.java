@@ -0,0 +1,246 @@
+package com.delhight.backend.config;
+
+import com.delhight.backend.service.GeocodingService;
+import com.delhight.backend.utils.Deadline;
+import com.delhight.backend.utils.RequestTrace;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+
+/**
+ * Sends each GET /routes to the node that owns its trip (AffinityRouting) and relays the
+ * answer, so all requests for one trip share one node's route cache.
+ *
+ * - requests already forwarded by a peer (X-Delhight-Forwarded-By) are always served
+ *   locally, so nodes that briefly disagree about the ring cannot bounce a request around
+ * - from/to are geocoded here once, under the request's deadline and in its trace
+ *   (RoutesRequestContext). The coordinates go on with the request: as a request attribute
+ *   when it is served here, in X-Delhight-Trip when it is forwarded, so neither node
+ *   geocodes them again
+ * - the owner gets deadlineMs = the time left here, and the forward waits no longer than
+ *   that (plus a margin for the response)
+ * - if the owner cannot be connected to, or sheds the request (503), it is served locally
+ *   with the time that is left. If the owner times out, the answer is 504: the deadline
+ *   is spent. Other failures after connecting answer 502. Connect failures and timeouts
+ *   count against the owner (it leaves the ring after failuresToEvict timeouts in a row,
+ *   at once for other failures)
+ * - addresses that do not geocode are served locally (the answer is empty anyway)
+ *
+ * Every /routes response carries X-Delhight-Served-By with the node that computed it
+ * (and the owner's Server-Timing, when it traced the request).
+ * Runs before ConcurrencyLimitFilter: the owner's limit decides, not the forwarder's.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 100)
+public class AffinityRoutingFilter extends OncePerRequestFilter {
+
+    public static final String FORWARDED_BY = "X-Delhight-Forwarded-By";
+    public static final String SERVED_BY = "X-Delhight-Served-By";
+    // "oLat,oLng,dLat,dLng" geocoded by the forwarding node
+    public static final String TRIP = "X-Delhight-Trip";
+
+    // time the owner needs past its deadline to write the (partial) answer
+    private static final long FORWARD_MARGIN_MILLIS = 1000;
+
+    private final AffinityRouting routing;
+    private final GeocodingService geocodingService;
+    private final RoutesRequestContext requestContext;
+
+    // upper bound on any forward, whatever the deadline
+    @Value("${delhight.affinity.forwardTimeoutMillis:32000}")
+    private long forwardTimeoutMillis;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(500))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    public AffinityRoutingFilter(AffinityRouting routing, GeocodingService geocodingService,
+                                 RoutesRequestContext requestContext) {
+        this.routing = routing;
+        this.geocodingService = geocodingService;
+        this.requestContext = requestContext;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !routing.isEnabled() || !"GET".equals(request.getMethod()) || !"/routes".equals(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        try {
+            if (request.getHeader(FORWARDED_BY) != null) {
+                routing.count("received");
+                RoutesRequestContext.Trip trip = parseTrip(request.getHeader(TRIP));
+                if (trip != null) requestContext.setTrip(request, trip);
+                serveLocally(request, response, chain);
+                return;
+            }
+
+            String from = request.getParameter("from");
+            String to = request.getParameter("to");
+            if (from == null || from.isBlank() || to == null || to.isBlank()) {
+                serveLocally(request, response, chain);   // the controller answers the error
+                return;
+            }
+            RoutesRequestContext.Trip trip = geocode(request, from, to);
+            requestContext.setTrip(request, trip);
+            if (!trip.resolved()) {
+                routing.count("ungeocoded");
+                serveLocally(request, response, chain);
+                return;
+            }
+
+            double[] o = trip.origin(), d = trip.destination();
+            AffinityRouting.Route route = routing.route(o[0], o[1], d[0], d[1]);
+            try {
+                if (route.isLocal()) {
+                    routing.count(route.isSpilled() ? "local-spilled" : "local");
+                    serveLocally(request, response, chain);
+                    return;
+                }
+                switch (forward(route.node(), request, response, trip)) {
+                    case RELAYED -> routing.count(route.isSpilled() ? "forwarded-spilled" : "forwarded");
+                    case TIMED_OUT -> {
+                        routing.count("forward-timeout");
+                        reject(response, HttpServletResponse.SC_GATEWAY_TIMEOUT, "route owner did not answer in time");
+                    }
+                    case FAILED -> {
+                        routing.count("forward-failed");
+                        reject(response, HttpServletResponse.SC_BAD_GATEWAY, "route owner failed");
+                    }
+                    case NOT_SENT -> {
+                        routing.count("fallback");
+                        serveLocally(request, response, chain);
+                    }
+                }
+            } finally {
+                route.release();
+            }
+        } finally {
+            requestContext.closeTrace(request);
+        }
+    }
+
+    // both addresses, within the request's deadline and trace
+    private RoutesRequestContext.Trip geocode(HttpServletRequest request, String from, String to) {
+        requestContext.trace(request);
+        try (Deadline.Scope ignored = requestContext.deadline(request).enter()) {
+            double[] o = geocodingService.geocodeAddress(from);
+            double[] d = o != null ? geocodingService.geocodeAddress(to) : null;
+            return new RoutesRequestContext.Trip(o, d);
+        }
+    }
+
+    private void serveLocally(HttpServletRequest request, HttpServletResponse response,
+                              FilterChain chain) throws ServletException, IOException {
+        response.setHeader(SERVED_BY, routing.self());
+        chain.doFilter(request, response);
+    }
+
+    private enum Forward { RELAYED, NOT_SENT, TIMED_OUT, FAILED }
+
+    private Forward forward(String node, HttpServletRequest request, HttpServletResponse response,
+                            RoutesRequestContext.Trip trip) throws IOException {
+        long remaining = requestContext.deadline(request).remaining().toMillis();
+        if (remaining <= 0) return Forward.NOT_SENT;   // geocoding used it up: answer partial here
+
+        double[] o = trip.origin(), d = trip.destination();
+        HttpRequest upstream = HttpRequest.newBuilder(URI.create(node + request.getRequestURI()
+                        + "?" + withDeadline(request.getQueryString(), remaining)))
+                .timeout(Duration.ofMillis(Math.min(forwardTimeoutMillis, remaining + FORWARD_MARGIN_MILLIS)))
+                .header(FORWARDED_BY, routing.self())
+                .header(TRIP, o[0] + "," + o[1] + "," + d[0] + "," + d[1])
+                .GET()
+                .build();
+
+        HttpResponse<InputStream> answer;
+        try {
+            answer = client.send(upstream, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Forward.NOT_SENT;
+        } catch (ConnectException | HttpConnectTimeoutException e) {
+            // never reached the owner: nothing was spent there, serve it here
+            routing.forwardFailed(node, e);
+            return Forward.NOT_SENT;
+        } catch (HttpTimeoutException e) {
+            routing.forwardFailed(node, e);
+            return Forward.TIMED_OUT;
+        } catch (IOException e) {
+            routing.forwardFailed(node, e);
+            return Forward.FAILED;
+        }
+
+        routing.forwardSucceeded(node);
+        try (InputStream body = answer.body()) {
+            if (answer.statusCode() == HttpServletResponse.SC_SERVICE_UNAVAILABLE) return Forward.NOT_SENT;
+            response.setStatus(answer.statusCode());
+            answer.headers().firstValue("Content-Type").ifPresent(response::setContentType);
+            response.setHeader(SERVED_BY, answer.headers().firstValue(SERVED_BY).orElse(node));
+            answer.headers().firstValue(RequestTrace.HEADER).ifPresent(v -> response.setHeader(RequestTrace.HEADER, v));
+            body.transferTo(response.getOutputStream());
+        }
+        return Forward.RELAYED;
+    }
+
+    // the query with deadlineMs replaced by the time left here
+    private static String withDeadline(String query, long remainingMillis) {
+        StringJoiner out = new StringJoiner("&");
+        if (query != null) {
+            for (String param : query.split("&")) {
+                String name = URLDecoder.decode(param.split("=", 2)[0], StandardCharsets.UTF_8);
+                if (!param.isEmpty() && !name.equals("deadlineMs")) out.add(param);
+            }
+        }
+        out.add("deadlineMs=" + URLEncoder.encode(Long.toString(remainingMillis), StandardCharsets.UTF_8));
+        return out.toString();
+    }
+
+    private static RoutesRequestContext.Trip parseTrip(String header) {
+        if (header == null) return null;
+        String[] parts = header.split(",");
+        if (parts.length != 4) return null;
+        try {
+            return new RoutesRequestContext.Trip(
+                    new double[]{Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim())},
+                    new double[]{Double.parseDouble(parts[2].trim()), Double.parseDouble(parts[3].trim())});
+        } catch (NumberFormatException e) {
+            return null;   // geocoded again here
+        }
+    }
+
+    private void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(SERVED_BY, routing.self());
+        response.getWriter().write("{\"status\":\"error\",\"message\":\"" + message + "\"}");
+    }
+}
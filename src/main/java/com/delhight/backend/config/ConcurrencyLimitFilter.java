@@ -0,0 +1,83 @@
+package com.delhight.backend.config;
+
+import com.delhight.backend.utils.AdaptiveConcurrencyLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Load shedding in front of the routing endpoints.
+ *
+ * A request is admitted only while its group (ConcurrencyLimits) has fewer requests in
+ * flight than its current adaptive limit; otherwise it is rejected at once with 503 and
+ * Retry-After, instead of taking a Tomcat thread and queueing behind Google.
+ *
+ * Completed requests report their latency back to the limiter: 5xx responses and
+ * exceptions count as overload, 4xx are ignored.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private final ConcurrencyLimits limits;
+
+    @Value("${delhight.limits.enabled:true}")
+    private boolean enabled;
+
+    @Value("${delhight.limits.retryAfterSeconds:1}")
+    private int retryAfterSeconds;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimits limits) {
+        this.limits = limits;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || limits.forPath(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter limiter = limits.forPath(request.getRequestURI());
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            reject(response, limiter);
+            return;
+        }
+
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            int status = response.getStatus();
+            if (failed || status >= 500) permit.failure();
+            else if (status >= 400) permit.ignore();
+            else permit.success();
+        }
+    }
+
+    private void reject(HttpServletResponse response, AdaptiveConcurrencyLimiter limiter) throws IOException {
+        if (limiter.rejected() % 100 == 1) {
+            log.warn("Shedding load on {}: limit {} reached ({} rejected so far)",
+                    limiter.name(), limiter.limit(), limiter.rejected());
+        }
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"status\":\"overloaded\",\"limit\":\"" + limiter.name() + "\"}");
+    }
+}
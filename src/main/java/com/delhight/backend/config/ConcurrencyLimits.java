@@ -0,0 +1,96 @@
+package com.delhight.backend.config;
+
+import com.delhight.backend.utils.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The adaptive concurrency limits applied by ConcurrencyLimitFilter, one per endpoint group:
+ *
+ *   routes        /routes
+ *   batch         /routes/batch: a fixed limit (batch.max), not adaptive. A batch holds its
+ *                 permit for minutes, so its latency says nothing about queueing; sharing
+ *                 the routes limiter, every finished batch would cut the interactive limit
+ *                 and inflate the routes queue DegradationController watches
+ *   stations      /api/nearest-stations*, /api/geocode*, /stations/*
+ *   autocomplete  /autocomplete (smaller, so typing bursts cannot starve route computation)
+ *
+ * Each limit is published as Micrometer gauges delhight.limit.{limit,inflight} and the
+ * counter-like gauge delhight.limit.rejected (tag "group").
+ */
+@Component
+public class ConcurrencyLimits {
+
+    private final AdaptiveConcurrencyLimiter routes;
+    private final AdaptiveConcurrencyLimiter batch;
+    private final AdaptiveConcurrencyLimiter stations;
+    private final AdaptiveConcurrencyLimiter autocomplete;
+
+    public ConcurrencyLimits(
+            MeterRegistry registry,
+            @Value("${delhight.limits.routes.initial:20}") int routesInitial,
+            @Value("${delhight.limits.routes.min:4}") int routesMin,
+            @Value("${delhight.limits.routes.max:200}") int routesMax,
+            @Value("${delhight.limits.batch.max:4}") int batchMax,
+            @Value("${delhight.limits.stations.initial:20}") int stationsInitial,
+            @Value("${delhight.limits.stations.min:4}") int stationsMin,
+            @Value("${delhight.limits.stations.max:100}") int stationsMax,
+            @Value("${delhight.limits.autocomplete.initial:8}") int autocompleteInitial,
+            @Value("${delhight.limits.autocomplete.min:2}") int autocompleteMin,
+            @Value("${delhight.limits.autocomplete.max:32}") int autocompleteMax,
+            // how much slower than the baseline latency is still "not queueing"
+            @Value("${delhight.limits.tolerance:1.5}") double tolerance,
+            // requests per limit update
+            @Value("${delhight.limits.window:20}") int window
+    ) {
+        this.routes = new AdaptiveConcurrencyLimiter("routes", routesInitial, routesMin, routesMax, tolerance, window);
+        // min = max: the limit never moves
+        this.batch = new AdaptiveConcurrencyLimiter("batch", batchMax, batchMax, batchMax, tolerance, window);
+        this.stations = new AdaptiveConcurrencyLimiter("stations", stationsInitial, stationsMin, stationsMax, tolerance, window);
+        this.autocomplete = new AdaptiveConcurrencyLimiter("autocomplete", autocompleteInitial, autocompleteMin,
+                autocompleteMax, tolerance, window);
+        for (AdaptiveConcurrencyLimiter l : all()) {
+            Gauge.builder("delhight.limit.limit", l, AdaptiveConcurrencyLimiter::limit).tag("group", l.name()).register(registry);
+            Gauge.builder("delhight.limit.inflight", l, AdaptiveConcurrencyLimiter::inFlight).tag("group", l.name()).register(registry);
+            Gauge.builder("delhight.limit.rejected", l, AdaptiveConcurrencyLimiter::rejected).tag("group", l.name()).register(registry);
+        }
+    }
+
+    /** The limiter guarding a request path, or null if the path is not limited. */
+    public AdaptiveConcurrencyLimiter forPath(String path) {
+        if (path.equals("/routes/batch")) return batch;
+        if (path.equals("/routes") || path.startsWith("/routes/")) return routes;
+        if (path.equals("/autocomplete") || path.startsWith("/autocomplete/")) return autocomplete;
+        if (path.startsWith("/api/nearest-stations") || path.startsWith("/api/geocode")
+                || path.startsWith("/stations/")) return stations;
+        return null;
+    }
+
+    public AdaptiveConcurrencyLimiter routes() {
+        return routes;
+    }
+
+    public List<AdaptiveConcurrencyLimiter> all() {
+        return List.of(routes, batch, stations, autocomplete);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (AdaptiveConcurrencyLimiter l : all()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("limit", l.limit());
+            m.put("inFlight", l.inFlight());
+            m.put("accepted", l.accepted());
+            m.put("rejected", l.rejected());
+            m.put("baselineRttMillis", Math.round(l.baselineRttMillis() * 10) / 10.0);
+            out.put(l.name(), m);
+        }
+        return out;
+    }
+}
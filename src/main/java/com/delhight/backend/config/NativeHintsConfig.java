@@ -0,0 +1,72 @@
+package com.delhight.backend.config;
+
+import com.delhight.backend.dto.RouteLegDTO;
+import com.delhight.backend.dto.RouteVariantDTO;
+import com.delhight.backend.dto.TransitSegmentDTO;
+import com.delhight.backend.model.BatchRouteRequest;
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.model.RouteRequest;
+import com.delhight.backend.model.RouteVariant;
+import com.delhight.backend.model.Station;
+import com.delhight.backend.model.TransitSegment;
+import com.delhight.backend.service.AutocompleteService;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * GraalVM native-image hints the AOT engine cannot infer on its own.
+ * Ignored on the JVM.
+ *
+ * - Jackson (de)serializes the models/DTOs reflectively: controller return types,
+ *   @RequestBody payloads and the legacy DTOs
+ * - org.json builds its objects reflectively when wrapping maps/beans
+ * - classpath data files (warm-up fixtures, data tables) are loaded as resources
+ *
+ * WebClient / reactor-netty, Hibernate and H2 are covered by the GraalVM
+ * reachability metadata the 'native' profile pulls in.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.Hints.class)
+public class NativeHintsConfig {
+
+    static class Hints implements RuntimeHintsRegistrar {
+
+        private static final Class<?>[] JSON_TYPES = {
+                RouteVariantDTO.class,
+                RouteLegDTO.class,
+                TransitSegmentDTO.class,
+                RouteVariant.class,
+                RouteLeg.class,
+                TransitSegment.class,
+                RouteRequest.class,
+                BatchRouteRequest.class,
+                NearbyStation.class,
+                Station.class,
+                AutocompleteService.Prediction.class
+        };
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : JSON_TYPES) {
+                hints.reflection().registerType(type,
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS,
+                        MemberCategory.DECLARED_FIELDS);
+            }
+
+            hints.reflection().registerType(JSONObject.class,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            hints.reflection().registerType(JSONArray.class,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+            hints.resources().registerPattern("fixtures/*.json");
+            hints.resources().registerPattern("data/*");
+        }
+    }
+}
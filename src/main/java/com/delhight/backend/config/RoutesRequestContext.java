@@ -0,0 +1,104 @@
+package com.delhight.backend.config;
+
+import com.delhight.backend.utils.Deadline;
+import com.delhight.backend.utils.RequestTrace;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-request state of one GET /routes, shared by AffinityRoutingFilter and RoutesController
+ * through request attributes:
+ *
+ * - the deadline: starts when the request arrives, so the filter's geocodes and a forward
+ *   to the owner node spend the same budget as the route computation
+ * - the trace (when sampled or trace=true): the filter's geocodes are recorded in it too
+ * - the resolved coordinates: whoever geocoded from/to (the filter, or the forwarding
+ *   node via X-Delhight-Trip) leaves them here so they are not looked up a second time
+ *
+ * The first caller creates the deadline and the trace; closeTrace() may be called more
+ * than once.
+ */
+@Component
+public class RoutesRequestContext {
+
+    private static final String DEADLINE = RoutesRequestContext.class.getName() + ".deadline";
+    private static final String TRACE = RoutesRequestContext.class.getName() + ".trace";
+    private static final String TRIP = RoutesRequestContext.class.getName() + ".trip";
+
+    /** Origin and destination, either null when it did not geocode. */
+    public record Trip(double[] origin, double[] destination) {
+        public boolean resolved() {
+            return origin != null && destination != null;
+        }
+    }
+
+    // time budget of a /routes request (clients may ask for less, or more up to the max)
+    @Value("${delhight.routes.deadlineMillis:8000}")
+    private long deadlineMillis;
+
+    @Value("${delhight.routes.maxDeadlineMillis:30000}")
+    private long maxDeadlineMillis;
+
+    // share of /routes requests traced for Server-Timing (trace=true always is)
+    @Value("${delhight.trace.sampleRate:0.01}")
+    private double traceSampleRate;
+
+    /** The request's deadline: deadlineMs if given (up to the max), else the default. */
+    public Deadline deadline(HttpServletRequest request) {
+        Deadline deadline = (Deadline) request.getAttribute(DEADLINE);
+        if (deadline == null) {
+            long budget = deadlineMillis;
+            String asked = request.getParameter("deadlineMs");
+            if (asked != null) {
+                try {
+                    long ms = Long.parseLong(asked.trim());
+                    if (ms > 0) budget = Math.min(ms, maxDeadlineMillis);
+                } catch (NumberFormatException ignored) {
+                    // default budget
+                }
+            }
+            deadline = Deadline.after(Duration.ofMillis(budget));
+            request.setAttribute(DEADLINE, deadline);
+        }
+        return deadline;
+    }
+
+    /** True if the client asked for the trace section (trace=true). */
+    public boolean traceRequested(HttpServletRequest request) {
+        return "true".equalsIgnoreCase(request.getParameter("trace"));
+    }
+
+    /**
+     * The request's trace, bound to this thread; null if this request is not traced. The
+     * sampling decision is made once per request.
+     */
+    public RequestTrace trace(HttpServletRequest request) {
+        Object existing = request.getAttribute(TRACE);
+        if (existing != null) return existing instanceof RequestTrace t ? t : null;
+
+        boolean traced = traceRequested(request) || ThreadLocalRandom.current().nextDouble() < traceSampleRate;
+        RequestTrace trace = traced ? RequestTrace.start() : null;
+        request.setAttribute(TRACE, trace != null ? trace : Boolean.FALSE);
+        return trace;
+    }
+
+    public void closeTrace(HttpServletRequest request) {
+        if (request.getAttribute(TRACE) instanceof RequestTrace t) {
+            request.setAttribute(TRACE, Boolean.FALSE);
+            t.close();
+        }
+    }
+
+    public void setTrip(HttpServletRequest request, Trip trip) {
+        request.setAttribute(TRIP, trip);
+    }
+
+    /** Coordinates resolved earlier in this request, or null if nobody geocoded yet. */
+    public Trip trip(HttpServletRequest request) {
+        return (Trip) request.getAttribute(TRIP);
+    }
+}
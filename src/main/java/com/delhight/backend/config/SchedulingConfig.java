@@ -0,0 +1,12 @@
+package com.delhight.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background tasks (hot-trip refresh, sketch decay).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
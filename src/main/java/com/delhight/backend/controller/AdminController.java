@@ -0,0 +1,281 @@
+package com.delhight.backend.controller;
+
+import com.delhight.backend.archive.ArchiveReplay;
+import com.delhight.backend.archive.ResponseArchive;
+import com.delhight.backend.config.AffinityRouting;
+import com.delhight.backend.config.ConcurrencyLimits;
+import com.delhight.backend.model.DegradationLevel;
+import com.delhight.backend.service.DeadlineMetrics;
+import com.delhight.backend.service.DegradationController;
+import com.delhight.backend.service.HotTripTracker;
+import com.delhight.backend.service.IsochroneService;
+import com.delhight.backend.service.RealtimeDelayService;
+import com.delhight.backend.service.RouteResultCache;
+import com.delhight.backend.service.SharedRouteCache;
+import com.delhight.backend.snapshot.Snapshot;
+import com.delhight.backend.snapshot.SnapshotService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Operational endpoints (not for the app). Every request needs the admin token
+ * (delhight.admin.token, see AdminAuthFilter); without one configured they are disabled.
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final SnapshotService snapshotService;
+    private final RouteResultCache routeResultCache;
+    private final HotTripTracker hotTripTracker;
+    private final DeadlineMetrics deadlineMetrics;
+    private final ConcurrencyLimits concurrencyLimits;
+    private final DegradationController degradationController;
+    private final RealtimeDelayService realtimeDelayService;
+    private final SharedRouteCache sharedRouteCache;
+    private final AffinityRouting affinityRouting;
+    private final ResponseArchive responseArchive;
+    private final ArchiveReplay archiveReplay;
+    private final IsochroneService isochroneService;
+
+    public AdminController(SnapshotService snapshotService, RouteResultCache routeResultCache,
+                           HotTripTracker hotTripTracker, DeadlineMetrics deadlineMetrics,
+                           ConcurrencyLimits concurrencyLimits, DegradationController degradationController,
+                           RealtimeDelayService realtimeDelayService, SharedRouteCache sharedRouteCache,
+                           AffinityRouting affinityRouting, ResponseArchive responseArchive,
+                           ArchiveReplay archiveReplay, IsochroneService isochroneService) {
+        this.snapshotService = snapshotService;
+        this.routeResultCache = routeResultCache;
+        this.hotTripTracker = hotTripTracker;
+        this.deadlineMetrics = deadlineMetrics;
+        this.concurrencyLimits = concurrencyLimits;
+        this.degradationController = degradationController;
+        this.realtimeDelayService = realtimeDelayService;
+        this.sharedRouteCache = sharedRouteCache;
+        this.affinityRouting = affinityRouting;
+        this.responseArchive = responseArchive;
+        this.archiveReplay = archiveReplay;
+        this.isochroneService = isochroneService;
+    }
+
+    /**
+     * Re-maps delhight.snapshot.file and swaps it in. Run after the build step replaced the file.
+     */
+    @PostMapping("/snapshot/reload")
+    public ResponseEntity<Map<String, Object>> reloadSnapshot() {
+        try {
+            return ResponseEntity.ok(describe(snapshotService.reload()));
+        } catch (IOException | IllegalStateException ex) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("error", ex.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @GetMapping("/snapshot")
+    public Map<String, Object> currentSnapshot() {
+        Snapshot s = snapshotService.current();
+        return s != null ? describe(s) : Map.of("snapshot", "none");
+    }
+
+    @GetMapping("/route-cache")
+    public Map<String, Object> routeCacheStats() {
+        return routeResultCache.stats();
+    }
+
+    @PostMapping("/route-cache/clear")
+    public Map<String, Object> clearRouteCache() {
+        routeResultCache.clear();
+        return routeResultCache.stats();
+    }
+
+    /**
+     * Hot trips (with their cache / proactive refresh state) and hot station pairs.
+     */
+    @GetMapping("/hot-trips")
+    public Map<String, Object> hotTrips() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("requestsTracked", hotTripTracker.totalTrips());
+        out.put("trips", routeResultCache.hotTripsReport());
+        out.put("stationPairs", hotTripTracker.hotStationPairs().stream()
+                .map(p -> Map.of("pair", p.key(), "count", p.count()))
+                .toList());
+        return out;
+    }
+
+    /**
+     * Deadline expirations and upstream timeouts per stage (also Micrometer counters
+     * delhight.deadline.expired / delhight.upstream.timeouts).
+     */
+    @GetMapping("/deadlines")
+    public Map<String, Object> deadlines() {
+        return deadlineMetrics.snapshot();
+    }
+
+    /**
+     * Current adaptive concurrency limit, in-flight and rejected requests per endpoint group.
+     */
+    @GetMapping("/limits")
+    public Map<String, Object> limits() {
+        return concurrencyLimits.snapshot();
+    }
+
+    /**
+     * Current degradation level, why, and the pressure signals behind it.
+     */
+    @GetMapping("/degradation")
+    public Map<String, Object> degradation() {
+        return degradationController.snapshot();
+    }
+
+    /**
+     * Pins the degradation level (full, reduced, minimal, summary), or level=auto to
+     * return to automatic control.
+     */
+    @PostMapping("/degradation")
+    public ResponseEntity<Map<String, Object>> forceDegradation(@RequestParam("level") String level) {
+        if ("auto".equalsIgnoreCase(level)) {
+            degradationController.force(null);
+        } else {
+            try {
+                degradationController.force(DegradationLevel.fromWireName(level));
+            } catch (IllegalArgumentException ex) {
+                return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "Unknown level: " + level));
+            }
+        }
+        return ResponseEntity.ok(degradationController.snapshot());
+    }
+
+    /**
+     * Current realtime view (version, age, per-line delays) and ingestion metrics.
+     */
+    @GetMapping("/realtime")
+    public Map<String, Object> realtime() {
+        return realtimeDelayService.stats();
+    }
+
+    /**
+     * Applies one GTFS-Realtime FeedMessage (JSON) posted as the body.
+     */
+    @PostMapping("/realtime")
+    public ResponseEntity<Map<String, Object>> applyRealtime(@RequestBody String feed) {
+        try {
+            realtimeDelayService.apply(feed);
+            return ResponseEntity.ok(realtimeDelayService.stats());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", ex.getMessage()));
+        }
+    }
+
+    /**
+     * Shared (cross-node) lookup cache: tier hit counts, prefetches, store health.
+     */
+    @GetMapping("/shared-cache")
+    public Map<String, Object> sharedCache() {
+        return sharedRouteCache.stats();
+    }
+
+    /**
+     * Drops one cached lookup (kind = leg | stations | geocode, key as built by SharedRouteCache)
+     * from the store and every node's near tier; without key, clears every node's near tier.
+     */
+    @PostMapping("/shared-cache/invalidate")
+    public ResponseEntity<Map<String, Object>> invalidateSharedCache(
+            @RequestParam(value = "kind", defaultValue = "leg") String kind,
+            @RequestParam(value = "key", required = false) String key) {
+        SharedRouteCache.Kind k;
+        try {
+            k = SharedRouteCache.Kind.valueOf(kind.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error",
+                    "message", "kind must be leg, stations or geocode"));
+        }
+        try {
+            sharedRouteCache.invalidate(k, key);
+            return ResponseEntity.ok(sharedRouteCache.stats());
+        } catch (IOException ex) {
+            return ResponseEntity.status(503).body(Map.of("status", "error", "message", String.valueOf(ex.getMessage())));
+        }
+    }
+
+    /**
+     * Affinity ring: members, health, in-flight load and what was done with /routes requests.
+     */
+    @GetMapping("/affinity")
+    public Map<String, Object> affinity() {
+        return affinityRouting.snapshot();
+    }
+
+    /**
+     * Removes (remove=url) a peer from this node's ring, or puts a configured one back (add=url).
+     */
+    @PostMapping("/affinity/peers")
+    public ResponseEntity<Map<String, Object>> affinityPeers(
+            @RequestParam(value = "add", required = false) String add,
+            @RequestParam(value = "remove", required = false) String remove) {
+        try {
+            if (add != null && !add.isBlank()) affinityRouting.addPeer(add);
+            if (remove != null && !remove.isBlank()) affinityRouting.removePeer(remove);
+            return ResponseEntity.ok(affinityRouting.snapshot());
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", ex.getMessage()));
+        }
+    }
+
+    /**
+     * On-disk archive of Google responses: segments, index, hit counts, compression.
+     */
+    @GetMapping("/archive")
+    public Map<String, Object> archive() {
+        return responseArchive.stats();
+    }
+
+    /**
+     * Compacts the archive now instead of waiting for the scheduled run.
+     */
+    @PostMapping("/archive/compact")
+    public Map<String, Object> compactArchive() {
+        return responseArchive.compact();
+    }
+
+    /**
+     * Runs the current parsers over archived responses (stage = prefix such as geocode or
+     * directions; all = superseded responses too) and reports per-stage outcomes.
+     */
+    @PostMapping("/archive/replay")
+    public ResponseEntity<Map<String, Object>> replayArchive(
+            @RequestParam(value = "stage", required = false) String stage,
+            @RequestParam(value = "all", defaultValue = "false") boolean all,
+            @RequestParam(value = "limit", defaultValue = "0") long limit) {
+        if (!responseArchive.isEnabled()) {
+            return ResponseEntity.badRequest().body(Map.of("status", "error", "message", "the archive is disabled"));
+        }
+        try {
+            return ResponseEntity.ok(archiveReplay.replay(stage, !all, limit));
+        } catch (IOException ex) {
+            return ResponseEntity.status(500).body(Map.of("status", "error", "message", String.valueOf(ex.getMessage())));
+        }
+    }
+
+    /**
+     * Isochrone cache: entries, hits, misses and the average computation time.
+     */
+    @GetMapping("/isochrone")
+    public Map<String, Object> isochrone() {
+        return isochroneService.stats();
+    }
+
+    private static Map<String, Object> describe(Snapshot s) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("path", s.getPath().toString());
+        out.put("formatVersion", s.getFormatVersion());
+        out.put("createdAtMillis", s.getCreatedAtMillis());
+        out.put("sections", s.sectionNames());
+        return out;
+    }
+}
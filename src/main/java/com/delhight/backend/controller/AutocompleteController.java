@@ -19,8 +19,16 @@ public class AutocompleteController {
         this.autocompleteService = autocompleteService;
     }
 
+    /**
+     * GET /autocomplete?q=...&session=...
+     *
+     * session: one token per typing session (e.g. a UUID the client renews after a pick).
+     * When a newer keystroke of the same session arrives first, this one returns
+     * status "superseded" with no predictions.
+     */
     @GetMapping
-    public Map<String, Object> autocomplete(@RequestParam("q") String q) {
+    public Map<String, Object> autocomplete(@RequestParam("q") String q,
+                                            @RequestParam(value = "session", required = false) String session) {
 
         Map<String, Object> response = new HashMap<>();
 
@@ -30,9 +38,10 @@ public class AutocompleteController {
             return response;
         }
 
-        List<Prediction> predictions = autocompleteService.autocomplete(q);
+        AutocompleteService.Result result = autocompleteService.autocomplete(q, session);
+        List<Prediction> predictions = result.getPredictions();
 
-        response.put("status", "ok");
+        response.put("status", result.isSuperseded() ? "superseded" : "ok");
         response.put("count", predictions.size());
         response.put("predictions", predictions);
 
@@ -2,8 +2,13 @@ package com.delhight.backend.controller;
 
 import com.delhight.backend.model.RouteLeg;
 import com.delhight.backend.service.DirectionsService;
+import com.delhight.backend.utils.RequestTrace;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/debug")
 public class DebugDirectionsController {
@@ -14,22 +19,37 @@ public class DebugDirectionsController {
         this.directionsService = directionsService;
     }
 
+    /**
+     * Always traced: the Server-Timing header has the leg lookup's time. With trace=true the
+     * answer becomes { leg, trace } so the lookup's cache status and outcome are visible too.
+     */
     @GetMapping("/directions")
-    public RouteLeg testDirections(
+    public Object testDirections(
             @RequestParam double fromLat,
             @RequestParam double fromLng,
             @RequestParam double toLat,
             @RequestParam double toLng,
-            @RequestParam(defaultValue = "walking") String mode
+            @RequestParam(defaultValue = "walking") String mode,
+            @RequestParam(defaultValue = "false") boolean trace,
+            HttpServletResponse response
     ) {
-        // departure_time = 0 means "leave now" (fine for walking/auto tests)
-        return directionsService.getRouteLeg(
-                fromLat, fromLng,
-                toLat, toLng,
-                mode,
-                0,                 // no departure_time
-                "Source",
-                "Destination"
-        );
+        try (RequestTrace requestTrace = RequestTrace.start()) {
+            // departure_time = 0 means "leave now" (fine for walking/auto tests)
+            RouteLeg leg = directionsService.getRouteLeg(
+                    fromLat, fromLng,
+                    toLat, toLng,
+                    mode,
+                    0,                 // no departure_time
+                    "Source",
+                    "Destination"
+            );
+            response.setHeader(RequestTrace.HEADER, requestTrace.serverTiming(null));
+            if (!trace) return leg;
+
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("leg", leg);
+            out.put("trace", requestTrace.toMap());
+            return out;
+        }
     }
 }
@@ -0,0 +1,97 @@
+package com.delhight.backend.controller;
+
+import com.delhight.backend.mapper.IsochroneJsonWriter;
+import com.delhight.backend.mapper.RouteJsonWriter;
+import com.delhight.backend.model.Isochrone;
+import com.delhight.backend.service.GeocodingService;
+import com.delhight.backend.service.IsochroneService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Reachable area by walking and metro within a time budget:
+ *
+ *   GET /isochrone?lat=28.6315&lng=77.2167&minutes=30
+ *   GET /isochrone?from=Connaught+Place&minutes=45&format=grid
+ *
+ * format=polygon (default) answers one GeoJSON Feature with a MultiPolygon; format=grid a
+ * FeatureCollection of reachable cells with their arrival minutes. See IsochroneService for
+ * the model and IsochroneJsonWriter for the shape. Answers 503 while only the sample metro
+ * network is loaded.
+ */
+@RestController
+@CrossOrigin(origins = "*")
+public class IsochroneController {
+
+    private static final String GEO_JSON = "application/geo+json";
+
+    private final IsochroneService isochroneService;
+    private final GeocodingService geocodingService;
+    private final IsochroneJsonWriter isochroneJsonWriter;
+    private final RouteJsonWriter routeJsonWriter;
+
+    public IsochroneController(IsochroneService isochroneService, GeocodingService geocodingService,
+                               IsochroneJsonWriter isochroneJsonWriter, RouteJsonWriter routeJsonWriter) {
+        this.isochroneService = isochroneService;
+        this.geocodingService = geocodingService;
+        this.isochroneJsonWriter = isochroneJsonWriter;
+        this.routeJsonWriter = routeJsonWriter;
+    }
+
+    @GetMapping("/isochrone")
+    public void isochrone(
+            @RequestParam(value = "lat", required = false) Double lat,
+            @RequestParam(value = "lng", required = false) Double lng,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "minutes", defaultValue = "30") int minutes,
+            @RequestParam(value = "format", defaultValue = "polygon") String format,
+            HttpServletResponse response
+    ) throws IOException {
+
+        if (!isochroneService.isAvailable()) {
+            error(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Isochrones are unavailable: no full metro network is configured.");
+            return;
+        }
+
+        boolean grid = "grid".equalsIgnoreCase(format);
+        if (!grid && !"polygon".equalsIgnoreCase(format)) {
+            error(response, "format must be polygon or grid.");
+            return;
+        }
+        if (minutes < 1 || minutes > isochroneService.getMaxMinutes()) {
+            error(response, "minutes must be between 1 and " + isochroneService.getMaxMinutes() + ".");
+            return;
+        }
+
+        if (lat == null || lng == null) {
+            double[] point = from != null && !from.isBlank() ? geocodingService.geocodeAddress(from) : null;
+            if (point == null) {
+                error(response, from == null || from.isBlank()
+                        ? "Either 'lat' and 'lng' or 'from' is required."
+                        : "Could not find '" + from + "'.");
+                return;
+            }
+            lat = point[0];
+            lng = point[1];
+        }
+
+        Isochrone iso = isochroneService.isochrone(lat, lng, minutes);
+        response.setContentType(GEO_JSON);
+        if (grid) isochroneJsonWriter.writeGrid(response.getOutputStream(), iso);
+        else isochroneJsonWriter.writePolygon(response.getOutputStream(), iso);
+    }
+
+    private void error(HttpServletResponse response, String message) throws IOException {
+        error(response, HttpServletResponse.SC_BAD_REQUEST, message);
+    }
+
+    private void error(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        routeJsonWriter.writeError(response.getOutputStream(), message);
+    }
+}
@@ -1,12 +1,22 @@
 package com.delhight.backend.controller;
 
+import com.delhight.backend.mapper.RouteJsonWriter;
+import com.delhight.backend.model.BulkNearestRequest;
 import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.service.BulkNearestStationsService;
+import com.delhight.backend.service.GazetteerGeocoder;
 import com.delhight.backend.service.GeocodingService;
 import com.delhight.backend.service.NearestStationsService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -14,19 +24,30 @@ import java.util.List;
  *
  * Endpoints:
  *  - GET /api/geocode?address=...
+ *  - GET /api/geocode/gazetteer?address=...   (local match with its confidence, for tuning)
  *  - GET /api/nearest-stations?lat=...&lng=...&top=3
  *  - GET /api/nearest-stations-by-text?address=...&top=3
+ *  - POST /api/nearest-stations/bulk   { points: [[lat, lng], ...], top: 3 }
  */
 @RestController
 public class NearestStationsController {
 
     private final GeocodingService geocodingService;
+    private final GazetteerGeocoder gazetteerGeocoder;
     private final NearestStationsService nearestStationsService;
+    private final BulkNearestStationsService bulkNearestStationsService;
+    private final RouteJsonWriter routeJsonWriter;
 
     public NearestStationsController(GeocodingService geocodingService,
-                                     NearestStationsService nearestStationsService) {
+                                     GazetteerGeocoder gazetteerGeocoder,
+                                     NearestStationsService nearestStationsService,
+                                     BulkNearestStationsService bulkNearestStationsService,
+                                     RouteJsonWriter routeJsonWriter) {
         this.geocodingService = geocodingService;
+        this.gazetteerGeocoder = gazetteerGeocoder;
         this.nearestStationsService = nearestStationsService;
+        this.bulkNearestStationsService = bulkNearestStationsService;
+        this.routeJsonWriter = routeJsonWriter;
     }
 
     @GetMapping("/api/geocode")
@@ -34,6 +55,11 @@ public class NearestStationsController {
         return geocodingService.geocodeAddress(address);
     }
 
+    @GetMapping("/api/geocode/gazetteer")
+    public GazetteerGeocoder.Match geocodeLocal(@RequestParam String address) {
+        return gazetteerGeocoder.lookup(address);
+    }
+
     @GetMapping("/api/nearest-stations")
     public List<NearbyStation> nearestByLatLng(
             @RequestParam double lat,
@@ -51,4 +77,59 @@ public class NearestStationsController {
         if (coords == null) return List.of();
         return nearestStationsService.findNearestStations(coords[0], coords[1], top);
     }
+
+    /**
+     * Nearest metro stations for many points, from the same Places source as the GET above
+     * (straight-line distance):
+     *
+     *   { status, kernel, totalPoints, results: [ [ { placeId, name, vicinity, lat, lng, distanceMeters }, ... ], ... ] }
+     *
+     * results[i] belongs to points[i]; kernel names the ranking kernel (e.g. "blocked-256").
+     * Points spread over too many tiles are rejected.
+     */
+    @PostMapping("/api/nearest-stations/bulk")
+    public void nearestBulk(@RequestBody BulkNearestRequest request,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        double[][] points = request != null ? request.getPoints() : null;
+        if (points == null || points.length == 0) {
+            routeJsonWriter.writeError(response.getOutputStream(), "At least one point is required.");
+            return;
+        }
+        if (points.length > bulkNearestStationsService.getMaxPoints()) {
+            routeJsonWriter.writeError(response.getOutputStream(),
+                    "Too many points (max " + bulkNearestStationsService.getMaxPoints() + ").");
+            return;
+        }
+
+        double[] lats = new double[points.length];
+        double[] lngs = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] == null || points[i].length != 2) {
+                routeJsonWriter.writeError(response.getOutputStream(),
+                        "Point " + i + " must be [lat, lng].");
+                return;
+            }
+            lats[i] = points[i][0];
+            lngs[i] = points[i][1];
+        }
+
+        BulkNearestStationsService.Result result;
+        try {
+            result = bulkNearestStationsService.nearest(lats, lngs, request.getTop());
+        } catch (IllegalArgumentException e) {
+            routeJsonWriter.writeError(response.getOutputStream(), e.getMessage());
+            return;
+        }
+
+        try (JsonGenerator gen = routeJsonWriter.createGenerator(response.getOutputStream())) {
+            gen.writeStartObject();
+            gen.writeStringField("status", "ok");
+            gen.writeStringField("kernel", bulkNearestStationsService.getKernelName());
+            gen.writeNumberField("totalPoints", result.points());
+            result.write(gen);
+            gen.writeEndObject();
+        }
+    }
 }
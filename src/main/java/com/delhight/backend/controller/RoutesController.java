@@ -1,22 +1,33 @@
 package com.delhight.backend.controller;
 
-import com.delhight.backend.dto.RouteVariantDTO;
-import com.delhight.backend.mapper.RouteMapper;
-import com.delhight.backend.model.RouteVariant;
-import com.delhight.backend.service.RouteComputationService;
+import com.delhight.backend.config.RoutesRequestContext;
+import com.delhight.backend.mapper.RouteJsonWriter;
+import com.delhight.backend.model.BatchRouteRequest;
+import com.delhight.backend.model.RouteRequest;
+import com.delhight.backend.model.RouteResult;
+import com.delhight.backend.service.BatchRouteService;
+import com.delhight.backend.service.RouteResultCache;
+import com.delhight.backend.utils.Deadline;
+import com.delhight.backend.utils.RequestTrace;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Main endpoint:
  *
  *   GET /routes?from=Connaught+Place&to=Indirapuram
+ *   POST /routes/batch   (many pairs, NDJSON response)
  *
  * Returns:
- *   - cleaned DTOs only (frontend-safe)
+ *   - frontend-safe fields only (streamed by RouteJsonWriter)
  *   - detailed steps for walking/auto/metro
  *   - summary + cost + duration
  */
@@ -25,13 +36,25 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class RoutesController {
 
-    private final RouteComputationService routeComputationService;
-    private final RouteMapper routeMapper;
+    private static final Logger log = LoggerFactory.getLogger(RoutesController.class);
 
-    public RoutesController(RouteComputationService routeComputationService,
-                            RouteMapper routeMapper) {
-        this.routeComputationService = routeComputationService;
-        this.routeMapper = routeMapper;
+    private final RouteResultCache routeResultCache;
+    private final BatchRouteService batchRouteService;
+    private final RouteJsonWriter routeJsonWriter;
+    private final RoutesRequestContext requestContext;
+
+    // traced requests slower than this are logged with their trip key and timings (0 = off)
+    @Value("${delhight.trace.logSlowMillis:0}")
+    private long traceLogSlowMillis;
+
+    public RoutesController(RouteResultCache routeResultCache,
+                            BatchRouteService batchRouteService,
+                            RouteJsonWriter routeJsonWriter,
+                            RoutesRequestContext requestContext) {
+        this.routeResultCache = routeResultCache;
+        this.batchRouteService = batchRouteService;
+        this.routeJsonWriter = routeJsonWriter;
+        this.requestContext = requestContext;
     }
 
     /**
@@ -43,38 +66,102 @@ public class RoutesController {
      *   2. locate top 3 metro stations for each
      *   3. compute 9 permutations
      *   4. generate walk/auto variants
-     *   5. sort & return top variants
+     *   5. sort & stream top variants
+     *
+     * Complete results are cached (RouteResultCache); "cache" in the response tells
+     * whether this one was a hit, a stale hit being refreshed, or computed.
+     *
+     * The request has a deadline (deadlineMs, else delhight.routes.deadlineMillis), counted
+     * from its arrival (RoutesRequestContext); when it runs out the variants finished so far
+     * are returned with "partial": true.
+     *
+     * "degradation" is the level the routes were computed at (full, reduced, minimal,
+     * summary); see DegradationController.
+     *
+     * Traced requests (a delhight.trace.sampleRate share, and all with trace=true) answer
+     * with a Server-Timing header: time and count of the geocode, nearest-station and leg
+     * lookups, the route cache status and the total. trace=true also adds a "trace" section
+     * listing every lookup with its mode, duration, cache status and outcome.
      */
     @GetMapping
-    public Map<String, Object> getRoutes(
+    public void getRoutes(
             @RequestParam("from") String from,
-            @RequestParam("to") String to
-    ) {
+            @RequestParam("to") String to,
+            @RequestParam(value = "trace", defaultValue = "false") boolean traceRequested,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
 
-        Map<String, Object> response = new HashMap<>();
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
 
         if (from == null || from.isBlank() ||
                 to == null || to.isBlank()) {
 
-            response.put("status", "error");
-            response.put("message", "Both 'from' and 'to' parameters are required.");
-            return response;
+            routeJsonWriter.writeError(response.getOutputStream(),
+                    "Both 'from' and 'to' parameters are required.");
+            return;
+        }
+
+        RequestTrace trace = requestContext.trace(request);
+        try {
+            // Internal variants (with full RouteLeg models), cached or computed
+            RouteResult result;
+            RoutesRequestContext.Trip trip = requestContext.trip(request);
+            try (Deadline.Scope ignored = requestContext.deadline(request).enter()) {
+                result = trip != null
+                        ? routeResultCache.getRoutes(from, to, trip.origin(), trip.destination())
+                        : routeResultCache.getRoutes(from, to);
+            }
+
+            if (trace != null) {
+                String timing = trace.serverTiming(result.getCacheStatus());
+                response.setHeader(RequestTrace.HEADER, timing);
+                response.setHeader("Timing-Allow-Origin", "*");
+                if (traceLogSlowMillis > 0 && trace.elapsedNanos() >= traceLogSlowMillis * 1_000_000) {
+                    // the trip key, not the addresses: logs must not carry where people travel
+                    log.info("Slow /routes trip={}: {}", result.getTripKey(), timing);
+                }
+            }
+
+            // Serialize directly from the models (internal fields are skipped by the writer)
+            routeJsonWriter.writeRoutesResponse(response.getOutputStream(), from, to, result,
+                    traceRequested ? trace.toMap() : null);
+        } finally {
+            requestContext.closeTrace(request);
         }
+    }
 
-        // Compute internal variants (with full RouteLeg models)
-        List<RouteVariant> internalVariants =
-                routeComputationService.computeRoutes(from, to);
+    /**
+     * Example body:
+     *   { "pairs": [
+     *       { "id": "a", "from": "Connaught Place", "to": "Noida Sector 18" },
+     *       { "id": "b", "originLat": 28.63, "originLng": 77.21, "destLat": 28.57, "destLng": 77.32 }
+     *   ] }
+     *
+     * Streams one JSON line per pair (in completion order, tagged with its index),
+     * then a final summary line.
+     */
+    @PostMapping("/batch")
+    public void getRoutesBatch(
+            @RequestBody BatchRouteRequest request,
+            HttpServletResponse response
+    ) throws IOException {
 
-        // Convert to DTOs for frontend (removes internal fields)
-        List<RouteVariantDTO> dtoVariants =
-                routeMapper.toDTOList(internalVariants);
+        List<RouteRequest> pairs = request != null ? request.getPairs() : null;
 
-        response.put("status", "ok");
-        response.put("from", from);
-        response.put("to", to);
-        response.put("totalVariants", dtoVariants.size());
-        response.put("routes", dtoVariants);
+        if (pairs == null || pairs.isEmpty()) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            routeJsonWriter.writeError(response.getOutputStream(), "At least one pair is required.");
+            return;
+        }
+        if (pairs.size() > batchRouteService.getMaxPairs()) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            routeJsonWriter.writeError(response.getOutputStream(),
+                    "Too many pairs (max " + batchRouteService.getMaxPairs() + ").");
+            return;
+        }
 
-        return response;
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        batchRouteService.streamBatch(pairs, response.getOutputStream());
     }
 }
@@ -0,0 +1,293 @@
+package com.delhight.backend.graph;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Preprocessed contraction hierarchy over a {@link WalkGraph}.
+ *
+ * Every node has a rank (contraction order). Edges - the original ones plus the shortcuts
+ * added during contraction - are stored once, oriented from the lower to the higher ranked
+ * endpoint (the "upward" graph, CSR). Because walking edges are undirected, a query is two
+ * upward Dijkstra searches (from source and from target) that meet at the highest node of
+ * the shortest path; shortcuts are then unpacked back into original edges.
+ *
+ * Edge ids below originalEdgeCount are the WalkGraph edge ids; a shortcut (u, w) remembers
+ * its two halves (u, v) and (v, w) in childA / childB.
+ *
+ * All arrays are buffers so a hierarchy can be served straight from a mapped snapshot.
+ */
+public final class ContractionHierarchy {
+
+    private final int n;
+    private final int originalEdgeCount;
+    private final IntBuffer rank;
+
+    // upward CSR
+    private final IntBuffer upStart;
+    private final IntBuffer upTo;
+    private final FloatBuffer upWeight;
+    private final IntBuffer upEdge;
+
+    // all edges (original + shortcuts), for unpacking
+    private final IntBuffer edgeFrom;
+    private final IntBuffer edgeTo;
+    private final IntBuffer edgeChildA;
+    private final IntBuffer edgeChildB;
+
+    // query scratch space is O(n) per search, so it is pooled rather than thread-local
+    private final BlockingQueue<QueryState> statePool;
+    private final int maxStates;
+    private final AtomicInteger createdStates = new AtomicInteger();
+
+    public ContractionHierarchy(int n, int originalEdgeCount, IntBuffer rank,
+                                IntBuffer upStart, IntBuffer upTo, FloatBuffer upWeight, IntBuffer upEdge,
+                                IntBuffer edgeFrom, IntBuffer edgeTo, IntBuffer edgeChildA, IntBuffer edgeChildB) {
+        this.n = n;
+        this.originalEdgeCount = originalEdgeCount;
+        this.rank = rank;
+        this.upStart = upStart;
+        this.upTo = upTo;
+        this.upWeight = upWeight;
+        this.upEdge = upEdge;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeChildA = edgeChildA;
+        this.edgeChildB = edgeChildB;
+        this.maxStates = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.statePool = new ArrayBlockingQueue<>(maxStates);
+    }
+
+    public int nodeCount() { return n; }
+
+    public int originalEdgeCount() { return originalEdgeCount; }
+
+    public int shortcutCount() { return edgeFrom.limit() - originalEdgeCount; }
+
+    IntBuffer rankBuffer() { return rank.duplicate(); }
+    IntBuffer upStartBuffer() { return upStart.duplicate(); }
+    IntBuffer upToBuffer() { return upTo.duplicate(); }
+    FloatBuffer upWeightBuffer() { return upWeight.duplicate(); }
+    IntBuffer upEdgeBuffer() { return upEdge.duplicate(); }
+    IntBuffer edgeFromBuffer() { return edgeFrom.duplicate(); }
+    IntBuffer edgeToBuffer() { return edgeTo.duplicate(); }
+    IntBuffer edgeChildABuffer() { return edgeChildA.duplicate(); }
+    IntBuffer edgeChildBBuffer() { return edgeChildB.duplicate(); }
+
+    // ----------------------------
+    // Query
+    // ----------------------------
+
+    /**
+     * Shortest path between two nodes, or null if they are not connected.
+     */
+    public Path route(int source, int target) {
+        if (source == target) return new Path(0f, new int[]{source}, new int[0]);
+
+        QueryState s = acquire();
+        try {
+            return search(s, source, target);
+        } finally {
+            s.reset();
+            statePool.offer(s);
+        }
+    }
+
+    private Path search(QueryState s, int source, int target) {
+        float[] distF = s.dist[0], distB = s.dist[1];
+        s.reach(0, source, 0f, -1);
+        s.reach(1, target, 0f, -1);
+
+        float best = Float.POSITIVE_INFINITY;
+        int meet = -1;
+
+        while (true) {
+            float minF = s.heap[0].isEmpty() ? Float.POSITIVE_INFINITY : s.heap[0].peekKey();
+            float minB = s.heap[1].isEmpty() ? Float.POSITIVE_INFINITY : s.heap[1].peekKey();
+            if (Math.min(minF, minB) >= best) break;   // also true once both queues are empty
+
+            int dir = minF <= minB ? 0 : 1;
+            float[] dist = s.dist[dir];
+            float[] other = s.dist[1 - dir];
+            int u = s.heap[dir].poll();
+            float du = dist[u];
+
+            float through = du + other[u];
+            if (through < best) {
+                best = through;
+                meet = u;
+            }
+
+            if (isStalled(dist, u, du)) continue;
+
+            for (int e = upStart.get(u); e < upStart.get(u + 1); e++) {
+                int v = upTo.get(e);
+                float dv = du + upWeight.get(e);
+                if (dv < dist[v]) s.reach(dir, v, dv, upEdge.get(e));
+            }
+        }
+
+        if (meet < 0) return null;
+        return unpack(s, source, target, meet, distF[meet] + distB[meet]);
+    }
+
+    // Stall-on-demand: u's tentative distance is not optimal if a higher neighbour
+    // already reached offers a shorter way down to it, so its edges need no relaxing.
+    private boolean isStalled(float[] dist, int u, float du) {
+        for (int e = upStart.get(u); e < upStart.get(u + 1); e++) {
+            if (dist[upTo.get(e)] + upWeight.get(e) < du) return true;
+        }
+        return false;
+    }
+
+    private Path unpack(QueryState s, int source, int target, int meet, float meters) {
+        // collect CH edges along source -> meet -> target together with the node they are entered from
+        IntList chEdges = s.chEdges;
+        IntList chFrom = s.chFrom;
+
+        for (int x = meet; x != source; ) {
+            int e = s.pred[0][x];
+            int prev = otherEnd(e, x);
+            chEdges.add(e);
+            chFrom.add(prev);
+            x = prev;
+        }
+        chEdges.reverse();
+        chFrom.reverse();
+        for (int x = meet; x != target; ) {
+            int e = s.pred[1][x];
+            chEdges.add(e);
+            chFrom.add(x);
+            x = otherEnd(e, x);
+        }
+
+        // expand shortcuts with an explicit stack (nesting can be deep on long chains)
+        IntList nodes = s.nodes;
+        IntList edges = s.edges;
+        IntList stack = s.stack;
+        nodes.add(source);
+        for (int i = 0; i < chEdges.size(); i++) {
+            stack.add(chEdges.get(i));
+            stack.add(chFrom.get(i));
+            while (stack.size() > 0) {
+                int from = stack.pop();
+                int e = stack.pop();
+                if (e < originalEdgeCount) {
+                    edges.add(e);
+                    nodes.add(otherEnd(e, from));
+                    continue;
+                }
+                int a = edgeChildA.get(e), b = edgeChildB.get(e);
+                int u = edgeFrom.get(e);
+                int mid = otherEnd(a, u);
+                if (from == u) {
+                    // u -> mid -> w: push the second half first
+                    stack.add(b); stack.add(mid);
+                    stack.add(a); stack.add(u);
+                } else {
+                    // w -> mid -> u
+                    stack.add(a); stack.add(mid);
+                    stack.add(b); stack.add(from);
+                }
+            }
+        }
+        return new Path(meters, nodes.toArray(), edges.toArray());
+    }
+
+    private int otherEnd(int edge, int node) {
+        return edgeFrom.get(edge) == node ? edgeTo.get(edge) : edgeFrom.get(edge);
+    }
+
+    private QueryState acquire() {
+        QueryState s = statePool.poll();
+        if (s != null) return s;
+        if (createdStates.incrementAndGet() <= maxStates) return new QueryState(n);
+        createdStates.decrementAndGet();
+        try {
+            return statePool.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a walking query slot", ex);
+        }
+    }
+
+    // ----------------------------
+    // Result
+    // ----------------------------
+
+    /**
+     * Node sequence of a shortest path and the original (WalkGraph) edges between them.
+     */
+    public static final class Path {
+        private final float meters;
+        private final int[] nodes;
+        private final int[] edges;
+
+        Path(float meters, int[] nodes, int[] edges) {
+            this.meters = meters;
+            this.nodes = nodes;
+            this.edges = edges;
+        }
+
+        public float getMeters() { return meters; }
+
+        public int[] getNodes() { return nodes; }
+
+        public int[] getEdges() { return edges; }
+    }
+
+    // ----------------------------
+    // Per-search scratch space
+    // ----------------------------
+
+    private static final class QueryState {
+        final float[][] dist = new float[2][];
+        final int[][] pred = new int[2][];
+        final IndexedMinHeap[] heap = new IndexedMinHeap[2];
+        final IntList touched = new IntList();
+        final IntList chEdges = new IntList();
+        final IntList chFrom = new IntList();
+        final IntList nodes = new IntList();
+        final IntList edges = new IntList();
+        final IntList stack = new IntList();
+
+        QueryState(int n) {
+            for (int d = 0; d < 2; d++) {
+                dist[d] = new float[n];
+                Arrays.fill(dist[d], Float.POSITIVE_INFINITY);
+                pred[d] = new int[n];
+                heap[d] = new IndexedMinHeap(n);
+            }
+        }
+
+        void reach(int dir, int node, float d, int viaEdge) {
+            if (dist[0][node] == Float.POSITIVE_INFINITY && dist[1][node] == Float.POSITIVE_INFINITY) {
+                touched.add(node);
+            }
+            dist[dir][node] = d;
+            pred[dir][node] = viaEdge;
+            heap[dir].offer(node, d);
+        }
+
+        // only the nodes touched by the last search are cleared
+        void reset() {
+            for (int i = 0; i < touched.size(); i++) {
+                int v = touched.get(i);
+                dist[0][v] = Float.POSITIVE_INFINITY;
+                dist[1][v] = Float.POSITIVE_INFINITY;
+            }
+            touched.clear();
+            heap[0].clear();
+            heap[1].clear();
+            chEdges.clear();
+            chFrom.clear();
+            nodes.clear();
+            edges.clear();
+            stack.clear();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.delhight.backend.graph;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Preprocesses a {@link WalkGraph} into a {@link ContractionHierarchy}.
+ *
+ * Nodes are contracted one at a time in order of a lazily updated priority
+ * (edge difference + already contracted neighbours, which keeps contraction spread out).
+ * Walking weights are plain meters, so there is little natural hierarchy and the last few
+ * percent of nodes (the dense core) dominate preprocessing time.
+ * Contracting v adds a shortcut u-w for every pair of remaining neighbours unless a
+ * bounded witness search finds a path u..w that avoids v and is no longer than u-v-w.
+ * An incomplete witness search only costs an unnecessary shortcut, never correctness.
+ */
+public final class ContractionHierarchyBuilder {
+
+    // settled nodes per witness search; higher = fewer shortcuts, slower preprocessing.
+    // Priorities are only estimates, so simulation gets a cheaper search.
+    private static final int WITNESS_SETTLE_LIMIT = 300;
+    private static final int SIMULATION_SETTLE_LIMIT = 30;
+
+    private final int n;
+    private final int originalEdgeCount;
+
+    // all edges, growing as shortcuts are added
+    private int m;
+    private int[] from, to, childA, childB;
+    private float[] weight;
+
+    // incident edge ids per node (pruned of contracted neighbours as we go)
+    private final int[][] adj;
+    private final int[] degree;
+
+    private final boolean[] contracted;
+    private final int[] deletedNeighbours;
+    private final int[] rank;
+
+    // witness search scratch
+    private final float[] witnessDist;
+    private final IndexedMinHeap witnessHeap;
+    private final IntList witnessTouched = new IntList();
+    private final boolean[] witnessTarget;
+
+    // neighbour scratch
+    private final int[] neighbourSlot;
+    private final IntList nbNode = new IntList();
+    private final IntList nbEdge = new IntList();
+    private float[] nbWeight = new float[64];
+
+    private ContractionHierarchyBuilder(WalkGraph g) {
+        n = g.nodeCount();
+        originalEdgeCount = g.edgeCount();
+        m = originalEdgeCount;
+        int cap = Math.max(16, originalEdgeCount * 2);
+        from = new int[cap];
+        to = new int[cap];
+        weight = new float[cap];
+        g.edgeFromBuffer().get(from, 0, m);
+        g.edgeToBuffer().get(to, 0, m);
+        g.edgeMetersBuffer().get(weight, 0, m);
+        childA = new int[cap];
+        childB = new int[cap];
+        Arrays.fill(childA, -1);
+        Arrays.fill(childB, -1);
+
+        degree = new int[n];
+        for (int e = 0; e < m; e++) {
+            degree[from[e]]++;
+            degree[to[e]]++;
+        }
+        adj = new int[n][];
+        for (int v = 0; v < n; v++) adj[v] = new int[Math.max(2, degree[v])];
+        Arrays.fill(degree, 0);
+        for (int e = 0; e < m; e++) {
+            adj[from[e]][degree[from[e]]++] = e;
+            adj[to[e]][degree[to[e]]++] = e;
+        }
+
+        contracted = new boolean[n];
+        deletedNeighbours = new int[n];
+        rank = new int[n];
+        witnessDist = new float[n];
+        Arrays.fill(witnessDist, Float.POSITIVE_INFINITY);
+        witnessHeap = new IndexedMinHeap(n);
+        witnessTarget = new boolean[n];
+        neighbourSlot = new int[n];
+        Arrays.fill(neighbourSlot, -1);
+    }
+
+    public static ContractionHierarchy build(WalkGraph graph) {
+        return new ContractionHierarchyBuilder(graph).run();
+    }
+
+    private ContractionHierarchy run() {
+        IndexedMinHeap queue = new IndexedMinHeap(Math.max(1, n));
+        for (int v = 0; v < n; v++) queue.offer(v, priority(v));
+
+        int next = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            // lazy update: re-evaluate, and put back if no longer the cheapest
+            float p = priority(v);
+            if (!queue.isEmpty() && p > queue.peekKey()) {
+                queue.offer(v, p);
+                continue;
+            }
+
+            contract(v, true);
+            contracted[v] = true;
+            rank[v] = next++;
+
+            // neighbours are re-prioritised lazily when they reach the top of the queue
+            for (int i = 0; i < nbNode.size(); i++) deletedNeighbours[nbNode.get(i)]++;
+        }
+        return toHierarchy();
+    }
+
+    private float priority(int v) {
+        int shortcuts = contract(v, false);
+        int edgeDifference = shortcuts - nbNode.size();
+        return 2f * edgeDifference + deletedNeighbours[v];
+    }
+
+    /**
+     * Counts (and if apply, adds) the shortcuts needed to contract v.
+     * Leaves v's remaining neighbours in nbNode / nbEdge / nbWeight.
+     */
+    private int contract(int v, boolean apply) {
+        collectNeighbours(v);
+        int k = nbNode.size();
+        int shortcuts = 0;
+
+        for (int i = 0; i < k; i++) {
+            int u = nbNode.get(i);
+            float maxVia = 0f;
+            for (int j = i + 1; j < k; j++) maxVia = Math.max(maxVia, nbWeight[i] + nbWeight[j]);
+            if (i + 1 >= k) continue;
+
+            for (int j = i + 1; j < k; j++) witnessTarget[nbNode.get(j)] = true;
+            witnessSearch(u, v, maxVia, k - i - 1, apply ? WITNESS_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT);
+            for (int j = i + 1; j < k; j++) witnessTarget[nbNode.get(j)] = false;
+            for (int j = i + 1; j < k; j++) {
+                int w = nbNode.get(j);
+                float via = nbWeight[i] + nbWeight[j];
+                if (witnessDist[w] <= via) continue;
+                shortcuts++;
+                if (apply) addShortcut(u, w, via, nbEdge.get(i), nbEdge.get(j));
+            }
+            clearWitness();
+        }
+        return shortcuts;
+    }
+
+    private void collectNeighbours(int v) {
+        nbNode.clear();
+        nbEdge.clear();
+        int[] edges = adj[v];
+        int kept = 0;
+        for (int i = 0; i < degree[v]; i++) {
+            int e = edges[i];
+            int u = from[e] == v ? to[e] : from[e];
+            if (contracted[u]) continue;
+            edges[kept++] = e;   // prune edges to contracted nodes
+
+            int slot = neighbourSlot[u];
+            if (slot < 0) {
+                slot = nbNode.size();
+                neighbourSlot[u] = slot;
+                nbNode.add(u);
+                nbEdge.add(e);
+                if (slot == nbWeight.length) nbWeight = Arrays.copyOf(nbWeight, slot * 2);
+                nbWeight[slot] = weight[e];
+            } else if (weight[e] < nbWeight[slot]) {
+                nbEdge.set(slot, e);
+                nbWeight[slot] = weight[e];
+            }
+        }
+        degree[v] = kept;
+        for (int i = 0; i < nbNode.size(); i++) neighbourSlot[nbNode.get(i)] = -1;
+    }
+
+    // Dijkstra from source avoiding excluded; stops once every target is settled,
+    // the distance limit is passed or settleLimit nodes have been settled.
+    private void witnessSearch(int source, int excluded, float limit, int targets, int settleLimit) {
+        witnessDist[source] = 0f;
+        witnessTouched.add(source);
+        witnessHeap.offer(source, 0f);
+        int settled = 0;
+
+        while (!witnessHeap.isEmpty() && settled < settleLimit && targets > 0) {
+            if (witnessHeap.peekKey() > limit) break;
+            int x = witnessHeap.poll();
+            settled++;
+            if (witnessTarget[x]) targets--;
+            float dx = witnessDist[x];
+            int[] edges = adj[x];
+            int kept = 0;
+            for (int i = 0; i < degree[x]; i++) {
+                int e = edges[i];
+                int y = from[e] == x ? to[e] : from[e];
+                if (contracted[y]) continue;
+                edges[kept++] = e;   // prune as we go, core nodes collect many dead edges
+                if (y == excluded) continue;
+                float dy = dx + weight[e];
+                if (dy < witnessDist[y]) {
+                    if (witnessDist[y] == Float.POSITIVE_INFINITY) witnessTouched.add(y);
+                    witnessDist[y] = dy;
+                    witnessHeap.offer(y, dy);
+                }
+            }
+            degree[x] = kept;
+        }
+    }
+
+    private void clearWitness() {
+        for (int i = 0; i < witnessTouched.size(); i++) witnessDist[witnessTouched.get(i)] = Float.POSITIVE_INFINITY;
+        witnessTouched.clear();
+        witnessHeap.clear();
+    }
+
+    private void addShortcut(int u, int w, float w8, int edgeUV, int edgeVW) {
+        // a longer shortcut between the same pair is replaced rather than kept alongside
+        for (int i = 0; i < degree[u]; i++) {
+            int e = adj[u][i];
+            if (e >= originalEdgeCount && (to[e] == w || from[e] == w) && weight[e] > w8) {
+                from[e] = u;
+                to[e] = w;
+                weight[e] = w8;
+                childA[e] = edgeUV;
+                childB[e] = edgeVW;
+                return;
+            }
+        }
+        if (m == from.length) {
+            int cap = m * 2;
+            from = Arrays.copyOf(from, cap);
+            to = Arrays.copyOf(to, cap);
+            weight = Arrays.copyOf(weight, cap);
+            childA = Arrays.copyOf(childA, cap);
+            childB = Arrays.copyOf(childB, cap);
+        }
+        int e = m++;
+        from[e] = u;
+        to[e] = w;
+        weight[e] = w8;
+        childA[e] = edgeUV;
+        childB[e] = edgeVW;
+        attach(u, e);
+        attach(w, e);
+    }
+
+    private void attach(int node, int edge) {
+        if (degree[node] == adj[node].length) adj[node] = Arrays.copyOf(adj[node], degree[node] * 2);
+        adj[node][degree[node]++] = edge;
+    }
+
+    // ----------------------------
+    // Upward CSR
+    // ----------------------------
+
+    private ContractionHierarchy toHierarchy() {
+        int[] upStart = new int[n + 1];
+        for (int e = 0; e < m; e++) upStart[lower(e) + 1]++;
+        for (int v = 0; v < n; v++) upStart[v + 1] += upStart[v];
+
+        int[] upTo = new int[m];
+        float[] upWeight = new float[m];
+        int[] upEdge = new int[m];
+        int[] fill = Arrays.copyOf(upStart, n);
+        for (int e = 0; e < m; e++) {
+            int low = lower(e);
+            int p = fill[low]++;
+            upTo[p] = low == from[e] ? to[e] : from[e];
+            upWeight[p] = weight[e];
+            upEdge[p] = e;
+        }
+
+        return new ContractionHierarchy(n, originalEdgeCount, IntBuffer.wrap(rank),
+                IntBuffer.wrap(upStart), IntBuffer.wrap(upTo), FloatBuffer.wrap(upWeight), IntBuffer.wrap(upEdge),
+                IntBuffer.wrap(Arrays.copyOf(from, m)), IntBuffer.wrap(Arrays.copyOf(to, m)),
+                IntBuffer.wrap(Arrays.copyOf(childA, m)), IntBuffer.wrap(Arrays.copyOf(childB, m)));
+    }
+
+    private int lower(int e) {
+        return rank[from[e]] < rank[to[e]] ? from[e] : to[e];
+    }
+}
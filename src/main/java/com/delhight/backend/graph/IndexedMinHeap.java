@@ -0,0 +1,115 @@
+package com.delhight.backend.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int items (0..capacity-1) keyed by float, with decrease-key.
+ * Used by every Dijkstra in this package; no allocation after construction.
+ */
+final class IndexedMinHeap {
+
+    private final int[] heap;      // heap position -> item
+    private final int[] position;  // item -> heap position, -1 if absent
+    private final float[] key;     // item -> key
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        key = new float[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int item) {
+        return position[item] >= 0;
+    }
+
+    float peekKey() {
+        return key[heap[0]];
+    }
+
+    /** Inserts the item, or lowers its key if already present with a larger one. */
+    void offer(int item, float k) {
+        int pos = position[item];
+        if (pos < 0) {
+            pos = size++;
+            heap[pos] = item;
+            position[item] = pos;
+            key[item] = k;
+            siftUp(pos);
+        } else if (k < key[item]) {
+            key[item] = k;
+            siftUp(pos);
+        }
+    }
+
+    /** Sets the key unconditionally (used for lazy priority updates). */
+    void update(int item, float k) {
+        int pos = position[item];
+        if (pos < 0) {
+            offer(item, k);
+            return;
+        }
+        float old = key[item];
+        key[item] = k;
+        if (k < old) siftUp(pos);
+        else siftDown(pos);
+    }
+
+    int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) position[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int item = heap[pos];
+        float k = key[item];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int p = heap[parent];
+            if (key[p] <= k) break;
+            heap[pos] = p;
+            position[p] = pos;
+            pos = parent;
+        }
+        heap[pos] = item;
+        position[item] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int item = heap[pos];
+        float k = key[item];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && key[heap[right]] < key[heap[child]]) child = right;
+            if (key[heap[child]] >= k) break;
+            heap[pos] = heap[child];
+            position[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = item;
+        position[item] = pos;
+    }
+}
@@ -0,0 +1,48 @@
+package com.delhight.backend.graph;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array (no boxing), reused across searches.
+ */
+final class IntList {
+    private int[] items = new int[64];
+    private int size;
+
+    void add(int value) {
+        if (size == items.length) items = Arrays.copyOf(items, size * 2);
+        items[size++] = value;
+    }
+
+    int get(int i) {
+        return items[i];
+    }
+
+    void set(int i, int value) {
+        items[i] = value;
+    }
+
+    int pop() {
+        return items[--size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int t = items[i];
+            items[i] = items[j];
+            items[j] = t;
+        }
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+}
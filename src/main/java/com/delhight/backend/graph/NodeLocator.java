@@ -0,0 +1,105 @@
+package com.delhight.backend.graph;
+
+import com.delhight.backend.utils.DistanceUtils;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Nearest-node lookup over a fixed grid: node indexes sorted by cell key, each cell a
+ * contiguous range found by binary search. Rings of cells are scanned outwards until
+ * the best candidate is provably the nearest or maxMeters is exceeded.
+ */
+public final class NodeLocator {
+
+    private static final double CELL_DEG = 0.002;               // ~200 m in Delhi
+    private static final double MIN_CELL_METERS = 190.0;        // lng side at ~29°N
+
+    private final WalkGraph graph;
+    private final LongBuffer cellKeys;   // sorted
+    private final IntBuffer nodes;       // parallel to cellKeys
+
+    NodeLocator(WalkGraph graph, LongBuffer cellKeys, IntBuffer nodes) {
+        this.graph = graph;
+        this.cellKeys = cellKeys;
+        this.nodes = nodes;
+    }
+
+    /** Builds the index (sorts all nodes; done once, then persisted in the snapshot). */
+    static NodeLocator build(WalkGraph graph) {
+        int n = graph.nodeCount();
+        long[] packed = new long[n];
+        Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            packed[v] = cellKey(row(graph.lat(v)), col(graph.lng(v)));
+            order[v] = v;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(packed[a], packed[b]));
+
+        long[] cellKeys = new long[n];
+        int[] nodes = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = order[i];
+            cellKeys[i] = packed[order[i]];
+        }
+        return new NodeLocator(graph, LongBuffer.wrap(cellKeys), IntBuffer.wrap(nodes));
+    }
+
+    LongBuffer cellKeyBuffer() { return cellKeys.duplicate(); }
+
+    IntBuffer nodeBuffer() { return nodes.duplicate(); }
+
+    /**
+     * Nearest node within maxMeters, or -1.
+     */
+    public int nearest(double lat, double lng, double maxMeters) {
+        int r0 = row(lat), c0 = col(lng);
+        int maxRing = (int) Math.ceil(maxMeters / MIN_CELL_METERS) + 1;
+
+        int best = -1;
+        double bestDist = maxMeters;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dr = -ring; dr <= ring; dr++) {
+                for (int dc = -ring; dc <= ring; dc++) {
+                    if (Math.abs(dr) != ring && Math.abs(dc) != ring) continue;   // ring border only
+                    long key = cellKey(r0 + dr, c0 + dc);
+                    int i = firstIndexOf(key);
+                    for (; i < cellKeys.limit() && cellKeys.get(i) == key; i++) {
+                        int v = nodes.get(i);
+                        double d = DistanceUtils.haversine(lat, lng, graph.lat(v), graph.lng(v));
+                        if (d <= bestDist) {
+                            bestDist = d;
+                            best = v;
+                        }
+                    }
+                }
+            }
+            // anything in the next ring is at least ring * cell size away
+            if (best >= 0 && bestDist <= ring * MIN_CELL_METERS) break;
+        }
+        return best;
+    }
+
+    private int firstIndexOf(long key) {
+        int lo = 0, hi = cellKeys.limit();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cellKeys.get(mid) < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int row(double lat) {
+        return (int) Math.floor(lat / CELL_DEG);
+    }
+
+    private static int col(double lng) {
+        return (int) Math.floor(lng / CELL_DEG);
+    }
+
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
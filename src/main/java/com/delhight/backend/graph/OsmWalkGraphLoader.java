@@ -0,0 +1,215 @@
+package com.delhight.backend.graph;
+
+import com.delhight.backend.snapshot.StringTable;
+import com.delhight.backend.utils.DistanceUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Builds a {@link WalkGraph} from an OpenStreetMap XML extract (.osm or .osm.gz).
+ *
+ * Two streaming passes so the whole extract never sits in memory:
+ *   1. ways: keep walkable ways (node refs + name), remember which node ids they use
+ *   2. nodes: keep coordinates of the used nodes only
+ */
+public final class OsmWalkGraphLoader {
+
+    private static final Set<String> WALKABLE_HIGHWAYS = Set.of(
+            "footway", "pedestrian", "path", "steps", "living_street", "residential", "service",
+            "unclassified", "tertiary", "tertiary_link", "secondary", "secondary_link",
+            "primary", "primary_link", "trunk", "trunk_link", "track", "road", "cycleway",
+            "corridor", "platform");
+
+    private static final Set<String> NO_ACCESS = Set.of("no", "private");
+
+    private OsmWalkGraphLoader() {
+    }
+
+    public static WalkGraph load(Path file) throws IOException {
+        try {
+            Ways ways = readWays(file);
+            LongIntHashMap nodeIndex = new LongIntHashMap(ways.usedNodes.size());
+            double[][] coords = readNodes(file, ways.usedNodes, nodeIndex);
+            return buildGraph(ways, nodeIndex, coords[0], coords[1]);
+        } catch (XMLStreamException ex) {
+            throw new IOException("Invalid OSM file " + file + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    // ----------------------------
+    // Pass 1: ways
+    // ----------------------------
+
+    private static final class Ways {
+        long[] refs = new long[1 << 16];
+        int refCount;
+        int[] wayStart = new int[1 << 12];     // CSR offsets into refs
+        int[] wayName = new int[1 << 12];
+        int wayCount;
+        final Map<String, Integer> nameIndex = new HashMap<>();
+        final LongIntHashMap usedNodes = new LongIntHashMap(1 << 16);
+
+        void add(long[] wayRefs, int len, String name) {
+            if (len < 2) return;
+            if (refCount + len > refs.length) refs = Arrays.copyOf(refs, Math.max(refs.length * 2, refCount + len));
+            if (wayCount + 2 > wayStart.length) {
+                wayStart = Arrays.copyOf(wayStart, wayStart.length * 2);
+                wayName = Arrays.copyOf(wayName, wayName.length * 2);
+            }
+            wayStart[wayCount] = refCount;
+            wayName[wayCount] = name == null ? -1 : nameIndex.computeIfAbsent(name, k -> nameIndex.size());
+            for (int i = 0; i < len; i++) {
+                refs[refCount++] = wayRefs[i];
+                usedNodes.put(wayRefs[i], 0);
+            }
+            wayCount++;
+            wayStart[wayCount] = refCount;
+        }
+    }
+
+    private static Ways readWays(Path file) throws IOException, XMLStreamException {
+        Ways ways = new Ways();
+        long[] wayRefs = new long[256];
+        int len = 0;
+        boolean inWay = false;
+        String highway = null, foot = null, access = null, name = null;
+
+        try (InputStream in = open(file)) {
+            XMLStreamReader xml = xmlFactory().createXMLStreamReader(in);
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String el = xml.getLocalName();
+                    if ("way".equals(el)) {
+                        inWay = true;
+                        len = 0;
+                        highway = foot = access = name = null;
+                    } else if (inWay && "nd".equals(el)) {
+                        if (len == wayRefs.length) wayRefs = Arrays.copyOf(wayRefs, len * 2);
+                        wayRefs[len++] = Long.parseLong(xml.getAttributeValue(null, "ref"));
+                    } else if (inWay && "tag".equals(el)) {
+                        String k = xml.getAttributeValue(null, "k");
+                        String v = xml.getAttributeValue(null, "v");
+                        switch (k) {
+                            case "highway" -> highway = v;
+                            case "foot" -> foot = v;
+                            case "access" -> access = v;
+                            case "name" -> name = v;
+                            default -> { }
+                        }
+                    } else if ("relation".equals(el)) {
+                        break;   // relations come after all ways
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(xml.getLocalName())) {
+                    inWay = false;
+                    if (isWalkable(highway, foot, access)) ways.add(wayRefs, len, name);
+                }
+            }
+            xml.close();
+        }
+        return ways;
+    }
+
+    static boolean isWalkable(String highway, String foot, String access) {
+        if (highway == null || !WALKABLE_HIGHWAYS.contains(highway)) return false;
+        if (foot != null) return !NO_ACCESS.contains(foot);
+        return access == null || !NO_ACCESS.contains(access);
+    }
+
+    // ----------------------------
+    // Pass 2: nodes
+    // ----------------------------
+
+    private static double[][] readNodes(Path file, LongIntHashMap used, LongIntHashMap nodeIndex)
+            throws IOException, XMLStreamException {
+        int expected = used.size();
+        double[] lat = new double[expected];
+        double[] lng = new double[expected];
+        int count = 0;
+
+        try (InputStream in = open(file)) {
+            XMLStreamReader xml = xmlFactory().createXMLStreamReader(in);
+            while (xml.hasNext()) {
+                if (xml.next() != XMLStreamConstants.START_ELEMENT) continue;
+                String el = xml.getLocalName();
+                if ("way".equals(el)) break;   // nodes come first in OSM XML
+                if (!"node".equals(el)) continue;
+
+                long id = Long.parseLong(xml.getAttributeValue(null, "id"));
+                if (!used.containsKey(id) || nodeIndex.containsKey(id)) continue;
+                lat[count] = Double.parseDouble(xml.getAttributeValue(null, "lat"));
+                lng[count] = Double.parseDouble(xml.getAttributeValue(null, "lon"));
+                nodeIndex.put(id, count++);
+            }
+            xml.close();
+        }
+        return new double[][]{Arrays.copyOf(lat, count), Arrays.copyOf(lng, count)};
+    }
+
+    // ----------------------------
+    // Graph
+    // ----------------------------
+
+    private static WalkGraph buildGraph(Ways ways, LongIntHashMap nodeIndex, double[] lat, double[] lng) {
+        int maxEdges = ways.refCount - ways.wayCount;
+        int[] from = new int[maxEdges];
+        int[] to = new int[maxEdges];
+        float[] meters = new float[maxEdges];
+        int[] name = new int[maxEdges];
+        int m = 0;
+
+        for (int w = 0; w < ways.wayCount; w++) {
+            for (int r = ways.wayStart[w]; r + 1 < ways.wayStart[w + 1]; r++) {
+                int a = nodeIndex.get(ways.refs[r]);
+                int b = nodeIndex.get(ways.refs[r + 1]);
+                if (a < 0 || b < 0 || a == b) continue;   // clipped at the extract boundary
+                from[m] = a;
+                to[m] = b;
+                meters[m] = (float) DistanceUtils.haversine(lat[a], lng[a], lat[b], lng[b]);
+                name[m] = ways.wayName[w];
+                m++;
+            }
+        }
+
+        String[] names = new String[ways.nameIndex.size()];
+        ways.nameIndex.forEach((n, i) -> names[i] = n);
+
+        return new WalkGraph(DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lng),
+                IntBuffer.wrap(from, 0, m).slice(), IntBuffer.wrap(to, 0, m).slice(),
+                FloatBuffer.wrap(meters, 0, m).slice(), IntBuffer.wrap(name, 0, m).slice(),
+                StringTable.of(names));
+    }
+
+    // ----------------------------
+    // IO
+    // ----------------------------
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        return file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    private static XMLInputFactory xmlFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+}
@@ -0,0 +1,72 @@
+package com.delhight.backend.graph;
+
+import com.delhight.backend.snapshot.StringTable;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Pedestrian street graph in flat buffers (heap arrays or a mapped snapshot).
+ *
+ * Nodes are OSM nodes used by walkable ways; edges are undirected way segments
+ * between consecutive nodes, with their length in meters and street name index.
+ */
+public final class WalkGraph {
+    private final DoubleBuffer nodeLat;
+    private final DoubleBuffer nodeLng;
+    private final IntBuffer edgeFrom;
+    private final IntBuffer edgeTo;
+    private final FloatBuffer edgeMeters;
+    private final IntBuffer edgeName;      // index into names, -1 = unnamed
+    private final StringTable names;
+
+    public WalkGraph(DoubleBuffer nodeLat, DoubleBuffer nodeLng,
+                     IntBuffer edgeFrom, IntBuffer edgeTo, FloatBuffer edgeMeters, IntBuffer edgeName,
+                     StringTable names) {
+        this.nodeLat = nodeLat;
+        this.nodeLng = nodeLng;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeMeters = edgeMeters;
+        this.edgeName = edgeName;
+        this.names = names;
+    }
+
+    public int nodeCount() { return nodeLat.limit(); }
+
+    public int edgeCount() { return edgeFrom.limit(); }
+
+    public double lat(int node) { return nodeLat.get(node); }
+
+    public double lng(int node) { return nodeLng.get(node); }
+
+    public int edgeFrom(int edge) { return edgeFrom.get(edge); }
+
+    public int edgeTo(int edge) { return edgeTo.get(edge); }
+
+    public float edgeMeters(int edge) { return edgeMeters.get(edge); }
+
+    /** Street name index of an edge, -1 if unnamed (cheap equality checks). */
+    public int edgeNameIndex(int edge) { return edgeName.get(edge); }
+
+    /** Street name of an edge, or null if unnamed. */
+    public String edgeName(int edge) {
+        int idx = edgeName.get(edge);
+        return idx >= 0 ? names.get(idx) : null;
+    }
+
+    DoubleBuffer nodeLatBuffer() { return nodeLat.duplicate(); }
+
+    DoubleBuffer nodeLngBuffer() { return nodeLng.duplicate(); }
+
+    IntBuffer edgeFromBuffer() { return edgeFrom.duplicate(); }
+
+    IntBuffer edgeToBuffer() { return edgeTo.duplicate(); }
+
+    FloatBuffer edgeMetersBuffer() { return edgeMeters.duplicate(); }
+
+    IntBuffer edgeNameBuffer() { return edgeName.duplicate(); }
+
+    StringTable names() { return names; }
+}
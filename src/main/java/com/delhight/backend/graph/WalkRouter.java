@@ -0,0 +1,126 @@
+package com.delhight.backend.graph;
+
+import com.delhight.backend.snapshot.Snapshot;
+import com.delhight.backend.snapshot.SnapshotWriter;
+
+import java.nio.IntBuffer;
+
+/**
+ * Everything needed to answer walking queries: the street graph, its contraction
+ * hierarchy and the nearest-node index. Immutable once built; swap the whole instance
+ * to reload.
+ */
+public final class WalkRouter {
+
+    static final String SECTION_NODE_LAT = "walk.nodeLat";
+
+    private final WalkGraph graph;
+    private final ContractionHierarchy hierarchy;
+    private final NodeLocator locator;
+
+    private WalkRouter(WalkGraph graph, ContractionHierarchy hierarchy, NodeLocator locator) {
+        this.graph = graph;
+        this.hierarchy = hierarchy;
+        this.locator = locator;
+    }
+
+    /** Preprocesses a freshly loaded graph (contraction + spatial index). */
+    public static WalkRouter build(WalkGraph graph) {
+        return new WalkRouter(graph, ContractionHierarchyBuilder.build(graph), NodeLocator.build(graph));
+    }
+
+    public WalkGraph getGraph() { return graph; }
+
+    public ContractionHierarchy getHierarchy() { return hierarchy; }
+
+    /** Nearest graph node within maxMeters, or -1. */
+    public int snap(double lat, double lng, double maxMeters) {
+        return locator.nearest(lat, lng, maxMeters);
+    }
+
+    /** Shortest walk between two nodes, or null if not connected. */
+    public ContractionHierarchy.Path route(int fromNode, int toNode) {
+        return hierarchy.route(fromNode, toNode);
+    }
+
+    // ----------------------------
+    // Snapshot sections
+    // ----------------------------
+
+    public static boolean inSnapshot(Snapshot s) {
+        return s.has(SECTION_NODE_LAT);
+    }
+
+    public void writeSnapshot(SnapshotWriter out) {
+        ContractionHierarchy ch = hierarchy;
+        out.putDoubles(SECTION_NODE_LAT, graph.nodeLatBuffer())
+                .putDoubles("walk.nodeLng", graph.nodeLngBuffer())
+                .putInts("walk.edgeFrom", graph.edgeFromBuffer())
+                .putInts("walk.edgeTo", graph.edgeToBuffer())
+                .putFloats("walk.edgeMeters", graph.edgeMetersBuffer())
+                .putInts("walk.edgeName", graph.edgeNameBuffer())
+                .putStrings("walk.names", graph.names())
+                .putInts("walk.ch.rank", ch.rankBuffer())
+                .putInts("walk.ch.upStart", ch.upStartBuffer())
+                .putInts("walk.ch.upTo", ch.upToBuffer())
+                .putFloats("walk.ch.upWeight", ch.upWeightBuffer())
+                .putInts("walk.ch.upEdge", ch.upEdgeBuffer())
+                .putInts("walk.ch.edgeFrom", ch.edgeFromBuffer())
+                .putInts("walk.ch.edgeTo", ch.edgeToBuffer())
+                .putInts("walk.ch.childA", ch.edgeChildABuffer())
+                .putInts("walk.ch.childB", ch.edgeChildBBuffer())
+                .putLongs("walk.grid.cellKeys", locator.cellKeyBuffer())
+                .putInts("walk.grid.nodes", locator.nodeBuffer());
+    }
+
+    /** A router whose arrays are all views over the snapshot's mapping; nothing is rebuilt. */
+    public static WalkRouter readSnapshot(Snapshot s) {
+        WalkGraph graph = new WalkGraph(
+                s.doubles(SECTION_NODE_LAT), s.doubles("walk.nodeLng"),
+                s.ints("walk.edgeFrom"), s.ints("walk.edgeTo"), s.floats("walk.edgeMeters"),
+                s.ints("walk.edgeName"), s.strings("walk.names"));
+        ContractionHierarchy ch = new ContractionHierarchy(graph.nodeCount(), graph.edgeCount(),
+                s.ints("walk.ch.rank"),
+                s.ints("walk.ch.upStart"), s.ints("walk.ch.upTo"), s.floats("walk.ch.upWeight"), s.ints("walk.ch.upEdge"),
+                s.ints("walk.ch.edgeFrom"), s.ints("walk.ch.edgeTo"), s.ints("walk.ch.childA"), s.ints("walk.ch.childB"));
+        NodeLocator locator = new NodeLocator(graph, s.longs("walk.grid.cellKeys"), s.ints("walk.grid.nodes"));
+        WalkRouter router = new WalkRouter(graph, ch, locator);
+        router.validate();
+        return router;
+    }
+
+    // section lengths agree and node ids are in range, so a bad file fails here and not in a query
+    private void validate() {
+        int n = graph.nodeCount();
+        int edges = graph.edgeCount();
+        require(graph.nodeLngBuffer().limit() == n, "walk.nodeLng");
+        require(graph.edgeToBuffer().limit() == edges && graph.edgeMetersBuffer().limit() == edges
+                && graph.edgeNameBuffer().limit() == edges, "walk.edge*");
+        require(inRange(graph.edgeFromBuffer(), n) && inRange(graph.edgeToBuffer(), n), "walk.edgeFrom / edgeTo");
+
+        ContractionHierarchy ch = hierarchy;
+        require(ch.rankBuffer().limit() == n, "walk.ch.rank");
+        IntBuffer upStart = ch.upStartBuffer();
+        int up = ch.upToBuffer().limit();
+        require(upStart.limit() == n + 1 && upStart.get(n) == up, "walk.ch.upStart");
+        require(ch.upWeightBuffer().limit() == up && ch.upEdgeBuffer().limit() == up, "walk.ch.up*");
+        require(inRange(ch.upToBuffer(), n), "walk.ch.upTo");
+        int chEdges = ch.edgeFromBuffer().limit();
+        require(ch.edgeToBuffer().limit() == chEdges && chEdges >= edges, "walk.ch.edgeFrom / edgeTo");
+        require(inRange(ch.upEdgeBuffer(), chEdges), "walk.ch.upEdge");
+        require(ch.edgeChildABuffer().limit() == ch.edgeChildBBuffer().limit(), "walk.ch.childA / childB");
+        require(inRange(locator.nodeBuffer(), n), "walk.grid.nodes");
+    }
+
+    private static boolean inRange(IntBuffer b, int n) {
+        for (int i = 0; i < b.limit(); i++) {
+            int v = b.get(i);
+            if (v < 0 || v >= n) return false;
+        }
+        return true;
+    }
+
+    private static void require(boolean ok, String section) {
+        if (!ok) throw new IllegalStateException("Snapshot section " + section + " does not match the walking graph");
+    }
+}
@@ -0,0 +1,582 @@
+package com.delhight.backend.job;
+
+import com.delhight.backend.model.DegradationLevel;
+import com.delhight.backend.model.RouteVariant;
+import com.delhight.backend.service.DirectionsService;
+import com.delhight.backend.service.GeocodingService;
+import com.delhight.backend.service.MemoizingRouteLookups;
+import com.delhight.backend.service.NearestStationsService;
+import com.delhight.backend.service.RouteComputationService;
+import com.delhight.backend.service.RouteLookups;
+import com.delhight.backend.service.ThrottledRouteLookups;
+import com.delhight.backend.utils.RateLimiter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Headless origin-destination matrix job.
+ *
+ * Enabled by setting delhight.odmatrix.zones; typically launched as
+ *
+ *   java -jar app.jar --spring.main.web-application-type=none \
+ *        --delhight.odmatrix.zones=zones.csv --delhight.odmatrix.outputDir=od-out
+ *
+ * - zones file: "zoneId,lat,lng" per line ('#' comments and a header line are skipped)
+ * - every ordered pair (origin != destination) is routed through RouteComputationService
+ *   on a ForkJoinPool, always at DegradationLevel.FULL (whatever live traffic is doing);
+ *   the best (first-ranked) variant is written out
+ * - lookups are memoized for the whole run (legs up to memoMaxLegs, least recently used
+ *   dropped first) and throttled to maxRequestsPerSecond
+ * - output: gzip'd NDJSON or CSV parts (part-00001.ndjson.gz, ...), one new part per run
+ * - checkpoint.txt starts with the SHA-256 of the zones file, then lists finished pair
+ *   indices in batches. Each batch ends with "rows <part> <count>", appended only after
+ *   those rows were sync-flushed to the part; a batch without it is ignored.
+ * - on restart the zones file must hash the same (pair indices depend on it), otherwise
+ *   the job refuses to run. Every part is cut back to the rows its checkpoint covers, and
+ *   its error rows are dropped (failed pairs are not checkpointed and run again), so each
+ *   pair appears once across the parts.
+ */
+@Component
+@ConditionalOnProperty(name = "delhight.odmatrix.zones")
+public class OdMatrixJob implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OdMatrixJob.class);
+
+    // pairs per fork/join leaf task
+    private static final int LEAF_SIZE = 8;
+
+    private final RouteComputationService routeComputationService;
+    private final GeocodingService geocodingService;
+    private final NearestStationsService nearestStationsService;
+    private final DirectionsService directionsService;
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${delhight.odmatrix.zones}")
+    private String zonesFile;
+
+    @Value("${delhight.odmatrix.outputDir:od-matrix}")
+    private String outputDir;
+
+    @Value("${delhight.odmatrix.format:ndjson}")
+    private String format;               // ndjson | csv
+
+    @Value("${delhight.odmatrix.parallelism:0}")
+    private int parallelism;             // 0 = number of cores
+
+    @Value("${delhight.odmatrix.maxRequestsPerSecond:20}")
+    private double maxRequestsPerSecond;
+
+    @Value("${delhight.odmatrix.checkpointEvery:100}")
+    private int checkpointEvery;
+
+    @Value("${delhight.odmatrix.exitOnFinish:true}")
+    private boolean exitOnFinish;
+
+    // whole-run leg memo; ~2 KB per leg
+    @Value("${delhight.odmatrix.memoMaxLegs:200000}")
+    private int memoMaxLegs;
+
+    public OdMatrixJob(RouteComputationService routeComputationService,
+                       GeocodingService geocodingService,
+                       NearestStationsService nearestStationsService,
+                       DirectionsService directionsService,
+                       ObjectMapper objectMapper,
+                       ConfigurableApplicationContext context) {
+        this.routeComputationService = routeComputationService;
+        this.geocodingService = geocodingService;
+        this.nearestStationsService = nearestStationsService;
+        this.directionsService = directionsService;
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        boolean ok = false;
+        try {
+            runMatrix();
+            ok = true;
+        } catch (Exception ex) {
+            // logged here: with exitOnFinish the exit below would swallow it
+            log.error("OD matrix failed", ex);
+            throw ex;
+        } finally {
+            if (exitOnFinish) {
+                int code = ok ? 0 : 1;
+                System.exit(SpringApplication.exit(context, () -> code));
+            }
+        }
+    }
+
+    public void runMatrix() throws IOException {
+        Path zonesPath = Paths.get(zonesFile);
+        List<ZoneCentroid> zones = readZones(zonesPath);
+        int n = zones.size();
+        long totalPairs = (long) n * n;
+        if (totalPairs > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many zones: " + n);
+        String zonesHash = sha256(zonesPath);
+
+        Path dir = Paths.get(outputDir);
+        Files.createDirectories(dir);
+        Path checkpointFile = dir.resolve("checkpoint.txt");
+        Checkpoint checkpoint = readCheckpoint(checkpointFile);
+        BitSet done = checkpoint.done();
+        if (checkpoint.exists()) {
+            if (!zonesHash.equals(checkpoint.zonesHash())) {
+                throw new IllegalStateException(checkpointFile + " was written for a different zones file than "
+                        + zonesPath + "; restore that file, or start over with a new outputDir");
+            }
+            Map<String, Integer> kept = trimParts(dir, checkpoint.rows());
+            if (!kept.equals(checkpoint.rows())) writeCheckpoint(checkpointFile, zonesHash, done, kept);
+        }
+
+        log.info("OD matrix: {} zones, {} pairs, {} already done", n, (long) n * (n - 1), done.cardinality());
+
+        RouteLookups upstream = new ThrottledRouteLookups(
+                RouteLookups.direct(nearestStationsService, directionsService),
+                new RateLimiter(maxRequestsPerSecond));
+        MemoizingRouteLookups lookups = new MemoizingRouteLookups(geocodingService, upstream, memoMaxLegs);
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try (MatrixOutput output = new MatrixOutput(dir, checkpointFile, zonesHash)) {
+            pool.invoke(new PairRangeTask(zones, done, 0, (int) totalPairs, lookups, output));
+            log.info("OD matrix finished: {} rows written this run ({} failed), {} legs fetched",
+                    output.written.get(), output.failed.get(), lookups.fetchedLegs());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // ----------------------------
+    // Fork/join over pair indices (origin = idx / n, destination = idx % n)
+    // ----------------------------
+
+    private class PairRangeTask extends RecursiveAction {
+        private final List<ZoneCentroid> zones;
+        private final BitSet done;
+        private final int from;
+        private final int to;
+        private final RouteLookups lookups;
+        private final MatrixOutput output;
+
+        PairRangeTask(List<ZoneCentroid> zones, BitSet done, int from, int to,
+                      RouteLookups lookups, MatrixOutput output) {
+            this.zones = zones;
+            this.done = done;
+            this.from = from;
+            this.to = to;
+            this.lookups = lookups;
+            this.output = output;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PairRangeTask(zones, done, from, mid, lookups, output),
+                        new PairRangeTask(zones, done, mid, to, lookups, output));
+                return;
+            }
+
+            int n = zones.size();
+            for (int idx = from; idx < to; idx++) {
+                int oi = idx / n;
+                int di = idx % n;
+                // 'done' is only read here, never written, so no locking needed
+                if (oi == di || done.get(idx)) continue;
+
+                ZoneCentroid o = zones.get(oi);
+                ZoneCentroid d = zones.get(di);
+
+                RouteVariant best = null;
+                String error = null;
+                try {
+                    // always full: the job paces itself (maxRequestsPerSecond), and live
+                    // degradation must not quietly lower the quality of a planning matrix
+                    List<RouteVariant> variants = routeComputationService.computeRoutes(
+                            o.getLat(), o.getLng(), d.getLat(), d.getLng(),
+                            o.getZoneId(), d.getZoneId(), lookups, DegradationLevel.FULL);
+                    if (!variants.isEmpty()) best = variants.get(0);
+                } catch (Exception ex) {
+                    error = ex.getMessage();
+                }
+                output.write(idx, o, d, best, error);
+            }
+        }
+    }
+
+    // ----------------------------
+    // Output part + checkpoint
+    // ----------------------------
+
+    private class MatrixOutput implements AutoCloseable {
+        private final Writer writer;
+        private final Writer checkpoint;
+        private final String partName;
+        private final boolean csv;
+        private final List<Integer> pending = new ArrayList<>();
+        // rows in this part, the CSV header aside
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        MatrixOutput(Path dir, Path checkpointFile, String zonesHash) throws IOException {
+            this.csv = "csv".equalsIgnoreCase(format);
+            Path part = nextPartFile(dir, csv ? "csv.gz" : "ndjson.gz");
+            this.partName = part.getFileName().toString();
+            // syncFlush: everything before a flush() is decodable even if the run dies later
+            this.writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(part), 64 * 1024, true),
+                    StandardCharsets.UTF_8));
+            boolean fresh = !Files.exists(checkpointFile) || Files.size(checkpointFile) == 0;
+            this.checkpoint = Files.newBufferedWriter(checkpointFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (fresh) {
+                checkpoint.write("zones " + zonesHash + "\n");
+                checkpoint.flush();
+            }
+            if (csv) {
+                writer.write("origin,destination,status,durationSeconds,distanceMeters,costRs,summary,variantId\n");
+            }
+            log.info("OD matrix writing to {}", part);
+        }
+
+        synchronized void write(int idx, ZoneCentroid o, ZoneCentroid d, RouteVariant best, String error) {
+            String status = error != null ? "error" : (best != null ? "ok" : "no_route");
+            if (error != null) failed.incrementAndGet();
+            try {
+                if (csv) writeCsv(o, d, status, best);
+                else writeJson(o, d, status, best, error);
+
+                // failed pairs are not checkpointed so a resumed run retries them
+                if (error == null) pending.add(idx);
+                written.incrementAndGet();
+                if (pending.size() >= checkpointEvery) checkpoint();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeJson(ZoneCentroid o, ZoneCentroid d, String status,
+                               RouteVariant best, String error) throws IOException {
+            JsonGenerator gen = jsonFactory.createGenerator(writer);
+            // close() must neither close nor flush the gzip writer (a flush per row would
+            // force a gzip sync block per row)
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            gen.writeStartObject();
+            gen.writeStringField("origin", o.getZoneId());
+            gen.writeStringField("destination", d.getZoneId());
+            gen.writeStringField("status", status);
+            if (best != null) {
+                gen.writeNumberField("durationSeconds", best.getTotalDurationSeconds());
+                gen.writeNumberField("distanceMeters", best.getTotalDistanceMeters());
+                gen.writeNumberField("costRs", best.getTotalCostRs());
+                gen.writeStringField("summary", best.getSummaryText());
+                gen.writeStringField("variantId", best.getId());
+            }
+            if (error != null) gen.writeStringField("message", error);
+            gen.writeEndObject();
+            gen.close();
+            writer.write('\n');
+        }
+
+        private void writeCsv(ZoneCentroid o, ZoneCentroid d, String status, RouteVariant best) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            sb.append(csvField(o.getZoneId())).append(',')
+                    .append(csvField(d.getZoneId())).append(',')
+                    .append(status).append(',');
+            if (best != null) {
+                sb.append(best.getTotalDurationSeconds()).append(',')
+                        .append(Math.round(best.getTotalDistanceMeters())).append(',')
+                        .append(best.getTotalCostRs()).append(',')
+                        .append(csvField(best.getSummaryText())).append(',')
+                        .append(csvField(best.getId()));
+            } else {
+                sb.append(",,,,");
+            }
+            writer.write(sb.append('\n').toString());
+        }
+
+        private void checkpoint() throws IOException {
+            writer.flush();
+            commitPending();
+            checkpoint.flush();
+        }
+
+        // the pending pairs, then the row count that covers them
+        private void commitPending() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            for (Integer idx : pending) sb.append(idx).append('\n');
+            sb.append("rows ").append(partName).append(' ').append(written.get()).append('\n');
+            checkpoint.write(sb.toString());
+            pending.clear();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            // finish the gzip member first, then record the remaining pairs as done
+            writer.close();
+            commitPending();
+            checkpoint.close();
+        }
+    }
+
+    // ----------------------------
+    // Checkpoint
+    // ----------------------------
+
+    /**
+     * @param rows per part name, the leading rows the checkpoint covers
+     */
+    private record Checkpoint(boolean exists, String zonesHash, BitSet done, Map<String, Integer> rows) {}
+
+    private static Checkpoint readCheckpoint(Path file) throws IOException {
+        BitSet done = new BitSet();
+        Map<String, Integer> rows = new LinkedHashMap<>();
+        if (!Files.exists(file) || Files.size(file) == 0) return new Checkpoint(false, null, done, rows);
+
+        // a last line without its newline was torn by an interrupted run
+        boolean tornTail;
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            tornTail = last.get(0) != '\n';
+        }
+
+        String zonesHash = null;
+        List<Integer> batch = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (next == null && tornTail) break;
+                line = line.trim();
+                if (line.startsWith("zones ")) {
+                    zonesHash = line.substring("zones ".length()).trim();
+                } else if (line.startsWith("rows ")) {
+                    String[] fields = line.split(" ");
+                    rows.put(fields[1], Integer.parseInt(fields[2]));
+                    for (int idx : batch) done.set(idx);
+                    batch.clear();
+                } else if (!line.isEmpty()) {
+                    batch.add(Integer.parseInt(line));
+                }
+                line = next;
+            }
+        }
+        // indices after the last "rows" line: their rows may not have reached the part
+        return new Checkpoint(true, zonesHash, done, rows);
+    }
+
+    private static void writeCheckpoint(Path file, String zonesHash, BitSet done,
+                                        Map<String, Integer> rows) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out.write("zones " + zonesHash + "\n");
+            for (int idx = done.nextSetBit(0); idx >= 0; idx = done.nextSetBit(idx + 1)) {
+                out.write(idx + "\n");
+            }
+            for (Map.Entry<String, Integer> e : rows.entrySet()) {
+                out.write("rows " + e.getKey() + " " + e.getValue() + "\n");
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Cuts every part back to the rows the checkpoint covers and drops its error rows.
+     * Parts the checkpoint does not mention are deleted.
+     *
+     * @return rows left per part
+     */
+    private Map<String, Integer> trimParts(Path dir, Map<String, Integer> committed) throws IOException {
+        Map<String, Integer> kept = new LinkedHashMap<>();
+        List<Path> parts = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "part-*.gz")) {
+            stream.forEach(parts::add);
+        }
+        parts.sort(null);
+        for (Path part : parts) {
+            String name = part.getFileName().toString();
+            int rows = trimPart(part, committed.getOrDefault(name, 0));
+            if (rows > 0) kept.put(name, rows);
+        }
+        return kept;
+    }
+
+    private int trimPart(Path part, int committed) throws IOException {
+        String name = part.getFileName().toString();
+        if (committed == 0) {
+            // nothing of it was checkpointed (the run died before its first flush)
+            Files.delete(part);
+            log.info("OD matrix resume: removed {} (no checkpointed rows)", name);
+            return 0;
+        }
+
+        boolean csv = name.endsWith(".csv.gz");
+        Path tmp = part.resolveSibling(name + ".tmp");
+        int kept = 0;
+        boolean changed = false;
+        TornGzipInputStream gzip = new TornGzipInputStream(Files.newInputStream(part));
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(gzip, StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024), StandardCharsets.UTF_8))) {
+            if (csv) {
+                String header = in.readLine();
+                if (header != null) out.write(header + "\n");
+            }
+            for (int i = 0; i < committed; i++) {
+                String line = in.readLine();
+                if (line == null) break;
+                if (isErrorRow(line, csv)) {
+                    changed = true;
+                    continue;
+                }
+                out.write(line);
+                out.write('\n');
+                kept++;
+            }
+            if (in.readLine() != null || gzip.torn) changed = true;
+        }
+
+        if (!changed) {
+            Files.delete(tmp);
+        } else if (kept == 0) {
+            Files.delete(tmp);
+            Files.delete(part);
+        } else {
+            Files.move(tmp, part, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (changed) log.info("OD matrix resume: kept {} of {} checkpointed rows of {}", kept, committed, name);
+        return kept;
+    }
+
+    /**
+     * Reads the part of a gzip member an interrupted run left behind: everything up to its
+     * last sync flush, then end of stream instead of an EOFException.
+     */
+    private static final class TornGzipInputStream extends FilterInputStream {
+        boolean torn;
+
+        TornGzipInputStream(InputStream in) throws IOException {
+            super(new GZIPInputStream(in));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (EOFException e) {
+                torn = true;
+                return -1;
+            }
+        }
+    }
+
+    private boolean isErrorRow(String line, boolean csv) throws IOException {
+        if (!csv) return "error".equals(objectMapper.readTree(line).path("status").asText());
+        // status is the third field; the zone ids before it may be quoted
+        int field = 0;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (c == ',' && !quoted && ++field == 2) return line.startsWith("error,", i + 1);
+        }
+        return false;
+    }
+
+    // ----------------------------
+    // Helpers
+    // ----------------------------
+
+    static List<ZoneCentroid> readZones(Path file) throws IOException {
+        List<ZoneCentroid> zones = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(",");
+                if (parts.length < 3) continue;
+                try {
+                    double lat = Double.parseDouble(parts[1].trim());
+                    double lng = Double.parseDouble(parts[2].trim());
+                    zones.add(new ZoneCentroid(parts[0].trim(), lat, lng));
+                } catch (NumberFormatException ignored) {
+                    // header line or malformed row
+                }
+            }
+        }
+        return zones;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path nextPartFile(Path dir, String extension) {
+        for (int i = 1; ; i++) {
+            Path p = dir.resolve(String.format("part-%05d.%s", i, extension));
+            if (!Files.exists(p)) return p;
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
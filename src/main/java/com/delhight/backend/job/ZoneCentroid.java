@@ -0,0 +1,22 @@
+package com.delhight.backend.job;
+
+/**
+ * One planning zone, represented by its centroid.
+ */
+public class ZoneCentroid {
+    private final String zoneId;
+    private final double lat;
+    private final double lng;
+
+    public ZoneCentroid(String zoneId, double lat, double lng) {
+        this.zoneId = zoneId;
+        this.lat = lat;
+        this.lng = lng;
+    }
+
+    public String getZoneId() { return zoneId; }
+
+    public double getLat() { return lat; }
+
+    public double getLng() { return lng; }
+}
@@ -0,0 +1,144 @@
+package com.delhight.backend.mapper;
+
+import com.delhight.backend.model.Isochrone;
+import com.delhight.backend.model.MetroNetwork;
+import com.delhight.backend.utils.GridOutline;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Streams an Isochrone as GeoJSON (RFC 7946, [lng, lat] coordinates):
+ *
+ *   polygon   one Feature, geometry MultiPolygon: the outline of the reachable cells
+ *             (outer rings counter-clockwise, holes clockwise)
+ *   grid      a FeatureCollection with one square Polygon Feature per reachable cell,
+ *             properties { minutes }: earliest arrival at the cell centre
+ *
+ * Both carry the isochrone's properties { minutes (budget), origin, cellMeters, computedAt,
+ * stations: [{ id, name, minutes }] }: on the Feature, or as a foreign member of the
+ * FeatureCollection.
+ */
+@Component
+public class IsochroneJsonWriter {
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private final JsonFactory jsonFactory;
+
+    public IsochroneJsonWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public void writePolygon(OutputStream out, Isochrone iso) throws IOException {
+        int rows = iso.getRows();
+        int cols = iso.getCols();
+        boolean[] reachable = new boolean[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) reachable[r * cols + c] = iso.isReachable(r, c);
+        }
+        List<List<int[]>> polygons = GridOutline.polygons(reachable, rows, cols);
+
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "Feature");
+            gen.writeObjectFieldStart("geometry");
+            gen.writeStringField("type", "MultiPolygon");
+            gen.writeArrayFieldStart("coordinates");
+            for (List<int[]> polygon : polygons) {
+                gen.writeStartArray();
+                for (int[] ring : polygon) {
+                    gen.writeStartArray();
+                    for (int i = 0; i + 1 < ring.length; i += 2) {
+                        writePosition(gen, iso.getWest() + ring[i] * iso.getCellLng(),
+                                iso.getSouth() + ring[i + 1] * iso.getCellLat());
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+            gen.writeFieldName("properties");
+            writeProperties(gen, iso);
+            gen.writeEndObject();
+        }
+    }
+
+    public void writeGrid(OutputStream out, Isochrone iso) throws IOException {
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", "FeatureCollection");
+            gen.writeFieldName("properties");
+            writeProperties(gen, iso);
+            gen.writeArrayFieldStart("features");
+            for (int r = 0; r < iso.getRows(); r++) {
+                for (int c = 0; c < iso.getCols(); c++) {
+                    if (!iso.isReachable(r, c)) continue;
+                    double w = iso.getWest() + c * iso.getCellLng();
+                    double s = iso.getSouth() + r * iso.getCellLat();
+                    double e = w + iso.getCellLng();
+                    double n = s + iso.getCellLat();
+                    gen.writeStartObject();
+                    gen.writeStringField("type", "Feature");
+                    gen.writeObjectFieldStart("geometry");
+                    gen.writeStringField("type", "Polygon");
+                    gen.writeArrayFieldStart("coordinates");
+                    gen.writeStartArray();
+                    writePosition(gen, w, s);
+                    writePosition(gen, e, s);
+                    writePosition(gen, e, n);
+                    writePosition(gen, w, n);
+                    writePosition(gen, w, s);
+                    gen.writeEndArray();
+                    gen.writeEndArray();
+                    gen.writeEndObject();
+                    gen.writeObjectFieldStart("properties");
+                    gen.writeNumberField("minutes", round1(iso.getMinutes(r, c)));
+                    gen.writeEndObject();
+                    gen.writeEndObject();
+                }
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeProperties(JsonGenerator gen, Isochrone iso) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("minutes", iso.getBudgetMinutes());
+        gen.writeFieldName("origin");
+        writePosition(gen, iso.getOriginLng(), iso.getOriginLat());
+        gen.writeNumberField("cellMeters", Math.round(iso.getCellLat() * METERS_PER_DEGREE));
+        gen.writeNumberField("computedAt", iso.getComputedAtMillis());
+        gen.writeArrayFieldStart("stations");
+        MetroNetwork net = iso.getNetwork();
+        for (int i = 0; i < iso.getStationCount(); i++) {
+            int s = iso.getStation(i);
+            gen.writeStartObject();
+            gen.writeStringField("id", net.getId(s));
+            gen.writeStringField("name", net.getName(s));
+            gen.writeNumberField("minutes", round1(iso.getStationMinutes(i)));
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writePosition(JsonGenerator gen, double lng, double lat) throws IOException {
+        gen.writeStartArray();
+        gen.writeNumber(Math.round(lng * 1e6) / 1e6);
+        gen.writeNumber(Math.round(lat * 1e6) / 1e6);
+        gen.writeEndArray();
+    }
+
+    private static double round1(float minutes) {
+        return Math.round(minutes * 10) / 10.0;
+    }
+}
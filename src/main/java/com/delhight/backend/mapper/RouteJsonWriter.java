@@ -0,0 +1,232 @@
+package com.delhight.backend.mapper;
+
+import com.delhight.backend.model.DegradationLevel;
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.model.RouteResult;
+import com.delhight.backend.model.RouteVariant;
+import com.delhight.backend.model.TransitSegment;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams internal models (RouteVariant, RouteLeg, TransitSegment) straight to JSON
+ * in the frontend-safe shape previously produced via RouteMapper + DTOs.
+ *
+ * The writer itself decides which fields are public: coordinates, stop ids, raw
+ * polylines and other internal-only fields are never written. No intermediate
+ * DTO graph is allocated.
+ */
+@Component
+public class RouteJsonWriter {
+
+    private final JsonFactory jsonFactory;
+
+    public RouteJsonWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+    }
+
+    /**
+     * Writes the full /routes envelope:
+     *   { status, from, to, totalVariants, routes: [...] }
+     */
+    public void writeRoutesResponse(OutputStream out, String from, String to,
+                                    List<RouteVariant> variants) throws IOException {
+        writeRoutesResponse(out, from, to, variants, null, false, null);
+    }
+
+    /**
+     * Same, for a RouteResult: adds the route cache status ("hit", "stale", "miss", "bypass"),
+     * the degradation level the routes were computed at and, when the deadline cut the
+     * computation short, partial: true. At the summary level the routes carry no legs.
+     *   { status, cache, degradation, [partial], from, to, totalVariants, routes: [...] }
+     */
+    public void writeRoutesResponse(OutputStream out, String from, String to,
+                                    RouteResult result) throws IOException {
+        writeRoutesResponse(out, from, to, result, null);
+    }
+
+    /**
+     * Same, followed by the request's lookup trace (RequestTrace.toMap()) when trace is not null:
+     *   { status, cache, ..., routes: [...], trace: { totalMillis, events: [...] } }
+     */
+    public void writeRoutesResponse(OutputStream out, String from, String to,
+                                    RouteResult result, Map<String, Object> trace) throws IOException {
+        writeRoutesResponse(out, from, to, result.getVariants(), result.getCacheStatus(), result.isPartial(),
+                result.getDegradation(), trace);
+    }
+
+    private void writeRoutesResponse(OutputStream out, String from, String to, List<RouteVariant> variants,
+                                     String cacheStatus, boolean partial, DegradationLevel degradation)
+            throws IOException {
+        writeRoutesResponse(out, from, to, variants, cacheStatus, partial, degradation, null);
+    }
+
+    private void writeRoutesResponse(OutputStream out, String from, String to, List<RouteVariant> variants,
+                                     String cacheStatus, boolean partial, DegradationLevel degradation,
+                                     Map<String, Object> trace) throws IOException {
+        boolean withLegs = degradation == null || !degradation.summaryOnly();
+        try (JsonGenerator gen = createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("status", "ok");
+            if (cacheStatus != null) gen.writeStringField("cache", cacheStatus);
+            if (degradation != null) gen.writeStringField("degradation", degradation.wireName());
+            if (partial) gen.writeBooleanField("partial", true);
+            gen.writeStringField("from", from);
+            gen.writeStringField("to", to);
+            gen.writeNumberField("totalVariants", variants != null ? variants.size() : 0);
+            gen.writeFieldName("routes");
+            gen.writeStartArray();
+            if (variants != null) {
+                for (RouteVariant v : variants) writeVariant(gen, v, withLegs);
+            }
+            gen.writeEndArray();
+            if (trace != null) gen.writeObjectField("trace", trace);
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes { status: "error", message } in the same shape the controllers used before.
+     */
+    public void writeError(OutputStream out, String message) throws IOException {
+        try (JsonGenerator gen = createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeStringField("status", "error");
+            gen.writeStringField("message", message);
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes one NDJSON line of a batch response:
+     *   { index, id, status, [partial], from, to, totalVariants, routes } or { index, id, status: "error", message }
+     * The caller owns the generator and the line separator. withLegs = false writes
+     * summary-only routes (degraded); partial marks a pair cut short by its deadline.
+     */
+    public void writeBatchLine(JsonGenerator gen, int index, String id, String from, String to,
+                               List<RouteVariant> variants, String error, boolean partial,
+                               boolean withLegs) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("index", index);
+        if (id != null) gen.writeStringField("id", id);
+        if (error != null) {
+            gen.writeStringField("status", "error");
+            gen.writeStringField("message", error);
+        } else {
+            gen.writeStringField("status", "ok");
+            if (partial) gen.writeBooleanField("partial", true);
+            gen.writeStringField("from", from);
+            gen.writeStringField("to", to);
+            gen.writeNumberField("totalVariants", variants != null ? variants.size() : 0);
+            gen.writeArrayFieldStart("routes");
+            if (variants != null) {
+                for (RouteVariant v : variants) writeVariant(gen, v, withLegs);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    public void writeVariants(JsonGenerator gen, List<RouteVariant> variants) throws IOException {
+        gen.writeStartArray();
+        if (variants != null) {
+            for (RouteVariant v : variants) writeVariant(gen, v);
+        }
+        gen.writeEndArray();
+    }
+
+    public void writeVariant(JsonGenerator gen, RouteVariant v) throws IOException {
+        writeVariant(gen, v, true);
+    }
+
+    // summary-only variants (degraded) have totals and summary text, but no legs
+    private void writeVariant(JsonGenerator gen, RouteVariant v, boolean withLegs) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("id", v.getId());
+        gen.writeStringField("summaryText", v.getSummaryText());
+        gen.writeNumberField("totalDurationSeconds", v.getTotalDurationSeconds());
+        gen.writeNumberField("totalDistanceMeters", v.getTotalDistanceMeters());
+        gen.writeNumberField("totalCostRs", v.getTotalCostRs());
+
+        if (withLegs) {
+            gen.writeArrayFieldStart("legs");
+            if (v.getLegs() != null) {
+                for (RouteLeg leg : v.getLegs()) writeLeg(gen, leg);
+            }
+            gen.writeEndArray();
+        }
+
+        gen.writeEndObject();
+    }
+
+    private void writeLeg(JsonGenerator gen, RouteLeg leg) throws IOException {
+        gen.writeStartObject();
+        if (leg == null) {
+            gen.writeEndObject();
+            return;
+        }
+
+        gen.writeStringField("mode", leg.getMode());
+        gen.writeStringField("fromName", leg.getFromName());
+        gen.writeStringField("toName", leg.getToName());
+        gen.writeNumberField("durationSeconds", leg.getDurationSeconds());
+        gen.writeNumberField("distanceMeters", leg.getDistanceMeters());
+        gen.writeStringField("polyline", leg.getPolyline());
+        // only present when real directions could not be fetched for an auto leg
+        if (leg.isEstimated()) gen.writeBooleanField("estimated", true);
+        // realtime delay (already part of durationSeconds)
+        if (leg.getDelaySeconds() > 0) gen.writeNumberField("delaySeconds", leg.getDelaySeconds());
+
+        // Steps: DirectionsService already produced cleaned strings
+        gen.writeFieldName("steps");
+        writeStrings(gen, leg.getSteps());
+
+        gen.writeStringField("fareText", leg.getFareText());
+
+        gen.writeFieldName("transitSegments");
+        List<TransitSegment> segments = leg.getTransitSegments();
+        if (segments == null) {
+            gen.writeNull();
+        } else {
+            gen.writeStartArray();
+            for (TransitSegment s : segments) writeSegment(gen, s);
+            gen.writeEndArray();
+        }
+
+        gen.writeEndObject();
+    }
+
+    // Only the public subset of TransitSegment: no stop ids, platform or raw polyline
+    private void writeSegment(JsonGenerator gen, TransitSegment s) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("lineName", s.getLineName());
+        gen.writeStringField("vehicle", s.getVehicle());
+        gen.writeStringField("departureStop", s.getDepartureStop());
+        gen.writeStringField("arrivalStop", s.getArrivalStop());
+        gen.writeStringField("headsign", s.getHeadsign());
+        gen.writeNumberField("numStops", s.getNumStops());
+        gen.writeEndObject();
+    }
+
+    private void writeStrings(JsonGenerator gen, List<String> values) throws IOException {
+        if (values == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (String s : values) gen.writeString(s);
+        gen.writeEndArray();
+    }
+}
@@ -0,0 +1,294 @@
+package com.delhight.backend.mapper;
+
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.model.TransitSegment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of the values kept in the shared (cross-node) cache: RouteLeg,
+ * nearest-station lists and geocodes.
+ *
+ *   byte     format version (values of another version decode to null, i.e. a miss)
+ *   varint   string count, then each string as varint length + UTF-8 bytes
+ *   ...      fields in a fixed order; strings as varint index + 1 into the table (0 = null),
+ *            counts and small ints as varints, coordinates as 8-byte doubles
+ *
+ * The string table dedupes the names that repeat inside one value (stops, stations,
+ * line names). Catalog ids are never written: they are only meaningful inside one process.
+ */
+public final class SharedCacheCodec {
+
+    private static final int VERSION = 1;
+
+    private SharedCacheCodec() {}
+
+    // ----------------------------
+    // Values
+    // ----------------------------
+
+    public static byte[] encodeLeg(RouteLeg leg) {
+        Writer w = new Writer();
+        w.string(leg.getId());
+        w.string(leg.getMode());
+        w.string(leg.getFromName());
+        w.string(leg.getToName());
+        w.coord(leg.getFromLat());
+        w.coord(leg.getFromLng());
+        w.coord(leg.getToLat());
+        w.coord(leg.getToLng());
+        w.varint(leg.getDistanceMeters());
+        w.varint(leg.getDurationSeconds());
+        w.string(leg.getPolyline());
+        w.strings(leg.getSteps());
+        w.string(leg.getFareText());
+        w.flag(leg.isEstimated());
+        List<TransitSegment> segments = leg.getTransitSegments() != null ? leg.getTransitSegments() : List.of();
+        w.varint(segments.size());
+        for (TransitSegment s : segments) {
+            w.string(s.getLineName());
+            w.string(s.getLineShortName());
+            w.string(s.getVehicle());
+            w.string(s.getAgencyName());
+            w.string(s.getTripShortName());
+            w.string(s.getDepartureStop());
+            w.string(s.getArrivalStop());
+            w.string(s.getDepartureTimeText());
+            w.string(s.getArrivalTimeText());
+            w.string(s.getHeadsign());
+            w.varint(s.getNumStops());
+            w.strings(s.getStops());
+            w.strings(s.getStopIds());
+            w.string(s.getPlatform());
+            w.string(s.getRawPolyline());
+        }
+        // realtime delay is applied per computation, never cached
+        return w.finish();
+    }
+
+    public static RouteLeg decodeLeg(byte[] data) {
+        Reader r = Reader.open(data);
+        if (r == null) return null;
+        RouteLeg leg = new RouteLeg();
+        leg.setId(r.string());
+        leg.setMode(r.string());
+        leg.setFromName(r.string());
+        leg.setToName(r.string());
+        leg.setFromLat(r.coord());
+        leg.setFromLng(r.coord());
+        leg.setToLat(r.coord());
+        leg.setToLng(r.coord());
+        leg.setDistanceMeters(r.varint());
+        leg.setDurationSeconds(r.varint());
+        leg.setPolyline(r.string());
+        leg.setSteps(r.strings());
+        leg.setFareText(r.string());
+        leg.setEstimated(r.flag());
+        int n = r.varint();
+        List<TransitSegment> segments = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            TransitSegment s = new TransitSegment();
+            s.setLine(r.string(), r.string(), r.string(), r.string());
+            s.setTripShortName(r.string());
+            s.setDepartureStop(r.string());
+            s.setArrivalStop(r.string());
+            s.setDepartureTimeText(r.string());
+            s.setArrivalTimeText(r.string());
+            s.setHeadsign(r.string());
+            s.setNumStops(r.varint());
+            s.setStops(r.strings());
+            s.setStopIds(r.strings());
+            s.setPlatform(r.string());
+            s.setRawPolyline(r.string());
+            segments.add(s);
+        }
+        leg.setTransitSegments(segments.isEmpty() ? List.of() : segments);
+        return leg;
+    }
+
+    public static byte[] encodeStations(List<NearbyStation> stations) {
+        Writer w = new Writer();
+        w.varint(stations.size());
+        for (NearbyStation s : stations) {
+            w.string(s.getName());
+            w.string(s.getPlaceId());
+            w.string(s.getVicinity());
+            w.coord(s.getLat());
+            w.coord(s.getLng());
+            w.varint(s.getDistanceMeters());
+        }
+        return w.finish();
+    }
+
+    public static List<NearbyStation> decodeStations(byte[] data) {
+        Reader r = Reader.open(data);
+        if (r == null) return null;
+        int n = r.varint();
+        List<NearbyStation> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(new NearbyStation()
+                    .setName(r.string())
+                    .setPlaceId(r.string())
+                    .setVicinity(r.string())
+                    .setLat(r.coord())
+                    .setLng(r.coord())
+                    .setDistanceMeters(r.varint()));
+        }
+        return out;
+    }
+
+    public static byte[] encodeGeocode(double[] latLng) {
+        Writer w = new Writer();
+        w.coord(latLng[0]);
+        w.coord(latLng[1]);
+        return w.finish();
+    }
+
+    public static double[] decodeGeocode(byte[] data) {
+        Reader r = Reader.open(data);
+        if (r == null) return null;
+        return new double[]{r.coord(), r.coord()};
+    }
+
+    // ----------------------------
+    // Encoding
+    // ----------------------------
+
+    private static final class Writer {
+        private final Map<String, Integer> table = new LinkedHashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        private final DataOutputStream out = new DataOutputStream(body);
+
+        void string(String s) {
+            varint(s == null ? 0 : table.computeIfAbsent(s, k -> table.size()) + 1);
+        }
+
+        void strings(List<String> values) {
+            if (values == null) values = List.of();
+            varint(values.size());
+            for (String v : values) string(v);
+        }
+
+        void coord(double v) {
+            try {
+                out.writeDouble(v);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void flag(boolean v) {
+            body.write(v ? 1 : 0);
+        }
+
+        void varint(int v) {
+            writeVarint(body, v);
+        }
+
+        byte[] finish() {
+            ByteArrayOutputStream result = new ByteArrayOutputStream(body.size() + 64);
+            result.write(VERSION);
+            writeVarint(result, table.size());
+            for (String s : table.keySet()) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                writeVarint(result, utf8.length);
+                result.writeBytes(utf8);
+            }
+            result.writeBytes(body.toByteArray());
+            return result.toByteArray();
+        }
+
+        // unsigned LEB128; negative values (never expected) take the full 5 bytes
+        private static void writeVarint(OutputStream out, int v) {
+            try {
+                while ((v & ~0x7F) != 0) {
+                    out.write((v & 0x7F) | 0x80);
+                    v >>>= 7;
+                }
+                out.write(v);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final String[] table;
+
+        private Reader(DataInputStream in, String[] table) {
+            this.in = in;
+            this.table = table;
+        }
+
+        // null when the value was written by another format version
+        static Reader open(byte[] data) {
+            if (data == null || data.length == 0 || data[0] != VERSION) return null;
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1));
+            String[] table = new String[readVarint(in)];
+            try {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = new String(in.readNBytes(readVarint(in)), StandardCharsets.UTF_8);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Reader(in, table);
+        }
+
+        String string() {
+            int ref = varint();
+            return ref == 0 ? null : table[ref - 1];
+        }
+
+        List<String> strings() {
+            int n = varint();
+            if (n == 0) return List.of();
+            List<String> out = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) out.add(string());
+            return out;
+        }
+
+        double coord() {
+            try {
+                return in.readDouble();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean flag() {
+            return varint() != 0;
+        }
+
+        int varint() {
+            return readVarint(in);
+        }
+
+        private static int readVarint(DataInputStream in) {
+            try {
+                int v = 0;
+                for (int shift = 0; shift < 35; shift += 7) {
+                    int b = in.readUnsignedByte();
+                    v |= (b & 0x7F) << shift;
+                    if ((b & 0x80) == 0) return v;
+                }
+                throw new IOException("varint too long");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
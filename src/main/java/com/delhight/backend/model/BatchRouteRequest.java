@@ -0,0 +1,16 @@
+package com.delhight.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of POST /routes/batch: a list of origin/destination pairs.
+ */
+public class BatchRouteRequest {
+    private List<RouteRequest> pairs = new ArrayList<>();
+
+    public BatchRouteRequest() {}
+
+    public List<RouteRequest> getPairs() { return pairs; }
+    public void setPairs(List<RouteRequest> pairs) { this.pairs = pairs; }
+}
@@ -0,0 +1,18 @@
+package com.delhight.backend.model;
+
+/**
+ * Body of POST /api/nearest-stations/bulk: points as [lat, lng] pairs and how many
+ * stations to return per point.
+ */
+public class BulkNearestRequest {
+    private double[][] points;
+    private int top = 3;
+
+    public BulkNearestRequest() {}
+
+    public double[][] getPoints() { return points; }
+    public void setPoints(double[][] points) { this.points = points; }
+
+    public int getTop() { return top; }
+    public void setTop(int top) { this.top = top; }
+}
@@ -0,0 +1,46 @@
+package com.delhight.backend.model;
+
+/**
+ * How much upstream work one route computation may do, from most to least:
+ *
+ *   full     topStations x topStations pairs, walking and real driving alternatives
+ *   reduced  at most 2 x 2 station pairs
+ *   minimal  1 x 1; no walking call when the straight line is already too far to walk,
+ *            and auto legs stay local estimates (no driving directions)
+ *   summary  as minimal, and responses carry totals and summary text only (no legs)
+ */
+public enum DegradationLevel {
+
+    FULL(Integer.MAX_VALUE, true, false),
+    REDUCED(2, true, false),
+    MINIMAL(1, false, false),
+    SUMMARY(1, false, true);
+
+    private final int maxStations;
+    private final boolean alternatives;
+    private final boolean summaryOnly;
+
+    DegradationLevel(int maxStations, boolean alternatives, boolean summaryOnly) {
+        this.maxStations = maxStations;
+        this.alternatives = alternatives;
+        this.summaryOnly = summaryOnly;
+    }
+
+    /** Nearest stations considered on each side (capped further by delhight.routing.topStations). */
+    public int maxStations() { return maxStations; }
+
+    /** Whether walking/driving alternatives are fetched from upstream. */
+    public boolean alternatives() { return alternatives; }
+
+    /** Whether responses leave out the legs. */
+    public boolean summaryOnly() { return summaryOnly; }
+
+    /** Lower-case name as written in responses and accepted by /admin/degradation. */
+    public String wireName() { return name().toLowerCase(); }
+
+    public boolean worseThan(DegradationLevel other) { return ordinal() > other.ordinal(); }
+
+    public static DegradationLevel fromWireName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
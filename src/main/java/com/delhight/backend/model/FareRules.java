@@ -0,0 +1,54 @@
+package com.delhight.backend.model;
+
+/**
+ * Metro fare table: distance slabs plus smart-card and off-peak discounts.
+ *
+ * slabUpToKm[i] is the upper bound of slab i (the last slab is open-ended,
+ * stored as +Infinity); slabFareRs[i] is its token fare.
+ */
+public class FareRules {
+    private final double[] slabUpToKm;
+    private final double[] slabFareRs;
+    private final double smartCardDiscountPct;
+    private final double offPeakExtraDiscountPct;
+    private final String timeZone;
+    private final int[][] peakHours;            // [startHour, endHour) pairs, local time
+
+    public FareRules(double[] slabUpToKm, double[] slabFareRs,
+                     double smartCardDiscountPct, double offPeakExtraDiscountPct,
+                     String timeZone, int[][] peakHours) {
+        this.slabUpToKm = slabUpToKm;
+        this.slabFareRs = slabFareRs;
+        this.smartCardDiscountPct = smartCardDiscountPct;
+        this.offPeakExtraDiscountPct = offPeakExtraDiscountPct;
+        this.timeZone = timeZone;
+        this.peakHours = peakHours;
+    }
+
+    public double[] getSlabUpToKm() { return slabUpToKm; }
+
+    public double[] getSlabFareRs() { return slabFareRs; }
+
+    public double getSmartCardDiscountPct() { return smartCardDiscountPct; }
+
+    public double getOffPeakExtraDiscountPct() { return offPeakExtraDiscountPct; }
+
+    public String getTimeZone() { return timeZone; }
+
+    public int[][] getPeakHours() { return peakHours; }
+
+    /** Token fare for a trip of the given network distance. */
+    public double tokenFareForKm(double km) {
+        for (int i = 0; i < slabUpToKm.length; i++) {
+            if (km <= slabUpToKm[i]) return slabFareRs[i];
+        }
+        return slabFareRs[slabFareRs.length - 1];
+    }
+
+    public boolean isPeakHour(int hourOfDay) {
+        for (int[] range : peakHours) {
+            if (hourOfDay >= range[0] && hourOfDay < range[1]) return true;
+        }
+        return false;
+    }
+}
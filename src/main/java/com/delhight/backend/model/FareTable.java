@@ -0,0 +1,108 @@
+package com.delhight.backend.model;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Precomputed station x station metro fares and track distances.
+ *
+ *   km[from * n + to]                    shortest track distance (+Infinity = not connected)
+ *   farePaise[(tariff * n + from) * n + to]   fare in paise (-1 = not connected)
+ *
+ * Tariffs: token, smart card (peak), smart card (off-peak).
+ */
+public class FareTable {
+
+    public static final int TARIFF_TOKEN = 0;
+    public static final int TARIFF_CARD_PEAK = 1;
+    public static final int TARIFF_CARD_OFF_PEAK = 2;
+    public static final int TARIFFS = 3;
+
+    private final int n;
+    private final FloatBuffer km;
+    private final IntBuffer farePaise;
+
+    public FareTable(int n, FloatBuffer km, IntBuffer farePaise) {
+        if (km.limit() != n * n || farePaise.limit() != TARIFFS * n * n) {
+            throw new IllegalArgumentException("Fare table does not match " + n + " stations");
+        }
+        this.n = n;
+        this.km = km;
+        this.farePaise = farePaise;
+    }
+
+    public int size() { return n; }
+
+    public float km(int from, int to) {
+        return km.get(from * n + to);
+    }
+
+    public int farePaise(int tariff, int from, int to) {
+        return farePaise.get((tariff * n + from) * n + to);
+    }
+
+    public FloatBuffer getKmBuffer() { return km.duplicate(); }
+
+    public IntBuffer getFarePaiseBuffer() { return farePaise.duplicate(); }
+
+    /**
+     * Computes the table from the network's links and fare rules.
+     */
+    public static FareTable compute(MetroNetwork net) {
+        int n = net.size();
+        float[] km = allPairsKm(net);
+        FareRules rules = net.getFareRules();
+
+        double card = 1.0 - rules.getSmartCardDiscountPct() / 100.0;
+        double offPeak = card - rules.getOffPeakExtraDiscountPct() / 100.0;
+
+        int nn = n * n;
+        int[] fare = new int[TARIFFS * nn];
+        for (int i = 0; i < nn; i++) {
+            if (Float.isInfinite(km[i])) {
+                fare[TARIFF_TOKEN * nn + i] = fare[TARIFF_CARD_PEAK * nn + i] = fare[TARIFF_CARD_OFF_PEAK * nn + i] = -1;
+                continue;
+            }
+            double token = rules.tokenFareForKm(km[i]);
+            fare[TARIFF_TOKEN * nn + i] = (int) Math.round(token * 100);
+            fare[TARIFF_CARD_PEAK * nn + i] = (int) Math.round(token * card * 100);
+            fare[TARIFF_CARD_OFF_PEAK * nn + i] = (int) Math.round(token * offPeak * 100);
+        }
+        return new FareTable(n, FloatBuffer.wrap(km), IntBuffer.wrap(fare));
+    }
+
+    // One array-based Dijkstra per source; metro networks have a few hundred stations.
+    private static float[] allPairsKm(MetroNetwork net) {
+        int n = net.size();
+        float[] out = new float[n * n];
+        float[] dist = new float[n];
+        boolean[] settled = new boolean[n];
+
+        for (int src = 0; src < n; src++) {
+            Arrays.fill(dist, Float.POSITIVE_INFINITY);
+            Arrays.fill(settled, false);
+            dist[src] = 0f;
+
+            for (int iter = 0; iter < n; iter++) {
+                int u = -1;
+                float best = Float.POSITIVE_INFINITY;
+                for (int v = 0; v < n; v++) {
+                    if (!settled[v] && dist[v] < best) {
+                        best = dist[v];
+                        u = v;
+                    }
+                }
+                if (u < 0) break;
+                settled[u] = true;
+                for (int e = net.getLinkStart(u); e < net.getLinkStart(u + 1); e++) {
+                    float nd = best + net.getLinkKm(e);
+                    int to = net.getLinkTo(e);
+                    if (nd < dist[to]) dist[to] = nd;
+                }
+            }
+            System.arraycopy(dist, 0, out, src * n, n);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,49 @@
+package com.delhight.backend.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only value <-> small int id table. Lookups by id are a plain array read;
+ * interning a value already present is one hash lookup. Ids are never reused.
+ */
+final class InternTable<T> {
+
+    private final ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Object[] values = new Object[64];
+    private int size;   // guarded by this
+
+    int intern(T value) {
+        if (value == null) return -1;
+        Integer id = ids.get(value);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) return id;
+            Object[] v = values;
+            if (size == v.length) {
+                v = Arrays.copyOf(v, size * 2);
+                values = v;
+            }
+            v[size] = value;
+            ids.put(value, size);   // publishes the slot written above
+            return size++;
+        }
+    }
+
+    /** Id of a value if it was interned before, else -1 (never adds). */
+    int idOf(T value) {
+        if (value == null) return -1;
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+        return id < 0 ? null : (T) values[id];
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,83 @@
+package com.delhight.backend.model;
+
+/**
+ * Area reachable from one (snapped) origin by walking and metro within a time budget,
+ * as a grid of cells:
+ *
+ *   cell (row, col) covers lat south + row * cellLat .. + cellLat,
+ *                          lng west + col * cellLng .. + cellLng      (row 0 = southernmost)
+ *   minutes[row * cols + col]   earliest arrival at the cell centre (NaN = not within budget)
+ *
+ * stations / stationMinutes: the metro stations reached within the budget (network index,
+ * minutes until the passenger is out of the station), in the order they were reached.
+ */
+public class Isochrone {
+
+    private final double originLat;
+    private final double originLng;
+    private final int budgetMinutes;
+    private final double south;
+    private final double west;
+    private final double cellLat;
+    private final double cellLng;
+    private final int rows;
+    private final int cols;
+    private final float[] minutes;
+    private final int[] stations;
+    private final float[] stationMinutes;
+    private final MetroNetwork network;
+    private final long computedAtMillis;
+
+    public Isochrone(double originLat, double originLng, int budgetMinutes,
+                     double south, double west, double cellLat, double cellLng, int rows, int cols,
+                     float[] minutes, int[] stations, float[] stationMinutes, MetroNetwork network,
+                     long computedAtMillis) {
+        this.originLat = originLat;
+        this.originLng = originLng;
+        this.budgetMinutes = budgetMinutes;
+        this.south = south;
+        this.west = west;
+        this.cellLat = cellLat;
+        this.cellLng = cellLng;
+        this.rows = rows;
+        this.cols = cols;
+        this.minutes = minutes;
+        this.stations = stations;
+        this.stationMinutes = stationMinutes;
+        this.network = network;
+        this.computedAtMillis = computedAtMillis;
+    }
+
+    public double getOriginLat() { return originLat; }
+
+    public double getOriginLng() { return originLng; }
+
+    public int getBudgetMinutes() { return budgetMinutes; }
+
+    public double getSouth() { return south; }
+
+    public double getWest() { return west; }
+
+    public double getCellLat() { return cellLat; }
+
+    public double getCellLng() { return cellLng; }
+
+    public int getRows() { return rows; }
+
+    public int getCols() { return cols; }
+
+    public float getMinutes(int row, int col) { return minutes[row * cols + col]; }
+
+    public boolean isReachable(int row, int col) { return !Float.isNaN(minutes[row * cols + col]); }
+
+    public int getStationCount() { return stations.length; }
+
+    public int getStation(int i) { return stations[i]; }
+
+    public float getStationMinutes(int i) { return stationMinutes[i]; }
+
+    /** The network the station indexes refer to. */
+    public MetroNetwork getNetwork() { return network; }
+
+    public long getComputedAtMillis() { return computedAtMillis; }
+}
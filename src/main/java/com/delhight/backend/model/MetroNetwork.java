@@ -0,0 +1,109 @@
+package com.delhight.backend.model;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Map;
+
+/**
+ * Immutable metro station catalog + track graph, stored as flat primitive buffers.
+ *
+ * Stations are addressed by index (0..size-1); ids[] holds the canonical station ids.
+ * Links are kept in CSR form: the neighbours of station s are links
+ * getLinkStart(s) .. getLinkStart(s + 1) - 1, with getLinkTo / getLinkKm / getLinkLine.
+ *
+ * The buffers either wrap heap arrays (parsed from JSON) or are views over a memory-mapped
+ * snapshot; callers cannot tell the difference. The precomputed fare table travels with
+ * the network so both are swapped together.
+ */
+public class MetroNetwork {
+    private final String[] ids;
+    private final String[] names;
+    private final DoubleBuffer lat;
+    private final DoubleBuffer lng;
+
+    private final IntBuffer linkStart;
+    private final IntBuffer linkTo;
+    private final FloatBuffer linkKm;
+    private final IntBuffer linkLine;
+    private final String[] lineNames;
+
+    private final Map<String, Integer> indexById;
+    private final FareRules fareRules;
+    private final FareTable fareTable;     // null until computed / loaded
+
+    public MetroNetwork(String[] ids, String[] names, DoubleBuffer lat, DoubleBuffer lng,
+                        IntBuffer linkStart, IntBuffer linkTo, FloatBuffer linkKm, IntBuffer linkLine,
+                        String[] lineNames, Map<String, Integer> indexById, FareRules fareRules,
+                        FareTable fareTable) {
+        this.ids = ids;
+        this.names = names;
+        this.lat = lat;
+        this.lng = lng;
+        this.linkStart = linkStart;
+        this.linkTo = linkTo;
+        this.linkKm = linkKm;
+        this.linkLine = linkLine;
+        this.lineNames = lineNames;
+        this.indexById = indexById;
+        this.fareRules = fareRules;
+        this.fareTable = fareTable;
+    }
+
+    /** Same network with the given fare table attached. */
+    public MetroNetwork withFareTable(FareTable table) {
+        return new MetroNetwork(ids, names, lat, lng, linkStart, linkTo, linkKm, linkLine,
+                lineNames, indexById, fareRules, table);
+    }
+
+    public int size() { return ids.length; }
+
+    public String getId(int station) { return ids[station]; }
+
+    public String getName(int station) { return names[station]; }
+
+    public double getLat(int station) { return lat.get(station); }
+
+    public double getLng(int station) { return lng.get(station); }
+
+    public int getLinkCount() { return linkTo.limit(); }
+
+    /** First link of a station; its links end at getLinkStart(station + 1). */
+    public int getLinkStart(int station) { return linkStart.get(station); }
+
+    public int getLinkTo(int link) { return linkTo.get(link); }
+
+    public float getLinkKm(int link) { return linkKm.get(link); }
+
+    public int getLinkLine(int link) { return linkLine.get(link); }
+
+    public String getLineName(int line) { return lineNames[line]; }
+
+    public String[] getIds() { return ids; }
+
+    public String[] getNames() { return names; }
+
+    public String[] getLineNames() { return lineNames; }
+
+    public DoubleBuffer getLatBuffer() { return lat.duplicate(); }
+
+    public DoubleBuffer getLngBuffer() { return lng.duplicate(); }
+
+    public IntBuffer getLinkStartBuffer() { return linkStart.duplicate(); }
+
+    public IntBuffer getLinkToBuffer() { return linkTo.duplicate(); }
+
+    public FloatBuffer getLinkKmBuffer() { return linkKm.duplicate(); }
+
+    public IntBuffer getLinkLineBuffer() { return linkLine.duplicate(); }
+
+    public FareRules getFareRules() { return fareRules; }
+
+    public FareTable getFareTable() { return fareTable; }
+
+    /** Station index for a canonical id, or -1. */
+    public int indexOf(String id) {
+        Integer idx = indexById.get(id);
+        return idx != null ? idx : -1;
+    }
+}
@@ -0,0 +1,104 @@
+package com.delhight.backend.model;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed station x station metro travel times, in seconds, from boarding at one
+ * station to alighting at another:
+ *
+ *   seconds[from * n + to]   (+Infinity = not connected)
+ *
+ * Riding a link takes km / speedKmh plus dwellSeconds at the next station; changing lines
+ * takes transferSeconds. Waiting for the first train is not included (callers add it).
+ * Transfers are found by searching (station, line) pairs rather than stations, so a
+ * route that stays on one line is never charged for passing through an interchange.
+ */
+public class MetroTravelTimes {
+
+    private final int n;
+    private final float[] seconds;
+
+    private MetroTravelTimes(int n, float[] seconds) {
+        this.n = n;
+        this.seconds = seconds;
+    }
+
+    public int size() { return n; }
+
+    public float seconds(int from, int to) {
+        return seconds[from * n + to];
+    }
+
+    /**
+     * Computes the table from the network's links.
+     */
+    public static MetroTravelTimes compute(MetroNetwork net, double speedKmh, double dwellSeconds,
+                                           double transferSeconds) {
+        int n = net.size();
+
+        // one node per (station, line) the station is served by
+        int[] nodeStart = new int[n + 1];
+        int[] nodeLine = new int[net.getLinkCount() + n];
+        int nodes = 0;
+        for (int s = 0; s < n; s++) {
+            nodeStart[s] = nodes;
+            for (int e = net.getLinkStart(s); e < net.getLinkStart(s + 1); e++) {
+                int line = net.getLinkLine(e);
+                boolean seen = false;
+                for (int k = nodeStart[s]; k < nodes && !seen; k++) seen = nodeLine[k] == line;
+                if (!seen) nodeLine[nodes++] = line;
+            }
+        }
+        nodeStart[n] = nodes;
+        int[] nodeStation = new int[nodes];
+        for (int s = 0; s < n; s++) {
+            for (int k = nodeStart[s]; k < nodeStart[s + 1]; k++) nodeStation[k] = s;
+        }
+
+        float[] out = new float[n * n];
+        float[] dist = new float[nodes];
+        boolean[] settled = new boolean[nodes];
+        float[] best = new float[n];
+
+        // one array-based Dijkstra per source, as for the fare table
+        for (int src = 0; src < n; src++) {
+            Arrays.fill(dist, Float.POSITIVE_INFINITY);
+            Arrays.fill(settled, false);
+            Arrays.fill(best, Float.POSITIVE_INFINITY);
+            best[src] = 0f;
+            for (int k = nodeStart[src]; k < nodeStart[src + 1]; k++) dist[k] = 0f;
+
+            for (int iter = 0; iter < nodes; iter++) {
+                int u = -1;
+                float d = Float.POSITIVE_INFINITY;
+                for (int v = 0; v < nodes; v++) {
+                    if (!settled[v] && dist[v] < d) {
+                        d = dist[v];
+                        u = v;
+                    }
+                }
+                if (u < 0) break;
+                settled[u] = true;
+                int s = nodeStation[u];
+                if (d < best[s]) best[s] = d;
+
+                // change to another line here
+                for (int k = nodeStart[s]; k < nodeStart[s + 1]; k++) {
+                    float nd = d + (float) transferSeconds;
+                    if (k != u && nd < dist[k]) dist[k] = nd;
+                }
+                // ride one link of this line
+                for (int e = net.getLinkStart(s); e < net.getLinkStart(s + 1); e++) {
+                    if (net.getLinkLine(e) != nodeLine[u]) continue;
+                    int t = net.getLinkTo(e);
+                    float nd = d + (float) (net.getLinkKm(e) / speedKmh * 3600.0 + dwellSeconds);
+                    for (int k = nodeStart[t]; k < nodeStart[t + 1]; k++) {
+                        if (nodeLine[k] == nodeLine[u] && nd < dist[k]) dist[k] = nd;
+                    }
+                }
+            }
+            System.arraycopy(best, 0, out, src * n, n);
+        }
+        return new MetroTravelTimes(n, out);
+    }
+}
@@ -0,0 +1,122 @@
+package com.delhight.backend.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One published version of the realtime transit state (GTFS-Realtime trip updates),
+ * as seen by route computations. Immutable: a new feed message produces a new view,
+ * which shares the LineState of every line the message did not touch.
+ *
+ * Per line (keyed by lineKey):
+ *   - the delay at each reported stop (median over the line's trips), and the median
+ *     over all of them for stops no trip reported
+ *   - stops that every reporting trip skips (closed stations)
+ *   - suspended: every trip of the line is cancelled
+ *   - changedAtMillis: last time any of the above changed
+ */
+public final class RealtimeView {
+
+    public static final RealtimeView EMPTY = new RealtimeView(0, 0, 0, Map.of(), Map.of());
+
+    /** One trip_update entity, normalized. */
+    public record TripUpdate(String entityId, String line, boolean cancelled, List<StopUpdate> stops) {}
+
+    /** One stop_time_update: delay in seconds (arrival, else departure), or skipped. */
+    public record StopUpdate(String stop, int delaySeconds, boolean skipped) {}
+
+    /** Derived state of one line. */
+    public record LineState(Map<String, TripUpdate> trips, Map<String, Integer> stopDelays, int lineDelay,
+                            Collection<String> closedStops, boolean suspended, long changedAtMillis) {
+
+        public boolean sameDelaysAs(LineState other) {
+            return other != null && lineDelay == other.lineDelay && suspended == other.suspended
+                    && stopDelays.equals(other.stopDelays) && closedStops.equals(other.closedStops);
+        }
+
+        int delayAt(String stop) {
+            Integer d = stopDelays.get(stop);
+            return d != null ? d : lineDelay;
+        }
+    }
+
+    private final long version;
+    private final long feedTimestampSeconds;
+    private final long publishedAtMillis;
+    private final Map<String, String> entityLines;   // entity id -> line key
+    private final Map<String, LineState> lines;
+
+    public RealtimeView(long version, long feedTimestampSeconds, long publishedAtMillis,
+                        Map<String, String> entityLines, Map<String, LineState> lines) {
+        this.version = version;
+        this.feedTimestampSeconds = feedTimestampSeconds;
+        this.publishedAtMillis = publishedAtMillis;
+        this.entityLines = entityLines;
+        this.lines = lines;
+    }
+
+    public long getVersion() { return version; }
+
+    public long getFeedTimestampSeconds() { return feedTimestampSeconds; }
+
+    public long getPublishedAtMillis() { return publishedAtMillis; }
+
+    public Map<String, String> getEntityLines() { return entityLines; }
+
+    public Map<String, LineState> getLines() { return lines; }
+
+    /**
+     * Extra seconds the realtime state adds to a transit leg, or -1 if the leg cannot be
+     * ridden (suspended line, closed boarding or alighting stop). The leg is late by the
+     * largest arrival delay among its segments: missed connections are not modelled.
+     */
+    public int transitDelaySeconds(RouteLeg leg) {
+        if (lines.isEmpty() || leg == null || leg.getTransitSegments() == null) return 0;
+        int delay = 0;
+        for (TransitSegment s : leg.getTransitSegments()) {
+            LineState line = line(s);
+            if (line == null) continue;
+            String from = stopKey(s.getDepartureStop());
+            String to = stopKey(s.getArrivalStop());
+            if (line.suspended() || line.closedStops().contains(from) || line.closedStops().contains(to)) return -1;
+            delay = Math.max(delay, line.delayAt(to));
+        }
+        return delay;
+    }
+
+    /** Whether any of the given lines (lineKey) changed after the given time. */
+    public boolean changedSince(Collection<String> lineKeys, long millis) {
+        for (String key : lineKeys) {
+            LineState line = lines.get(key);
+            if (line != null && line.changedAtMillis() > millis) return true;
+        }
+        return false;
+    }
+
+    private LineState line(TransitSegment s) {
+        LineState line = lines.get(lineKey(s.getLineName()));
+        if (line == null && s.getLineShortName() != null) line = lines.get(lineKey(s.getLineShortName()));
+        return line;
+    }
+
+    // ----------------------------
+    // Keys
+    // ----------------------------
+
+    // "Yellow Line" / "YELLOW" / "yellow-line" -> "yellow"
+    public static String lineKey(String line) {
+        if (line == null) return "";
+        return line.toLowerCase(Locale.ROOT).replace("line", "").replaceAll("[^a-z0-9]", "");
+    }
+
+    // "Rajiv Chowk Metro Station" / "rajiv-chowk" -> "rajivchowk"
+    public static String stopKey(String stop) {
+        if (stop == null) return "";
+        return stop.toLowerCase(Locale.ROOT)
+                .replace("metro station", "")
+                .replace("station", "")
+                .replaceAll("[^a-z0-9]", "");
+    }
+}
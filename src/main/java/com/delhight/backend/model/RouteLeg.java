@@ -1,6 +1,5 @@
 package com.delhight.backend.model;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -11,8 +10,10 @@ import java.util.List;
 public class RouteLeg {
     private String id;
     private String mode; // walking / driving / transit
-    private String fromName;
-    private String toName;
+    private String fromName;      // null while fromNameId >= 0
+    private String toName;        // null while toNameId >= 0
+    private int fromNameId = -1;  // TransitCatalog station when the name is a known station
+    private int toNameId = -1;
     private double fromLat;
     private double fromLng;
     private double toLat;
@@ -20,9 +21,11 @@ public class RouteLeg {
     private int distanceMeters;
     private int durationSeconds;
     private String polyline;
-    private List<String> steps = new ArrayList<>();
+    private List<String> steps = List.of();
     private String fareText;
-    private List<TransitSegment> transitSegments = new ArrayList<>();
+    private List<TransitSegment> transitSegments = List.of();
+    private boolean estimated;   // true = locally estimated, not from a Directions provider
+    private int delaySeconds;    // realtime delay already included in durationSeconds
 
     public RouteLeg() {}
 
@@ -32,11 +35,19 @@ public class RouteLeg {
     public String getMode() { return mode; }
     public void setMode(String mode) { this.mode = mode; }
 
-    public String getFromName() { return fromName; }
-    public void setFromName(String fromName) { this.fromName = fromName; }
+    // Station names repeat across thousands of legs; they are kept as catalog ids.
+    // Free-text names (addresses) stay as Strings so the catalog cannot grow unbounded.
+    public String getFromName() { return fromNameId >= 0 ? TransitCatalog.shared().station(fromNameId) : fromName; }
+    public void setFromName(String fromName) {
+        this.fromNameId = TransitCatalog.shared().stationIdIfKnown(fromName);
+        this.fromName = fromNameId >= 0 ? null : fromName;
+    }
 
-    public String getToName() { return toName; }
-    public void setToName(String toName) { this.toName = toName; }
+    public String getToName() { return toNameId >= 0 ? TransitCatalog.shared().station(toNameId) : toName; }
+    public void setToName(String toName) {
+        this.toNameId = TransitCatalog.shared().stationIdIfKnown(toName);
+        this.toName = toNameId >= 0 ? null : toName;
+    }
 
     public double getFromLat() { return fromLat; }
     public void setFromLat(double fromLat) { this.fromLat = fromLat; }
@@ -68,12 +79,45 @@ public class RouteLeg {
     public List<TransitSegment> getTransitSegments() { return transitSegments; }
     public void setTransitSegments(List<TransitSegment> transitSegments) { this.transitSegments = transitSegments; }
 
+    public boolean isEstimated() { return estimated; }
+    public void setEstimated(boolean estimated) { this.estimated = estimated; }
+
+    public int getDelaySeconds() { return delaySeconds; }
+    public void setDelaySeconds(int delaySeconds) { this.delaySeconds = delaySeconds; }
+
+    /**
+     * Shallow copy (lists and segments are shared): for relabelling a leg that other
+     * results still reference.
+     */
+    public RouteLeg copy() {
+        RouteLeg c = new RouteLeg();
+        c.id = id;
+        c.mode = mode;
+        c.fromName = fromName;
+        c.toName = toName;
+        c.fromNameId = fromNameId;
+        c.toNameId = toNameId;
+        c.fromLat = fromLat;
+        c.fromLng = fromLng;
+        c.toLat = toLat;
+        c.toLng = toLng;
+        c.distanceMeters = distanceMeters;
+        c.durationSeconds = durationSeconds;
+        c.polyline = polyline;
+        c.steps = steps;
+        c.fareText = fareText;
+        c.transitSegments = transitSegments;
+        c.estimated = estimated;
+        c.delaySeconds = delaySeconds;
+        return c;
+    }
+
     @Override
     public String toString() {
         return "RouteLeg{" +
                 "mode='" + mode + '\'' +
-                ", fromName='" + fromName + '\'' +
-                ", toName='" + toName + '\'' +
+                ", fromName='" + getFromName() + '\'' +
+                ", toName='" + getToName() + '\'' +
                 ", distanceMeters=" + distanceMeters +
                 ", durationSeconds=" + durationSeconds +
                 ", fareText=" + fareText +
@@ -1,42 +1,81 @@
 package com.delhight.backend.model;
 
+/**
+ * One origin/destination pair, given either as free-text addresses
+ * (from / to) or as coordinates. Coordinates win when both are present.
+ */
 public class RouteRequest {
-    private double originLat;
-    private double originLng;
-    private double destLat;
-    private double destLng;
+    private String id;          // optional caller-supplied id, echoed back
+    private String from;
+    private String to;
+    private Double originLat;
+    private Double originLng;
+    private Double destLat;
+    private Double destLng;
 
     public RouteRequest() {}
 
-    public double getOriginLat() {
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public Double getOriginLat() {
         return originLat;
     }
 
-    public void setOriginLat(double originLat) {
+    public void setOriginLat(Double originLat) {
         this.originLat = originLat;
     }
 
-    public double getOriginLng() {
+    public Double getOriginLng() {
         return originLng;
     }
 
-    public void setOriginLng(double originLng) {
+    public void setOriginLng(Double originLng) {
         this.originLng = originLng;
     }
 
-    public double getDestLat() {
+    public Double getDestLat() {
         return destLat;
     }
 
-    public void setDestLat(double destLat) {
+    public void setDestLat(Double destLat) {
         this.destLat = destLat;
     }
 
-    public double getDestLng() {
+    public Double getDestLng() {
         return destLng;
     }
 
-    public void setDestLng(double destLng) {
+    public void setDestLng(Double destLng) {
         this.destLng = destLng;
     }
+
+    public boolean hasOriginCoordinates() {
+        return originLat != null && originLng != null;
+    }
+
+    public boolean hasDestCoordinates() {
+        return destLat != null && destLng != null;
+    }
 }
@@ -0,0 +1,62 @@
+package com.delhight.backend.model;
+
+import java.util.List;
+
+/**
+ * Ranked variants for one /routes request, plus where they came from:
+ *
+ *   hit    served from the route cache, fresh
+ *   stale  served from the route cache past its freshness; a refresh is running
+ *   miss   computed for this request (and cached)
+ *   bypass computed, cache disabled
+ *
+ * partial: the request deadline ran out while computing; variants holds what was finished.
+ * degradation: the DegradationLevel the variants were computed at.
+ * tripKey: the route cache key of the trip (snapped cells and departure bucket), for logs that
+ * must not carry the addresses; null when an address did not geocode.
+ */
+public class RouteResult {
+
+    public static final String HIT = "hit";
+    public static final String STALE = "stale";
+    public static final String MISS = "miss";
+    public static final String BYPASS = "bypass";
+
+    private final List<RouteVariant> variants;
+    private final String cacheStatus;
+    private final long computedAtMillis;
+    private final boolean partial;
+    private final DegradationLevel degradation;
+    private final String tripKey;
+
+    public RouteResult(List<RouteVariant> variants, String cacheStatus, long computedAtMillis) {
+        this(variants, cacheStatus, computedAtMillis, false, DegradationLevel.FULL);
+    }
+
+    public RouteResult(List<RouteVariant> variants, String cacheStatus, long computedAtMillis, boolean partial,
+                       DegradationLevel degradation) {
+        this(variants, cacheStatus, computedAtMillis, partial, degradation, null);
+    }
+
+    public RouteResult(List<RouteVariant> variants, String cacheStatus, long computedAtMillis, boolean partial,
+                       DegradationLevel degradation, String tripKey) {
+        this.variants = variants;
+        this.cacheStatus = cacheStatus;
+        this.computedAtMillis = computedAtMillis;
+        this.partial = partial;
+        this.degradation = degradation;
+        this.tripKey = tripKey;
+    }
+
+    public List<RouteVariant> getVariants() { return variants; }
+
+    public String getCacheStatus() { return cacheStatus; }
+
+    public long getComputedAtMillis() { return computedAtMillis; }
+
+    public boolean isPartial() { return partial; }
+
+    public DegradationLevel getDegradation() { return degradation; }
+
+    public String getTripKey() { return tripKey; }
+}
@@ -0,0 +1,74 @@
+package com.delhight.backend.model;
+
+/**
+ * Process-wide flyweight catalog for transit metadata.
+ *
+ * Lines (name, short name, vehicle, agency), stations (stop names and headsigns),
+ * agencies and stop codes are interned once and referred to by small int ids, so
+ * every parsed or cached TransitSegment only holds ints and int[] stop lists.
+ * The set of metro lines and stations is small and fixed, so the tables stop growing
+ * after the first few responses.
+ */
+public final class TransitCatalog {
+
+    private static final TransitCatalog SHARED = new TransitCatalog();
+
+    /** Line identity as Google reports it. agencyId refers to the agency table (-1 = none). */
+    public record Line(String name, String shortName, String vehicle, int agencyId) {
+    }
+
+    private final InternTable<Line> lines = new InternTable<>();
+    private final InternTable<String> stations = new InternTable<>();
+    private final InternTable<String> agencies = new InternTable<>();
+    private final InternTable<String> stopCodes = new InternTable<>();
+
+    public static TransitCatalog shared() {
+        return SHARED;
+    }
+
+    // ----------------------------
+    // Lines / agencies
+    // ----------------------------
+
+    public int internLine(String name, String shortName, String vehicle, String agencyName) {
+        if (name == null && shortName == null && vehicle == null && agencyName == null) return -1;
+        return lines.intern(new Line(name, shortName, vehicle, agencies.intern(agencyName)));
+    }
+
+    public Line line(int id) {
+        return lines.get(id);
+    }
+
+    public String agency(int id) {
+        return agencies.get(id);
+    }
+
+    // ----------------------------
+    // Stations / stop codes
+    // ----------------------------
+
+    public int internStation(String name) {
+        return stations.intern(name);
+    }
+
+    /** Station id if the name was seen in transit data before, else -1 (never adds). */
+    public int stationIdIfKnown(String name) {
+        return stations.idOf(name);
+    }
+
+    public String station(int id) {
+        return stations.get(id);
+    }
+
+    public int internStopCode(String code) {
+        return stopCodes.intern(code);
+    }
+
+    public String stopCode(int id) {
+        return stopCodes.get(id);
+    }
+
+    public int lineCount() { return lines.size(); }
+
+    public int stationCount() { return stations.size(); }
+}
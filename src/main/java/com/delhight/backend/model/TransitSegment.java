@@ -1,51 +1,93 @@
 package com.delhight.backend.model;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
  * Represents a single transit (metro/train) segment extracted from Google Directions transit_details.
  * This holds rich metadata we extract from the response so frontend can display platform, stops, etc.
+ *
+ * Line, stop, headsign and agency values are ids into the shared {@link TransitCatalog};
+ * stops and stop ids are int arrays. The String getters resolve ids on access (i.e. at
+ * serialization), so cached segments hold no per-response copies of the same names.
  */
 public class TransitSegment {
-    private String lineName;
-    private String lineShortName;
-    private String vehicle;          // e.g. SUBWAY
-    private String agencyName;       // e.g. DMRC
+    private static final int[] NONE = new int[0];
+
+    private int lineId = -1;         // TransitCatalog line: name, short name, vehicle (e.g. SUBWAY), agency (e.g. DMRC)
     private String tripShortName;    // GTFS trip short name if available
-    private String departureStop;    // name
-    private String arrivalStop;      // name
+    private int departureStopId = -1;    // TransitCatalog station
+    private int arrivalStopId = -1;      // TransitCatalog station
     private String departureTimeText;
     private String arrivalTimeText;
-    private String headsign;
+    private int headsignId = -1;         // TransitCatalog station (headsigns are terminal names)
     private int numStops;
-    private List<String> stops = new ArrayList<>();     // intermediate stops (names)
-    private List<String> stopIds = new ArrayList<>();   // corresponding stop ids if provided
+    private int[] stops = NONE;      // intermediate stops (TransitCatalog stations)
+    private int[] stopIds = NONE;    // corresponding stop ids if provided (TransitCatalog stop codes)
     private String platform;         // platform info if Google exposes it (sometimes in step details)
     private String rawPolyline;      // segment polyline (if available)
 
     public TransitSegment() {}
 
-    public String getLineName() { return lineName; }
-    public void setLineName(String lineName) { this.lineName = lineName; }
+    private static TransitCatalog catalog() {
+        return TransitCatalog.shared();
+    }
+
+    // ----------------------------
+    // Line
+    // ----------------------------
 
-    public String getLineShortName() { return lineShortName; }
-    public void setLineShortName(String lineShortName) { this.lineShortName = lineShortName; }
+    /** Sets all line attributes at once (one catalog lookup instead of four). */
+    public void setLine(String lineName, String lineShortName, String vehicle, String agencyName) {
+        this.lineId = catalog().internLine(lineName, lineShortName, vehicle, agencyName);
+    }
+
+    public int lineId() { return lineId; }
 
-    public String getVehicle() { return vehicle; }
-    public void setVehicle(String vehicle) { this.vehicle = vehicle; }
+    private TransitCatalog.Line line() {
+        return catalog().line(lineId);
+    }
 
-    public String getAgencyName() { return agencyName; }
-    public void setAgencyName(String agencyName) { this.agencyName = agencyName; }
+    public String getLineName() {
+        TransitCatalog.Line l = line();
+        return l != null ? l.name() : null;
+    }
+    public void setLineName(String lineName) { setLine(lineName, getLineShortName(), getVehicle(), getAgencyName()); }
+
+    public String getLineShortName() {
+        TransitCatalog.Line l = line();
+        return l != null ? l.shortName() : null;
+    }
+    public void setLineShortName(String lineShortName) { setLine(getLineName(), lineShortName, getVehicle(), getAgencyName()); }
+
+    public String getVehicle() {
+        TransitCatalog.Line l = line();
+        return l != null ? l.vehicle() : null;
+    }
+    public void setVehicle(String vehicle) { setLine(getLineName(), getLineShortName(), vehicle, getAgencyName()); }
+
+    public String getAgencyName() {
+        TransitCatalog.Line l = line();
+        return l != null ? catalog().agency(l.agencyId()) : null;
+    }
+    public void setAgencyName(String agencyName) { setLine(getLineName(), getLineShortName(), getVehicle(), agencyName); }
+
+    // ----------------------------
+    // Stops
+    // ----------------------------
 
     public String getTripShortName() { return tripShortName; }
     public void setTripShortName(String tripShortName) { this.tripShortName = tripShortName; }
 
-    public String getDepartureStop() { return departureStop; }
-    public void setDepartureStop(String departureStop) { this.departureStop = departureStop; }
+    public String getDepartureStop() { return catalog().station(departureStopId); }
+    public void setDepartureStop(String departureStop) { this.departureStopId = catalog().internStation(departureStop); }
+
+    public String getArrivalStop() { return catalog().station(arrivalStopId); }
+    public void setArrivalStop(String arrivalStop) { this.arrivalStopId = catalog().internStation(arrivalStop); }
+
+    public int departureStopId() { return departureStopId; }
 
-    public String getArrivalStop() { return arrivalStop; }
-    public void setArrivalStop(String arrivalStop) { this.arrivalStop = arrivalStop; }
+    public int arrivalStopId() { return arrivalStopId; }
 
     public String getDepartureTimeText() { return departureTimeText; }
     public void setDepartureTimeText(String departureTimeText) { this.departureTimeText = departureTimeText; }
@@ -53,17 +95,21 @@ public class TransitSegment {
     public String getArrivalTimeText() { return arrivalTimeText; }
     public void setArrivalTimeText(String arrivalTimeText) { this.arrivalTimeText = arrivalTimeText; }
 
-    public String getHeadsign() { return headsign; }
-    public void setHeadsign(String headsign) { this.headsign = headsign; }
+    public String getHeadsign() { return catalog().station(headsignId); }
+    public void setHeadsign(String headsign) { this.headsignId = catalog().internStation(headsign); }
 
     public int getNumStops() { return numStops; }
     public void setNumStops(int numStops) { this.numStops = numStops; }
 
-    public List<String> getStops() { return stops; }
-    public void setStops(List<String> stops) { this.stops = stops; }
+    /** Read-only names of the intermediate stops. */
+    public List<String> getStops() { return resolved(stops, false); }
+    public void setStops(List<String> stops) { this.stops = intern(stops, false); }
 
-    public List<String> getStopIds() { return stopIds; }
-    public void setStopIds(List<String> stopIds) { this.stopIds = stopIds; }
+    /** Read-only stop ids, parallel to getStops() when provided. */
+    public List<String> getStopIds() { return resolved(stopIds, true); }
+    public void setStopIds(List<String> stopIds) { this.stopIds = intern(stopIds, true); }
+
+    public int[] stopIndexes() { return stops; }
 
     public String getPlatform() { return platform; }
     public void setPlatform(String platform) { this.platform = platform; }
@@ -71,22 +117,45 @@ public class TransitSegment {
     public String getRawPolyline() { return rawPolyline; }
     public void setRawPolyline(String rawPolyline) { this.rawPolyline = rawPolyline; }
 
+    private static int[] intern(List<String> values, boolean codes) {
+        if (values == null || values.isEmpty()) return NONE;
+        int[] ids = new int[values.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = codes ? catalog().internStopCode(values.get(i)) : catalog().internStation(values.get(i));
+        }
+        return ids;
+    }
+
+    private static List<String> resolved(int[] ids, boolean codes) {
+        return new AbstractList<>() {
+            @Override
+            public String get(int i) {
+                return codes ? catalog().stopCode(ids[i]) : catalog().station(ids[i]);
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
     @Override
     public String toString() {
         return "TransitSegment{" +
-                "lineName='" + lineName + '\'' +
-                ", lineShortName='" + lineShortName + '\'' +
-                ", vehicle='" + vehicle + '\'' +
-                ", agencyName='" + agencyName + '\'' +
+                "lineName='" + getLineName() + '\'' +
+                ", lineShortName='" + getLineShortName() + '\'' +
+                ", vehicle='" + getVehicle() + '\'' +
+                ", agencyName='" + getAgencyName() + '\'' +
                 ", tripShortName='" + tripShortName + '\'' +
-                ", departureStop='" + departureStop + '\'' +
-                ", arrivalStop='" + arrivalStop + '\'' +
+                ", departureStop='" + getDepartureStop() + '\'' +
+                ", arrivalStop='" + getArrivalStop() + '\'' +
                 ", departureTimeText='" + departureTimeText + '\'' +
                 ", arrivalTimeText='" + arrivalTimeText + '\'' +
-                ", headsign='" + headsign + '\'' +
+                ", headsign='" + getHeadsign() + '\'' +
                 ", numStops=" + numStops +
-                ", stops=" + stops +
-                ", stopIds=" + stopIds +
+                ", stops=" + getStops() +
+                ", stopIds=" + getStopIds() +
                 ", platform='" + platform + '\'' +
                 '}';
     }
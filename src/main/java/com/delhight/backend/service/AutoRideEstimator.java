@@ -0,0 +1,207 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.utils.DistanceUtils;
+import com.delhight.backend.warmup.Warmable;
+import jakarta.annotation.PreDestroy;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Predicts auto-rickshaw distance and duration without a Directions call:
+ *
+ *   road km  = straight-line km x detour factor of the zone
+ *   duration = road km / speed of the zone at that hour + pickup overhead
+ *
+ * Zones are square grid cells (delhight.auto.zoneSizeDeg). Every real driving leg we fetch
+ * is fed back through observe(), which moves the zone's detour factor and hourly speed
+ * towards what Google reported (exponential moving average). Profiles can be persisted to
+ * delhight.auto.profileFile and are reloaded during warm-up.
+ */
+@Service
+public class AutoRideEstimator implements Warmable {
+
+    private static final ZoneId LOCAL_ZONE = ZoneId.of("Asia/Kolkata");
+
+    // defaults before any calibration: slow at the commute peaks, fast at night
+    private static final double[] DEFAULT_SPEED_KMH = {
+            30, 30, 30, 30, 30, 28, 25, 22, 16, 15, 16, 20,
+            21, 21, 21, 20, 18, 15, 14, 15, 18, 22, 26, 28
+    };
+    private static final double DEFAULT_DETOUR = 1.35;
+
+    @Value("${delhight.auto.zoneSizeDeg:0.05}")
+    private double zoneSizeDeg;
+
+    // weight of one observation in the moving average
+    @Value("${delhight.auto.learningRate:0.1}")
+    private double learningRate;
+
+    @Value("${delhight.auto.pickupSeconds:120}")
+    private int pickupSeconds;
+
+    @Value("${delhight.auto.profileFile:}")
+    private String profileFile;
+
+    private final Map<Long, ZoneProfile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * Estimated "driving" leg between two points. Coordinates are set on the leg so the
+     * caller can later fetch real directions for it.
+     */
+    public RouteLeg estimate(double fromLat, double fromLng, double toLat, double toLng,
+                             long departureEpochSeconds, String fromName, String toName) {
+        double straightMeters = DistanceUtils.haversine(fromLat, fromLng, toLat, toLng);
+        ZoneProfile profile = profileFor((fromLat + toLat) / 2, (fromLng + toLng) / 2);
+        int hour = hourOf(departureEpochSeconds);
+
+        double roadMeters = straightMeters * profile.detour();
+        double speedMps = profile.speedKmh(hour) / 3.6;
+        int durationSeconds = (int) Math.round(roadMeters / speedMps) + pickupSeconds;
+
+        RouteLeg leg = new RouteLeg();
+        leg.setMode("driving");
+        leg.setEstimated(true);
+        leg.setFromName(fromName);
+        leg.setToName(toName);
+        leg.setFromLat(fromLat);
+        leg.setFromLng(fromLng);
+        leg.setToLat(toLat);
+        leg.setToLng(toLng);
+        leg.setDistanceMeters((int) Math.round(roadMeters));
+        leg.setDurationSeconds(durationSeconds);
+        List<String> steps = new ArrayList<>();
+        steps.add(String.format("Take an auto to %s (approx. %.1f km)", toName, roadMeters / 1000.0));
+        leg.setSteps(steps);
+        return leg;
+    }
+
+    /**
+     * Calibrates the zone profile with a real driving leg fetched for departureEpochSeconds
+     * (0 = now): pass the departure the leg was estimated and fetched for.
+     */
+    public void observe(double fromLat, double fromLng, double toLat, double toLng,
+                        long departureEpochSeconds, RouteLeg observed) {
+        if (observed == null || observed.getDistanceMeters() <= 0 || observed.getDurationSeconds() <= 0) return;
+
+        double straightMeters = DistanceUtils.haversine(fromLat, fromLng, toLat, toLng);
+        if (straightMeters < 200) return;   // too short to say anything about detours
+
+        double detour = observed.getDistanceMeters() / straightMeters;
+        int driveSeconds = Math.max(1, observed.getDurationSeconds());
+        double speedKmh = observed.getDistanceMeters() / (double) driveSeconds * 3.6;
+
+        profileFor((fromLat + toLat) / 2, (fromLng + toLng) / 2)
+                .observe(hourOf(departureEpochSeconds), detour, speedKmh, learningRate);
+    }
+
+    private ZoneProfile profileFor(double lat, double lng) {
+        return profiles.computeIfAbsent(zoneKey(lat, lng), k -> new ZoneProfile());
+    }
+
+    private long zoneKey(double lat, double lng) {
+        long row = (long) Math.floor(lat / zoneSizeDeg);
+        long col = (long) Math.floor(lng / zoneSizeDeg);
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    private static int hourOf(long epochSeconds) {
+        Instant t = epochSeconds > 0 ? Instant.ofEpochSecond(epochSeconds) : Instant.now();
+        return t.atZone(LOCAL_ZONE).getHour();
+    }
+
+    // ----------------------------
+    // Persistence (optional)
+    // ----------------------------
+
+    @Override
+    public String warmupName() {
+        return "auto-ride profiles";
+    }
+
+    @Override
+    public void warmUp() throws IOException {
+        if (profileFile == null || profileFile.isBlank()) return;
+        Path path = Paths.get(profileFile);
+        if (!Files.exists(path)) return;
+
+        JSONArray zones = new JSONArray(Files.readString(path, StandardCharsets.UTF_8));
+        for (int i = 0; i < zones.length(); i++) {
+            JSONObject z = zones.getJSONObject(i);
+            JSONArray speeds = z.getJSONArray("speedKmh");
+            double[] speedKmh = new double[24];
+            for (int h = 0; h < 24; h++) speedKmh[h] = speeds.getDouble(h);
+            profiles.put(z.getLong("zone"), new ZoneProfile(z.getDouble("detour"), speedKmh));
+        }
+    }
+
+    @PreDestroy
+    public void save() throws IOException {
+        if (profileFile == null || profileFile.isBlank() || profiles.isEmpty()) return;
+
+        JSONArray zones = new JSONArray();
+        profiles.forEach((key, profile) -> {
+            JSONObject z = new JSONObject();
+            z.put("zone", key);
+            synchronized (profile) {
+                z.put("detour", profile.detour);
+                z.put("speedKmh", new JSONArray(profile.speedKmh));
+            }
+            zones.put(z);
+        });
+
+        Path path = Paths.get(profileFile);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(tmp, zones.toString(), StandardCharsets.UTF_8);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ----------------------------
+    // Per-zone profile
+    // ----------------------------
+
+    private static final class ZoneProfile {
+        private double detour;
+        private final double[] speedKmh;
+
+        ZoneProfile() {
+            this(DEFAULT_DETOUR, DEFAULT_SPEED_KMH.clone());
+        }
+
+        ZoneProfile(double detour, double[] speedKmh) {
+            this.detour = detour;
+            this.speedKmh = speedKmh;
+        }
+
+        synchronized double detour() {
+            return detour;
+        }
+
+        synchronized double speedKmh(int hour) {
+            return speedKmh[hour];
+        }
+
+        synchronized void observe(int hour, double observedDetour, double observedSpeedKmh, double rate) {
+            // clamp outliers (ferries, one-way loops, bad geocodes)
+            observedDetour = Math.max(1.0, Math.min(3.0, observedDetour));
+            observedSpeedKmh = Math.max(5.0, Math.min(60.0, observedSpeedKmh));
+            detour += rate * (observedDetour - detour);
+            speedKmh[hour] += rate * (observedSpeedKmh - speedKmh[hour]);
+        }
+    }
+}
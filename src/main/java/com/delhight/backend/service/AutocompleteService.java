@@ -4,53 +4,135 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 /**
  * Backend wrapper for Google Places Autocomplete API.
  * Protects API key and returns a simplified set of predictions.
+ *
+ * Requests carrying a session token (one per typing session, generated by the client):
+ * - pass it to Google as sessiontoken, so the keystrokes of a session are billed as one
+ * - wait a short debounce window (delhight.autocomplete.debounceMillis) before calling Google
+ * - are superseded by the next request of the same session: a waiting or in-flight call is
+ *   cancelled (the upstream exchange is dropped) and answered with status "superseded"
  */
 @Service
 public class AutocompleteService {
 
-    private final WebClient webClient;
+    private final GoogleApiClient googleApiClient;
 
     @Value("${google.api.key:}")
     private String googleApiKey;
 
-    private static final String AUTOCOMPLETE_URL =
-            "https://maps.googleapis.com/maps/api/place/autocomplete/json";
+    @Value("${delhight.autocomplete.debounceMillis:120}")
+    private long debounceMillis;
 
-    public AutocompleteService(WebClient.Builder builder) {
-        this.webClient = builder.build();
+    private static final String AUTOCOMPLETE_PATH = "/maps/api/place/autocomplete/json";
+
+    // tokens end up in the upstream URL: accept UUID-like values only
+    private static final Pattern SESSION_TOKEN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // sessions with a request in flight (removed when their latest request finishes)
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong supersededCount = new AtomicLong();
+
+    public AutocompleteService(GoogleApiClient googleApiClient) {
+        this.googleApiClient = googleApiClient;
     }
 
     public List<Prediction> autocomplete(String query) {
-        List<Prediction> result = new ArrayList<>();
+        return autocomplete(query, null).getPredictions();
+    }
+
+    public Result autocomplete(String query, String sessionToken) {
+        if (query == null || query.isBlank()) return Result.ok(new ArrayList<>());
+
+        String token = sessionToken != null && SESSION_TOKEN.matcher(sessionToken).matches()
+                ? sessionToken : null;
+        String url = buildUrl(query, token);
+        Mono<String> upstream = googleApiClient.request(url);
+
+        if (token == null) {
+            try {
+                String body = googleApiClient.block(upstream, "autocomplete");
+                googleApiClient.archive(url, "autocomplete", body);
+                return Result.ok(parsePredictions(body));
+            } catch (Exception e) {
+                return Result.ok(new ArrayList<>());
+            }
+        }
+
+        Sinks.One<Boolean> cancel = Sinks.one();
+        Session session;
+        long generation;
+        while (true) {
+            session = sessions.computeIfAbsent(token, k -> new Session());
+            synchronized (session) {
+                if (session.closed) continue;   // finished and removed meanwhile: take a fresh one
+                if (session.cancel != null) session.cancel.tryEmitValue(Boolean.TRUE);
+                session.cancel = cancel;
+                generation = ++session.generation;
+                break;
+            }
+        }
 
-        if (query == null || query.isBlank()) return result;
+        try {
+            // the debounce is waited out here, not inside block(): it is not upstream latency,
+            // and a keystroke superseded while waiting never reaches Google (nor its stats)
+            if (debounceMillis > 0) {
+                Long waited = Mono.delay(Duration.ofMillis(debounceMillis))
+                        .takeUntilOther(cancel.asMono())
+                        .block();
+                if (waited == null) {
+                    supersededCount.incrementAndGet();
+                    return Result.superseded();
+                }
+            }
+            String body = googleApiClient.block(upstream.takeUntilOther(cancel.asMono()), "autocomplete");
+            if (body == null && session.isSuperseded(generation)) {
+                supersededCount.incrementAndGet();
+                return Result.superseded();
+            }
+            googleApiClient.archive(url, "autocomplete", body);
+            return Result.ok(parsePredictions(body));
+        } catch (Exception e) {
+            return Result.ok(new ArrayList<>());
+        } finally {
+            synchronized (session) {
+                if (session.generation == generation) {
+                    session.closed = true;
+                    sessions.remove(token, session);
+                }
+            }
+        }
+    }
 
+    private String buildUrl(String query, String sessionToken) {
         String encoded = query.trim().replace(" ", "+");
 
-        String url = AUTOCOMPLETE_URL
+        return googleApiClient.url(AUTOCOMPLETE_PATH)
                 + "?input=" + encoded
                 + "&components=country:in"
                 + "&types=geocode"
+                + (sessionToken != null ? "&sessiontoken=" + sessionToken : "")
                 + "&key=" + googleApiKey;
+    }
 
-        Mono<String> mono =
-                webClient.get().uri(url).retrieve().bodyToMono(String.class);
-
-        String body;
-        try {
-            body = mono.block();
-        } catch (Exception e) {
-            return result;
-        }
+    /**
+     * Parses a raw Places Autocomplete JSON response.
+     */
+    public List<Prediction> parsePredictions(String body) {
+        List<Prediction> result = new ArrayList<>();
 
         if (body == null || body.isEmpty()) return result;
 
@@ -84,6 +166,25 @@ public class AutocompleteService {
         return result;
     }
 
+    public long getSupersededCount() {
+        return supersededCount.get();
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    private static final class Session {
+        // guarded by this
+        long generation;
+        Sinks.One<Boolean> cancel;
+        boolean closed;
+
+        synchronized boolean isSuperseded(long generation) {
+            return this.generation != generation;
+        }
+    }
+
     // ---- inner DTO class ----
 
     public static class Prediction {
@@ -104,4 +205,26 @@ public class AutocompleteService {
         public String getSecondaryText() { return secondaryText; }
         public void setSecondaryText(String secondaryText) { this.secondaryText = secondaryText; }
     }
+
+    public static class Result {
+        private final boolean superseded;
+        private final List<Prediction> predictions;
+
+        private Result(boolean superseded, List<Prediction> predictions) {
+            this.superseded = superseded;
+            this.predictions = predictions;
+        }
+
+        static Result ok(List<Prediction> predictions) {
+            return new Result(false, predictions);
+        }
+
+        static Result superseded() {
+            return new Result(true, new ArrayList<>());
+        }
+
+        public boolean isSuperseded() { return superseded; }
+
+        public List<Prediction> getPredictions() { return predictions; }
+    }
 }
@@ -0,0 +1,207 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.mapper.RouteJsonWriter;
+import com.delhight.backend.model.DegradationLevel;
+import com.delhight.backend.model.RouteRequest;
+import com.delhight.backend.model.RouteVariant;
+import com.delhight.backend.utils.Deadline;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes routes for many origin/destination pairs in one call.
+ *
+ * - All pairs of one batch share a MemoizingRouteLookups, so identical geocodes,
+ *   nearest-station searches and station-pair legs are fetched once per batch.
+ * - Pairs run on a fixed-size pool shared by all batch requests (bounded concurrency).
+ *   A batch has at most maxInFlightPerBatch pairs queued or running at once, so a large
+ *   batch leaves room for the others; each pair gets its own deadline (pairDeadlineMillis).
+ * - When the batch ends early (the client went away), pairs not yet done are cancelled,
+ *   so they spend no more upstream quota.
+ * - Results are written as NDJSON in completion order, one line per pair, followed
+ *   by a final summary line.
+ * - The whole batch runs at the degradation level current when it starts (reported in
+ *   the summary line); at the summary level the routes carry no legs.
+ */
+@Service
+public class BatchRouteService {
+
+    private final RouteComputationService routeComputationService;
+    private final GeocodingService geocodingService;
+    private final NearestStationsService nearestStationsService;
+    private final DirectionsService directionsService;
+    private final RouteJsonWriter routeJsonWriter;
+    private final DegradationController degradationController;
+
+    private final ExecutorService executor;
+
+    @Value("${delhight.batch.maxPairs:1000}")
+    private int maxPairs;
+
+    @Value("${delhight.batch.maxInFlightPerBatch:4}")
+    private int maxInFlightPerBatch;
+
+    @Value("${delhight.batch.pairDeadlineMillis:8000}")
+    private long pairDeadlineMillis;
+
+    public BatchRouteService(RouteComputationService routeComputationService,
+                             GeocodingService geocodingService,
+                             NearestStationsService nearestStationsService,
+                             DirectionsService directionsService,
+                             RouteJsonWriter routeJsonWriter,
+                             DegradationController degradationController,
+                             @Value("${delhight.batch.parallelism:8}") int parallelism) {
+        this.routeComputationService = routeComputationService;
+        this.geocodingService = geocodingService;
+        this.nearestStationsService = nearestStationsService;
+        this.directionsService = directionsService;
+        this.routeJsonWriter = routeJsonWriter;
+        this.degradationController = degradationController;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "batch-routes-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getMaxPairs() {
+        return maxPairs;
+    }
+
+    /**
+     * Runs every pair and streams one NDJSON line per pair to {@code out}.
+     */
+    public void streamBatch(List<RouteRequest> pairs, OutputStream out) throws IOException {
+        MemoizingRouteLookups lookups =
+                new MemoizingRouteLookups(geocodingService, nearestStationsService, directionsService);
+        DegradationLevel level = degradationController.current();
+
+        CompletionService<PairResult> completion = new ExecutorCompletionService<>(executor);
+        List<Future<PairResult>> futures = new ArrayList<>(pairs.size());
+        // sliding window: the next pair is submitted when one of this batch's pairs finishes
+        int window = Math.max(1, maxInFlightPerBatch);
+        while (futures.size() < Math.min(window, pairs.size())) {
+            submit(completion, futures, pairs, lookups, level);
+        }
+
+        int failed = 0;
+        try (JsonGenerator gen = routeJsonWriter.createGenerator(out)) {
+            // each line is terminated explicitly so it can be flushed as soon as it is complete
+            gen.setRootValueSeparator(new SerializedString(""));
+
+            for (int i = 0; i < pairs.size(); i++) {
+                PairResult result = take(completion);
+                if (futures.size() < pairs.size()) submit(completion, futures, pairs, lookups, level);
+                if (result.error != null) failed++;
+
+                routeJsonWriter.writeBatchLine(gen, result.index, result.pair.getId(), result.fromName,
+                        result.toName, result.variants, result.error, result.partial, !level.summaryOnly());
+                gen.writeRaw('\n');
+                gen.flush();
+            }
+
+            // summary line (how much the batch-level dedupe saved)
+            gen.writeStartObject();
+            gen.writeStringField("status", "done");
+            gen.writeNumberField("totalPairs", pairs.size());
+            gen.writeNumberField("failedPairs", failed);
+            gen.writeStringField("degradation", level.wireName());
+            gen.writeNumberField("uniqueGeocodes", lookups.uniqueGeocodes());
+            gen.writeNumberField("uniqueStationLookups", lookups.uniqueStationLookups());
+            gen.writeNumberField("uniqueLegs", lookups.uniqueLegs());
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+        } finally {
+            // no-op when every pair finished; otherwise stop the rest (client gone, interrupted)
+            for (Future<PairResult> f : futures) f.cancel(true);
+        }
+    }
+
+    private void submit(CompletionService<PairResult> completion, List<Future<PairResult>> futures,
+                        List<RouteRequest> pairs, MemoizingRouteLookups lookups, DegradationLevel level) {
+        int index = futures.size();
+        RouteRequest pair = pairs.get(index);
+        futures.add(completion.submit(() -> computePair(index, pair, lookups, level)));
+    }
+
+    private PairResult computePair(int index, RouteRequest pair, MemoizingRouteLookups lookups,
+                                   DegradationLevel level) {
+        PairResult result = new PairResult(index, pair);
+        // the clock starts when the pair runs, not while it waits for its turn
+        Deadline deadline = Deadline.after(Duration.ofMillis(pairDeadlineMillis));
+        try (Deadline.Scope ignored = deadline.enter()) {
+            double[] o = pair.hasOriginCoordinates()
+                    ? new double[]{pair.getOriginLat(), pair.getOriginLng()}
+                    : lookups.geocodeAddress(pair.getFrom());
+            double[] d = pair.hasDestCoordinates()
+                    ? new double[]{pair.getDestLat(), pair.getDestLng()}
+                    : lookups.geocodeAddress(pair.getTo());
+
+            result.fromName = pair.getFrom() != null ? pair.getFrom() : (o != null ? o[0] + "," + o[1] : null);
+            result.toName = pair.getTo() != null ? pair.getTo() : (d != null ? d[0] + "," + d[1] : null);
+
+            if (o == null || d == null) {
+                result.error = "Could not resolve origin or destination.";
+                return result;
+            }
+
+            result.variants = routeComputationService.computeRoutes(
+                    o[0], o[1], d[0], d[1], result.fromName, result.toName, lookups, level);
+            result.partial = deadline.wasReached();
+        } catch (Exception ex) {
+            result.error = "Route computation failed: " + ex.getMessage();
+        }
+        return result;
+    }
+
+    private static PairResult take(CompletionService<PairResult> completion) throws IOException {
+        try {
+            Future<PairResult> f = completion.take();
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            // computePair catches everything, so this is unexpected
+            throw new IOException("Batch pair failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class PairResult {
+        final int index;
+        final RouteRequest pair;
+        String fromName;
+        String toName;
+        List<RouteVariant> variants;
+        String error;
+        boolean partial;
+
+        PairResult(int index, RouteRequest pair) {
+            this.index = index;
+            this.pair = pair;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.utils.NearestKernel;
+import com.delhight.backend.utils.BlockedNearestKernel;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Nearest stations for many points at once, from the same source as
+ * GET /api/nearest-stations: Google Places (through NearestStationsService and its caches).
+ *
+ * Points are grouped into square tiles of bulkTileMeters; Places is asked once per tile,
+ * at its centre, for a full page of stations (at most bulkMaxTiles tiles per request, on
+ * bulkParallelism threads). The union of those stations is kept as unit vectors in three
+ * float arrays, and every point is ranked against all of them: points are split into
+ * chunks that run in parallel through the NearestKernel, which writes each top-k straight
+ * into flat int/float result arrays. Tile centres are fixed, so repeated bulk requests
+ * over the same area hit the station cache instead of Google.
+ */
+@Service
+public class BulkNearestStationsService {
+
+    // points per parallel task: large enough to amortize the fork, small enough to balance
+    private static final int CHUNK = 256;
+
+    // one page of Places Nearby results
+    private static final int STATIONS_PER_TILE = 20;
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private final NearestStationsService nearestStationsService;
+    private final NearestKernel kernel = new BlockedNearestKernel();
+    private final ExecutorService executor;
+
+    @Value("${delhight.nearest.bulkMaxPoints:100000}")
+    private int maxPoints;
+
+    @Value("${delhight.nearest.bulkMaxTop:20}")
+    private int maxTop;
+
+    @Value("${delhight.nearest.bulkTileMeters:2000}")
+    private double tileMeters;
+
+    // Places calls one request may cause (when nothing is cached)
+    @Value("${delhight.nearest.bulkMaxTiles:256}")
+    private int maxTiles;
+
+    public BulkNearestStationsService(NearestStationsService nearestStationsService,
+                                      @Value("${delhight.nearest.bulkParallelism:8}") int parallelism) {
+        this.nearestStationsService = nearestStationsService;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "bulk-nearest-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Top-k stations of each point. Entry p*k+j of the result is the j-th nearest
+     * station of point p (index -1 past the end when fewer stations are known).
+     *
+     * @throws IllegalArgumentException if the points span more than bulkMaxTiles tiles
+     */
+    public Result nearest(double[] lats, double[] lngs, int top) {
+        List<NearbyStation> stations = stationsAround(lats, lngs);
+        int size = stations.size();
+        float[] x = new float[size], y = new float[size], z = new float[size];
+        for (int i = 0; i < size; i++) {
+            NearestKernel.toUnitVector(stations.get(i).getLat(), stations.get(i).getLng(), x, y, z, i);
+        }
+
+        int n = lats.length;
+        int k = Math.max(1, Math.min(top, maxTop));
+        int[] index = new int[n * k];
+        float[] chord2 = new float[n * k];
+
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * CHUNK;
+            int to = Math.min(n, from + CHUNK);
+            kernel.nearest(x, y, z, size, lats, lngs, from, to, k, index, chord2);
+        });
+        return new Result(stations, n, k, index, chord2);
+    }
+
+    // Places stations around the centre of every tile holding a point, without duplicates
+    private List<NearbyStation> stationsAround(double[] lats, double[] lngs) {
+        double size = tileMeters / METERS_PER_DEGREE;
+        Set<Long> tiles = new LinkedHashSet<>();
+        for (int i = 0; i < lats.length; i++) {
+            long row = (long) Math.floor(lats[i] / size);
+            long col = (long) Math.floor(lngs[i] / size);
+            tiles.add((row << 32) ^ (col & 0xffffffffL));
+            if (tiles.size() > maxTiles) {
+                throw new IllegalArgumentException("Points spread over more than " + maxTiles
+                        + " tiles of " + Math.round(tileMeters) + " m; split the request.");
+            }
+        }
+
+        List<Callable<List<NearbyStation>>> lookups = new ArrayList<>(tiles.size());
+        for (long tile : tiles) {
+            double lat = ((tile >> 32) + 0.5) * size;
+            double lng = ((int) tile + 0.5) * size;
+            lookups.add(() -> nearestStationsService.findNearestStations(lat, lng, STATIONS_PER_TILE));
+        }
+
+        Map<String, NearbyStation> byKey = new LinkedHashMap<>();
+        try {
+            for (Future<List<NearbyStation>> f : executor.invokeAll(lookups)) {
+                for (NearbyStation s : f.get()) {
+                    String key = s.getPlaceId() != null ? s.getPlaceId() : s.getName() + "@" + s.getLat() + "," + s.getLng();
+                    byKey.putIfAbsent(key, s);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while looking up stations", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Station lookup failed", e.getCause());
+        }
+        return new ArrayList<>(byKey.values());
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    public String getKernelName() {
+        return kernel.name();
+    }
+
+    // ----------------------------
+    // Result
+    // ----------------------------
+
+    public record Result(List<NearbyStation> stations, int points, int k, int[] index, float[] chord2) {
+
+        public int distanceMeters(int slot) {
+            return (int) Math.round(NearestKernel.chord2ToMeters(chord2[slot]));
+        }
+
+        /**
+         * Writes the "results" array: one array of { placeId, name, vicinity, lat, lng,
+         * distanceMeters } per point, nearest first.
+         */
+        public void write(JsonGenerator gen) throws IOException {
+            gen.writeArrayFieldStart("results");
+            for (int p = 0; p < points; p++) {
+                gen.writeStartArray();
+                for (int j = 0; j < k; j++) {
+                    int slot = p * k + j;
+                    int station = index[slot];
+                    if (station < 0) break;
+                    NearbyStation s = stations.get(station);
+                    gen.writeStartObject();
+                    gen.writeStringField("placeId", s.getPlaceId());
+                    gen.writeStringField("name", s.getName());
+                    gen.writeStringField("vicinity", s.getVicinity());
+                    gen.writeNumberField("lat", s.getLat());
+                    gen.writeNumberField("lng", s.getLng());
+                    gen.writeNumberField("distanceMeters", distanceMeters(slot));
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.delhight.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts, per stage (geocode, stations, directions.transit, compute, ...):
+ *
+ *   delhight.deadline.expired   the request deadline ran out in that stage
+ *   delhight.upstream.timeouts  an upstream call hit its own timeout with deadline left
+ *
+ * Both are Micrometer counters (tag "stage"); snapshot() feeds /admin/deadlines.
+ */
+@Component
+public class DeadlineMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> expired = new ConcurrentHashMap<>();
+    private final Map<String, Counter> timeouts = new ConcurrentHashMap<>();
+
+    public DeadlineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void deadlineExpired(String stage) {
+        expired.computeIfAbsent(stage, s -> Counter.builder("delhight.deadline.expired")
+                .tag("stage", s).register(registry)).increment();
+    }
+
+    public void upstreamTimeout(String stage) {
+        timeouts.computeIfAbsent(stage, s -> Counter.builder("delhight.upstream.timeouts")
+                .tag("stage", s).register(registry)).increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        return Map.of("deadlineExpired", counts(expired), "upstreamTimeouts", counts(timeouts));
+    }
+
+    private static Map<String, Long> counts(Map<String, Counter> counters) {
+        Map<String, Long> out = new TreeMap<>();
+        counters.forEach((stage, c) -> out.put(stage, (long) c.count()));
+        return out;
+    }
+}
@@ -0,0 +1,231 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.config.ConcurrencyLimits;
+import com.delhight.backend.model.DegradationLevel;
+import com.delhight.backend.utils.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the DegradationLevel route computations run at, from three pressure signals:
+ *
+ *   upstream latency  smoothed mean latency of Google calls (and their failure rate)
+ *   quota headroom    share of delhight.google.dailyQuota left today (0 = no quota)
+ *   queue depth       in-flight /routes requests as a share of their concurrency limit
+ *
+ * Every signal maps to a level through its thresholds; the worst one wins. The level
+ * drops as soon as pressure rises, but recovers one step at a time, and only after
+ * pressure has stayed lower for delhight.degradation.recoverSeconds.
+ *
+ * Operators can pin a level with force() (e.g. before a known spike); force(null)
+ * returns to automatic control.
+ */
+@Service
+public class DegradationController {
+
+    private static final Logger log = LoggerFactory.getLogger(DegradationController.class);
+
+    private static final ZoneId QUOTA_ZONE = ZoneId.of("Asia/Kolkata");
+    private static final double SMOOTHING = 0.3;
+
+    private final ConcurrencyLimits concurrencyLimits;
+
+    @Value("${delhight.degradation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${delhight.degradation.recoverSeconds:30}")
+    private long recoverSeconds;
+
+    @Value("${delhight.degradation.latencyReducedMillis:1500}")
+    private double latencyReducedMillis;
+
+    @Value("${delhight.degradation.latencyMinimalMillis:3000}")
+    private double latencyMinimalMillis;
+
+    @Value("${delhight.degradation.latencySummaryMillis:6000}")
+    private double latencySummaryMillis;
+
+    // share of failed upstream calls (errors, timeouts)
+    @Value("${delhight.degradation.errorsReduced:0.25}")
+    private double errorsReduced;
+
+    @Value("${delhight.degradation.errorsMinimal:0.5}")
+    private double errorsMinimal;
+
+    @Value("${delhight.degradation.queueReduced:0.75}")
+    private double queueReduced;
+
+    @Value("${delhight.degradation.queueMinimal:0.9}")
+    private double queueMinimal;
+
+    // Google requests allowed per day (local time); 0 = not tracked
+    @Value("${delhight.google.dailyQuota:0}")
+    private long dailyQuota;
+
+    @Value("${delhight.degradation.quotaReduced:0.2}")
+    private double quotaReduced;
+
+    @Value("${delhight.degradation.quotaMinimal:0.1}")
+    private double quotaMinimal;
+
+    @Value("${delhight.degradation.quotaSummary:0.03}")
+    private double quotaSummary;
+
+    private volatile DegradationLevel level = DegradationLevel.FULL;
+    private volatile DegradationLevel forced;
+
+    // guarded by this
+    private long intervalCalls;
+    private long intervalFailures;
+    private long intervalNanos;
+    private double latencyMillis;
+    private double errorRate;
+    private LocalDate quotaDay;
+    private long quotaUsed;
+    private long lastChangeMillis = System.currentTimeMillis();
+    private long calmSinceMillis = lastChangeMillis;   // pressure below the current level since
+    private String reason = "";
+
+    public DegradationController(ConcurrencyLimits concurrencyLimits, MeterRegistry registry) {
+        this.concurrencyLimits = concurrencyLimits;
+        Gauge.builder("delhight.degradation.level", this, c -> c.current().ordinal()).register(registry);
+    }
+
+    /** Level new computations should run at. */
+    public DegradationLevel current() {
+        if (!enabled) return DegradationLevel.FULL;
+        DegradationLevel f = forced;
+        return f != null ? f : level;
+    }
+
+    /** Pins the level (null = automatic). */
+    public void force(DegradationLevel forcedLevel) {
+        this.forced = forcedLevel;
+        log.warn("Degradation level {}", forcedLevel != null ? "forced to " + forcedLevel.wireName() : "back to automatic");
+    }
+
+    /** Reported by GoogleApiClient for every upstream call. */
+    public synchronized void recordUpstreamCall(long nanos, boolean failed) {
+        intervalCalls++;
+        intervalNanos += nanos;
+        if (failed) intervalFailures++;
+
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        if (!today.equals(quotaDay)) {
+            quotaDay = today;
+            quotaUsed = 0;
+        }
+        quotaUsed++;
+    }
+
+    // ----------------------------
+    // Evaluation
+    // ----------------------------
+
+    @Scheduled(fixedDelayString = "${delhight.degradation.evaluateMillis:1000}")
+    public synchronized void evaluate() {
+        if (intervalCalls > 0) {
+            latencyMillis += SMOOTHING * (intervalNanos / 1e6 / intervalCalls - latencyMillis);
+            errorRate += SMOOTHING * ((double) intervalFailures / intervalCalls - errorRate);
+        } else {
+            // no upstream traffic: nothing is slow
+            latencyMillis *= 1 - SMOOTHING;
+            errorRate *= 1 - SMOOTHING;
+        }
+        intervalCalls = 0;
+        intervalFailures = 0;
+        intervalNanos = 0;
+
+        DegradationLevel target = DegradationLevel.FULL;
+        String why = "";
+
+        DegradationLevel byLatency = latencyMillis >= latencySummaryMillis ? DegradationLevel.SUMMARY
+                : latencyMillis >= latencyMinimalMillis ? DegradationLevel.MINIMAL
+                : latencyMillis >= latencyReducedMillis ? DegradationLevel.REDUCED
+                : DegradationLevel.FULL;
+        if (byLatency.worseThan(target)) {
+            target = byLatency;
+            why = String.format("upstream latency %.0f ms", latencyMillis);
+        }
+
+        DegradationLevel byErrors = errorRate >= errorsMinimal ? DegradationLevel.MINIMAL
+                : errorRate >= errorsReduced ? DegradationLevel.REDUCED
+                : DegradationLevel.FULL;
+        if (byErrors.worseThan(target)) {
+            target = byErrors;
+            why = String.format("upstream failures %.0f%%", errorRate * 100);
+        }
+
+        double headroom = quotaHeadroom();
+        DegradationLevel byQuota = headroom < quotaSummary ? DegradationLevel.SUMMARY
+                : headroom < quotaMinimal ? DegradationLevel.MINIMAL
+                : headroom < quotaReduced ? DegradationLevel.REDUCED
+                : DegradationLevel.FULL;
+        if (byQuota.worseThan(target)) {
+            target = byQuota;
+            why = String.format("quota headroom %.1f%%", headroom * 100);
+        }
+
+        double queue = queueUtilization();
+        DegradationLevel byQueue = queue >= queueMinimal ? DegradationLevel.MINIMAL
+                : queue >= queueReduced ? DegradationLevel.REDUCED
+                : DegradationLevel.FULL;
+        if (byQueue.worseThan(target)) {
+            target = byQueue;
+            why = String.format("routes queue at %.0f%% of limit", queue * 100);
+        }
+
+        long now = System.currentTimeMillis();
+        DegradationLevel previous = level;
+        if (!previous.worseThan(target)) {
+            level = target;
+            calmSinceMillis = now;
+        } else if (now - calmSinceMillis >= recoverSeconds * 1000) {
+            level = DegradationLevel.values()[previous.ordinal() - 1];
+            calmSinceMillis = now;
+            why = "pressure dropped";
+        }
+        if (level != previous) {
+            lastChangeMillis = now;
+            reason = why;
+            log.warn("Degradation level {} -> {} ({})", previous.wireName(), level.wireName(), why);
+        }
+    }
+
+    private double quotaHeadroom() {
+        if (dailyQuota <= 0) return 1.0;
+        long used = LocalDate.now(QUOTA_ZONE).equals(quotaDay) ? quotaUsed : 0;
+        return Math.max(0.0, 1.0 - (double) used / dailyQuota);
+    }
+
+    private double queueUtilization() {
+        AdaptiveConcurrencyLimiter routes = concurrencyLimits.routes();
+        return (double) routes.inFlight() / Math.max(1, routes.limit());
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("level", current().wireName());
+        out.put("forced", forced != null);
+        out.put("automaticLevel", level.wireName());
+        out.put("reason", reason);
+        out.put("sinceMillis", lastChangeMillis);
+        out.put("upstreamLatencyMillis", Math.round(latencyMillis));
+        out.put("upstreamErrorRate", Math.round(errorRate * 1000) / 1000.0);
+        out.put("quotaHeadroom", Math.round(quotaHeadroom() * 1000) / 1000.0);
+        out.put("quotaUsedToday", dailyQuota > 0 ? quotaUsed : null);
+        out.put("routesQueueUtilization", Math.round(queueUtilization() * 100) / 100.0);
+        return out;
+    }
+}
@@ -0,0 +1,510 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.MetroNetwork;
+import com.delhight.backend.utils.DistanceUtils;
+import jakarta.annotation.PostConstruct;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Offline geocoder for well-known Delhi NCR places (localities, sectors, landmarks,
+ * metro stations), tried before the Google Geocoding API.
+ *
+ * Place names and aliases are normalized into tokens (lower case, abbreviations expanded,
+ * "sector18" split, roman numerals and ordinals turned into numbers). A query is matched:
+ *
+ *   1. exactly, on its normalized token string (confidence 1.0)
+ *   2. otherwise token by token: exact tokens, or misspelled ones found through a trigram
+ *      index and accepted by edit distance. Numbers only ever match exactly.
+ *
+ * Confidence is the (fuzzy) Dice overlap between query and place tokens. Context tokens
+ * ("new delhi", "metro station", pin codes, ...) in the query are ignored when the place
+ * does not have them. A near tie with a different place far away (a name shared by two
+ * localities) is no match at all, so the address goes to Google rather than to whichever
+ * place happens to score first.
+ * Comma separated addresses are also matched segment by segment, at a small discount, but
+ * only for specific places (not a city or locality: "Shop 3, Saket" is somewhere in Saket,
+ * not at its centroid) and only if every other segment that is more than context matches a
+ * place nearby too ("Plot 12, ..." has a part the gazetteer cannot place, so Google is asked).
+ */
+@Service
+public class GazetteerGeocoder {
+
+    private static final Logger log = LoggerFactory.getLogger(GazetteerGeocoder.class);
+
+    // tokens dropped everywhere
+    private static final Set<String> STOPWORDS = Set.of(
+            "the", "of", "near", "nr", "opp", "opposite", "behind", "in", "at", "and", "part", "no");
+
+    // tokens that qualify rather than name a place: ignored in the query if the place lacks them
+    private static final Set<String> CONTEXT = Set.of(
+            "new", "delhi", "india", "ncr", "metro", "station", "up", "haryana", "uttar", "pradesh");
+
+    private static final Map<String, String> ABBREVIATIONS = Map.ofEntries(
+            Map.entry("sec", "sector"), Map.entry("sect", "sector"), Map.entry("sctr", "sector"),
+            Map.entry("ph", "phase"), Map.entry("blk", "block"), Map.entry("pkt", "pocket"),
+            Map.entry("mkt", "market"), Map.entry("rd", "road"), Map.entry("stn", "station"),
+            Map.entry("extn", "extension"), Map.entry("ext", "extension"), Map.entry("col", "colony"),
+            Map.entry("encl", "enclave"), Map.entry("hosp", "hospital"), Map.entry("univ", "university"),
+            Map.entry("intl", "international"), Map.entry("gurgaon", "gurugram"),
+            Map.entry("i", "1"), Map.entry("ii", "2"), Map.entry("iii", "3"), Map.entry("iv", "4"));
+
+    private static final double MIN_TOKEN_SIMILARITY = 0.75;
+    private static final int MIN_FUZZY_TOKEN_LENGTH = 4;
+
+    // two places this far apart with similar scores make the match ambiguous: no local answer
+    private static final double AMBIGUOUS_METERS = 1500;
+    private static final double AMBIGUOUS_SCORE_GAP = 0.1;
+    private static final double SEGMENT_PENALTY = 0.95;
+
+    // kinds too large to stand for a whole address on the strength of one segment
+    private static final Set<String> AREA_KINDS = Set.of("city", "locality");
+
+    // another segment "agrees" with a segment match if it matches this well this close by
+    private static final double SEGMENT_CONTEXT_CONFIDENCE = 0.8;
+    private static final double SEGMENT_CONTEXT_METERS = 20_000;
+
+    private final ResourceLoader resourceLoader;
+    private final MetroNetworkService metroNetworkService;
+
+    @Value("${delhight.gazetteer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${delhight.gazetteer.file:classpath:data/gazetteer.json}")
+    private String gazetteerFile;
+
+    @Value("${delhight.gazetteer.includeMetroStations:true}")
+    private boolean includeMetroStations;
+
+    private volatile Index index;
+
+    public record Match(String name, String kind, double lat, double lng, double confidence) {}
+
+    public GazetteerGeocoder(ResourceLoader resourceLoader, MetroNetworkService metroNetworkService) {
+        this.resourceLoader = resourceLoader;
+        this.metroNetworkService = metroNetworkService;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (!enabled) return;
+
+        IndexBuilder builder = new IndexBuilder();
+        try (InputStream in = resourceLoader.getResource(gazetteerFile).getInputStream()) {
+            JSONArray places = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .getJSONArray("places");
+            for (int i = 0; i < places.length(); i++) {
+                JSONObject p = places.getJSONObject(i);
+                List<String> names = new ArrayList<>();
+                names.add(p.getString("name"));
+                JSONArray aliases = p.optJSONArray("aliases");
+                if (aliases != null) {
+                    for (int a = 0; a < aliases.length(); a++) names.add(aliases.getString(a));
+                }
+                builder.addPlace(p.getString("name"), p.optString("kind", "place"),
+                        p.getDouble("lat"), p.getDouble("lng"), names);
+            }
+        }
+        if (includeMetroStations) {
+            MetroNetwork net = metroNetworkService.getNetwork();
+            for (int s = 0; s < net.size(); s++) {
+                builder.addPlace(net.getName(s) + " Metro Station", "transport", net.getLat(s), net.getLng(s),
+                        List.of(net.getName(s)));
+            }
+        }
+        index = builder.build();
+        log.info("Gazetteer: {} places, {} names, {} tokens",
+                index.placeNames.length, index.entryPlace.length, index.vocabulary.size());
+    }
+
+    /**
+     * Best local match for a free-text address, or null if nothing in the gazetteer
+     * resembles it. Callers decide what confidence is good enough.
+     */
+    public Match lookup(String address) {
+        Index idx = index;
+        if (idx == null || address == null || address.isBlank()) return null;
+
+        Match best = idx.match(tokenize(address), 1.0);
+        if (best != null && best.confidence() >= 1.0) return best;
+
+        if (address.indexOf(',') >= 0) {
+            String[] segments = address.split(",");
+            for (int i = 0; i < segments.length; i++) {
+                Match m = idx.match(tokenize(segments[i]), SEGMENT_PENALTY);
+                if (m == null || AREA_KINDS.contains(m.kind())) continue;
+                if (!othersAgree(idx, segments, i, m)) continue;
+                if (best == null || m.confidence() > best.confidence()) best = m;
+            }
+        }
+        return best;
+    }
+
+    // every other segment is context only, or names a place near the segment match
+    private static boolean othersAgree(Index idx, String[] segments, int matched, Match m) {
+        for (int i = 0; i < segments.length; i++) {
+            if (i == matched) continue;
+            List<String> tokens = tokenize(segments[i]);
+            if (tokens.stream().allMatch(GazetteerGeocoder::isContext)) continue;
+            Match other = idx.match(tokens, 1.0);
+            if (other == null || other.confidence() < SEGMENT_CONTEXT_CONFIDENCE) return false;
+            if (DistanceUtils.haversine(m.lat(), m.lng(), other.lat(), other.lng()) > SEGMENT_CONTEXT_METERS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ----------------------------
+    // Normalization
+    // ----------------------------
+
+    /**
+     * "Sec-18, Noida (U.P.) 201301" -> [sector, 18, noida, up, 201301]
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String s = text.toLowerCase(Locale.ROOT);
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i <= s.length(); i++) {
+            char c = i < s.length() ? s.charAt(i) : ' ';
+            if (c == '.') continue;   // "u.p." -> "up"
+            if (c == '\'') {
+                // possessive: "humayun's" -> "humayun"
+                if (i + 1 < s.length() && s.charAt(i + 1) == 's'
+                        && (i + 2 == s.length() || !Character.isLetterOrDigit(s.charAt(i + 2)))) i++;
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                run.append(c);
+            } else if (run.length() > 0) {
+                splitRun(run, tokens);
+                run.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    // splits letter/digit groups ("sector18", "18th"), keeping block codes like "c2" or "12a"
+    private static void splitRun(CharSequence run, List<String> out) {
+        List<String> groups = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= run.length(); i++) {
+            if (i == run.length() || Character.isDigit(run.charAt(i)) != Character.isDigit(run.charAt(i - 1))) {
+                groups.add(run.subSequence(start, i).toString());
+                start = i;
+            }
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            String group = groups.get(g);
+            boolean digits = Character.isDigit(group.charAt(0));
+            if (!digits && group.length() == 1 && g + 1 < groups.size()) {
+                // "c2", "t3"
+                addToken(group + stripZeros(groups.get(++g)), out);
+            } else if (digits && g + 1 < groups.size() && groups.get(g + 1).length() == 1) {
+                // "12a"
+                addToken(stripZeros(group) + groups.get(++g), out);
+            } else if (digits) {
+                addToken(stripZeros(group), out);
+                // ordinal suffix: "18th"
+                if (g + 1 < groups.size() && isOrdinal(groups.get(g + 1))) g++;
+            } else {
+                addToken(group, out);
+            }
+        }
+    }
+
+    private static void addToken(String token, List<String> out) {
+        token = ABBREVIATIONS.getOrDefault(token, token);
+        if (!STOPWORDS.contains(token)) out.add(token);
+    }
+
+    private static String stripZeros(String digits) {
+        int i = 0;
+        while (i < digits.length() - 1 && digits.charAt(i) == '0') i++;
+        return digits.substring(i);
+    }
+
+    private static boolean isOrdinal(String s) {
+        return s.equals("st") || s.equals("nd") || s.equals("rd") || s.equals("th");
+    }
+
+    static boolean isContext(String token) {
+        return CONTEXT.contains(token) || (token.length() == 6 && isNumber(token));   // pin code
+    }
+
+    private static boolean isNumber(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean hasDigit(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isDigit(token.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    /** 1 - edit distance / longer length. */
+    static double similarity(String a, String b) {
+        int n = a.length(), m = b.length();
+        int[] prev = new int[m + 1], cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] t = prev; prev = cur; cur = t;
+        }
+        return 1.0 - (double) prev[m] / Math.max(n, m);
+    }
+
+    private static List<String> trigrams(String token) {
+        String padded = "$" + token + "$";
+        List<String> out = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) out.add(padded.substring(i, i + 3));
+        return out;
+    }
+
+    // ----------------------------
+    // Index
+    // ----------------------------
+
+    private static final class IndexBuilder {
+        final List<String> placeNames = new ArrayList<>();
+        final List<String> placeKinds = new ArrayList<>();
+        final List<double[]> placeCoords = new ArrayList<>();
+        final List<Integer> entryPlace = new ArrayList<>();
+        final List<int[]> entryTokens = new ArrayList<>();
+        final Map<String, Integer> vocabulary = new HashMap<>();
+        final Map<String, Integer> exact = new HashMap<>();
+
+        void addPlace(String name, String kind, double lat, double lng, List<String> names) {
+            int place = placeNames.size();
+            placeNames.add(name);
+            placeKinds.add(kind);
+            placeCoords.add(new double[]{lat, lng});
+            for (String n : names) {
+                List<String> tokens = tokenize(n);
+                if (tokens.isEmpty()) continue;
+                int[] ids = new int[tokens.size()];
+                for (int t = 0; t < ids.length; t++) {
+                    ids[t] = vocabulary.computeIfAbsent(tokens.get(t), k -> vocabulary.size());
+                }
+                entryPlace.add(place);
+                entryTokens.add(ids);
+
+                // the same name for two places far apart is not an exact match for either
+                String key = String.join(" ", tokens);
+                Integer other = exact.get(key);
+                if (other == null) {
+                    exact.put(key, place);
+                } else if (other >= 0 && other != place) {
+                    double[] o = placeCoords.get(other);
+                    if (DistanceUtils.haversine(lat, lng, o[0], o[1]) > AMBIGUOUS_METERS) exact.put(key, -1);
+                }
+            }
+        }
+
+        Index build() {
+            int vocabSize = vocabulary.size();
+            String[] tokens = new String[vocabSize];
+            vocabulary.forEach((t, id) -> tokens[id] = t);
+
+            List<List<Integer>> postings = new ArrayList<>();
+            for (int i = 0; i < vocabSize; i++) postings.add(new ArrayList<>());
+            for (int e = 0; e < entryTokens.size(); e++) {
+                for (int id : entryTokens.get(e)) {
+                    List<Integer> p = postings.get(id);
+                    if (p.isEmpty() || p.get(p.size() - 1) != e) p.add(e);
+                }
+            }
+
+            Map<String, List<Integer>> trigramLists = new HashMap<>();
+            for (int id = 0; id < vocabSize; id++) {
+                if (tokens[id].length() < MIN_FUZZY_TOKEN_LENGTH || hasDigit(tokens[id])) continue;
+                for (String tri : trigrams(tokens[id])) {
+                    List<Integer> l = trigramLists.computeIfAbsent(tri, k -> new ArrayList<>());
+                    if (l.isEmpty() || l.get(l.size() - 1) != id) l.add(id);
+                }
+            }
+            Map<String, int[]> trigramIndex = new HashMap<>();
+            trigramLists.forEach((tri, l) -> trigramIndex.put(tri, toArray(l)));
+
+            int[][] tokenEntries = new int[vocabSize][];
+            for (int i = 0; i < vocabSize; i++) tokenEntries[i] = toArray(postings.get(i));
+
+            double[] lat = new double[placeCoords.size()], lng = new double[placeCoords.size()];
+            for (int p = 0; p < lat.length; p++) {
+                lat[p] = placeCoords.get(p)[0];
+                lng[p] = placeCoords.get(p)[1];
+            }
+            return new Index(placeNames.toArray(new String[0]), placeKinds.toArray(new String[0]), lat, lng, toArray(entryPlace),
+                    entryTokens.toArray(new int[0][]), vocabulary, tokens, tokenEntries, trigramIndex, exact);
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] a = new int[list.size()];
+            for (int i = 0; i < a.length; i++) a[i] = list.get(i);
+            return a;
+        }
+    }
+
+    /**
+     * Immutable once built; entries are place names and aliases (several per place).
+     */
+    private record Index(String[] placeNames, String[] placeKinds, double[] placeLat, double[] placeLng,
+                         int[] entryPlace, int[][] entryTokens,
+                         Map<String, Integer> vocabulary, String[] tokens, int[][] tokenEntries,
+                         Map<String, int[]> trigramIndex, Map<String, Integer> exact) {
+
+        Match match(List<String> query, double discount) {
+            if (query.isEmpty()) return null;
+
+            Integer exactPlace = exact.get(String.join(" ", query));
+            if (exactPlace != null && exactPlace >= 0) return match(exactPlace, discount);
+
+            // candidate vocabulary tokens (and their similarity) per query token
+            int q = query.size();
+            int[][] candidateTokens = new int[q][];
+            double[][] candidateSims = new double[q][];
+            boolean anyCore = false;
+            for (int i = 0; i < q; i++) {
+                expand(query.get(i), i, candidateTokens, candidateSims);
+                anyCore |= !isContext(query.get(i));
+            }
+
+            // entries sharing at least one (non-context, unless that is all we have) token
+            BitSet candidates = new BitSet(entryPlace.length);
+            for (int i = 0; i < q; i++) {
+                if (anyCore && isContext(query.get(i))) continue;
+                for (int id : candidateTokens[i]) {
+                    for (int e : tokenEntries[id]) candidates.set(e);
+                }
+            }
+
+            int bestEntry = -1, runnerUpEntry = -1;
+            double bestScore = 0, runnerUpScore = 0;
+            for (int e = candidates.nextSetBit(0); e >= 0; e = candidates.nextSetBit(e + 1)) {
+                double score = score(query, candidateTokens, candidateSims, entryTokens[e]);
+                if (score > bestScore) {
+                    if (bestEntry >= 0 && entryPlace[bestEntry] != entryPlace[e]) {
+                        runnerUpEntry = bestEntry;
+                        runnerUpScore = bestScore;
+                    }
+                    bestEntry = e;
+                    bestScore = score;
+                } else if (score > runnerUpScore && entryPlace[e] != entryPlace[bestEntry]) {
+                    runnerUpEntry = e;
+                    runnerUpScore = score;
+                }
+            }
+            if (bestEntry < 0) return null;
+
+            double confidence = bestScore * discount;
+            if (runnerUpEntry >= 0 && bestScore - runnerUpScore < AMBIGUOUS_SCORE_GAP) {
+                int a = entryPlace[bestEntry], b = entryPlace[runnerUpEntry];
+                double apart = DistanceUtils.haversine(placeLat[a], placeLng[a], placeLat[b], placeLng[b]);
+                if (apart > AMBIGUOUS_METERS) return null;
+            }
+            Match m = match(entryPlace[bestEntry], 1.0);
+            return new Match(m.name(), m.kind(), m.lat(), m.lng(), confidence);
+        }
+
+        private Match match(int place, double confidence) {
+            return new Match(placeNames[place], placeKinds[place], placeLat[place], placeLng[place], confidence);
+        }
+
+        private void expand(String token, int i, int[][] outTokens, double[][] outSims) {
+            Integer id = vocabulary.get(token);
+            if (id != null) {
+                outTokens[i] = new int[]{id};
+                outSims[i] = new double[]{1.0};
+                return;
+            }
+            if (token.length() < MIN_FUZZY_TOKEN_LENGTH || hasDigit(token)) {
+                outTokens[i] = new int[0];
+                outSims[i] = new double[0];
+                return;
+            }
+
+            // vocabulary tokens sharing a trigram, then verified by edit distance
+            Map<Integer, Integer> shared = new HashMap<>();
+            List<String> grams = trigrams(token);
+            for (String tri : grams) {
+                int[] ids = trigramIndex.get(tri);
+                if (ids == null) continue;
+                for (int v : ids) shared.merge(v, 1, Integer::sum);
+            }
+            int minShared = Math.max(1, grams.size() / 3);
+            List<Integer> accepted = new ArrayList<>();
+            List<Double> sims = new ArrayList<>();
+            shared.forEach((v, count) -> {
+                if (count < minShared || Math.abs(tokens[v].length() - token.length()) > 2) return;
+                double sim = similarity(token, tokens[v]);
+                if (sim >= MIN_TOKEN_SIMILARITY) {
+                    accepted.add(v);
+                    sims.add(sim);
+                }
+            });
+            outTokens[i] = new int[accepted.size()];
+            outSims[i] = new double[accepted.size()];
+            for (int k = 0; k < accepted.size(); k++) {
+                outTokens[i][k] = accepted.get(k);
+                outSims[i][k] = sims.get(k);
+            }
+        }
+
+        /**
+         * Fuzzy Dice overlap: 2 x matched / (query tokens + entry tokens). Unmatched
+         * context tokens of the query do not count.
+         */
+        private static double score(List<String> query, int[][] candidateTokens, double[][] candidateSims,
+                                    int[] entry) {
+            boolean[] used = new boolean[entry.length];
+            double matched = 0;
+            int queryCount = 0;
+            for (int i = 0; i < query.size(); i++) {
+                double best = 0;
+                int bestPos = -1;
+                for (int k = 0; k < candidateTokens[i].length; k++) {
+                    for (int pos = 0; pos < entry.length; pos++) {
+                        if (!used[pos] && entry[pos] == candidateTokens[i][k] && candidateSims[i][k] > best) {
+                            best = candidateSims[i][k];
+                            bestPos = pos;
+                        }
+                    }
+                }
+                if (bestPos >= 0) {
+                    used[bestPos] = true;
+                    matched += best;
+                    queryCount++;
+                } else if (!isContext(query.get(i))) {
+                    queryCount++;
+                }
+            }
+            if (queryCount == 0) return 0;
+            return 2 * matched / (queryCount + entry.length);
+        }
+    }
+}
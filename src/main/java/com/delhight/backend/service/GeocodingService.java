@@ -1,28 +1,40 @@
 package com.delhight.backend.service;
 
+import com.delhight.backend.utils.RequestTrace;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
 /**
  * Simple Geocoding service using Google Geocoding API.
  * Returns the first result's lat/lng for a given address string.
+ *
+ * Addresses the local gazetteer matches with at least delhight.gazetteer.minConfidence
+ * are answered from it without calling Google. Google results are shared between nodes
+ * through SharedRouteCache (pass-through unless enabled).
  */
 @Service
 public class GeocodingService {
 
-    private final WebClient webClient;
+    private final GoogleApiClient googleApiClient;
+    private final GazetteerGeocoder gazetteer;
+    private final SharedRouteCache sharedRouteCache;
 
     @Value("${google.api.key:}")
     private String googleApiKey;
 
-    private static final String GEOCODE_URL = "https://maps.googleapis.com/maps/api/geocode/json";
+    // below this the gazetteer match is not trusted and Google is asked instead
+    @Value("${delhight.gazetteer.minConfidence:0.85}")
+    private double minConfidence;
 
-    public GeocodingService(WebClient.Builder builder) {
-        this.webClient = builder.build();
+    private static final String GEOCODE_PATH = "/maps/api/geocode/json";
+
+    public GeocodingService(GoogleApiClient googleApiClient, GazetteerGeocoder gazetteer,
+                            SharedRouteCache sharedRouteCache) {
+        this.googleApiClient = googleApiClient;
+        this.gazetteer = gazetteer;
+        this.sharedRouteCache = sharedRouteCache;
     }
 
     /**
@@ -31,21 +43,40 @@ public class GeocodingService {
     public double[] geocodeAddress(String address) {
         if (address == null || address.trim().isEmpty()) return null;
 
-        String encoded = address.trim().replace(" ", "+");
-        String url = GEOCODE_URL + "?address=" + encoded + "&key=" + googleApiKey;
+        long began = RequestTrace.begin();
+        double[] result = lookup(address);
+        RequestTrace.end(RequestTrace.Stage.GEOCODE, null, began, RequestTrace.outcome(result));
+        return result;
+    }
+
+    private double[] lookup(String address) {
+        GazetteerGeocoder.Match local = gazetteer.lookup(address);
+        if (local != null && local.confidence() >= minConfidence) {
+            RequestTrace.cache("gazetteer");
+            return new double[]{local.lat(), local.lng()};
+        }
+
+        return sharedRouteCache.geocode(SharedRouteCache.geocodeKey(address), () -> fetchGeocode(address));
+    }
 
-        Mono<String> mono = webClient.get()
-                .uri(url)
-                .retrieve()
-                .bodyToMono(String.class);
+    private double[] fetchGeocode(String address) {
+        String encoded = address.trim().replace(" ", "+");
+        String url = googleApiClient.url(GEOCODE_PATH) + "?address=" + encoded + "&key=" + googleApiKey;
 
         String body;
         try {
-            body = mono.block();
+            body = googleApiClient.get(url, "geocode");
         } catch (Exception e) {
             return null;
         }
 
+        return parseGeocode(body);
+    }
+
+    /**
+     * Parses a raw Geocoding JSON response. Returns [lat, lng] of the first result or null.
+     */
+    public double[] parseGeocode(String body) {
         if (body == null || body.isEmpty()) return null;
 
         JSONObject root = new JSONObject(body);
@@ -0,0 +1,114 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.archive.ResponseArchive;
+import com.delhight.backend.utils.Deadline;
+import com.delhight.backend.utils.DeadlineExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shared blocking HTTP GET for the Google APIs.
+ *
+ * Every call is bounded: by delhight.google.timeoutMillis, and by whatever is left of the
+ * request deadline bound to the calling thread (Deadline.current()). A call that would
+ * start after the deadline is not made at all. Both cases throw; callers already treat
+ * any exception as "no result".
+ *
+ * Latency and failures of every call are reported to the DegradationController.
+ *
+ * With the ResponseArchive enabled, get() answers from the archive when it holds a fresh
+ * response for the same request, and archives every response it fetches.
+ */
+@Component
+public class GoogleApiClient {
+
+    private final WebClient webClient;
+    private final DeadlineMetrics deadlineMetrics;
+    private final DegradationController degradationController;
+    private final ResponseArchive responseArchive;
+
+    @Value("${delhight.google.timeoutMillis:10000}")
+    private long timeoutMillis;
+
+    // scheme + host of the Google APIs; point it at a local FakeGoogleServer for load tests
+    @Value("${delhight.google.baseUrl:https://maps.googleapis.com}")
+    private String baseUrl;
+
+    public GoogleApiClient(WebClient.Builder builder, DeadlineMetrics deadlineMetrics,
+                           DegradationController degradationController, ResponseArchive responseArchive) {
+        this.webClient = builder.build();
+        this.deadlineMetrics = deadlineMetrics;
+        this.degradationController = degradationController;
+        this.responseArchive = responseArchive;
+    }
+
+    /** Absolute URL of a Google API path such as "/maps/api/geocode/json". */
+    public String url(String path) {
+        return (baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl) + path;
+    }
+
+    /** GET url and return the body, within the time budget of this thread. */
+    public String get(String url, String stage) {
+        String archived = responseArchive.get(url);
+        if (archived != null) return archived;
+        String body = block(request(url), stage);
+        responseArchive.put(url, stage, body);
+        return body;
+    }
+
+    /** Archives a response fetched with request()/block() (those calls are not archived). */
+    public void archive(String url, String stage, String body) {
+        responseArchive.put(url, stage, body);
+    }
+
+    /** The (cold) request, for callers that compose it further before blocking. */
+    public Mono<String> request(String url) {
+        return webClient.get().uri(url).retrieve().bodyToMono(String.class);
+    }
+
+    /**
+     * Blocks on a request for at most the remaining budget. Timing out cancels the
+     * exchange.
+     */
+    public String block(Mono<String> request, String stage) {
+        Duration budget = budget(stage);
+        long start = System.nanoTime();
+        try {
+            String body = request.timeout(budget).block();
+            degradationController.recordUpstreamCall(System.nanoTime() - start, false);
+            return body;
+        } catch (RuntimeException ex) {
+            if (Exceptions.unwrap(ex) instanceof TimeoutException) {
+                // cut short by our own deadline: says nothing about upstream health
+                if (Deadline.currentExpired()) {
+                    deadlineMetrics.deadlineExpired(stage);
+                    throw new DeadlineExceededException(stage);
+                }
+                deadlineMetrics.upstreamTimeout(stage);
+            }
+            degradationController.recordUpstreamCall(System.nanoTime() - start, true);
+            throw ex;
+        }
+    }
+
+    /**
+     * Time this call may take: the upstream timeout, capped by the request deadline.
+     */
+    public Duration budget(String stage) {
+        Duration budget = Duration.ofMillis(timeoutMillis);
+        Deadline deadline = Deadline.current();
+        if (deadline == null) return budget;
+        if (deadline.isExpired()) {
+            deadlineMetrics.deadlineExpired(stage);
+            throw new DeadlineExceededException(stage);
+        }
+        Duration remaining = deadline.remaining();
+        return remaining.compareTo(budget) < 0 ? remaining : budget;
+    }
+}
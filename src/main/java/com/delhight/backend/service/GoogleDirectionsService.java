@@ -1,13 +1,12 @@
 package com.delhight.backend.service;
 
 import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.model.TransitCatalog;
 import com.delhight.backend.model.TransitSegment;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,8 +15,9 @@ import java.util.stream.IntStream;
 /**
  * Google Directions implementation.
  *
- * - Calls the Google Directions HTTP API using WebClient.
+ * - Calls the Google Directions HTTP API through GoogleApiClient (bounded by the request deadline).
  * - Parses the first route and returns a RouteLeg with detailed transit extraction.
+ * - Legs are shared between nodes through SharedRouteCache (pass-through unless enabled).
  *
  * Notes:
  * - Defensive parsing: fields are optional; code uses optXXX before reading values.
@@ -27,15 +27,17 @@ import java.util.stream.IntStream;
 @Service
 public class GoogleDirectionsService implements DirectionsService {
 
-    private final WebClient webClient;
+    private final GoogleApiClient googleApiClient;
+    private final SharedRouteCache sharedRouteCache;
 
     @Value("${google.api.key:}")
     private String googleApiKey;
 
-    private static final String DIRECTIONS_URL = "https://maps.googleapis.com/maps/api/directions/json";
+    private static final String DIRECTIONS_PATH = "/maps/api/directions/json";
 
-    public GoogleDirectionsService(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder.build();
+    public GoogleDirectionsService(GoogleApiClient googleApiClient, SharedRouteCache sharedRouteCache) {
+        this.googleApiClient = googleApiClient;
+        this.sharedRouteCache = sharedRouteCache;
     }
 
     @Override
@@ -43,11 +45,25 @@ public class GoogleDirectionsService implements DirectionsService {
                                 double toLat, double toLng,
                                 String mode, long departureTime,
                                 String fromName, String toName) {
+        if ("transit".equalsIgnoreCase(mode)) {
+            // transit legs run station to station: keep their names in the shared catalog
+            TransitCatalog.shared().internStation(fromName);
+            TransitCatalog.shared().internStation(toName);
+        }
+        String key = SharedRouteCache.legKey(fromLat, fromLng, toLat, toLng, mode, departureTime, fromName, toName);
+        return sharedRouteCache.leg(key, () -> fetchRouteLeg(fromLat, fromLng, toLat, toLng,
+                mode, departureTime, fromName, toName));
+    }
+
+    private RouteLeg fetchRouteLeg(double fromLat, double fromLng,
+                                   double toLat, double toLng,
+                                   String mode, long departureTime,
+                                   String fromName, String toName) {
 
         String origin = fromLat + "," + fromLng;
         String destination = toLat + "," + toLng;
 
-        String url = DIRECTIONS_URL +
+        String url = googleApiClient.url(DIRECTIONS_PATH) +
                 "?origin=" + origin +
                 "&destination=" + destination +
                 "&mode=" + mode +
@@ -60,19 +76,23 @@ public class GoogleDirectionsService implements DirectionsService {
             url += "&departure_time=" + departureTime;
         }
 
-        Mono<String> mono = webClient.get()
-                .uri(url)
-                .retrieve()
-                .bodyToMono(String.class);
-
         String body;
         try {
-            body = mono.block();
+            body = googleApiClient.get(url, "directions." + mode);
         } catch (Exception ex) {
             // If request failed, return null to let caller decide
             return null;
         }
 
+        return parseRouteLeg(body, mode, fromName != null ? fromName : origin,
+                toName != null ? toName : destination);
+    }
+
+    /**
+     * Parses a raw Directions JSON response into a RouteLeg (null if the response has no usable route).
+     * Separate from the HTTP call so recorded responses can be replayed (warm-up, fixtures).
+     */
+    public RouteLeg parseRouteLeg(String body, String mode, String fromName, String toName) {
         if (body == null || body.isEmpty()) return null;
 
         JSONObject root = new JSONObject(body);
@@ -121,8 +141,8 @@ public class GoogleDirectionsService implements DirectionsService {
 
         RouteLeg leg = new RouteLeg();
         leg.setMode(mode);
-        leg.setFromName(fromName != null ? fromName : origin);
-        leg.setToName(toName != null ? toName : destination);
+        leg.setFromName(fromName);
+        leg.setToName(toName);
         leg.setPolyline(overviewPolyline);
         leg.setDistanceMeters(distanceMeters);
         leg.setDurationSeconds(durationSeconds);
@@ -167,36 +187,38 @@ public class GoogleDirectionsService implements DirectionsService {
 
                         // line object
                         JSONObject line = transit.optJSONObject("line");
+                        List<String> stopIds = new ArrayList<>();
                         if (line != null) {
-                            seg.setLineName(line.optString("name", null));
-                            seg.setLineShortName(line.optString("short_name", null));
-
-                            // trip short name (if available)
-                            seg.setTripShortName(line.optString("trip_short_name", null));
-
                             // vehicle type
                             JSONObject vehicle = line.optJSONObject("vehicle");
-                            if (vehicle != null) seg.setVehicle(vehicle.optString("type", null));
 
                             // agency
+                            String agencyName = null;
                             JSONArray agencies = line.optJSONArray("agencies");
                             if (agencies != null && agencies.length() > 0) {
                                 JSONObject agency = agencies.getJSONObject(0);
-                                seg.setAgencyName(agency.optString("name", null));
+                                agencyName = agency.optString("name", null);
                             }
 
+                            // interned once in the shared catalog
+                            seg.setLine(line.optString("name", null),
+                                    line.optString("short_name", null),
+                                    vehicle != null ? vehicle.optString("type", null) : null,
+                                    agencyName);
+
+                            // trip short name (if available)
+                            seg.setTripShortName(line.optString("trip_short_name", null));
+
                             // sometimes line contains an internal stops[] array
                             JSONArray internalStops = line.optJSONArray("stops");
                             if (internalStops != null) {
                                 List<String> stopNames = new ArrayList<>();
-                                List<String> stopIds = new ArrayList<>();
                                 IntStream.range(0, internalStops.length()).forEach(j -> {
                                     JSONObject s = internalStops.getJSONObject(j);
                                     stopNames.add(s.optString("name", null));
                                     if (s.has("stop_id")) stopIds.add(s.optString("stop_id", null));
                                 });
                                 seg.setStops(stopNames);
-                                seg.setStopIds(stopIds);
                             }
                         }
 
@@ -204,8 +226,9 @@ public class GoogleDirectionsService implements DirectionsService {
                         if (depStop != null && depStop.has("stop_id")) {
                             // some providers put platform/stop id here
                             String stopId = depStop.optString("stop_id", null);
-                            if (stopId != null) seg.getStopIds().add(0, stopId);
+                            if (stopId != null) stopIds.add(0, stopId);
                         }
+                        seg.setStopIds(stopIds);
                         // step-level polyline (the transit step may have its own polyline)
                         JSONObject stepPolyline = step.optJSONObject("polyline");
                         if (stepPolyline != null) seg.setRawPolyline(stepPolyline.optString("points", null));
@@ -15,6 +15,9 @@ public class GooglePlacesService {
     @Value("${google.api.key}")
     private String apiKey;
 
+    @Value("${delhight.google.baseUrl:https://maps.googleapis.com}")
+    private String baseUrl;
+
     private final RestTemplate restTemplate = new RestTemplate();
 
     /**
@@ -24,7 +27,7 @@ public class GooglePlacesService {
     public List<Station> findNearestStations(double lat, double lng, int limit) {
 
         String url =
-                "https://maps.googleapis.com/maps/api/place/nearbysearch/json"
+                baseUrl + "/maps/api/place/nearbysearch/json"
                         + "?location=" + lat + "," + lng
                         + "&radius=5000"
                         + "&type=subway_station"
@@ -0,0 +1,63 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.utils.HeavyHitters;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the most requested trips in fixed memory (count-min sketch + top-k heap):
+ *
+ * - trips: snapped origin/destination + departure bucket of every /routes request
+ *   (recorded by RouteResultCache, so cache hits count too)
+ * - station pairs: source/destination station of every variant computed live by
+ *   RouteComputationService
+ *
+ * Counts are halved every delhight.hotTrips.decayMinutes, so the lists follow the
+ * current demand rather than all-time totals.
+ */
+@Service
+public class HotTripTracker {
+
+    private final HeavyHitters<RouteResultCache.TripKey> trips;
+    private final HeavyHitters<String> stationPairs;
+
+    public HotTripTracker(@Value("${delhight.hotTrips.k:100}") int k,
+                          @Value("${delhight.hotTrips.sketchWidth:4096}") int width,
+                          @Value("${delhight.hotTrips.sketchDepth:4}") int depth) {
+        this.trips = new HeavyHitters<>(k, width, depth);
+        this.stationPairs = new HeavyHitters<>(k, width, depth);
+    }
+
+    public void recordTrip(RouteResultCache.TripKey trip) {
+        trips.record(trip);
+    }
+
+    public void recordStationPair(String fromStation, String toStation) {
+        stationPairs.record(fromStation + " → " + toStation);
+    }
+
+    /** Hottest trips first. */
+    public List<HeavyHitters.Counted<RouteResultCache.TripKey>> hotTrips() {
+        return trips.top();
+    }
+
+    /** Hottest station pairs first. */
+    public List<HeavyHitters.Counted<String>> hotStationPairs() {
+        return stationPairs.top();
+    }
+
+    public long totalTrips() {
+        return trips.total();
+    }
+
+    @Scheduled(fixedDelayString = "${delhight.hotTrips.decayMinutes:30}",
+            initialDelayString = "${delhight.hotTrips.decayMinutes:30}", timeUnit = TimeUnit.MINUTES)
+    public void decay() {
+        trips.decay();
+        stationPairs.decay();
+    }
+}
@@ -0,0 +1,291 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.Isochrone;
+import com.delhight.backend.model.MetroNetwork;
+import com.delhight.backend.model.MetroTravelTimes;
+import com.delhight.backend.utils.DistanceUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * "How far can I get in N minutes": the area reachable from a point by walking, or by
+ * walking to a metro station, riding and walking on from the station left, within a budget.
+ *
+ * Computed locally, without Google:
+ * - metro: MetroTravelTimes (station x station ride times incl. dwell and transfers),
+ *   computed once per network
+ * - access: walk to every station within maxAccessMeters (straight line x walkDetour at
+ *   walkSpeedKmh), plus boardWaitSeconds for the first train; one pass over the table from
+ *   these seeds gives the arrival time at every station (plus stationExitSeconds)
+ * - egress: from every station reached (and from the origin itself) the passenger walks
+ *   for the rest of the budget; the circles are rasterised into a grid of cellMeters cells
+ *   holding the earliest arrival per cell
+ *
+ * Results are cached per origin snapped to snapMeters and budget (they depend on nothing
+ * else), and dropped when the metro network changes.
+ *
+ * Needs the full network: on the bundled sample it would draw most of the city as
+ * unreachable, so it refuses unless delhight.isochrone.allowSampleNetwork is set (dev only).
+ */
+@Service
+public class IsochroneService {
+
+    private static final Logger log = LoggerFactory.getLogger(IsochroneService.class);
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private final MetroNetworkService metroNetworkService;
+
+    @Value("${delhight.isochrone.metroSpeedKmh:33}")
+    private double metroSpeedKmh;
+
+    @Value("${delhight.isochrone.dwellSeconds:25}")
+    private double dwellSeconds;
+
+    @Value("${delhight.isochrone.transferSeconds:240}")
+    private double transferSeconds;
+
+    // about half the headway
+    @Value("${delhight.isochrone.boardWaitSeconds:180}")
+    private double boardWaitSeconds;
+
+    @Value("${delhight.isochrone.stationExitSeconds:60}")
+    private double stationExitSeconds;
+
+    @Value("${delhight.isochrone.walkSpeedKmh:4.5}")
+    private double walkSpeedKmh;
+
+    // street distance / straight-line distance
+    @Value("${delhight.isochrone.walkDetour:1.3}")
+    private double walkDetour;
+
+    @Value("${delhight.isochrone.maxAccessMeters:2000}")
+    private double maxAccessMeters;
+
+    @Value("${delhight.isochrone.cellMeters:200}")
+    private double cellMeters;
+
+    // larger areas get coarser cells
+    @Value("${delhight.isochrone.maxCells:250000}")
+    private int maxCells;
+
+    @Value("${delhight.isochrone.snapMeters:150}")
+    private double snapMeters;
+
+    @Value("${delhight.isochrone.maxMinutes:120}")
+    private int maxMinutes;
+
+    @Value("${delhight.isochrone.cacheEntries:512}")
+    private int cacheEntries;
+
+    @Value("${delhight.isochrone.cacheTtlSeconds:3600}")
+    private long cacheTtlSeconds;
+
+    @Value("${delhight.isochrone.allowSampleNetwork:false}")
+    private boolean allowSampleNetwork;
+
+    private record Times(MetroNetwork network, MetroTravelTimes table) {}
+
+    private volatile Times times;
+
+    private record Key(long cell, int minutes) {}
+
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Isochrone> cache = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong computeNanos = new AtomicLong();
+
+    public IsochroneService(MetroNetworkService metroNetworkService) {
+        this.metroNetworkService = metroNetworkService;
+    }
+
+    public int getMaxMinutes() {
+        return maxMinutes;
+    }
+
+    /** False while only the sample network is loaded (and it is not explicitly allowed). */
+    public boolean isAvailable() {
+        return allowSampleNetwork || !metroNetworkService.isSample();
+    }
+
+    /**
+     * Reachable area from (lat, lng) within minutes (1..maxMinutes). The origin is snapped
+     * to the centre of its snapMeters cell, so nearby origins share one result.
+     *
+     * @throws IllegalStateException if !isAvailable()
+     */
+    public Isochrone isochrone(double lat, double lng, int minutes) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("Isochrones need the full metro network; only the sample is loaded");
+        }
+        if (minutes < 1 || minutes > maxMinutes) {
+            throw new IllegalArgumentException("minutes must be between 1 and " + maxMinutes);
+        }
+        double size = snapMeters / METERS_PER_DEGREE;
+        long row = (long) Math.floor(lat / size);
+        long col = (long) Math.floor(lng / size);
+        Key key = new Key((row << 32) ^ (col & 0xffffffffL), minutes);
+
+        MetroNetwork net = metroNetworkService.getNetwork();
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Isochrone cached = cache.get(key);
+            if (cached != null && cached.getNetwork() == net
+                    && now - cached.getComputedAtMillis() < cacheTtlSeconds * 1000) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        Isochrone result = compute((row + 0.5) * size, (col + 0.5) * size, minutes, net, now);
+        computeNanos.addAndGet(System.nanoTime() - start);
+
+        synchronized (cache) {
+            cache.put(key, result);
+            Iterator<Isochrone> it = cache.values().iterator();
+            while (cache.size() > cacheEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return result;
+    }
+
+    private Isochrone compute(double oLat, double oLng, int minutes, MetroNetwork net, long now) {
+        MetroTravelTimes table = travelTimes(net);
+        int n = net.size();
+        float budget = minutes * 60f;
+        double secondsPerMeter = walkDetour / (walkSpeedKmh / 3.6);
+
+        // one-to-many: best arrival (out of the station) over all stations walked to
+        float[] arrive = new float[n];
+        Arrays.fill(arrive, Float.POSITIVE_INFINITY);
+        for (int s = 0; s < n; s++) {
+            double meters = DistanceUtils.haversine(oLat, oLng, net.getLat(s), net.getLng(s));
+            if (meters > maxAccessMeters) continue;
+            float boarded = (float) (meters * secondsPerMeter + boardWaitSeconds);
+            if (boarded >= budget) continue;
+            for (int t = 0; t < n; t++) {
+                float at = boarded + table.seconds(s, t) + (float) stationExitSeconds;
+                if (at < arrive[t]) arrive[t] = at;
+            }
+        }
+
+        // walking circles: the origin itself, then every station reached in time
+        int reached = 0;
+        for (float a : arrive) if (a < budget) reached++;
+        double[] cLat = new double[reached + 1];
+        double[] cLng = new double[reached + 1];
+        float[] cStart = new float[reached + 1];
+        int[] stations = new int[reached];
+        cLat[0] = oLat;
+        cLng[0] = oLng;
+        int k = 1;
+        for (int s = 0; s < n; s++) {
+            if (arrive[s] >= budget) continue;
+            stations[k - 1] = s;
+            cLat[k] = net.getLat(s);
+            cLng[k] = net.getLng(s);
+            cStart[k] = arrive[s];
+            k++;
+        }
+
+        // grid over the circles' bounding box
+        double cos = Math.cos(Math.toRadians(oLat));
+        double south = Double.MAX_VALUE, north = -Double.MAX_VALUE, west = Double.MAX_VALUE, east = -Double.MAX_VALUE;
+        for (int c = 0; c < cLat.length; c++) {
+            double radius = (budget - cStart[c]) / secondsPerMeter;
+            double dLat = radius / METERS_PER_DEGREE;
+            double dLng = radius / (METERS_PER_DEGREE * cos);
+            south = Math.min(south, cLat[c] - dLat);
+            north = Math.max(north, cLat[c] + dLat);
+            west = Math.min(west, cLng[c] - dLng);
+            east = Math.max(east, cLng[c] + dLng);
+        }
+        double cell = cellMeters;
+        double areaCells = (north - south) * METERS_PER_DEGREE * (east - west) * METERS_PER_DEGREE * cos
+                / (cell * cell);
+        if (areaCells > maxCells) cell *= Math.sqrt(areaCells / maxCells);
+        double cellLat = cell / METERS_PER_DEGREE;
+        double cellLng = cell / (METERS_PER_DEGREE * cos);
+        int rows = Math.max(1, (int) Math.ceil((north - south) / cellLat));
+        int cols = Math.max(1, (int) Math.ceil((east - west) / cellLng));
+
+        float[] grid = new float[rows * cols];
+        Arrays.fill(grid, Float.POSITIVE_INFINITY);
+        for (int c = 0; c < cLat.length; c++) {
+            double radius = (budget - cStart[c]) / secondsPerMeter;
+            int r0 = Math.max(0, (int) ((cLat[c] - radius / METERS_PER_DEGREE - south) / cellLat));
+            int r1 = Math.min(rows - 1, (int) ((cLat[c] + radius / METERS_PER_DEGREE - south) / cellLat));
+            int c0 = Math.max(0, (int) ((cLng[c] - radius / (METERS_PER_DEGREE * cos) - west) / cellLng));
+            int c1 = Math.min(cols - 1, (int) ((cLng[c] + radius / (METERS_PER_DEGREE * cos) - west) / cellLng));
+            for (int r = r0; r <= r1; r++) {
+                double dy = (south + (r + 0.5) * cellLat - cLat[c]) * METERS_PER_DEGREE;
+                for (int q = c0; q <= c1; q++) {
+                    double dx = (west + (q + 0.5) * cellLng - cLng[c]) * METERS_PER_DEGREE * cos;
+                    float t = cStart[c] + (float) (Math.sqrt(dx * dx + dy * dy) * secondsPerMeter);
+                    if (t <= budget && t < grid[r * cols + q]) grid[r * cols + q] = t;
+                }
+            }
+        }
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = Float.isInfinite(grid[i]) ? Float.NaN : grid[i] / 60f;
+        }
+
+        // stations in the order they are reached
+        Integer[] order = new Integer[reached];
+        for (int i = 0; i < reached; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Float.compare(arrive[stations[a]], arrive[stations[b]]));
+        int[] sortedStations = new int[reached];
+        float[] stationMinutes = new float[reached];
+        for (int i = 0; i < reached; i++) {
+            sortedStations[i] = stations[order[i]];
+            stationMinutes[i] = arrive[sortedStations[i]] / 60f;
+        }
+
+        return new Isochrone(oLat, oLng, minutes, south, west, cellLat, cellLng, rows, cols, grid,
+                sortedStations, stationMinutes, net, now);
+    }
+
+    private MetroTravelTimes travelTimes(MetroNetwork net) {
+        Times current = times;
+        if (current != null && current.network() == net) return current.table();
+        synchronized (this) {
+            current = times;
+            if (current != null && current.network() == net) return current.table();
+            long start = System.nanoTime();
+            MetroTravelTimes table = MetroTravelTimes.compute(net, metroSpeedKmh, dwellSeconds, transferSeconds);
+            times = new Times(net, table);
+            log.info("Isochrone: metro travel times for {} stations computed in {} ms",
+                    net.size(), (System.nanoTime() - start) / 1_000_000);
+            return table;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (cache) {
+            out.put("entries", cache.size());
+        }
+        out.put("maxEntries", cacheEntries);
+        out.put("hits", hits.get());
+        out.put("misses", misses.get());
+        long computed = misses.get();
+        out.put("avgComputeMillis", computed == 0 ? 0 : Math.round(computeNanos.get() / 1e4 / computed) / 100.0);
+        Times current = times;
+        out.put("stations", current != null ? current.table().size() : 0);
+        return out;
+    }
+}
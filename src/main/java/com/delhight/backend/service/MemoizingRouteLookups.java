@@ -0,0 +1,125 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.model.RouteLeg;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * RouteLookups that dedupes identical geocodes, station searches and legs across
+ * many route computations (e.g. one batch request).
+ *
+ * - Concurrent callers asking for the same key wait for the first caller's result
+ *   instead of issuing a second upstream request.
+ * - Failed lookups (null results) are memoized too: they would fail again.
+ * - Instances are meant to be short-lived. Geocodes and station searches are never
+ *   evicted; legs (the bulk of the memory) can be capped with maxLegs, in which case the
+ *   least recently used leg is dropped first.
+ */
+public class MemoizingRouteLookups implements RouteLookups {
+
+    private final GeocodingService geocodingService;
+    private final RouteLookups upstream;
+
+    private final Map<String, CompletableFuture<double[]>> geocodes = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<NearbyStation>>> stations = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<RouteLeg>> legs;
+
+    private final AtomicInteger fetchedLegs = new AtomicInteger();
+
+    public MemoizingRouteLookups(GeocodingService geocodingService,
+                                 NearestStationsService nearestStationsService,
+                                 DirectionsService directionsService) {
+        this(geocodingService, RouteLookups.direct(nearestStationsService, directionsService));
+    }
+
+    /**
+     * @param upstream lookups used on a miss (e.g. a throttled wrapper)
+     */
+    public MemoizingRouteLookups(GeocodingService geocodingService, RouteLookups upstream) {
+        this(geocodingService, upstream, 0);
+    }
+
+    /**
+     * @param upstream lookups used on a miss (e.g. a throttled wrapper)
+     * @param maxLegs  legs kept at most, least recently used dropped first (0 = no limit)
+     */
+    public MemoizingRouteLookups(GeocodingService geocodingService, RouteLookups upstream, int maxLegs) {
+        this.geocodingService = geocodingService;
+        this.upstream = upstream;
+        if (maxLegs > 0) {
+            // access-ordered; synchronizedMap makes putIfAbsent / remove(k, v) atomic
+            this.legs = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<RouteLeg>> eldest) {
+                    return size() > maxLegs;
+                }
+            });
+        } else {
+            this.legs = new ConcurrentHashMap<>();
+        }
+    }
+
+    public double[] geocodeAddress(String address) {
+        if (address == null || address.isBlank()) return null;
+        String key = address.trim().toLowerCase().replaceAll("\\s+", " ");
+        return memoize(geocodes, key, () -> geocodingService.geocodeAddress(address));
+    }
+
+    @Override
+    public List<NearbyStation> findNearestStations(double lat, double lng, int top) {
+        String key = lat + "," + lng + "#" + top;
+        return memoize(stations, key, () -> upstream.findNearestStations(lat, lng, top));
+    }
+
+    @Override
+    public RouteLeg getRouteLeg(double fromLat, double fromLng, double toLat, double toLng,
+                                String mode, long departureTime, String fromName, String toName) {
+        // names are part of the key because they end up inside the returned leg
+        String key = fromLat + "," + fromLng + ">" + toLat + "," + toLng
+                + "|" + mode + "|" + departureTime + "|" + fromName + "|" + toName;
+        return memoize(legs, key, () -> {
+            fetchedLegs.incrementAndGet();
+            return upstream.getRouteLeg(fromLat, fromLng, toLat, toLng, mode, departureTime, fromName, toName);
+        });
+    }
+
+    @Override
+    public boolean isLive() {
+        return upstream.isLive();
+    }
+
+    public int uniqueGeocodes() { return geocodes.size(); }
+
+    public int uniqueStationLookups() { return stations.size(); }
+
+    public int uniqueLegs() { return legs.size(); }
+
+    /** Legs loaded from upstream, counting ones loaded again after eviction. */
+    public int fetchedLegs() { return fetchedLegs.get(); }
+
+    // Single-flight: first caller loads, everyone else joins its future
+    private static <T> T memoize(Map<String, CompletableFuture<T>> map, String key, Supplier<T> loader) {
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> existing = map.putIfAbsent(key, mine);
+        if (existing != null) return existing.join();
+
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException ex) {
+            // don't poison the key: let a later caller retry
+            map.remove(key, mine);
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+}
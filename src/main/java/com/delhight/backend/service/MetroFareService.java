@@ -0,0 +1,86 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.FareRules;
+import com.delhight.backend.model.FareTable;
+import com.delhight.backend.model.MetroNetwork;
+import com.delhight.backend.model.NearbyStation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Local metro fare engine.
+ *
+ * Fares come from the station x station FareTable attached to the current MetroNetwork
+ * (computed at load time, or mapped from a snapshot), so a fare lookup is a single read:
+ *
+ *   fare[tariff][from][to]
+ *
+ * Tariffs: token, smart card (peak), smart card (off-peak). Station indexes are resolved
+ * against the same network instance the table belongs to, so a snapshot swap in the
+ * middle of a lookup cannot mix the two.
+ *
+ * Route pricing only uses these fares over Google's when delhight.fare.localFares is on
+ * and a full network is loaded: the bundled sample's fares are not authoritative.
+ */
+@Service
+public class MetroFareService {
+
+    public static final int TARIFF_TOKEN = FareTable.TARIFF_TOKEN;
+    public static final int TARIFF_CARD_PEAK = FareTable.TARIFF_CARD_PEAK;
+    public static final int TARIFF_CARD_OFF_PEAK = FareTable.TARIFF_CARD_OFF_PEAK;
+
+    private final MetroNetworkService metroNetworkService;
+
+    // price journeys as smart-card journeys (most commuters) or as tokens
+    @Value("${delhight.fare.smartCard:true}")
+    private boolean smartCard;
+
+    @Value("${delhight.fare.localFares:false}")
+    private boolean localFares;
+
+    public MetroFareService(MetroNetworkService metroNetworkService) {
+        this.metroNetworkService = metroNetworkService;
+    }
+
+    /**
+     * Fare in Rs between two Google stations, or -1 if either station is not in the
+     * local catalog, the pair is not connected, or local fares are off (see class doc).
+     */
+    public double fareRs(NearbyStation from, NearbyStation to, long departureEpochSeconds) {
+        if (!localFares || metroNetworkService.isSample()) return -1;
+        MetroNetwork net = metroNetworkService.getNetwork();
+        int a = metroNetworkService.resolveStation(net, from);
+        int b = metroNetworkService.resolveStation(net, to);
+        if (a < 0 || b < 0) return -1;
+        return fareRs(net, a, b, departureEpochSeconds);
+    }
+
+    /**
+     * Fare in Rs between two canonical station indexes, or -1 if not connected.
+     */
+    public double fareRs(int from, int to, long departureEpochSeconds) {
+        return fareRs(metroNetworkService.getNetwork(), from, to, departureEpochSeconds);
+    }
+
+    private double fareRs(MetroNetwork net, int from, int to, long departureEpochSeconds) {
+        int tariff = smartCard
+                ? (isPeak(net.getFareRules(), departureEpochSeconds) ? TARIFF_CARD_PEAK : TARIFF_CARD_OFF_PEAK)
+                : TARIFF_TOKEN;
+        int paise = net.getFareTable().farePaise(tariff, from, to);
+        return paise < 0 ? -1 : paise / 100.0;
+    }
+
+    /** Shortest track distance in km between two station indexes (+Infinity if not connected). */
+    public double networkKm(int from, int to) {
+        return metroNetworkService.getNetwork().getFareTable().km(from, to);
+    }
+
+    private static boolean isPeak(FareRules rules, long departureEpochSeconds) {
+        long epoch = departureEpochSeconds > 0 ? departureEpochSeconds : System.currentTimeMillis() / 1000;
+        int hour = Instant.ofEpochSecond(epoch).atZone(ZoneId.of(rules.getTimeZone())).getHour();
+        return rules.isPeakHour(hour);
+    }
+}
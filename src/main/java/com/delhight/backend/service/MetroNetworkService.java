@@ -0,0 +1,369 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.FareRules;
+import com.delhight.backend.model.FareTable;
+import com.delhight.backend.model.MetroNetwork;
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.snapshot.Snapshot;
+import com.delhight.backend.snapshot.SnapshotService;
+import com.delhight.backend.snapshot.SnapshotConsumer;
+import com.delhight.backend.snapshot.SnapshotWriter;
+import com.delhight.backend.utils.DistanceUtils;
+import jakarta.annotation.PostConstruct;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the local metro network (station catalog, track links, fare table) and maps
+ * Google stations onto canonical station ids.
+ *
+ * File format: see classpath:data/metro-network.json. Links are given per line as an
+ * ordered station list; per-link km are optional (straight line x detourFactor otherwise).
+ *
+ * If the current snapshot (delhight.snapshot.file) has the metro.* sections, the network and
+ * its fare table are read from it instead, zero-copy, and re-read whenever it is swapped.
+ *
+ * The bundled classpath:data/metro-network.json is a small sample marked "sample": true
+ * (carried into snapshots as metro.sample). It is a fixture: features that would give
+ * wrong answers on a partial network (local fares, isochrones) check isSample().
+ */
+@Service
+public class MetroNetworkService implements SnapshotConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(MetroNetworkService.class);
+
+    private final ResourceLoader resourceLoader;
+    private final SnapshotService snapshotService;
+
+    @Value("${delhight.metro.networkFile:classpath:data/metro-network.json}")
+    private String networkFile;
+
+    // Google station -> canonical station, accepted if within this distance
+    @Value("${delhight.metro.matchRadiusMeters:400}")
+    private double matchRadiusMeters;
+
+    // network + its resolution cache, swapped as one
+    private volatile Catalog catalog;
+
+    private record Catalog(MetroNetwork network, boolean sample, Map<String, Integer> resolved) {
+        Catalog(MetroNetwork network, boolean sample) {
+            // placeId / name -> station index (or -1); Google stations repeat constantly
+            this(network, sample, new ConcurrentHashMap<>());
+        }
+    }
+
+    public MetroNetworkService(ResourceLoader resourceLoader, SnapshotService snapshotService) {
+        this.resourceLoader = resourceLoader;
+        this.snapshotService = snapshotService;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        Snapshot snapshot = snapshotService.current();
+        Runnable fromSnapshot = snapshot != null ? prepare(snapshot) : null;
+        if (fromSnapshot != null) {
+            fromSnapshot.run();
+            return;
+        }
+        try (InputStream in = resourceLoader.getResource(networkFile).getInputStream()) {
+            String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            MetroNetwork net = parse(json);
+            catalog = new Catalog(net.withFareTable(FareTable.compute(net)), isSample(json));
+        }
+        if (catalog.sample()) {
+            log.warn("Metro network {} is the {}-station sample (fixture only): local fares and /isochrone "
+                    + "stay off until a full network is configured", networkFile, catalog.network().size());
+        }
+    }
+
+    @Override
+    public Runnable prepare(Snapshot next) {
+        if (!next.has(SECTION_IDS)) return null;
+        MetroNetwork net = readSnapshot(next);
+        validate(net);
+        Catalog c = new Catalog(net, next.has(SECTION_SAMPLE));
+        return () -> catalog = c;
+    }
+
+    public MetroNetwork getNetwork() {
+        return catalog.network();
+    }
+
+    /** True while the loaded network is the sample fixture rather than a full network. */
+    public boolean isSample() {
+        return catalog.sample();
+    }
+
+    /**
+     * Canonical station index for a station returned by Google, or -1 if none matches.
+     * Matches the nearest catalog station within matchRadiusMeters, then falls back to the name.
+     */
+    public int resolveStation(NearbyStation station) {
+        return resolveStation(getNetwork(), station);
+    }
+
+    /**
+     * Same, against a specific network instance (callers that go on to index into that
+     * network's arrays must resolve against the instance they hold).
+     */
+    public int resolveStation(MetroNetwork net, NearbyStation station) {
+        if (station == null) return -1;
+        String key = station.getPlaceId() != null ? station.getPlaceId()
+                : station.getName() + "@" + station.getLat() + "," + station.getLng();
+        Catalog c = catalog;
+        if (c.network() != net) return resolveStation(net, station.getName(), station.getLat(), station.getLng());
+        return c.resolved().computeIfAbsent(key,
+                k -> resolveStation(net, station.getName(), station.getLat(), station.getLng()));
+    }
+
+    public int resolveStation(String name, double lat, double lng) {
+        return resolveStation(getNetwork(), name, lat, lng);
+    }
+
+    private int resolveStation(MetroNetwork net, String name, double lat, double lng) {
+
+        int best = -1;
+        double bestDist = matchRadiusMeters;
+        for (int i = 0; i < net.size(); i++) {
+            double d = DistanceUtils.haversine(lat, lng, net.getLat(i), net.getLng(i));
+            if (d <= bestDist) {
+                bestDist = d;
+                best = i;
+            }
+        }
+        if (best >= 0 || name == null) return best;
+
+        String normalized = normalizeName(name);
+        for (int i = 0; i < net.size(); i++) {
+            if (normalizeName(net.getName(i)).equals(normalized)) return i;
+        }
+        return -1;
+    }
+
+    // "Rajiv Chowk Metro Station" -> "rajivchowk"
+    static String normalizeName(String name) {
+        return name.toLowerCase(Locale.ROOT)
+                .replace("metro station", "")
+                .replace("station", "")
+                .replaceAll("[^a-z0-9]", "");
+    }
+
+    // ----------------------------
+    // Parsing
+    // ----------------------------
+
+    /** Whether a network file is marked "sample": true (a fixture, not a full network). */
+    public static boolean isSample(String json) {
+        return new JSONObject(json).optBoolean("sample", false);
+    }
+
+    public static MetroNetwork parse(String json) {
+        JSONObject root = new JSONObject(json);
+        double detourFactor = root.optDouble("detourFactor", 1.15);
+
+        JSONArray stationsJson = root.getJSONArray("stations");
+        int n = stationsJson.length();
+        String[] ids = new String[n];
+        String[] names = new String[n];
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        Map<String, Integer> indexById = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            JSONObject s = stationsJson.getJSONObject(i);
+            ids[i] = s.getString("id");
+            names[i] = s.optString("name", ids[i]);
+            lat[i] = s.getDouble("lat");
+            lng[i] = s.getDouble("lng");
+            indexById.put(ids[i], i);
+        }
+
+        // collect undirected links per station, then flatten to CSR
+        List<List<float[]>> adjacency = new ArrayList<>();   // {to, km, line}
+        for (int i = 0; i < n; i++) adjacency.add(new ArrayList<>());
+        Map<String, Short> lineIndex = new LinkedHashMap<>();
+
+        JSONArray lines = root.optJSONArray("links");
+        if (lines != null) {
+            for (int l = 0; l < lines.length(); l++) {
+                JSONObject line = lines.getJSONObject(l);
+                String lineName = line.optString("line", "Line " + (l + 1));
+                short li = lineIndex.computeIfAbsent(lineName, k -> (short) lineIndex.size());
+                JSONArray seq = line.getJSONArray("stations");
+                JSONArray kms = line.optJSONArray("km");
+
+                for (int k = 0; k + 1 < seq.length(); k++) {
+                    Integer a = indexById.get(seq.getString(k));
+                    Integer b = indexById.get(seq.getString(k + 1));
+                    if (a == null || b == null) {
+                        throw new IllegalArgumentException("Unknown station in line " + lineName + ": "
+                                + seq.getString(a == null ? k : k + 1));
+                    }
+                    double km = kms != null && k < kms.length()
+                            ? kms.getDouble(k)
+                            : DistanceUtils.haversine(lat[a], lng[a], lat[b], lng[b]) / 1000.0 * detourFactor;
+                    adjacency.get(a).add(new float[]{b, (float) km, li});
+                    adjacency.get(b).add(new float[]{a, (float) km, li});
+                }
+            }
+        }
+
+        int[] linkStart = new int[n + 1];
+        for (int i = 0; i < n; i++) linkStart[i + 1] = linkStart[i] + adjacency.get(i).size();
+        int m = linkStart[n];
+        int[] linkTo = new int[m];
+        float[] linkKm = new float[m];
+        int[] linkLine = new int[m];
+        for (int i = 0; i < n; i++) {
+            int p = linkStart[i];
+            for (float[] link : adjacency.get(i)) {
+                linkTo[p] = (int) link[0];
+                linkKm[p] = link[1];
+                linkLine[p] = (int) link[2];
+                p++;
+            }
+        }
+
+        return new MetroNetwork(ids, names, DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lng),
+                IntBuffer.wrap(linkStart), IntBuffer.wrap(linkTo), FloatBuffer.wrap(linkKm), IntBuffer.wrap(linkLine),
+                lineIndex.keySet().toArray(new String[0]), indexById, parseFareRules(root.optJSONObject("fare")),
+                null);
+    }
+
+    private static FareRules parseFareRules(JSONObject fare) {
+        if (fare == null) {
+            return new FareRules(new double[]{Double.POSITIVE_INFINITY}, new double[]{0.0},
+                    0, 0, "Asia/Kolkata", new int[0][]);
+        }
+
+        JSONArray slabs = fare.getJSONArray("slabs");
+        double[] upTo = new double[slabs.length()];
+        double[] fares = new double[slabs.length()];
+        for (int i = 0; i < slabs.length(); i++) {
+            JSONObject slab = slabs.getJSONObject(i);
+            upTo[i] = slab.optDouble("upToKm", Double.POSITIVE_INFINITY);
+            fares[i] = slab.getDouble("fare");
+        }
+
+        JSONArray peaks = fare.optJSONArray("peakHours");
+        int[][] peakHours = new int[peaks != null ? peaks.length() : 0][];
+        for (int i = 0; i < peakHours.length; i++) {
+            JSONArray range = peaks.getJSONArray(i);
+            peakHours[i] = new int[]{range.getInt(0), range.getInt(1)};
+        }
+
+        return new FareRules(upTo, fares,
+                fare.optDouble("smartCardDiscountPct", 0),
+                fare.optDouble("offPeakExtraDiscountPct", 0),
+                fare.optString("timeZone", "Asia/Kolkata"),
+                peakHours);
+    }
+
+    // ----------------------------
+    // Snapshot sections
+    // ----------------------------
+
+    private static final String SECTION_IDS = "metro.ids";
+    private static final String SECTION_SAMPLE = "metro.sample";
+
+    /**
+     * Adds the network and its fare table to a snapshot being built; sample marks it as the
+     * fixture network.
+     */
+    public static void writeSnapshot(MetroNetwork net, boolean sample, SnapshotWriter out) {
+        FareRules rules = net.getFareRules();
+        int[] peaks = new int[rules.getPeakHours().length * 2];
+        for (int i = 0; i < rules.getPeakHours().length; i++) {
+            peaks[2 * i] = rules.getPeakHours()[i][0];
+            peaks[2 * i + 1] = rules.getPeakHours()[i][1];
+        }
+        FareTable table = net.getFareTable() != null ? net.getFareTable() : FareTable.compute(net);
+
+        out.putStrings(SECTION_IDS, net.getIds())
+                .putStrings("metro.names", net.getNames())
+                .putDoubles("metro.lat", net.getLatBuffer())
+                .putDoubles("metro.lng", net.getLngBuffer())
+                .putInts("metro.linkStart", net.getLinkStartBuffer())
+                .putInts("metro.linkTo", net.getLinkToBuffer())
+                .putFloats("metro.linkKm", net.getLinkKmBuffer())
+                .putInts("metro.linkLine", net.getLinkLineBuffer())
+                .putStrings("metro.lineNames", net.getLineNames())
+                .putDoubles("metro.fare.upToKm", rules.getSlabUpToKm())
+                .putDoubles("metro.fare.rs", rules.getSlabFareRs())
+                .putDoubles("metro.fare.discounts",
+                        new double[]{rules.getSmartCardDiscountPct(), rules.getOffPeakExtraDiscountPct()})
+                .putStrings("metro.fare.timeZone", new String[]{rules.getTimeZone()})
+                .putInts("metro.fare.peakHours", peaks)
+                .putFloats("metro.fareKm", table.getKmBuffer())
+                .putInts("metro.farePaise", table.getFarePaiseBuffer());
+        if (sample) out.putInts(SECTION_SAMPLE, new int[]{1});
+    }
+
+    /**
+     * Network and fare table as views over the snapshot's mapping. Only the small string
+     * catalog (ids, names, lines) and the id index are materialised on the heap.
+     */
+    static MetroNetwork readSnapshot(Snapshot s) {
+        String[] ids = s.strings(SECTION_IDS).toArray();
+        Map<String, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) indexById.put(ids[i], i);
+
+        double[] discounts = toArray(s.doubles("metro.fare.discounts"));
+        IntBuffer peakBuf = s.ints("metro.fare.peakHours");
+        int[][] peaks = new int[peakBuf.limit() / 2][];
+        for (int i = 0; i < peaks.length; i++) peaks[i] = new int[]{peakBuf.get(2 * i), peakBuf.get(2 * i + 1)};
+        FareRules rules = new FareRules(toArray(s.doubles("metro.fare.upToKm")), toArray(s.doubles("metro.fare.rs")),
+                discounts[0], discounts[1], s.strings("metro.fare.timeZone").get(0), peaks);
+
+        return new MetroNetwork(ids, s.strings("metro.names").toArray(),
+                s.doubles("metro.lat"), s.doubles("metro.lng"),
+                s.ints("metro.linkStart"), s.ints("metro.linkTo"), s.floats("metro.linkKm"), s.ints("metro.linkLine"),
+                s.strings("metro.lineNames").toArray(), indexById, rules,
+                new FareTable(ids.length, s.floats("metro.fareKm"), s.ints("metro.farePaise")));
+    }
+
+    // section lengths agree and links point at stations, so a bad file fails the swap, not a request
+    private static void validate(MetroNetwork net) {
+        int n = net.size();
+        try {
+            if (n == 0) throw new IllegalStateException("no stations");
+            net.getName(n - 1);
+            net.getLat(n - 1);
+            net.getLng(n - 1);
+            if (net.getLinkStart(n) != net.getLinkCount()) throw new IllegalStateException("metro.linkStart does not end at the link count");
+            for (int l = 0; l < net.getLinkCount(); l++) {
+                int to = net.getLinkTo(l);
+                if (to < 0 || to >= n) throw new IllegalStateException("link " + l + " points at station " + to);
+                net.getLinkKm(l);
+                net.getLineName(net.getLinkLine(l));
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalStateException("metro sections do not match " + n + " stations (" + e + ")", e);
+        }
+    }
+
+    private static double[] toArray(DoubleBuffer b) {
+        double[] out = new double[b.limit()];
+        b.get(0, out);
+        return out;
+    }
+}
@@ -0,0 +1,62 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.utils.RequestTrace;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * The DirectionsService everyone injects: picks a provider per mode.
+ *
+ * delhight.directions.walking = google (default) | osm
+ *
+ * With "osm", walking legs go to the local OSM router; if it is not configured or cannot
+ * answer (point off the street graph, disconnected component) Google is used instead.
+ * Driving and transit always go to Google.
+ */
+@Primary
+@Service
+public class ModeRoutingDirectionsService implements DirectionsService {
+
+    private final GoogleDirectionsService googleDirectionsService;
+    private final ObjectProvider<OsmWalkingDirectionsService> osmWalkingDirectionsService;
+
+    @Value("${delhight.directions.walking:google}")
+    private String walkingProvider;
+
+    public ModeRoutingDirectionsService(GoogleDirectionsService googleDirectionsService,
+                                        ObjectProvider<OsmWalkingDirectionsService> osmWalkingDirectionsService) {
+        this.googleDirectionsService = googleDirectionsService;
+        this.osmWalkingDirectionsService = osmWalkingDirectionsService;
+    }
+
+    @Override
+    public RouteLeg getRouteLeg(double fromLat, double fromLng,
+                                double toLat, double toLng,
+                                String mode, long departureTime,
+                                String fromName, String toName) {
+        long began = RequestTrace.begin();
+        RouteLeg leg = route(fromLat, fromLng, toLat, toLng, mode, departureTime, fromName, toName);
+        RequestTrace.end(RequestTrace.Stage.LEG, mode, began, RequestTrace.outcome(leg));
+        return leg;
+    }
+
+    private RouteLeg route(double fromLat, double fromLng,
+                           double toLat, double toLng,
+                           String mode, long departureTime,
+                           String fromName, String toName) {
+        if ("walking".equalsIgnoreCase(mode) && "osm".equalsIgnoreCase(walkingProvider)) {
+            OsmWalkingDirectionsService osm = osmWalkingDirectionsService.getIfAvailable();
+            if (osm != null) {
+                RouteLeg leg = osm.getRouteLeg(fromLat, fromLng, toLat, toLng, mode, departureTime, fromName, toName);
+                if (leg != null) {
+                    RequestTrace.cache("osm");
+                    return leg;
+                }
+            }
+        }
+        return googleDirectionsService.getRouteLeg(fromLat, fromLng, toLat, toLng, mode, departureTime, fromName, toName);
+    }
+}
@@ -1,12 +1,12 @@
 package com.delhight.backend.service;
 
 import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.utils.DistanceUtils;
+import com.delhight.backend.utils.RequestTrace;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -18,21 +18,24 @@ import java.util.List;
  * - Calls Google Places Nearby Search with type=subway_station.
  * - Parses geometry.location from results and computes haversine distance.
  * - Returns top N (default 3) closest stations by straight-line distance.
+ * - Results are shared between nodes through SharedRouteCache (pass-through unless enabled).
  *
  * Note: uses straight-line distance (haversine) as requested (Option A).
  */
 @Service
 public class NearestStationsService {
 
-    private final WebClient webClient;
+    private final GoogleApiClient googleApiClient;
+    private final SharedRouteCache sharedRouteCache;
 
     @Value("${google.api.key:}")
     private String googleApiKey;
 
-    private static final String PLACES_NEARBY_URL = "https://maps.googleapis.com/maps/api/place/nearbysearch/json";
+    private static final String PLACES_NEARBY_PATH = "/maps/api/place/nearbysearch/json";
 
-    public NearestStationsService(WebClient.Builder builder) {
-        this.webClient = builder.build();
+    public NearestStationsService(GoogleApiClient googleApiClient, SharedRouteCache sharedRouteCache) {
+        this.googleApiClient = googleApiClient;
+        this.sharedRouteCache = sharedRouteCache;
     }
 
     /**
@@ -43,28 +46,38 @@ public class NearestStationsService {
      * @param top how many results to return (e.g., 3)
      */
     public List<NearbyStation> findNearestStations(double lat, double lng, int top) {
+        long began = RequestTrace.begin();
+        List<NearbyStation> stations = sharedRouteCache.stations(SharedRouteCache.stationsKey(lat, lng, top),
+                () -> fetchNearestStations(lat, lng, top));
+        RequestTrace.end(RequestTrace.Stage.STATIONS, null, began, RequestTrace.outcome(stations));
+        return stations;
+    }
+
+    private List<NearbyStation> fetchNearestStations(double lat, double lng, int top) {
         // radius large enough to cover whole city (we'll rely on sorting); adjust if needed
         int radiusMeters = 15000;
 
         String location = lat + "," + lng;
-        String url = PLACES_NEARBY_URL
+        String url = googleApiClient.url(PLACES_NEARBY_PATH)
                 + "?location=" + location
                 + "&radius=" + radiusMeters
                 + "&type=subway_station"
                 + "&key=" + googleApiKey;
 
-        Mono<String> mono = webClient.get()
-                .uri(url)
-                .retrieve()
-                .bodyToMono(String.class);
-
         String body;
         try {
-            body = mono.block();
+            body = googleApiClient.get(url, "stations");
         } catch (Exception ex) {
             return new ArrayList<>();
         }
 
+        return parseStations(body, lat, lng, top);
+    }
+
+    /**
+     * Parses a raw Places Nearby JSON response into the top N stations closest to lat/lng.
+     */
+    public List<NearbyStation> parseStations(String body, double lat, double lng, int top) {
         if (body == null || body.isEmpty()) return new ArrayList<>();
 
         JSONObject root = new JSONObject(body);
@@ -91,7 +104,7 @@ public class NearestStationsService {
             double slng = loc.optDouble("lng", Double.NaN);
             if (Double.isNaN(slat) || Double.isNaN(slng)) continue;
 
-            double dist = haversineMeters(lat, lng, slat, slng);
+            double dist = DistanceUtils.haversine(lat, lng, slat, slng);
 
             NearbyStation s = new NearbyStation();
             s.setName(name);
@@ -109,16 +122,4 @@ public class NearestStationsService {
         if (stations.size() <= top) return stations;
         return stations.subList(0, top);
     }
-
-    // Haversine formula -> meters
-    private double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371000; // Earth radius in meters
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dLat/2) * Math.sin(dLat/2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLon/2) * Math.sin(dLon/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        return R * c;
-    }
 }
@@ -0,0 +1,251 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.graph.ContractionHierarchy;
+import com.delhight.backend.graph.OsmWalkGraphLoader;
+import com.delhight.backend.graph.WalkGraph;
+import com.delhight.backend.graph.WalkRouter;
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.snapshot.Snapshot;
+import com.delhight.backend.snapshot.SnapshotService;
+import com.delhight.backend.snapshot.SnapshotConsumer;
+import com.delhight.backend.utils.DistanceUtils;
+import com.delhight.backend.utils.PolylineEncoder;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline walking directions over an OpenStreetMap extract.
+ *
+ * - Serves the walk.* sections of the network snapshot (delhight.snapshot.file) when present:
+ *   graph, hierarchy and spatial index are mapped, so startup costs milliseconds.
+ * - Otherwise loads delhight.walking.osmFile (.osm / .osm.gz) into a compact street graph
+ *   and preprocesses it into a contraction hierarchy (minutes for a city extract).
+ * - Origin and destination are snapped to the nearest street node (within maxSnapMeters);
+ *   the straight bits to/from the snapped nodes are added to the distance.
+ * - Steps are generated by grouping consecutive edges by street name.
+ *
+ * Only mode "walking" is answered; anything else (or an unsnappable point) returns null.
+ * Selected for walking legs by ModeRoutingDirectionsService when
+ * delhight.directions.walking=osm.
+ */
+@Service
+@ConditionalOnExpression("'${delhight.walking.osmFile:}' != '' or '${delhight.snapshot.file:}' != ''")
+public class OsmWalkingDirectionsService implements DirectionsService, SnapshotConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(OsmWalkingDirectionsService.class);
+
+    // shorter stretches are folded into the previous step instead of becoming their own
+    private static final double MIN_STEP_METERS = 20;
+
+    private final SnapshotService snapshotService;
+
+    @Value("${delhight.walking.osmFile:}")
+    private String osmFile;
+
+    @Value("${delhight.walking.speedMps:1.25}")
+    private double speedMps;
+
+    @Value("${delhight.walking.maxSnapMeters:300}")
+    private double maxSnapMeters;
+
+    private volatile WalkRouter router;   // null = no walking data, callers fall back
+
+    public OsmWalkingDirectionsService(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        Snapshot snapshot = snapshotService.current();
+        Runnable fromSnapshot = snapshot != null ? prepare(snapshot) : null;
+        if (fromSnapshot != null) {
+            fromSnapshot.run();
+            return;
+        }
+        if (osmFile == null || osmFile.isBlank()) {
+            log.warn("No walk.* sections in the snapshot and no delhight.walking.osmFile; walking stays on Google");
+            return;
+        }
+
+        long t0 = System.nanoTime();
+        WalkGraph graph = OsmWalkGraphLoader.load(Paths.get(osmFile));
+        long t1 = System.nanoTime();
+        WalkRouter built = WalkRouter.build(graph);
+        long t2 = System.nanoTime();
+
+        router = built;
+        log.info("Walking graph from {}: {} nodes, {} edges, {} shortcuts (parsed in {} ms, contracted in {} ms)",
+                osmFile, graph.nodeCount(), graph.edgeCount(), built.getHierarchy().shortcutCount(),
+                TimeUnit.NANOSECONDS.toMillis(t1 - t0), TimeUnit.NANOSECONDS.toMillis(t2 - t1));
+    }
+
+    @Override
+    public Runnable prepare(Snapshot next) {
+        if (!WalkRouter.inSnapshot(next)) return null;
+        WalkRouter mapped = WalkRouter.readSnapshot(next);
+        return () -> {
+            router = mapped;
+            log.info("Walking graph from snapshot {}: {} nodes, {} edges, {} shortcuts", next.getPath(),
+                    mapped.getGraph().nodeCount(), mapped.getGraph().edgeCount(), mapped.getHierarchy().shortcutCount());
+        };
+    }
+
+    public WalkRouter getRouter() {
+        return router;
+    }
+
+    @Override
+    public RouteLeg getRouteLeg(double fromLat, double fromLng,
+                                double toLat, double toLng,
+                                String mode, long departureTime,
+                                String fromName, String toName) {
+        if (!"walking".equalsIgnoreCase(mode)) return null;
+
+        WalkRouter r = router;
+        if (r == null) return null;
+        int a = r.snap(fromLat, fromLng, maxSnapMeters);
+        int b = r.snap(toLat, toLng, maxSnapMeters);
+        if (a < 0 || b < 0) return null;
+
+        ContractionHierarchy.Path path = r.route(a, b);
+        if (path == null) return null;   // different components (e.g. a gated campus)
+
+        return toLeg(r.getGraph(), path, fromLat, fromLng, toLat, toLng,
+                fromName != null ? fromName : fromLat + "," + fromLng,
+                toName != null ? toName : toLat + "," + toLng);
+    }
+
+    private RouteLeg toLeg(WalkGraph g, ContractionHierarchy.Path path,
+                           double fromLat, double fromLng, double toLat, double toLng,
+                           String fromName, String toName) {
+        int[] nodes = path.getNodes();
+        int k = nodes.length;
+
+        double[] lats = new double[k + 2];
+        double[] lngs = new double[k + 2];
+        lats[0] = fromLat;
+        lngs[0] = fromLng;
+        for (int i = 0; i < k; i++) {
+            lats[i + 1] = g.lat(nodes[i]);
+            lngs[i + 1] = g.lng(nodes[i]);
+        }
+        lats[k + 1] = toLat;
+        lngs[k + 1] = toLng;
+
+        double startSnap = DistanceUtils.haversine(fromLat, fromLng, lats[1], lngs[1]);
+        double endSnap = DistanceUtils.haversine(lats[k], lngs[k], toLat, toLng);
+        double meters = startSnap + path.getMeters() + endSnap;
+
+        RouteLeg leg = new RouteLeg();
+        leg.setMode("walking");
+        leg.setFromName(fromName);
+        leg.setToName(toName);
+        leg.setFromLat(fromLat);
+        leg.setFromLng(fromLng);
+        leg.setToLat(toLat);
+        leg.setToLng(toLng);
+        leg.setDistanceMeters((int) Math.round(meters));
+        leg.setDurationSeconds((int) Math.round(meters / speedMps));
+        leg.setPolyline(PolylineEncoder.encode(lats, lngs, k + 2));
+        leg.setSteps(buildSteps(g, path, startSnap, endSnap, meters, toName));
+        return leg;
+    }
+
+    // ----------------------------
+    // Steps
+    // ----------------------------
+
+    private List<String> buildSteps(WalkGraph g, ContractionHierarchy.Path path,
+                                    double startSnap, double endSnap, double totalMeters, String toName) {
+        int[] edges = path.getEdges();
+        int[] nodes = path.getNodes();
+        List<String> steps = new ArrayList<>();
+        if (edges.length == 0) {
+            steps.add("Walk to " + toName + " (" + distanceText(totalMeters) + ")");
+            return steps;
+        }
+
+        // groups of consecutive path edges on the same street: {first edge pos, last edge pos}
+        List<int[]> groups = new ArrayList<>();
+        List<Double> lengths = new ArrayList<>();
+        for (int i = 0; i < edges.length; ) {
+            int name = g.edgeNameIndex(edges[i]);
+            int j = i;
+            double len = 0;
+            while (j < edges.length && g.edgeNameIndex(edges[j]) == name) {
+                len += g.edgeMeters(edges[j]);
+                j++;
+            }
+            int last = groups.size() - 1;
+            boolean sameStreet = last >= 0 && g.edgeNameIndex(edges[groups.get(last)[0]]) == name;
+            if (last >= 0 && (len < MIN_STEP_METERS || sameStreet)) {
+                groups.get(last)[1] = j - 1;
+                lengths.set(last, lengths.get(last) + len);
+            } else {
+                groups.add(new int[]{i, j - 1});
+                lengths.add(len);
+            }
+            i = j;
+        }
+        lengths.set(0, lengths.get(0) + startSnap);
+        lengths.set(lengths.size() - 1, lengths.get(lengths.size() - 1) + endSnap);
+
+        for (int gi = 0; gi < groups.size(); gi++) {
+            int first = groups.get(gi)[0];
+            String name = g.edgeName(edges[first]);
+            double heading = bearing(g, nodes[first], nodes[first + 1]);
+
+            StringBuilder sb = new StringBuilder();
+            if (gi == 0) {
+                sb.append("Head ").append(compass(heading));
+                if (name != null) sb.append(" on ").append(name);
+            } else {
+                int prevLast = groups.get(gi - 1)[1];
+                double previous = bearing(g, nodes[prevLast], nodes[prevLast + 1]);
+                sb.append(turn(heading - previous));
+                if (name != null) sb.append(" onto ").append(name);
+            }
+            sb.append(" (").append(distanceText(lengths.get(gi))).append(")");
+            steps.add(sb.toString());
+        }
+        return steps;
+    }
+
+    private static double bearing(WalkGraph g, int a, int b) {
+        double lat1 = Math.toRadians(g.lat(a)), lat2 = Math.toRadians(g.lat(b));
+        double dLng = Math.toRadians(g.lng(b) - g.lng(a));
+        double y = Math.sin(dLng) * Math.cos(lat2);
+        double x = Math.cos(lat1) * Math.sin(lat2) - Math.sin(lat1) * Math.cos(lat2) * Math.cos(dLng);
+        return (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
+    }
+
+    private static String compass(double bearing) {
+        String[] dirs = {"north", "northeast", "east", "southeast", "south", "southwest", "west", "northwest"};
+        return dirs[(int) Math.round(bearing / 45) % 8];
+    }
+
+    private static String turn(double delta) {
+        delta = ((delta % 360) + 540) % 360 - 180;   // -> [-180, 180)
+        double abs = Math.abs(delta);
+        String side = delta > 0 ? "right" : "left";
+        if (abs < 25) return "Continue";
+        if (abs < 60) return "Slight " + side;
+        if (abs < 135) return "Turn " + side;
+        return "Sharp " + side;
+    }
+
+    private static String distanceText(double meters) {
+        if (meters < 1000) return Math.max(1, Math.round(meters / 10) * 10) + " m";
+        return String.format("%.1f km", meters / 1000.0);
+    }
+}
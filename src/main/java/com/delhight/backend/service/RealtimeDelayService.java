@@ -0,0 +1,366 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.RealtimeView;
+import com.delhight.backend.model.RealtimeView.LineState;
+import com.delhight.backend.model.RealtimeView.StopUpdate;
+import com.delhight.backend.model.RealtimeView.TripUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ingests GTFS-Realtime trip updates (JSON form of a FeedMessage) and publishes them as
+ * immutable RealtimeView versions through an AtomicReference: route computations read
+ * the current view without locking, the single writer builds the next one on the side.
+ *
+ * Sources (any combination):
+ *   delhight.realtime.file  polled every delhight.realtime.pollMillis, re-read when it changes
+ *   delhight.realtime.port  loopback TCP socket, one FeedMessage per line (NDJSON)
+ *   apply()                 e.g. POST /admin/realtime
+ *
+ * FULL_DATASET messages replace all trips, DIFFERENTIAL ones upsert or delete
+ * (is_deleted) single entities; only the lines they touch are recomputed.
+ *
+ * Metrics: delhight.realtime.apply (parse + build + publish), delhight.realtime.reader.staleness
+ * (age of the data each route computation saw), gauges for version, trips and data age.
+ * Route computations ignore views older than delhight.realtime.maxAgeSeconds (feed stopped).
+ */
+@Service
+public class RealtimeDelayService {
+
+    private static final Logger log = LoggerFactory.getLogger(RealtimeDelayService.class);
+
+    private final AtomicReference<RealtimeView> current = new AtomicReference<>(RealtimeView.EMPTY);
+
+    private final Timer applyTimer;
+    private final Timer stalenessTimer;
+    private final Counter rejected;
+
+    @Value("${delhight.realtime.file:}")
+    private String feedFile;
+
+    @Value("${delhight.realtime.port:0}")
+    private int port;
+
+    // older delays are worse than none: readers ignore views past this age
+    @Value("${delhight.realtime.maxAgeSeconds:600}")
+    private long maxAgeSeconds;
+
+    private long fileModified = -1;
+    private long fileSize = -1;
+    private volatile ServerSocket serverSocket;
+
+    public RealtimeDelayService(MeterRegistry registry) {
+        this.applyTimer = Timer.builder("delhight.realtime.apply").register(registry);
+        this.stalenessTimer = Timer.builder("delhight.realtime.reader.staleness").register(registry);
+        this.rejected = Counter.builder("delhight.realtime.rejected").register(registry);
+        Gauge.builder("delhight.realtime.version", current, c -> c.get().getVersion()).register(registry);
+        Gauge.builder("delhight.realtime.trips", current, c -> c.get().getEntityLines().size()).register(registry);
+        Gauge.builder("delhight.realtime.age.seconds", this, s -> s.ageMillis(s.current.get()) / 1000.0)
+                .register(registry);
+    }
+
+    /** Current view, without metrics (admin, tests). */
+    public RealtimeView view() {
+        return current.get();
+    }
+
+    /**
+     * Current view for a route computation: records how old its data is, and returns
+     * the empty view when it is older than maxAgeSeconds (feed stopped).
+     */
+    public RealtimeView read() {
+        RealtimeView view = current.get();
+        if (view.getVersion() == 0) return view;
+        long age = ageMillis(view);
+        stalenessTimer.record(age, TimeUnit.MILLISECONDS);
+        return age > maxAgeSeconds * 1000 ? RealtimeView.EMPTY : view;
+    }
+
+    // data age: from the feed's own timestamp when it has one
+    private long ageMillis(RealtimeView view) {
+        if (view.getVersion() == 0) return 0;
+        long produced = view.getFeedTimestampSeconds() > 0 ? view.getFeedTimestampSeconds() * 1000 : view.getPublishedAtMillis();
+        return Math.max(0, System.currentTimeMillis() - produced);
+    }
+
+    // ----------------------------
+    // Applying feed messages (single writer)
+    // ----------------------------
+
+    /**
+     * Applies one FeedMessage and publishes the resulting view.
+     *
+     * @throws IllegalArgumentException if the message cannot be parsed
+     */
+    public synchronized RealtimeView apply(String feedJson) {
+        long start = System.nanoTime();
+        JSONObject feed;
+        try {
+            feed = new JSONObject(feedJson);
+        } catch (RuntimeException ex) {
+            rejected.increment();
+            throw new IllegalArgumentException("Not a JSON FeedMessage: " + ex.getMessage(), ex);
+        }
+        try {
+            return apply(feed, start);
+        } catch (ClassCastException | JSONException ex) {
+            rejected.increment();
+            throw new IllegalArgumentException("Malformed FeedMessage: " + ex.getMessage(), ex);
+        }
+    }
+
+    private RealtimeView apply(JSONObject feed, long start) {
+        JSONObject header = feed.optJSONObject("header");
+        boolean full = header == null || !"DIFFERENTIAL".equalsIgnoreCase(header.optString("incrementality"));
+        long feedTimestamp = header != null ? header.optLong("timestamp", 0) : 0;
+
+        RealtimeView previous = current.get();
+        Map<String, String> entityLines = full ? new HashMap<>() : new HashMap<>(previous.getEntityLines());
+        // copy-on-write trip maps of the lines this message touches
+        Map<String, Map<String, TripUpdate>> touched = new HashMap<>();
+        if (full) previous.getLines().keySet().forEach(line -> touched.put(line, new HashMap<>()));
+
+        JSONArray entities = feed.optJSONArray("entity");
+        for (int i = 0; entities != null && i < entities.length(); i++) {
+            JSONObject entity = entities.getJSONObject(i);
+            String id = entity.optString("id", null);
+            if (id == null) continue;
+
+            String oldLine = entityLines.remove(id);
+            if (oldLine != null) trips(touched, previous, oldLine).remove(id);
+            if (opt(entity, "is_deleted", "isDeleted") instanceof Boolean deleted && deleted) continue;
+
+            JSONObject tripUpdate = (JSONObject) opt(entity, "trip_update", "tripUpdate");
+            if (tripUpdate == null) continue;   // alerts and vehicle positions are not used
+            TripUpdate update = parseTripUpdate(id, tripUpdate);
+            if (update.line().isEmpty()) continue;
+
+            trips(touched, previous, update.line()).put(id, update);
+            entityLines.put(id, update.line());
+        }
+
+        long now = System.currentTimeMillis();
+        Map<String, LineState> lines = new HashMap<>(previous.getLines());
+        touched.forEach((line, trips) -> {
+            LineState before = previous.getLines().get(line);
+            LineState after = lineState(trips, now);
+            lines.put(line, after.sameDelaysAs(before)
+                    ? new LineState(after.trips(), after.stopDelays(), after.lineDelay(), after.closedStops(),
+                            after.suspended(), before.changedAtMillis())
+                    : after);
+        });
+
+        RealtimeView next = new RealtimeView(previous.getVersion() + 1, feedTimestamp, now,
+                Collections.unmodifiableMap(entityLines), Collections.unmodifiableMap(lines));
+        current.set(next);
+        applyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return next;
+    }
+
+    private static Map<String, TripUpdate> trips(Map<String, Map<String, TripUpdate>> touched,
+                                                 RealtimeView previous, String line) {
+        return touched.computeIfAbsent(line, l -> {
+            LineState state = previous.getLines().get(l);
+            return state != null ? new HashMap<>(state.trips()) : new HashMap<>();
+        });
+    }
+
+    private static TripUpdate parseTripUpdate(String id, JSONObject tripUpdate) {
+        JSONObject trip = tripUpdate.optJSONObject("trip");
+        String route = trip != null ? (String) opt(trip, "route_id", "routeId") : null;
+        String relationship = trip != null ? (String) opt(trip, "schedule_relationship", "scheduleRelationship") : null;
+        boolean cancelled = relationship != null && relationship.toUpperCase().startsWith("CANCEL");
+
+        List<StopUpdate> stops = new ArrayList<>();
+        JSONArray updates = (JSONArray) opt(tripUpdate, "stop_time_update", "stopTimeUpdate");
+        int delay = 0;   // GTFS-RT: a delay holds for later stops until another one is given
+        for (int i = 0; updates != null && i < updates.length(); i++) {
+            JSONObject u = updates.getJSONObject(i);
+            String stop = (String) opt(u, "stop_id", "stopId");
+            if (stop == null) continue;
+            String stopRelationship = (String) opt(u, "schedule_relationship", "scheduleRelationship");
+            if ("NO_DATA".equalsIgnoreCase(stopRelationship)) continue;
+
+            JSONObject arrival = u.optJSONObject("arrival");
+            JSONObject departure = u.optJSONObject("departure");
+            if (arrival != null && arrival.has("delay")) delay = arrival.getInt("delay");
+            else if (departure != null && departure.has("delay")) delay = departure.getInt("delay");
+            stops.add(new StopUpdate(RealtimeView.stopKey(stop), delay, "SKIPPED".equalsIgnoreCase(stopRelationship)));
+        }
+        return new TripUpdate(id, RealtimeView.lineKey(route), cancelled, List.copyOf(stops));
+    }
+
+    // medians over the running trips; a stop is closed when every trip reporting it skips it
+    private static LineState lineState(Map<String, TripUpdate> trips, long now) {
+        Map<String, List<Integer>> delaysByStop = new HashMap<>();
+        Set<String> servedStops = new HashSet<>();
+        Set<String> skippedStops = new HashSet<>();
+        List<Integer> all = new ArrayList<>();
+        boolean anyRunning = false;
+
+        for (TripUpdate trip : trips.values()) {
+            if (trip.cancelled()) continue;
+            anyRunning = true;
+            for (StopUpdate stop : trip.stops()) {
+                if (stop.skipped()) {
+                    skippedStops.add(stop.stop());
+                    continue;
+                }
+                servedStops.add(stop.stop());
+                delaysByStop.computeIfAbsent(stop.stop(), s -> new ArrayList<>()).add(stop.delaySeconds());
+                all.add(stop.delaySeconds());
+            }
+        }
+        skippedStops.removeAll(servedStops);
+
+        Map<String, Integer> stopDelays = new HashMap<>();
+        delaysByStop.forEach((stop, delays) -> stopDelays.put(stop, median(delays)));
+        return new LineState(Map.copyOf(trips), Map.copyOf(stopDelays), median(all), Set.copyOf(skippedStops),
+                !trips.isEmpty() && !anyRunning, now);
+    }
+
+    private static int median(List<Integer> values) {
+        if (values.isEmpty()) return 0;
+        int[] sorted = values.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        return Math.max(0, sorted[sorted.length / 2]);   // running early does not shorten a ride
+    }
+
+    // GTFS-RT JSON exports use either the proto field names or their camelCase JSON names
+    private static Object opt(JSONObject o, String snake, String camel) {
+        Object v = o.opt(snake);
+        return v != null ? v : o.opt(camel);
+    }
+
+    // ----------------------------
+    // Sources
+    // ----------------------------
+
+    @Scheduled(fixedDelayString = "${delhight.realtime.pollMillis:2000}")
+    public void pollFile() {
+        if (feedFile == null || feedFile.isBlank()) return;
+        Path path = Path.of(feedFile);
+        try {
+            if (!Files.exists(path)) return;
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            long size = Files.size(path);
+            if (modified == fileModified && size == fileSize) return;
+            fileModified = modified;
+            fileSize = size;
+            RealtimeView view = apply(Files.readString(path, StandardCharsets.UTF_8));
+            log.info("Realtime feed {} applied: version {}, {} trips", path, view.getVersion(),
+                    view.getEntityLines().size());
+        } catch (IOException | IllegalArgumentException ex) {
+            log.warn("Realtime feed {} not applied: {}", path, ex.getMessage());
+        }
+    }
+
+    @PostConstruct
+    public void startSocket() throws IOException {
+        if (port <= 0) return;
+        serverSocket = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "realtime-feed-socket");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Realtime feed socket listening on {}", serverSocket.getLocalSocketAddress());
+    }
+
+    @PreDestroy
+    public void stopSocket() throws IOException {
+        if (serverSocket != null) serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> readLines(socket), "realtime-feed-reader");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed()) log.warn("Realtime feed socket: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void readLines(Socket socket) {
+        try (socket; BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    apply(line);
+                } catch (IllegalArgumentException ex) {
+                    log.warn("Realtime feed message rejected: {}", ex.getMessage());
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Realtime feed connection closed: {}", ex.getMessage());
+        }
+    }
+
+    // ----------------------------
+    // Stats
+    // ----------------------------
+
+    public Map<String, Object> stats() {
+        RealtimeView view = current.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("version", view.getVersion());
+        out.put("trips", view.getEntityLines().size());
+        out.put("ageSeconds", ageMillis(view) / 1000);
+        out.put("applied", applyTimer.count());
+        out.put("applyMeanMicros", Math.round(applyTimer.mean(TimeUnit.MICROSECONDS)));
+        out.put("applyMaxMicros", Math.round(applyTimer.max(TimeUnit.MICROSECONDS)));
+        out.put("reads", stalenessTimer.count());
+        out.put("readerStalenessMeanMillis", Math.round(stalenessTimer.mean(TimeUnit.MILLISECONDS)));
+        out.put("rejected", (long) rejected.count());
+
+        Map<String, Object> lines = new LinkedHashMap<>();
+        view.getLines().forEach((key, line) -> {
+            Map<String, Object> l = new LinkedHashMap<>();
+            l.put("trips", line.trips().size());
+            l.put("delaySeconds", line.lineDelay());
+            l.put("suspended", line.suspended());
+            l.put("closedStops", line.closedStops());
+            l.put("changedAtMillis", line.changedAtMillis());
+            lines.put(key, l);
+        });
+        out.put("lines", lines);
+        return out;
+    }
+}
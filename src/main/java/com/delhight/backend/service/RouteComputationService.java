@@ -1,14 +1,20 @@
 package com.delhight.backend.service;
 
+import com.delhight.backend.model.DegradationLevel;
 import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.model.RealtimeView;
 import com.delhight.backend.model.RouteLeg;
 import com.delhight.backend.model.RouteVariant;
+import com.delhight.backend.utils.Deadline;
+import com.delhight.backend.utils.DistanceUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Clean implementation of the Delhight routing algorithm that produces at most 9 route variants:
@@ -18,6 +24,20 @@ import java.util.List;
  *   piece3 = best walking OR driving (drive only if walking > walkThresholdMeters)
  *
  * Each station-pair yields exactly one RouteVariant (piece1 + piece2 + piece3).
+ * Driving (auto) legs are ranked with AutoRideEstimator; real driving directions are
+ * only fetched for the variants that survive ranking.
+ *
+ * If the calling thread has a request Deadline, every upstream call only gets the time
+ * left, and once it has passed no further station pair (or real driving leg) is started:
+ * the variants finished so far are ranked and returned (Deadline.wasReached() = partial).
+ *
+ * Under load the DegradationController lowers the DegradationLevel: fewer station pairs,
+ * and at minimal no walking call for legs that are clearly too long to walk and no real
+ * driving directions for auto legs.
+ *
+ * Live computations read the current RealtimeView once (lock-free) and apply it to every
+ * transit leg: delays are added to the leg, and station pairs on a suspended line or a
+ * closed station are dropped.
  */
 @Service
 public class RouteComputationService {
@@ -25,6 +45,21 @@ public class RouteComputationService {
     private final GeocodingService geocodingService;
     private final NearestStationsService nearestStationsService;
     private final DirectionsService directionsService;
+    private final MetroFareService metroFareService;
+    private final AutoRideEstimator autoRideEstimator;
+    private final HotTripTracker hotTripTracker;
+    private final DeadlineMetrics deadlineMetrics;
+    private final DegradationController degradationController;
+    private final RealtimeDelayService realtimeDelayService;
+    private final SharedRouteCache sharedRouteCache;
+
+    // auto legs are estimated, fetched (driving) and calibrated for "now": one clock for all
+    // three, so the estimator's hourly profiles are read back for the hour they were learnt
+    private static final long AUTO_DEPARTURE = 0L;
+
+    private static final Comparator<RouteVariant> RANKING =
+            Comparator.comparingLong(RouteVariant::getTotalDurationSeconds)
+                    .thenComparingDouble(RouteVariant::getTotalCostRs);
 
     // configurable via application.properties (defaults provided)
     @Value("${delhight.routing.topStations:3}")
@@ -41,10 +76,24 @@ public class RouteComputationService {
 
     public RouteComputationService(GeocodingService geocodingService,
                                    NearestStationsService nearestStationsService,
-                                   DirectionsService directionsService) {
+                                   DirectionsService directionsService,
+                                   MetroFareService metroFareService,
+                                   AutoRideEstimator autoRideEstimator,
+                                   HotTripTracker hotTripTracker,
+                                   DeadlineMetrics deadlineMetrics,
+                                   DegradationController degradationController,
+                                   RealtimeDelayService realtimeDelayService,
+                                   SharedRouteCache sharedRouteCache) {
         this.geocodingService = geocodingService;
         this.nearestStationsService = nearestStationsService;
         this.directionsService = directionsService;
+        this.metroFareService = metroFareService;
+        this.autoRideEstimator = autoRideEstimator;
+        this.hotTripTracker = hotTripTracker;
+        this.deadlineMetrics = deadlineMetrics;
+        this.degradationController = degradationController;
+        this.realtimeDelayService = realtimeDelayService;
+        this.sharedRouteCache = sharedRouteCache;
     }
 
     /**
@@ -65,58 +114,93 @@ public class RouteComputationService {
     public List<RouteVariant> computeRoutes(double oLat, double oLng,
                                             double dLat, double dLng,
                                             String originName, String destName) {
+        return computeRoutes(oLat, oLng, dLat, dLng, originName, destName,
+                RouteLookups.direct(nearestStationsService, directionsService));
+    }
+
+    /**
+     * Core algorithm using coordinates, at an explicit degradation level.
+     */
+    public List<RouteVariant> computeRoutes(double oLat, double oLng,
+                                            double dLat, double dLng,
+                                            String originName, String destName,
+                                            DegradationLevel level) {
+        return computeRoutes(oLat, oLng, dLat, dLng, originName, destName,
+                RouteLookups.direct(nearestStationsService, directionsService), level);
+    }
+
+    /**
+     * Core algorithm using coordinates, with caller-supplied lookups
+     * (e.g. MemoizingRouteLookups shared across a batch). Live lookups run at the current
+     * degradation level, fixtures at full. Offline callers (OdMatrixJob) pass a level
+     * explicitly instead.
+     */
+    public List<RouteVariant> computeRoutes(double oLat, double oLng,
+                                            double dLat, double dLng,
+                                            String originName, String destName,
+                                            RouteLookups lookups) {
+        DegradationLevel level = lookups.isLive() ? degradationController.current() : DegradationLevel.FULL;
+        return computeRoutes(oLat, oLng, dLat, dLng, originName, destName, lookups, level);
+    }
+
+    /**
+     * Core algorithm with caller-supplied lookups, at an explicit degradation level.
+     */
+    public List<RouteVariant> computeRoutes(double oLat, double oLng,
+                                            double dLat, double dLng,
+                                            String originName, String destName,
+                                            RouteLookups lookups, DegradationLevel level) {
 
-        // find nearest stations (top N)
-        List<NearbyStation> originStations = nearestStationsService.findNearestStations(oLat, oLng, topStations);
-        List<NearbyStation> destStations = nearestStationsService.findNearestStations(dLat, dLng, topStations);
+        // find nearest stations (top N, fewer when degraded)
+        int stations = Math.min(topStations, level.maxStations());
+        List<NearbyStation> originStations = lookups.findNearestStations(oLat, oLng, stations);
+        List<NearbyStation> destStations = lookups.findNearestStations(dLat, dLng, stations);
 
         List<RouteVariant> variants = new ArrayList<>();
 
+        // one consistent realtime version for the whole computation (fixtures: none)
+        RealtimeView realtime = lookups.isLive() ? realtimeDelayService.read() : RealtimeView.EMPTY;
+
         // departure time fixed to 10:00 local (approx) — use 0 if you want "now"
         long departureTimeEpochSeconds = fixedDepartureTimeEpochSeconds();
 
+        // every leg the pair loop may ask for, read from the shared cache in one round trip
+        if (lookups.isLive() && sharedRouteCache.isEnabled()) {
+            prefetchLegs(oLat, oLng, dLat, dLng, originName, destName,
+                    originStations, destStations, departureTimeEpochSeconds);
+        }
+
         int idCounter = 1;
 
+        pairs:
         for (NearbyStation so : originStations) {
             for (NearbyStation sd : destStations) {
+                if (Deadline.currentExpired()) {
+                    deadlineMetrics.deadlineExpired("compute");
+                    break pairs;
+                }
 
                 // --- PIECE 1: origin -> so  (walking preferred; if > threshold, use driving instead)
-                RouteLeg piece1Walk = directionsService.getRouteLeg(
+                RouteLeg piece1Walk = walkingLeg(lookups, level,
                         oLat, oLng,
                         so.getLat(), so.getLng(),
-                        "walking", 0L,
                         originName, so.getName()
                 );
 
                 RouteLeg piece1Final = piece1Walk;
-                if (piece1Walk == null) {
-                    // if walking failed, try driving
-                    RouteLeg p1drive = directionsService.getRouteLeg(
-                            oLat, oLng,
-                            so.getLat(), so.getLng(),
-                            "driving", 0L,
-                            originName, so.getName()
-                    );
-                    piece1Final = p1drive;
-                } else if (piece1Walk.getDistanceMeters() > walkThresholdMeters) {
-                    // walking too long → replace with driving (single surviving leg)
-                    RouteLeg p1drive = directionsService.getRouteLeg(
+                if (piece1Walk == null || piece1Walk.getDistanceMeters() > walkThresholdMeters) {
+                    // walking failed or too long → auto. Ranking uses a local estimate; real driving
+                    // directions are fetched later, only for the variants we actually return.
+                    piece1Final = autoRideEstimator.estimate(
                             oLat, oLng,
                             so.getLat(), so.getLng(),
-                            "driving", 0L,
+                            AUTO_DEPARTURE,
                             originName, so.getName()
                     );
-                    if (p1drive != null) piece1Final = p1drive;
-                    // if driving failed for some reason, keep walking as fallback
-                }
-
-                if (piece1Final == null) {
-                    // can't reach this station; skip this pair
-                    continue;
                 }
 
                 // --- PIECE 2: metro transit so -> sd (transit_mode=rail, departure_time set)
-                RouteLeg piece2Transit = directionsService.getRouteLeg(
+                RouteLeg piece2Transit = lookups.getRouteLeg(
                         so.getLat(), so.getLng(),
                         sd.getLat(), sd.getLng(),
                         "transit", departureTimeEpochSeconds,
@@ -128,36 +212,30 @@ public class RouteComputationService {
                     continue;
                 }
 
+                // realtime: skip disrupted pairs, add delays (legs may be shared: copy before changing)
+                int delaySeconds = realtime.transitDelaySeconds(piece2Transit);
+                if (delaySeconds < 0) continue;
+                if (delaySeconds > 0) {
+                    piece2Transit = piece2Transit.copy();
+                    piece2Transit.setDurationSeconds(piece2Transit.getDurationSeconds() + delaySeconds);
+                    piece2Transit.setDelaySeconds(delaySeconds);
+                }
+
                 // --- PIECE 3: sd -> destination (same logic as piece1)
-                RouteLeg piece3Walk = directionsService.getRouteLeg(
+                RouteLeg piece3Walk = walkingLeg(lookups, level,
                         sd.getLat(), sd.getLng(),
                         dLat, dLng,
-                        "walking", 0L,
                         sd.getName(), destName
                 );
 
                 RouteLeg piece3Final = piece3Walk;
-                if (piece3Walk == null) {
-                    RouteLeg p3drive = directionsService.getRouteLeg(
+                if (piece3Walk == null || piece3Walk.getDistanceMeters() > walkThresholdMeters) {
+                    piece3Final = autoRideEstimator.estimate(
                             sd.getLat(), sd.getLng(),
                             dLat, dLng,
-                            "driving", 0L,
+                            AUTO_DEPARTURE,
                             sd.getName(), destName
                     );
-                    piece3Final = p3drive;
-                } else if (piece3Walk.getDistanceMeters() > walkThresholdMeters) {
-                    RouteLeg p3drive = directionsService.getRouteLeg(
-                            sd.getLat(), sd.getLng(),
-                            dLat, dLng,
-                            "driving", 0L,
-                            sd.getName(), destName
-                    );
-                    if (p3drive != null) piece3Final = p3drive;
-                }
-
-                if (piece3Final == null) {
-                    // can't reach destination from this station; skip pair
-                    continue;
                 }
 
                 // --- Build RouteVariant (exactly one per station-pair)
@@ -183,19 +261,16 @@ public class RouteComputationService {
                     totalDistanceMeters += leg.getDistanceMeters();
                 }
 
-                // cost: transit fare if available + static auto fare for driving legs
-                // piece2Transit may contain fareText (e.g., "₹25.00")
-                double transitFare = parseFareTextToDouble(piece2Transit.getFareText());
+                // cost: transit fare + static auto fare for driving legs
+                // transit fare comes from the local fare table when it is enabled and both stations
+                // are catalogued, otherwise from Google's fareText (e.g., "₹25.00") if present
+                double transitFare = metroFareService.fareRs(so, sd, departureTimeEpochSeconds);
+                if (transitFare < 0) transitFare = parseFareTextToDouble(piece2Transit.getFareText());
                 totalCostRs += transitFare;
 
                 // for driving legs, compute static fare per-km
                 for (RouteLeg leg : legs) {
-                    if (leg == null) continue;
-                    String mode = leg.getMode();
-                    if (mode != null && mode.equalsIgnoreCase("driving")) {
-                        double distKm = leg.getDistanceMeters() / 1000.0;
-                        totalCostRs += Math.round(distKm * autoRatePerKmRs);
-                    }
+                    totalCostRs += autoFareRs(leg);
                 }
 
                 variant.setTotalDurationSeconds(totalDurationSeconds);
@@ -207,15 +282,123 @@ public class RouteComputationService {
                 variant.setSummaryText(summary);
 
                 variants.add(variant);
+
+                // popularity of station pairs (fixtures and replays do not count)
+                if (lookups.isLive()) hotTripTracker.recordStationPair(so.getName(), sd.getName());
             }
         }
 
-        // sort and return top-K (by duration then cost)
-        variants.sort(Comparator.comparingLong(RouteVariant::getTotalDurationSeconds)
-                .thenComparingDouble(RouteVariant::getTotalCostRs));
+        // sort and keep top-K (by duration then cost)
+        variants.sort(RANKING);
+        if (variants.size() > maxVariants) {
+            variants = new ArrayList<>(variants.subList(0, maxVariants));
+        }
+
+        // swap estimated auto legs for real driving directions, then re-rank with real numbers
+        if (level.alternatives()) {
+            replaceEstimatedLegs(variants, lookups);
+            variants.sort(RANKING);
+        }
+        return variants;
+    }
 
-        if (variants.size() <= maxVariants) return variants;
-        return new ArrayList<>(variants.subList(0, maxVariants));
+    private void prefetchLegs(double oLat, double oLng, double dLat, double dLng,
+                              String originName, String destName,
+                              List<NearbyStation> originStations, List<NearbyStation> destStations,
+                              long departureTimeEpochSeconds) {
+        List<String> keys = new ArrayList<>();
+        for (NearbyStation so : originStations) {
+            keys.add(SharedRouteCache.legKey(oLat, oLng, so.getLat(), so.getLng(),
+                    "walking", 0L, originName, so.getName()));
+            for (NearbyStation sd : destStations) {
+                keys.add(SharedRouteCache.legKey(so.getLat(), so.getLng(), sd.getLat(), sd.getLng(),
+                        "transit", departureTimeEpochSeconds, so.getName(), sd.getName()));
+            }
+        }
+        for (NearbyStation sd : destStations) {
+            keys.add(SharedRouteCache.legKey(sd.getLat(), sd.getLng(), dLat, dLng,
+                    "walking", 0L, sd.getName(), destName));
+        }
+        sharedRouteCache.prefetch(SharedRouteCache.Kind.LEG, keys);
+    }
+
+    /**
+     * Walking leg between two points, or null when it is not worth asking for one: degraded
+     * below alternatives, a leg whose straight line already exceeds the walking threshold
+     * would be replaced by an auto anyway.
+     */
+    private RouteLeg walkingLeg(RouteLookups lookups, DegradationLevel level,
+                                double fromLat, double fromLng, double toLat, double toLng,
+                                String fromName, String toName) {
+        if (!level.alternatives()
+                && DistanceUtils.haversine(fromLat, fromLng, toLat, toLng) > walkThresholdMeters) {
+            return null;
+        }
+        return lookups.getRouteLeg(fromLat, fromLng, toLat, toLng, "walking", 0L, fromName, toName);
+    }
+
+    /**
+     * Fetches real driving directions for every estimated auto leg of the returned variants
+     * and adjusts the totals. Each distinct leg is fetched once; every fetched leg also
+     * calibrates the estimator. If a fetch fails the estimate stays in place.
+     */
+    private void replaceEstimatedLegs(List<RouteVariant> variants, RouteLookups lookups) {
+        Map<String, RouteLeg> fetched = new HashMap<>();
+
+        for (RouteVariant variant : variants) {
+            List<RouteLeg> legs = new ArrayList<>(variant.getLegs());
+            boolean changed = false;
+            boolean outOfTime = false;
+
+            for (int i = 0; i < legs.size(); i++) {
+                RouteLeg estimate = legs.get(i);
+                if (estimate == null || !estimate.isEstimated()) continue;
+                // out of time: the remaining estimates stay (they are valid, marked legs)
+                if (Deadline.currentExpired()) {
+                    outOfTime = true;
+                    break;
+                }
+
+                String key = estimate.getFromLat() + "," + estimate.getFromLng()
+                        + ">" + estimate.getToLat() + "," + estimate.getToLng();
+                RouteLeg real = fetched.computeIfAbsent(key, k -> {
+                    RouteLeg leg = lookups.getRouteLeg(
+                            estimate.getFromLat(), estimate.getFromLng(),
+                            estimate.getToLat(), estimate.getToLng(),
+                            "driving", AUTO_DEPARTURE,
+                            estimate.getFromName(), estimate.getToName());
+                    if (lookups.isLive()) {
+                        autoRideEstimator.observe(estimate.getFromLat(), estimate.getFromLng(),
+                                estimate.getToLat(), estimate.getToLng(), AUTO_DEPARTURE, leg);
+                    }
+                    return leg;
+                });
+                if (real == null) continue;
+
+                variant.setTotalDurationSeconds(variant.getTotalDurationSeconds()
+                        - estimate.getDurationSeconds() + real.getDurationSeconds());
+                variant.setTotalDistanceMeters(variant.getTotalDistanceMeters()
+                        - estimate.getDistanceMeters() + real.getDistanceMeters());
+                variant.setTotalCostRs(variant.getTotalCostRs() - autoFareRs(estimate) + autoFareRs(real));
+                legs.set(i, real);
+                changed = true;
+            }
+
+            // legs may be shared between variants (memoized lookups): replace the list, never mutate legs
+            if (changed) variant.setLegs(legs);
+            if (outOfTime) return;
+        }
+    }
+
+    // static auto fare per-km for driving legs, 0 for everything else
+    private double autoFareRs(RouteLeg leg) {
+        if (leg == null) return 0.0;
+        String mode = leg.getMode();
+        if (mode != null && mode.equalsIgnoreCase("driving")) {
+            double distKm = leg.getDistanceMeters() / 1000.0;
+            return Math.round(distKm * autoRatePerKmRs);
+        }
+        return 0.0;
     }
 
     // Helper: parse fare string like "₹32.00" → 32.0
@@ -263,7 +446,7 @@ public class RouteComputationService {
      * Fixed departure time at 10:00 local (approx) — returns epoch seconds.
      * Uses system default zone for simplicity.
      */
-    private long fixedDepartureTimeEpochSeconds() {
+    public long fixedDepartureTimeEpochSeconds() {
         java.time.ZonedDateTime now = java.time.ZonedDateTime.now();
         java.time.ZonedDateTime tenAm = now.withHour(10).withMinute(0).withSecond(0).withNano(0);
         // if 10am already passed today, leave it as next day's 10am? For demo we can use today's 10am.
@@ -0,0 +1,57 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.model.RouteLeg;
+
+import java.util.List;
+
+/**
+ * Upstream lookups used by the routing algorithm (station search + single legs).
+ *
+ * RouteComputationService normally talks to the services directly; callers that
+ * compute many routes at once (batch endpoint, offline jobs) pass their own
+ * implementation to share results between computations.
+ */
+public interface RouteLookups {
+
+    List<NearbyStation> findNearestStations(double lat, double lng, int top);
+
+    RouteLeg getRouteLeg(
+            double fromLat,
+            double fromLng,
+            double toLat,
+            double toLng,
+            String mode,          // walking / driving / transit
+            long departureTime,   // epoch seconds, 0 = omit
+            String fromName,
+            String toName
+    );
+
+    /**
+     * False for lookups that replay recorded/synthetic data (warm-up). Results of such
+     * computations must not feed learned state such as estimator calibration.
+     */
+    default boolean isLive() {
+        return true;
+    }
+
+    /**
+     * Lookups that go straight to the given services, without any sharing.
+     */
+    static RouteLookups direct(NearestStationsService nearestStationsService,
+                               DirectionsService directionsService) {
+        return new RouteLookups() {
+            @Override
+            public List<NearbyStation> findNearestStations(double lat, double lng, int top) {
+                return nearestStationsService.findNearestStations(lat, lng, top);
+            }
+
+            @Override
+            public RouteLeg getRouteLeg(double fromLat, double fromLng, double toLat, double toLng,
+                                        String mode, long departureTime, String fromName, String toName) {
+                return directionsService.getRouteLeg(fromLat, fromLng, toLat, toLng,
+                        mode, departureTime, fromName, toName);
+            }
+        };
+    }
+}
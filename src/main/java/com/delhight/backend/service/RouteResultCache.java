@@ -0,0 +1,585 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.DegradationLevel;
+import com.delhight.backend.model.RealtimeView;
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.model.RouteResult;
+import com.delhight.backend.model.RouteVariant;
+import com.delhight.backend.model.TransitSegment;
+import com.delhight.backend.snapshot.SnapshotSwappedEvent;
+import com.delhight.backend.utils.Deadline;
+import com.delhight.backend.utils.HeavyHitters;
+import com.delhight.backend.utils.RequestTrace;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of complete, ranked computeRoutes results for /routes.
+ *
+ * Key: origin and destination snapped to a grid (delhight.routeCache.snapMeters) and the
+ * departure time bucket (delhight.routeCache.bucketSeconds). Addresses geocoding within
+ * the same cells share one entry; the first and last leg are relabelled with the names
+ * of the request being served.
+ *
+ * - fresh (younger than freshSeconds): served as is
+ * - stale (up to freshSeconds + staleSeconds): served immediately, and refreshed on a
+ *   small background pool; a failed (empty) refresh keeps the old entry
+ * - older or absent: computed in the request; concurrent requests for the same key wait
+ *   for that one computation, within their own deadline (out of time they get the expired
+ *   entry, or an empty partial result). Results cut short by the request deadline are
+ *   returned (marked partial) but not cached.
+ *
+ * Entries computed at a lower DegradationLevel than the current one, or whose metro lines
+ * have changed realtime delays since, are treated as stale and recomputed in the background.
+ * An entry riding a line that has since been suspended, or a stop that has been closed,
+ * is a miss: it is recomputed in the request and never served.
+ *
+ * Entries are evicted least-recently-used first to stay within delhight.routeCache.maxBytes
+ * (estimated sizes). The cache is dropped when a new snapshot (metro network) is swapped in.
+ *
+ * Hot trips (HotTripTracker) are refreshed ahead of expiry by a scheduled task, so popular
+ * entries stay fresh instead of turning stale at peak. Proactive refreshes are capped per
+ * run and per hour (delhight.hotTrips.refreshPerRun / refreshBudgetPerHour).
+ */
+@Service
+public class RouteResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteResultCache.class);
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private final RouteComputationService routeComputationService;
+    private final GeocodingService geocodingService;
+    private final HotTripTracker hotTripTracker;
+    private final DegradationController degradationController;
+    private final RealtimeDelayService realtimeDelayService;
+
+    @Value("${delhight.routeCache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${delhight.routeCache.snapMeters:150}")
+    private double snapMeters;
+
+    @Value("${delhight.routeCache.bucketSeconds:900}")
+    private long bucketSeconds;
+
+    @Value("${delhight.routeCache.freshSeconds:300}")
+    private long freshSeconds;
+
+    @Value("${delhight.routeCache.staleSeconds:3600}")
+    private long staleSeconds;
+
+    @Value("${delhight.routeCache.maxBytes:67108864}")
+    private long maxBytes;
+
+    @Value("${delhight.hotTrips.refreshEnabled:true}")
+    private boolean hotRefreshEnabled;
+
+    // refresh a hot entry once it has used up this share of its freshness
+    @Value("${delhight.hotTrips.refreshAhead:0.8}")
+    private double refreshAhead;
+
+    // trips requested fewer times than this (after decay) are not worth a proactive refresh
+    @Value("${delhight.hotTrips.minCount:3}")
+    private long minHotCount;
+
+    @Value("${delhight.hotTrips.refreshPerRun:20}")
+    private int refreshPerRun;
+
+    @Value("${delhight.hotTrips.refreshBudgetPerHour:600}")
+    private int refreshBudgetPerHour;
+
+    private final ThreadPoolExecutor refresher;
+
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<TripKey, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;   // guarded by entries
+
+    private final Map<TripKey, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private final Set<TripKey> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong proactiveRefreshes = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+
+    // proactive refresh budget, per wall-clock hour
+    private final Object budgetLock = new Object();
+    private long budgetHour = -1;   // guarded by budgetLock
+    private int budgetUsed;         // guarded by budgetLock
+
+    // last proactive refresh per hot trip (pruned to the current hot list)
+    private final Map<TripKey, Long> refreshState = new ConcurrentHashMap<>();
+
+    /** Snapped origin cell, snapped destination cell, departure bucket. */
+    public record TripKey(long origin, long destination, long bucket) {
+        // compact and free of addresses: safe for logs
+        @Override
+        public String toString() {
+            return Long.toHexString(origin) + "-" + Long.toHexString(destination) + "@" + bucket;
+        }
+    }
+
+    private record Entry(List<RouteVariant> variants, double oLat, double oLng, double dLat, double dLng,
+                         String originName, String destName, long computedAtMillis, long bytes, boolean partial,
+                         DegradationLevel level, Set<String> lines) {}
+
+    public RouteResultCache(RouteComputationService routeComputationService,
+                            GeocodingService geocodingService,
+                            HotTripTracker hotTripTracker,
+                            DegradationController degradationController,
+                            RealtimeDelayService realtimeDelayService,
+                            @Value("${delhight.routeCache.refreshThreads:2}") int refreshThreads) {
+        this.routeComputationService = routeComputationService;
+        this.geocodingService = geocodingService;
+        this.hotTripTracker = hotTripTracker;
+        this.degradationController = degradationController;
+        this.realtimeDelayService = realtimeDelayService;
+        this.refresher = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(64), r -> {
+                    Thread t = new Thread(r, "route-cache-refresh");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Ranked variants for two free-text addresses, from the cache when possible.
+     */
+    public RouteResult getRoutes(String originAddress, String destAddress) {
+        return getRoutes(originAddress, destAddress,
+                geocodingService.geocodeAddress(originAddress), geocodingService.geocodeAddress(destAddress));
+    }
+
+    /**
+     * Same, for addresses already geocoded (o / d null when they did not resolve), e.g. by
+     * AffinityRoutingFilter on this node or on the node that forwarded the request.
+     */
+    public RouteResult getRoutes(String originAddress, String destAddress, double[] o, double[] d) {
+        DegradationLevel level = degradationController.current();
+        if (o == null || d == null) {
+            return new RouteResult(List.of(), RouteResult.MISS, System.currentTimeMillis(), deadlineReached(), level);
+        }
+
+        TripKey key = tripKey(o[0], o[1], d[0], d[1]);
+        if (!enabled) {
+            Entry entry = compute(o[0], o[1], d[0], d[1], originAddress, destAddress, level);
+            return new RouteResult(entry.variants(), RouteResult.BYPASS, entry.computedAtMillis(), entry.partial(),
+                    level, key.toString());
+        }
+
+        hotTripTracker.recordTrip(key);
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        String status;
+        RealtimeView realtime = realtimeDelayService.view();
+        boolean realtimeChanged = entry != null && realtime.changedSince(entry.lines(), entry.computedAtMillis());
+        // a line it rides was suspended (or a stop closed) since: never serve it, not even once
+        if (realtimeChanged && unrideable(entry, realtime)) {
+            blocked.incrementAndGet();
+            synchronized (entries) {
+                if (entries.remove(key, entry)) totalBytes -= entry.bytes();
+            }
+            entry = null;
+        }
+        boolean outdated = entry != null && (entry.level().worseThan(level) || realtimeChanged);
+        if (entry != null && !outdated && now - entry.computedAtMillis() <= freshSeconds * 1000) {
+            hits.incrementAndGet();
+            status = RouteResult.HIT;
+        } else if (entry != null && now - entry.computedAtMillis() <= (freshSeconds + staleSeconds) * 1000) {
+            staleHits.incrementAndGet();
+            scheduleRefresh(key, entry);
+            status = RouteResult.STALE;
+        } else {
+            misses.incrementAndGet();
+            Entry expired = entry;
+            entry = load(key, o[0], o[1], d[0], d[1], originAddress, destAddress, level, expired);
+            status = entry == expired ? RouteResult.STALE : RouteResult.MISS;
+        }
+
+        return new RouteResult(relabel(entry, originAddress, destAddress), status, entry.computedAtMillis(),
+                entry.partial(), entry.level(), key.toString());
+    }
+
+    /**
+     * Cache key of a trip (snapped origin and destination, departure bucket). Also used to
+     * route requests for the same trip to the same node (AffinityRouting).
+     */
+    public TripKey tripKey(double oLat, double oLng, double dLat, double dLng) {
+        return new TripKey(cell(oLat, oLng), cell(dLat, dLng),
+                routeComputationService.fixedDepartureTimeEpochSeconds() / Math.max(1, bucketSeconds));
+    }
+
+    // ----------------------------
+    // Loading / refreshing
+    // ----------------------------
+
+    // single flight per key: the first caller computes, concurrent callers join its future
+    private Entry load(TripKey key, double oLat, double oLng, double dLat, double dLng,
+                       String originName, String destName, DegradationLevel level, Entry expired) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = loading.putIfAbsent(key, mine);
+        if (existing != null) return join(existing, oLat, oLng, dLat, dLng, originName, destName, level, expired);
+
+
+        try {
+            Entry entry = compute(oLat, oLng, dLat, dLng, originName, destName, level);
+            if (!entry.variants().isEmpty() && !entry.partial()) put(key, entry);
+            mine.complete(entry);
+            return entry;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    /**
+     * Waits for another request's computation of the same trip, but only for as long as
+     * this request's own deadline allows (the leader may have a much longer one). Out of
+     * time, it answers with the expired entry if there is one, else an empty partial result;
+     * the leader's result is still cached for later requests.
+     */
+    private Entry join(CompletableFuture<Entry> leader, double oLat, double oLng, double dLat, double dLng,
+                       String originName, String destName, DegradationLevel level, Entry expired) {
+        long began = RequestTrace.begin();
+        Deadline deadline = Deadline.current();
+        try {
+            Entry joined = deadline == null ? leader.join()
+                    : leader.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+            RequestTrace.end(RequestTrace.Stage.WAIT, null, began, RequestTrace.outcome(joined.variants()));
+            return joined;
+        } catch (TimeoutException ex) {
+            deadline.isExpired();   // marks it reached: the answer is partial
+            RequestTrace.end(RequestTrace.Stage.WAIT, null, began, RequestTrace.DEADLINE);
+            if (expired != null) return expired;
+            return new Entry(List.of(), oLat, oLng, dLat, dLng, originName, destName,
+                    System.currentTimeMillis(), 0, true, level, Set.of());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a route computation", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private boolean scheduleRefresh(TripKey key, Entry stale) {
+        if (!refreshing.add(key)) return false;
+        try {
+            refresher.execute(() -> {
+                try {
+                    DegradationLevel level = degradationController.current();
+                    Entry fresh = compute(stale.oLat(), stale.oLng(), stale.dLat(), stale.dLng(),
+                            stale.originName(), stale.destName(), level);
+                    // upstream trouble, or still more degraded than what we had: keep serving it
+                    if (!fresh.variants().isEmpty() && !fresh.partial() && !fresh.level().worseThan(stale.level())) {
+                        put(key, fresh);
+                        refreshes.incrementAndGet();
+                    }
+                } catch (Exception ex) {
+                    log.warn("Route cache refresh failed: {}", ex.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            // refresh queue full: a later stale hit will try again
+            refreshing.remove(key);
+            return false;
+        }
+    }
+
+    /**
+     * Refreshes the hottest cached trips that are close to expiry, hottest first, within
+     * the per-run and per-hour budgets. Trips that are no longer cached are left alone.
+     */
+    @Scheduled(fixedDelayString = "${delhight.hotTrips.refreshIntervalSeconds:60}",
+            initialDelayString = "${delhight.hotTrips.refreshIntervalSeconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void refreshHotTrips() {
+        if (!enabled || !hotRefreshEnabled) return;
+
+        List<HeavyHitters.Counted<TripKey>> hot = hotTripTracker.hotTrips();
+        refreshState.keySet().retainAll(hot.stream().map(HeavyHitters.Counted::key).toList());
+
+        long now = System.currentTimeMillis();
+        long dueAgeMillis = (long) (freshSeconds * 1000 * refreshAhead);
+        int runBudget = refreshPerRun;
+
+        for (HeavyHitters.Counted<TripKey> trip : hot) {
+            if (runBudget <= 0 || trip.count() < minHotCount) break;
+
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.get(trip.key());
+            }
+            if (entry == null || now - entry.computedAtMillis() < dueAgeMillis) continue;
+            if (!hasHourlyBudget()) break;
+
+            // only refreshes that were actually queued count against the budget
+            if (scheduleRefresh(trip.key(), entry)) {
+                spendHourlyBudget();
+                refreshState.put(trip.key(), now);
+                proactiveRefreshes.incrementAndGet();
+                runBudget--;
+            }
+        }
+    }
+
+    private boolean hasHourlyBudget() {
+        synchronized (budgetLock) {
+            rollBudgetHour();
+            return budgetUsed < refreshBudgetPerHour;
+        }
+    }
+
+    private void spendHourlyBudget() {
+        synchronized (budgetLock) {
+            rollBudgetHour();
+            budgetUsed++;
+        }
+    }
+
+    // caller holds budgetLock
+    private void rollBudgetHour() {
+        long hour = System.currentTimeMillis() / 3_600_000L;
+        if (hour != budgetHour) {
+            budgetHour = hour;
+            budgetUsed = 0;
+        }
+    }
+
+    private Entry compute(double oLat, double oLng, double dLat, double dLng, String originName, String destName,
+                          DegradationLevel level) {
+        List<RouteVariant> variants = List.copyOf(
+                routeComputationService.computeRoutes(oLat, oLng, dLat, dLng, originName, destName, level));
+        return new Entry(variants, oLat, oLng, dLat, dLng, originName, destName,
+                System.currentTimeMillis(), estimateBytes(variants), deadlineReached(), level, lineKeys(variants));
+    }
+
+    // metro lines the variants ride (RealtimeView.lineKey), to notice realtime changes
+    private static Set<String> lineKeys(List<RouteVariant> variants) {
+        Set<String> lines = new HashSet<>();
+        for (RouteVariant v : variants) {
+            for (RouteLeg leg : v.getLegs()) {
+                if (leg == null || leg.getTransitSegments() == null) continue;
+                for (TransitSegment s : leg.getTransitSegments()) lines.add(RealtimeView.lineKey(s.getLineName()));
+            }
+        }
+        return Set.copyOf(lines);
+    }
+
+    private static boolean unrideable(Entry entry, RealtimeView realtime) {
+        for (RouteVariant v : entry.variants()) {
+            for (RouteLeg leg : v.getLegs()) {
+                if (realtime.transitDelaySeconds(leg) < 0) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean deadlineReached() {
+        Deadline deadline = Deadline.current();
+        return deadline != null && deadline.wasReached();
+    }
+
+    private void put(TripKey key, Entry entry) {
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) totalBytes -= previous.bytes();
+            totalBytes += entry.bytes();
+
+            Iterator<Map.Entry<TripKey, Entry>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<TripKey, Entry> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                totalBytes -= eldest.getValue().bytes();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @EventListener
+    public void onSnapshotSwapped(SnapshotSwappedEvent event) {
+        clear();
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+
+    // ----------------------------
+    // Helpers
+    // ----------------------------
+
+    private long cell(double lat, double lng) {
+        double size = snapMeters / METERS_PER_DEGREE;
+        long row = (long) Math.floor(lat / size);
+        long col = (long) Math.floor(lng / size);
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    // [lat, lng] of a cell's centre, rounded for display
+    private double[] cellCenter(long cell) {
+        double size = snapMeters / METERS_PER_DEGREE;
+        long row = cell >> 32;
+        int col = (int) cell;
+        return new double[]{Math.round((row + 0.5) * size * 1e5) / 1e5, Math.round((col + 0.5) * size * 1e5) / 1e5};
+    }
+
+    /**
+     * The cached variants, with the first leg starting at originName and the last leg
+     * ending at destName. Cached legs are shared, so changed ones are copied.
+     */
+    private static List<RouteVariant> relabel(Entry entry, String originName, String destName) {
+        if (originName.equals(entry.originName()) && destName.equals(entry.destName())) return entry.variants();
+
+        List<RouteVariant> out = new ArrayList<>(entry.variants().size());
+        for (RouteVariant v : entry.variants()) {
+            List<RouteLeg> legs = new ArrayList<>(v.getLegs());
+            if (!legs.isEmpty()) {
+                RouteLeg first = legs.get(0) != null ? legs.get(0).copy() : null;
+                if (first != null) first.setFromName(originName);
+                legs.set(0, first);
+
+                int last = legs.size() - 1;
+                RouteLeg end = legs.get(last) != null ? (last == 0 ? first : legs.get(last).copy()) : null;
+                if (end != null) end.setToName(destName);
+                legs.set(last, end);
+            }
+
+            RouteVariant copy = new RouteVariant();
+            copy.setId(v.getId());
+            copy.setSummaryText(v.getSummaryText());
+            copy.setTotalDurationSeconds(v.getTotalDurationSeconds());
+            copy.setTotalDistanceMeters(v.getTotalDistanceMeters());
+            copy.setTotalCostRs(v.getTotalCostRs());
+            copy.setLegs(legs);
+            out.add(copy);
+        }
+        return out;
+    }
+
+    // rough retained size: object headers + fields + string contents (shared legs counted per use)
+    static long estimateBytes(List<RouteVariant> variants) {
+        long bytes = 160;
+        for (RouteVariant v : variants) {
+            bytes += 120 + stringBytes(v.getId()) + stringBytes(v.getSummaryText());
+            if (v.getLegs() == null) continue;
+            for (RouteLeg leg : v.getLegs()) {
+                if (leg == null) continue;
+                bytes += 160 + stringBytes(leg.getPolyline()) + stringBytes(leg.getFareText());
+                if (leg.getSteps() != null) {
+                    for (String step : leg.getSteps()) bytes += 8 + stringBytes(step);
+                }
+                if (leg.getTransitSegments() != null) {
+                    for (TransitSegment s : leg.getTransitSegments()) {
+                        bytes += 120 + 8L * s.getNumStops() + stringBytes(s.getRawPolyline());
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+
+    // ----------------------------
+    // Stats
+    // ----------------------------
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (entries) {
+            out.put("entries", entries.size());
+            out.put("bytes", totalBytes);
+        }
+        out.put("maxBytes", maxBytes);
+        out.put("hits", hits.get());
+        out.put("staleHits", staleHits.get());
+        out.put("misses", misses.get());
+        out.put("refreshes", refreshes.get());
+        out.put("evictions", evictions.get());
+        out.put("proactiveRefreshes", proactiveRefreshes.get());
+        out.put("realtimeBlocked", blocked.get());
+        return out;
+    }
+
+    /**
+     * Current hot trips with their cache and refresh state:
+     *   fresh | due (will be refreshed ahead of expiry) | stale | refreshing | cold (not cached)
+     */
+    public List<Map<String, Object>> hotTripsReport() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (HeavyHitters.Counted<TripKey> trip : hotTripTracker.hotTrips()) {
+            Entry entry;
+            synchronized (entries) {
+                entry = entries.get(trip.key());
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("trip", trip.key().toString());
+            row.put("count", trip.count());
+            row.put("originCell", cellCenter(trip.key().origin()));
+            row.put("destinationCell", cellCenter(trip.key().destination()));
+            if (entry != null) {
+                long age = now - entry.computedAtMillis();
+                row.put("from", entry.originName());
+                row.put("to", entry.destName());
+                row.put("ageSeconds", age / 1000);
+                row.put("state", refreshing.contains(trip.key()) ? "refreshing"
+                        : age > freshSeconds * 1000 ? "stale"
+                        : age >= freshSeconds * 1000 * refreshAhead ? "due"
+                        : "fresh");
+            } else {
+                row.put("state", refreshing.contains(trip.key()) ? "refreshing" : "cold");
+            }
+            Long refreshedAt = refreshState.get(trip.key());
+            if (refreshedAt != null) row.put("lastProactiveRefreshMillis", refreshedAt);
+            out.add(row);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,471 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.mapper.SharedCacheCodec;
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.utils.Deadline;
+import com.delhight.backend.utils.RequestTrace;
+import com.delhight.backend.utils.RespClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache for upstream lookups shared by all backend nodes: Directions legs,
+ * geocodes and nearest-station results.
+ *
+ * - near tier: a small in-process LRU (delhight.sharedCache.nearMaxEntries) holding
+ *   decoded values for delhight.sharedCache.nearTtlSeconds
+ * - shared tier: a Redis-protocol store (delhight.sharedCache.host/port) holding values in
+ *   the compact SharedCacheCodec form, with a TTL per kind
+ *
+ * A miss in both tiers calls the loader (the Google request) and writes the result to both;
+ * the write is pipelined with an invalidation message on delhight.sharedCache.channel, so
+ * other nodes drop a near copy they may hold (including "known absent" markers). Failed
+ * lookups (null or empty) are never cached.
+ *
+ * prefetch() reads many keys with one MGET (one round trip), e.g. every leg a computeRoutes
+ * call is about to ask for; keys absent from the store are remembered briefly in the near
+ * tier so the lookups that follow do not ask the store again one by one.
+ *
+ * The store is strictly optional: timeouts are short (timeoutMillis), and after an error it
+ * is left alone for retryMillis while requests go to the loader directly. While the
+ * invalidation subscription is down the near tier is bypassed, and it is cleared on every
+ * (re)subscribe, since messages may have been missed.
+ *
+ * Disabled by default (delhight.sharedCache.enabled); tools.MiniRedisServer in the test
+ * sources is a local stand-in for trying it out (SharedRouteCacheTest runs against it).
+ */
+@Service
+public class SharedRouteCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedRouteCache.class);
+
+    private static final Object ABSENT = new Object();
+    private static final String[] TIERS = {"near", "shared", "miss"};
+
+    /** What is cached; the tag is part of the key. */
+    public enum Kind {
+        LEG("l"), STATIONS("s"), GEOCODE("g");
+
+        private final String tag;
+
+        Kind(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() { return tag; }
+    }
+
+    @Value("${delhight.sharedCache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${delhight.sharedCache.host:localhost}")
+    private String host;
+
+    @Value("${delhight.sharedCache.port:6379}")
+    private int port;
+
+    @Value("${delhight.sharedCache.timeoutMillis:50}")
+    private int timeoutMillis;
+
+    @Value("${delhight.sharedCache.connections:8}")
+    private int connections;
+
+    // after a store error, go straight to the loader for this long
+    @Value("${delhight.sharedCache.retryMillis:5000}")
+    private long retryMillis;
+
+    // values written by another format or key layout live under another prefix
+    @Value("${delhight.sharedCache.keyPrefix:dh1:}")
+    private String keyPrefix;
+
+    @Value("${delhight.sharedCache.channel:delhight:invalidate}")
+    private String channel;
+
+    @Value("${delhight.sharedCache.legTtlSeconds:21600}")
+    private long legTtlSeconds;
+
+    @Value("${delhight.sharedCache.stationsTtlSeconds:604800}")
+    private long stationsTtlSeconds;
+
+    @Value("${delhight.sharedCache.geocodeTtlSeconds:604800}")
+    private long geocodeTtlSeconds;
+
+    @Value("${delhight.sharedCache.nearMaxEntries:5000}")
+    private int nearMaxEntries;
+
+    @Value("${delhight.sharedCache.nearTtlSeconds:60}")
+    private long nearTtlSeconds;
+
+    // how long a prefetch remembers that the store has no value for a key
+    @Value("${delhight.sharedCache.absentMillis:2000}")
+    private long absentMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Kind, Counter[]> lookups = new EnumMap<>(Kind.class);
+
+    private RespClient client;
+    private Thread subscriber;
+    private volatile boolean running;
+    private volatile boolean subscribed;
+    private volatile long unavailableUntilMillis;
+
+    private record Near(Object value, long expiresAtMillis) {}
+
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Near> near = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final AtomicLong storeErrors = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong invalidationsReceived = new AtomicLong();
+    private final AtomicLong prefetchRoundTrips = new AtomicLong();
+    private final AtomicLong prefetchedKeys = new AtomicLong();
+
+    public SharedRouteCache(MeterRegistry registry) {
+        for (Kind kind : Kind.values()) {
+            Counter[] tiers = new Counter[TIERS.length];
+            for (int i = 0; i < TIERS.length; i++) {
+                tiers[i] = Counter.builder("delhight.sharedcache.lookups")
+                        .tag("kind", kind.name().toLowerCase(Locale.ROOT))
+                        .tag("tier", TIERS[i])
+                        .register(registry);
+            }
+            lookups.put(kind, tiers);
+        }
+        Gauge.builder("delhight.sharedcache.near.entries", this, SharedRouteCache::nearSize).register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        client = new RespClient(host, port, timeoutMillis, connections);
+        running = true;
+        subscriber = new Thread(this::subscribeLoop, "shared-cache-invalidation");
+        subscriber.setDaemon(true);
+        subscriber.start();
+        log.info("Shared route cache: store {}:{}, node {}", host, port, nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (client != null) client.close();
+        if (subscriber != null) subscriber.interrupt();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ----------------------------
+    // Lookups
+    // ----------------------------
+
+    public RouteLeg leg(String key, Supplier<RouteLeg> loader) {
+        return get(Kind.LEG, key, loader, SharedCacheCodec::decodeLeg, SharedCacheCodec::encodeLeg);
+    }
+
+    public List<NearbyStation> stations(String key, Supplier<List<NearbyStation>> loader) {
+        return get(Kind.STATIONS, key, loader, SharedCacheCodec::decodeStations, SharedCacheCodec::encodeStations);
+    }
+
+    public double[] geocode(String key, Supplier<double[]> loader) {
+        return get(Kind.GEOCODE, key, loader, SharedCacheCodec::decodeGeocode, SharedCacheCodec::encodeGeocode);
+    }
+
+    /**
+     * Loads the given keys from the store into the near tier with one MGET. Keys already
+     * held locally are skipped. Does nothing while the store is unavailable.
+     */
+    public void prefetch(Kind kind, Collection<String> keys) {
+        if (!usable() || !subscribed || keys.isEmpty()) return;
+        List<String> wanted = new ArrayList<>(keys.size());
+        for (String key : new LinkedHashSet<>(keys)) {
+            if (nearGet(fullKey(kind, key)) == null) wanted.add(fullKey(kind, key));
+        }
+        if (wanted.isEmpty()) return;
+
+        List<byte[]> values;
+        try {
+            values = client.mget(wanted);
+        } catch (IOException e) {
+            storeFailed(e);
+            return;
+        }
+        prefetchRoundTrips.incrementAndGet();
+        prefetchedKeys.addAndGet(wanted.size());
+
+        Function<byte[], ?> decoder = decoder(kind);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < wanted.size(); i++) {
+            Object value = decodeQuietly(decoder, values.get(i));
+            if (value != null) nearPut(wanted.get(i), value, now + nearTtlSeconds * 1000);
+            else nearPut(wanted.get(i), ABSENT, now + absentMillis);
+        }
+    }
+
+    private <T> T get(Kind kind, String key, Supplier<T> loader,
+                      Function<byte[], T> decoder, Function<T, byte[]> encoder) {
+        if (!enabled) return loader.get();
+        String fullKey = fullKey(kind, key);
+
+        Object held = subscribed ? nearGet(fullKey) : null;
+        if (held != null && held != ABSENT) {
+            lookups.get(kind)[0].increment();
+            RequestTrace.cache("near");
+            @SuppressWarnings("unchecked") T value = (T) held;
+            return value;
+        }
+
+        if (held == null && usable()) {
+            try {
+                T value = decodeQuietly(decoder, client.get(fullKey));
+                if (value != null) {
+                    lookups.get(kind)[1].increment();
+                    RequestTrace.cache("shared");
+                    nearPutIfSubscribed(fullKey, value);
+                    return value;
+                }
+            } catch (IOException e) {
+                storeFailed(e);
+            }
+        }
+
+        lookups.get(kind)[2].increment();
+        RequestTrace.cache("miss");   // before the loader, so a tier below it (the archive) can say otherwise
+        T value = loader.get();
+        if (value == null || (value instanceof Collection<?> c && c.isEmpty())) return value;
+
+        nearPutIfSubscribed(fullKey, value);
+        if (usable()) write(fullKey, encoder.apply(value), ttlSeconds(kind));
+        return value;
+    }
+
+    // SET with TTL and the invalidation message in one round trip
+    private void write(String fullKey, byte[] data, long ttlSeconds) {
+        try {
+            client.pipeline(List.of(
+                    RespClient.command("SET", fullKey, data, "PX", ttlSeconds * 1000),
+                    RespClient.command("PUBLISH", channel, nodeId + " " + fullKey)));
+            bytesWritten.addAndGet(data.length);
+        } catch (IOException e) {
+            storeFailed(e);
+        }
+    }
+
+    // ----------------------------
+    // Invalidation
+    // ----------------------------
+
+    /**
+     * Removes one key from the store and from every node's near tier, or (key null) clears
+     * every near tier; the store then still holds values until their TTL.
+     */
+    public void invalidate(Kind kind, String key) throws IOException {
+        if (!enabled) return;
+        String target = key == null ? "*" : fullKey(kind, key);
+        nearRemove(target);
+        List<byte[][]> commands = new ArrayList<>(2);
+        if (key != null) commands.add(RespClient.command("DEL", target));
+        commands.add(RespClient.command("PUBLISH", channel, nodeId + " " + target));
+        client.pipeline(commands);
+    }
+
+    private void subscribeLoop() {
+        while (running) {
+            try {
+                client.subscribe(channel, () -> {
+                    nearClear();   // anything held may have been invalidated meanwhile
+                    subscribed = true;
+                    log.info("Shared route cache: subscribed to {}", channel);
+                }, (ch, message) -> onInvalidation(message));
+            } catch (IOException e) {
+                // warn once per outage; retries while down stay quiet
+                if (running && subscribed) log.warn("Shared route cache: invalidation channel down: {}", e.getMessage());
+                else log.debug("Shared route cache: cannot subscribe: {}", e.getMessage());
+            }
+            subscribed = false;
+            if (!running) return;
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void onInvalidation(String message) {
+        int space = message.indexOf(' ');
+        if (space < 0) return;
+        if (message.substring(0, space).equals(nodeId)) return;   // our own write
+        invalidationsReceived.incrementAndGet();
+        nearRemove(message.substring(space + 1));
+    }
+
+    // ----------------------------
+    // Keys
+    // ----------------------------
+
+    public static String legKey(double fromLat, double fromLng, double toLat, double toLng,
+                                String mode, long departureTime, String fromName, String toName) {
+        // names are part of the key because they end up inside the returned leg
+        return fromLat + "," + fromLng + ">" + toLat + "," + toLng
+                + "|" + mode + "|" + departureTime + "|" + fromName + "|" + toName;
+    }
+
+    public static String stationsKey(double lat, double lng, int top) {
+        return lat + "," + lng + "#" + top;
+    }
+
+    public static String geocodeKey(String address) {
+        return address.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private String fullKey(Kind kind, String key) {
+        return keyPrefix + kind.tag() + ":" + key;
+    }
+
+    private long ttlSeconds(Kind kind) {
+        return switch (kind) {
+            case LEG -> legTtlSeconds;
+            case STATIONS -> stationsTtlSeconds;
+            case GEOCODE -> geocodeTtlSeconds;
+        };
+    }
+
+    private static Function<byte[], ?> decoder(Kind kind) {
+        return switch (kind) {
+            case LEG -> SharedCacheCodec::decodeLeg;
+            case STATIONS -> SharedCacheCodec::decodeStations;
+            case GEOCODE -> SharedCacheCodec::decodeGeocode;
+        };
+    }
+
+    // ----------------------------
+    // Near tier
+    // ----------------------------
+
+    private Object nearGet(String fullKey) {
+        synchronized (near) {
+            Near n = near.get(fullKey);
+            if (n == null) return null;
+            if (n.expiresAtMillis() < System.currentTimeMillis()) {
+                near.remove(fullKey);
+                return null;
+            }
+            return n.value();
+        }
+    }
+
+    private void nearPutIfSubscribed(String fullKey, Object value) {
+        if (subscribed) nearPut(fullKey, value, System.currentTimeMillis() + nearTtlSeconds * 1000);
+    }
+
+    private void nearPut(String fullKey, Object value, long expiresAtMillis) {
+        synchronized (near) {
+            near.put(fullKey, new Near(value, expiresAtMillis));
+            Iterator<Map.Entry<String, Near>> it = near.entrySet().iterator();
+            while (near.size() > nearMaxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    private void nearRemove(String fullKey) {
+        if (fullKey.equals("*")) {
+            nearClear();
+            return;
+        }
+        synchronized (near) {
+            near.remove(fullKey);
+        }
+    }
+
+    private void nearClear() {
+        synchronized (near) {
+            near.clear();
+        }
+    }
+
+    private int nearSize() {
+        synchronized (near) {
+            return near.size();
+        }
+    }
+
+    // ----------------------------
+    // Store health
+    // ----------------------------
+
+    // not worth a round trip when the store just failed or the request is out of time
+    private boolean usable() {
+        return enabled && System.currentTimeMillis() >= unavailableUntilMillis && !Deadline.currentExpired();
+    }
+
+    private void storeFailed(IOException e) {
+        storeErrors.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (now >= unavailableUntilMillis) {
+            log.warn("Shared route cache: store error, bypassing it for {} ms: {}", retryMillis, e.toString());
+        }
+        unavailableUntilMillis = now + retryMillis;
+    }
+
+    private static <T> T decodeQuietly(Function<byte[], T> decoder, byte[] data) {
+        if (data == null) return null;
+        try {
+            return decoder.apply(data);
+        } catch (RuntimeException e) {
+            // corrupt or foreign value: a miss, the loader's result overwrites it
+            return null;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        if (!enabled) return out;
+        out.put("store", host + ":" + port);
+        out.put("node", nodeId);
+        out.put("available", System.currentTimeMillis() >= unavailableUntilMillis);
+        out.put("subscribed", subscribed);
+        out.put("nearEntries", nearSize());
+        out.put("nearMaxEntries", nearMaxEntries);
+        Map<String, Object> perKind = new LinkedHashMap<>();
+        for (Kind kind : Kind.values()) {
+            Map<String, Long> tiers = new LinkedHashMap<>();
+            for (int i = 0; i < TIERS.length; i++) tiers.put(TIERS[i], (long) lookups.get(kind)[i].count());
+            perKind.put(kind.name().toLowerCase(Locale.ROOT), tiers);
+        }
+        out.put("lookups", perKind);
+        out.put("prefetchRoundTrips", prefetchRoundTrips.get());
+        out.put("prefetchedKeys", prefetchedKeys.get());
+        out.put("bytesWritten", bytesWritten.get());
+        out.put("invalidationsReceived", invalidationsReceived.get());
+        out.put("storeErrors", storeErrors.get());
+        return out;
+    }
+}
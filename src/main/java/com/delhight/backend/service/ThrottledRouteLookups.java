@@ -0,0 +1,40 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.utils.RateLimiter;
+
+import java.util.List;
+
+/**
+ * RouteLookups that takes a permit from a shared RateLimiter before every upstream call,
+ * so long-running jobs stay within the Google quota.
+ */
+public class ThrottledRouteLookups implements RouteLookups {
+
+    private final RouteLookups delegate;
+    private final RateLimiter rateLimiter;
+
+    public ThrottledRouteLookups(RouteLookups delegate, RateLimiter rateLimiter) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public List<NearbyStation> findNearestStations(double lat, double lng, int top) {
+        rateLimiter.acquire();
+        return delegate.findNearestStations(lat, lng, top);
+    }
+
+    @Override
+    public RouteLeg getRouteLeg(double fromLat, double fromLng, double toLat, double toLng,
+                                String mode, long departureTime, String fromName, String toName) {
+        rateLimiter.acquire();
+        return delegate.getRouteLeg(fromLat, fromLng, toLat, toLng, mode, departureTime, fromName, toName);
+    }
+
+    @Override
+    public boolean isLive() {
+        return delegate.isLive();
+    }
+}
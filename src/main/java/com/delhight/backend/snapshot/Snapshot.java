@@ -0,0 +1,137 @@
+package com.delhight.backend.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A memory-mapped snapshot file (see {@link SnapshotFormat}).
+ *
+ * Every section is mapped read-only on open; accessors return typed views straight over
+ * the mapping, so nothing is copied onto the heap and the OS page cache holds the data.
+ * The mappings stay valid after the file is replaced or deleted and are released when
+ * the last view is garbage collected, which is what makes swapping snapshots safe while
+ * requests still read the old one.
+ */
+public final class Snapshot {
+
+    private final Path path;
+    private final int formatVersion;
+    private final long createdAtMillis;
+    private final Map<String, Section> sections;
+
+    private record Section(int type, MappedByteBuffer data) {
+    }
+
+    private Snapshot(Path path, int formatVersion, long createdAtMillis, Map<String, Section> sections) {
+        this.path = path;
+        this.formatVersion = formatVersion;
+        this.createdAtMillis = createdAtMillis;
+        this.sections = sections;
+    }
+
+    public static Snapshot open(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < SnapshotFormat.HEADER_BYTES) throw new IOException("Not a snapshot (too short): " + path);
+
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, SnapshotFormat.HEADER_BYTES)
+                    .order(SnapshotFormat.ORDER);
+            byte[] magic = new byte[SnapshotFormat.MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, SnapshotFormat.MAGIC)) throw new IOException("Not a snapshot (bad magic): " + path);
+            int version = header.getInt();
+            if (version > SnapshotFormat.FORMAT_VERSION) {
+                throw new IOException("Snapshot format " + version + " is newer than supported "
+                        + SnapshotFormat.FORMAT_VERSION + ": " + path);
+            }
+            int count = header.getInt();
+            long createdAt = header.getLong();
+
+            long tableBytes = (long) count * SnapshotFormat.ENTRY_BYTES;
+            if (SnapshotFormat.HEADER_BYTES + tableBytes > size) throw new IOException("Truncated snapshot: " + path);
+            ByteBuffer table = ch.map(FileChannel.MapMode.READ_ONLY, SnapshotFormat.HEADER_BYTES, tableBytes)
+                    .order(SnapshotFormat.ORDER);
+
+            Map<String, Section> sections = new LinkedHashMap<>();
+            byte[] nameBytes = new byte[SnapshotFormat.NAME_BYTES];
+            for (int i = 0; i < count; i++) {
+                table.get(nameBytes);
+                int type = table.getInt();
+                table.getInt();   // reserved
+                long offset = table.getLong();
+                long length = table.getLong();
+                if (offset < 0 || length < 0 || offset + length > size) {
+                    throw new IOException("Truncated snapshot section " + i + ": " + path);
+                }
+                int nameLen = 0;
+                while (nameLen < nameBytes.length && nameBytes[nameLen] != 0) nameLen++;
+                String name = new String(nameBytes, 0, nameLen, StandardCharsets.UTF_8);
+
+                MappedByteBuffer data = ch.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                data.order(SnapshotFormat.ORDER);
+                sections.put(name, new Section(type, data));
+            }
+            return new Snapshot(path, version, createdAt, sections);
+        }
+    }
+
+    public Path getPath() { return path; }
+
+    public int getFormatVersion() { return formatVersion; }
+
+    public long getCreatedAtMillis() { return createdAtMillis; }
+
+    public Set<String> sectionNames() { return sections.keySet(); }
+
+    public boolean has(String name) {
+        return sections.containsKey(name);
+    }
+
+    public IntBuffer ints(String name) {
+        return bytes(name, SnapshotFormat.TYPE_INT).asIntBuffer();
+    }
+
+    public FloatBuffer floats(String name) {
+        return bytes(name, SnapshotFormat.TYPE_FLOAT).asFloatBuffer();
+    }
+
+    public DoubleBuffer doubles(String name) {
+        return bytes(name, SnapshotFormat.TYPE_DOUBLE).asDoubleBuffer();
+    }
+
+    public LongBuffer longs(String name) {
+        return bytes(name, SnapshotFormat.TYPE_LONG).asLongBuffer();
+    }
+
+    public StringTable strings(String name) {
+        ByteBuffer b = bytes(name, SnapshotFormat.TYPE_STRINGS);
+        int count = b.getInt(0);
+        IntBuffer offsets = b.slice(4, (count + 1) * 4).order(SnapshotFormat.ORDER).asIntBuffer();
+        int dataStart = 4 + (count + 1) * 4;
+        ByteBuffer data = b.slice(dataStart, b.limit() - dataStart);
+        return StringTable.mapped(offsets, data);
+    }
+
+    private ByteBuffer bytes(String name, int type) {
+        Section s = sections.get(name);
+        if (s == null) throw new IllegalArgumentException("Snapshot " + path + " has no section " + name);
+        if (s.type() != type) {
+            throw new IllegalArgumentException("Snapshot section " + name + " has type " + s.type() + ", expected " + type);
+        }
+        // independent position/limit per caller; absolute reads are then thread-safe
+        return s.data().duplicate().order(SnapshotFormat.ORDER);
+    }
+}
@@ -0,0 +1,16 @@
+package com.delhight.backend.snapshot;
+
+/**
+ * A service with views over the network snapshot. On a swap, SnapshotService calls
+ * prepare() on every consumer first; only when all of them succeeded does it run the
+ * returned installers and switch current(), so a bad file changes nothing anywhere.
+ */
+public interface SnapshotConsumer {
+
+    /**
+     * Builds (and checks) this consumer's views over next without installing them; throws if
+     * next is unusable. Returns the installer (one reference write), or null if next has
+     * nothing for this consumer.
+     */
+    Runnable prepare(Snapshot next);
+}
@@ -0,0 +1,42 @@
+package com.delhight.backend.snapshot;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * On-disk layout of a network snapshot (little endian throughout):
+ *
+ *   header   magic "DLHTSNAP" | int formatVersion | int sectionCount | long createdAtMillis
+ *   table    sectionCount x { byte[32] name (UTF-8, zero padded) | int type | int reserved
+ *                             | long offset | long byteLength }
+ *   data     sections, each starting on an 8-byte boundary
+ *
+ * Section types are flat primitive arrays (INT, FLOAT, DOUBLE, LONG) or a STRINGS table
+ * { int count | int[count + 1] byte offsets | UTF-8 bytes }.
+ *
+ * Readers refuse files with another magic or a newer formatVersion; adding sections is
+ * backwards compatible, changing the meaning of one needs a version bump.
+ */
+public final class SnapshotFormat {
+
+    public static final byte[] MAGIC = "DLHTSNAP".getBytes(StandardCharsets.US_ASCII);
+    public static final int FORMAT_VERSION = 1;
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int HEADER_BYTES = 8 + 4 + 4 + 8;
+    public static final int NAME_BYTES = 32;
+    public static final int ENTRY_BYTES = NAME_BYTES + 4 + 4 + 8 + 8;
+
+    public static final int TYPE_INT = 1;
+    public static final int TYPE_FLOAT = 2;
+    public static final int TYPE_DOUBLE = 3;
+    public static final int TYPE_LONG = 4;
+    public static final int TYPE_STRINGS = 5;
+
+    private SnapshotFormat() {
+    }
+
+    static long align8(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -0,0 +1,91 @@
+package com.delhight.backend.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current network snapshot (delhight.snapshot.file, optional).
+ *
+ * Services read their data from current() at startup. A swap is two-phase: every
+ * SnapshotConsumer first builds its views over the new file (prepare), and only when all
+ * of them succeeded are the views installed, current() switched and SnapshotSwappedEvent
+ * published. A bad file therefore leaves the running snapshot, and every view over it,
+ * in place.
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+
+    private final ApplicationEventPublisher events;
+    private final ObjectProvider<SnapshotConsumer> consumers;
+
+    @Value("${delhight.snapshot.file:}")
+    private String snapshotFile;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    public SnapshotService(ApplicationEventPublisher events, ObjectProvider<SnapshotConsumer> consumers) {
+        this.events = events;
+        this.consumers = consumers;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (snapshotFile == null || snapshotFile.isBlank()) return;
+        current.set(map(Paths.get(snapshotFile)));
+    }
+
+    /** The current snapshot, or null if none is configured. */
+    public Snapshot current() {
+        return current.get();
+    }
+
+    /** Re-maps the configured file (typically after the build step replaced it). */
+    public Snapshot reload() throws IOException {
+        if (snapshotFile == null || snapshotFile.isBlank()) {
+            throw new IllegalStateException("delhight.snapshot.file is not configured");
+        }
+        return swap(Paths.get(snapshotFile));
+    }
+
+    public synchronized Snapshot swap(Path path) throws IOException {
+        Snapshot next = map(path);
+        List<Runnable> installers = new ArrayList<>();
+        for (SnapshotConsumer consumer : consumers.orderedStream().toList()) {
+            try {
+                Runnable installer = consumer.prepare(next);
+                if (installer != null) installers.add(installer);
+            } catch (RuntimeException e) {
+                log.warn("Snapshot {} rejected by {}: {}", path, consumer.getClass().getSimpleName(), e.toString());
+                throw new IllegalStateException("Snapshot " + path + " rejected by "
+                        + consumer.getClass().getSimpleName() + ": " + e.getMessage(), e);
+            }
+        }
+        installers.forEach(Runnable::run);
+        current.set(next);
+        events.publishEvent(new SnapshotSwappedEvent(next));
+        return next;
+    }
+
+    private static Snapshot map(Path path) throws IOException {
+        long t0 = System.nanoTime();
+        Snapshot s = Snapshot.open(path);
+        log.info("Mapped snapshot {} (format {}, {} sections) in {} ms", path, s.getFormatVersion(),
+                s.sectionNames().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+        return s;
+    }
+}
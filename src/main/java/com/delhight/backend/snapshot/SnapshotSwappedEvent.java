@@ -0,0 +1,8 @@
+package com.delhight.backend.snapshot;
+
+/**
+ * Published after {@link SnapshotService} switched to a new snapshot, once every
+ * {@link SnapshotConsumer} has installed its views over it (e.g. to drop derived caches).
+ */
+public record SnapshotSwappedEvent(Snapshot snapshot) {
+}
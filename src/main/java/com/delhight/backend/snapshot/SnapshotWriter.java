@@ -0,0 +1,143 @@
+package com.delhight.backend.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Assembles sections in memory and writes a snapshot file (see {@link SnapshotFormat}).
+ * The file is written next to the target and moved into place atomically, so a node
+ * watching the target never maps a half-written snapshot.
+ */
+public final class SnapshotWriter {
+
+    private record Section(int type, ByteBuffer data) {
+    }
+
+    private final Map<String, Section> sections = new LinkedHashMap<>();
+
+    public SnapshotWriter putInts(String name, IntBuffer values) {
+        ByteBuffer b = allocate(values.remaining() * 4L);
+        b.asIntBuffer().put(values.duplicate());
+        return put(name, SnapshotFormat.TYPE_INT, b);
+    }
+
+    public SnapshotWriter putFloats(String name, FloatBuffer values) {
+        ByteBuffer b = allocate(values.remaining() * 4L);
+        b.asFloatBuffer().put(values.duplicate());
+        return put(name, SnapshotFormat.TYPE_FLOAT, b);
+    }
+
+    public SnapshotWriter putDoubles(String name, DoubleBuffer values) {
+        ByteBuffer b = allocate(values.remaining() * 8L);
+        b.asDoubleBuffer().put(values.duplicate());
+        return put(name, SnapshotFormat.TYPE_DOUBLE, b);
+    }
+
+    public SnapshotWriter putLongs(String name, LongBuffer values) {
+        ByteBuffer b = allocate(values.remaining() * 8L);
+        b.asLongBuffer().put(values.duplicate());
+        return put(name, SnapshotFormat.TYPE_LONG, b);
+    }
+
+    public SnapshotWriter putInts(String name, int[] values) {
+        return putInts(name, IntBuffer.wrap(values));
+    }
+
+    public SnapshotWriter putDoubles(String name, double[] values) {
+        return putDoubles(name, DoubleBuffer.wrap(values));
+    }
+
+    public SnapshotWriter putStrings(String name, StringTable values) {
+        int count = values.size();
+        byte[][] encoded = new byte[count][];
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            String s = values.get(i);
+            encoded[i] = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+            total += encoded[i].length;
+        }
+        ByteBuffer b = allocate(4 + (count + 1) * 4L + total);
+        b.putInt(count);
+        int offset = 0;
+        b.putInt(offset);
+        for (byte[] e : encoded) {
+            offset += e.length;
+            b.putInt(offset);
+        }
+        for (byte[] e : encoded) b.put(e);
+        b.flip();
+        return put(name, SnapshotFormat.TYPE_STRINGS, b);
+    }
+
+    public SnapshotWriter putStrings(String name, String[] values) {
+        return putStrings(name, StringTable.of(values));
+    }
+
+    private SnapshotWriter put(String name, int type, ByteBuffer data) {
+        if (name.getBytes(StandardCharsets.UTF_8).length > SnapshotFormat.NAME_BYTES) {
+            throw new IllegalArgumentException("Section name too long: " + name);
+        }
+        if (sections.putIfAbsent(name, new Section(type, data.position(0))) != null) {
+            throw new IllegalArgumentException("Duplicate section: " + name);
+        }
+        return this;
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Section larger than 2 GB");
+        return ByteBuffer.allocate((int) bytes).order(SnapshotFormat.ORDER);
+    }
+
+    public void write(Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            int count = sections.size();
+            ByteBuffer head = ByteBuffer.allocate(SnapshotFormat.HEADER_BYTES + count * SnapshotFormat.ENTRY_BYTES)
+                    .order(SnapshotFormat.ORDER);
+            head.put(SnapshotFormat.MAGIC);
+            head.putInt(SnapshotFormat.FORMAT_VERSION);
+            head.putInt(count);
+            head.putLong(System.currentTimeMillis());
+
+            long offset = SnapshotFormat.align8(head.capacity());
+            for (Map.Entry<String, Section> e : sections.entrySet()) {
+                byte[] name = new byte[SnapshotFormat.NAME_BYTES];
+                byte[] raw = e.getKey().getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(raw, 0, name, 0, raw.length);
+                head.put(name);
+                head.putInt(e.getValue().type());
+                head.putInt(0);
+                head.putLong(offset);
+                head.putLong(e.getValue().data().limit());
+                offset = SnapshotFormat.align8(offset + e.getValue().data().limit());
+            }
+            head.flip();
+            writeFully(ch, head, 0);
+
+            long pos = SnapshotFormat.align8(head.limit());
+            for (Section s : sections.values()) {
+                writeFully(ch, s.data().duplicate().position(0), pos);
+                pos = SnapshotFormat.align8(pos + s.data().limit());
+            }
+            ch.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b, long position) throws IOException {
+        while (b.hasRemaining()) position += ch.write(b, position);
+    }
+}
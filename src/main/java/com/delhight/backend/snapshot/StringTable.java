@@ -0,0 +1,49 @@
+package com.delhight.backend.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only string array over a STRINGS section (or over plain Java strings).
+ * Mapped entries are decoded on access, so only the strings actually used reach the heap.
+ */
+public final class StringTable {
+
+    private final String[] values;    // heap-backed form
+    private final IntBuffer offsets;  // mapped form
+    private final ByteBuffer bytes;
+
+    private StringTable(String[] values, IntBuffer offsets, ByteBuffer bytes) {
+        this.values = values;
+        this.offsets = offsets;
+        this.bytes = bytes;
+    }
+
+    public static StringTable of(String[] values) {
+        return new StringTable(values, null, null);
+    }
+
+    static StringTable mapped(IntBuffer offsets, ByteBuffer bytes) {
+        return new StringTable(null, offsets, bytes);
+    }
+
+    public int size() {
+        return values != null ? values.length : offsets.limit() - 1;
+    }
+
+    public String get(int i) {
+        if (values != null) return values[i];
+        int from = offsets.get(i);
+        int len = offsets.get(i + 1) - from;
+        byte[] buf = new byte[len];
+        bytes.get(from, buf);
+        return new String(buf, StandardCharsets.UTF_8);
+    }
+
+    public String[] toArray() {
+        String[] out = new String[size()];
+        for (int i = 0; i < out.length; i++) out[i] = get(i);
+        return out;
+    }
+}
@@ -0,0 +1,226 @@
+package com.delhight.backend.tools;
+
+import com.delhight.backend.graph.ContractionHierarchy;
+import com.delhight.backend.graph.OsmWalkGraphLoader;
+import com.delhight.backend.graph.WalkGraph;
+import com.delhight.backend.graph.WalkRouter;
+import com.delhight.backend.snapshot.Snapshot;
+import com.delhight.backend.snapshot.StringTable;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Cross-checks ContractionHierarchy answers against plain Dijkstra on the same WalkGraph.
+ *
+ *   java -cp delhight-backend.jar -Dloader.main=com.delhight.backend.tools.ContractionHierarchyCheck \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        [--snapshot network.snap | --osm delhi-ncr.osm.gz | --grid 150] [--pairs 2000] [--seed 1]
+ *
+ * The graph comes from a snapshot (the hierarchy as served), an OSM extract (contracted
+ * here) or, by default, a synthetic --grid x --grid street grid with jittered lengths and
+ * a share of missing blocks. For --pairs random node pairs it checks that:
+ *
+ * - both agree on whether the pair is connected, and on the distance (to float rounding)
+ * - the unpacked path starts and ends at the pair and walks original edges node to node,
+ *   and its edge lengths add up to the reported distance
+ *
+ * Prints the mismatches and the average query times; exits with status 1 on any mismatch.
+ */
+public class ContractionHierarchyCheck {
+
+    // meters: the hierarchy and Dijkstra add the same float lengths in a different order
+    private static final double TOLERANCE = 0.05;
+
+    private static final int MAX_REPORTED = 20;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int pairs = Integer.parseInt(options.getOrDefault("pairs", "2000"));
+        Random random = new Random(Long.parseLong(options.getOrDefault("seed", "1")));
+
+        long t0 = System.nanoTime();
+        WalkRouter router;
+        if (options.containsKey("snapshot")) {
+            Snapshot snapshot = Snapshot.open(Paths.get(options.get("snapshot")));
+            if (!WalkRouter.inSnapshot(snapshot)) {
+                System.err.println(options.get("snapshot") + " has no walking graph (built without --osm)");
+                System.exit(2);
+            }
+            router = WalkRouter.readSnapshot(snapshot);
+        } else if (options.containsKey("osm")) {
+            router = WalkRouter.build(OsmWalkGraphLoader.load(Paths.get(options.get("osm"))));
+        } else {
+            router = WalkRouter.build(grid(Integer.parseInt(options.getOrDefault("grid", "150")), random));
+        }
+        WalkGraph graph = router.getGraph();
+        ContractionHierarchy ch = router.getHierarchy();
+        System.out.printf("graph: %d nodes, %d edges, %d shortcuts (%d ms)%n", graph.nodeCount(),
+                graph.edgeCount(), ch.shortcutCount(), (System.nanoTime() - t0) / 1_000_000);
+
+        Dijkstra dijkstra = new Dijkstra(graph);
+        int n = graph.nodeCount();
+        int mismatches = 0, connected = 0;
+        long chNanos = 0, dijkstraNanos = 0;
+        for (int i = 0; i < pairs; i++) {
+            int source = random.nextInt(n);
+            int target = random.nextInt(n);
+
+            long a = System.nanoTime();
+            ContractionHierarchy.Path path = ch.route(source, target);
+            long b = System.nanoTime();
+            float expected = dijkstra.distance(source, target);
+            long c = System.nanoTime();
+            chNanos += b - a;
+            dijkstraNanos += c - b;
+
+            String problem = check(graph, source, target, path, expected);
+            if (problem != null) {
+                if (++mismatches <= MAX_REPORTED) System.out.printf("MISMATCH %d -> %d: %s%n", source, target, problem);
+            } else if (path != null) {
+                connected++;
+            }
+        }
+
+        System.out.printf("%d pairs (%d connected): %d mismatches%n", pairs, connected, mismatches);
+        System.out.printf("avg query: hierarchy %.1f us, dijkstra %.1f us%n",
+                chNanos / 1e3 / pairs, dijkstraNanos / 1e3 / pairs);
+        if (mismatches > 0) System.exit(1);
+    }
+
+    // null if the hierarchy's answer is right
+    private static String check(WalkGraph graph, int source, int target, ContractionHierarchy.Path path,
+                                float expected) {
+        if (path == null) {
+            return Float.isInfinite(expected) ? null : "hierarchy found no path, dijkstra " + expected + " m";
+        }
+        if (Float.isInfinite(expected)) return "hierarchy found " + path.getMeters() + " m, dijkstra no path";
+        if (Math.abs(path.getMeters() - expected) > TOLERANCE) {
+            return "hierarchy " + path.getMeters() + " m, dijkstra " + expected + " m";
+        }
+
+        int[] nodes = path.getNodes();
+        int[] edges = path.getEdges();
+        if (nodes[0] != source || nodes[nodes.length - 1] != target) return "path does not join the pair";
+        if (edges.length != nodes.length - 1) return edges.length + " edges for " + nodes.length + " nodes";
+        double meters = 0;
+        for (int i = 0; i < edges.length; i++) {
+            int e = edges[i];
+            if (e < 0 || e >= graph.edgeCount()) return "edge " + e + " is not an original edge";
+            boolean joins = graph.edgeFrom(e) == nodes[i] && graph.edgeTo(e) == nodes[i + 1]
+                    || graph.edgeTo(e) == nodes[i] && graph.edgeFrom(e) == nodes[i + 1];
+            if (!joins) return "edge " + e + " does not join " + nodes[i] + " and " + nodes[i + 1];
+            meters += graph.edgeMeters(e);
+        }
+        if (Math.abs(meters - path.getMeters()) > TOLERANCE) {
+            return "unpacked edges add up to " + meters + " m, reported " + path.getMeters() + " m";
+        }
+        return null;
+    }
+
+    // ----------------------------
+    // Reference
+    // ----------------------------
+
+    /** One-to-one Dijkstra over the undirected graph, stopping at the target. */
+    private static final class Dijkstra {
+        private final int[] start;
+        private final int[] to;
+        private final float[] meters;
+        private final float[] dist;
+
+        Dijkstra(WalkGraph graph) {
+            int n = graph.nodeCount();
+            int m = graph.edgeCount();
+            start = new int[n + 1];
+            for (int e = 0; e < m; e++) {
+                start[graph.edgeFrom(e) + 1]++;
+                start[graph.edgeTo(e) + 1]++;
+            }
+            for (int i = 0; i < n; i++) start[i + 1] += start[i];
+            int[] fill = Arrays.copyOf(start, n);
+            to = new int[2 * m];
+            meters = new float[2 * m];
+            for (int e = 0; e < m; e++) {
+                int u = graph.edgeFrom(e), v = graph.edgeTo(e);
+                float w = graph.edgeMeters(e);
+                to[fill[u]] = v;
+                meters[fill[u]++] = w;
+                to[fill[v]] = u;
+                meters[fill[v]++] = w;
+            }
+            dist = new float[n];
+        }
+
+        float distance(int source, int target) {
+            Arrays.fill(dist, Float.POSITIVE_INFINITY);
+            dist[source] = 0;
+            // (distance bits, node): non-negative floats order like their bits
+            PriorityQueue<Long> queue = new PriorityQueue<>();
+            queue.add((long) source);
+            while (!queue.isEmpty()) {
+                long top = queue.poll();
+                int u = (int) top;
+                float d = Float.intBitsToFloat((int) (top >>> 32));
+                if (d > dist[u]) continue;
+                if (u == target) return d;
+                for (int i = start[u]; i < start[u + 1]; i++) {
+                    float nd = d + meters[i];
+                    if (nd < dist[to[i]]) {
+                        dist[to[i]] = nd;
+                        queue.add(((long) Float.floatToIntBits(nd) << 32) | to[i]);
+                    }
+                }
+            }
+            return Float.POSITIVE_INFINITY;
+        }
+    }
+
+    // ----------------------------
+    // Synthetic graph
+    // ----------------------------
+
+    // side x side street grid around Connaught Place, ~80 m blocks, 10% of segments missing
+    private static WalkGraph grid(int side, Random random) {
+        int n = side * side;
+        double[] lat = new double[n], lng = new double[n];
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                lat[r * side + c] = 28.60 + r * 0.00072 + random.nextGaussian() * 0.00005;
+                lng[r * side + c] = 77.19 + c * 0.00082 + random.nextGaussian() * 0.00005;
+            }
+        }
+        int[] from = new int[2 * n], to = new int[2 * n], name = new int[2 * n];
+        float[] meters = new float[2 * n];
+        int m = 0;
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int u = r * side + c;
+                for (int v : new int[]{c + 1 < side ? u + 1 : -1, r + 1 < side ? u + side : -1}) {
+                    if (v < 0 || random.nextDouble() < 0.1) continue;
+                    from[m] = u;
+                    to[m] = v;
+                    meters[m] = (float) (80 * (0.8 + 0.4 * random.nextDouble()));
+                    name[m] = -1;
+                    m++;
+                }
+            }
+        }
+        return new WalkGraph(DoubleBuffer.wrap(lat), DoubleBuffer.wrap(lng),
+                IntBuffer.wrap(Arrays.copyOf(from, m)), IntBuffer.wrap(Arrays.copyOf(to, m)),
+                FloatBuffer.wrap(Arrays.copyOf(meters, m)), IntBuffer.wrap(Arrays.copyOf(name, m)),
+                StringTable.of(new String[0]));
+    }
+}
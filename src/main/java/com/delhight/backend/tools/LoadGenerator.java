@@ -0,0 +1,308 @@
+package com.delhight.backend.tools;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for /routes and /autocomplete.
+ *
+ *   java -cp delhight-backend.jar -Dloader.main=com.delhight.backend.tools.LoadGenerator \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        [--target http://localhost:8080[,http://localhost:8081...]] [--rate 20] [--duration 60] \
+ *        [--warmup 10] [--mix routes=0.8,autocomplete=0.2] [--fake http://localhost:18090] \
+ *        [--places 126] [--seed 1]
+ *
+ * Requests are started on a fixed schedule (--rate per second) whether or not earlier
+ * ones have finished, and latency is measured from the scheduled start, so a stalled
+ * server shows up in the percentiles instead of silently lowering the rate.
+ *
+ * Origins, destinations and autocomplete prefixes are drawn from classpath:data/gazetteer.json
+ * (the first --places entries: fewer places, more repeated trips). With several targets
+ * each request goes to a random one, like a round-robin load balancer would; /routes
+ * outcomes include the "cache" status of the response, so the report shows the hit rate.
+ * With --fake (a FakeGoogleServer, in the test sources) the report includes upstream
+ * calls per request, from its /__stats counters before and after the measured phase.
+ */
+public class LoadGenerator {
+
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99, 0.999};
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final List<String> targets;
+    private final String fake;
+    private final Duration timeout;
+    private final List<String> places;
+
+    // per endpoint, guarded by the Stats instance
+    private final Map<String, Stats> stats = new TreeMap<>();
+
+    private static final class Stats {
+        long[] latenciesNanos = new long[1024];
+        int count;
+        final Map<String, Integer> outcomes = new TreeMap<>();
+
+        synchronized void record(long nanos, String outcome) {
+            if (count == latenciesNanos.length) latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+            latenciesNanos[count++] = nanos;
+            outcomes.merge(outcome, 1, Integer::sum);
+        }
+    }
+
+    public LoadGenerator(List<String> targets, String fake, Duration timeout, List<String> places) {
+        this.targets = new ArrayList<>();
+        for (String t : targets) this.targets.add(t.endsWith("/") ? t.substring(0, t.length() - 1) : t);
+        this.fake = fake;
+        this.timeout = timeout;
+        this.places = places;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        double rate = Double.parseDouble(options.getOrDefault("rate", "20"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        Map<String, Double> mix = parseMix(options.getOrDefault("mix", "routes=0.8,autocomplete=0.2"));
+        Random random = new Random(Long.parseLong(options.getOrDefault("seed", "1")));
+
+        List<String> places = loadPlaces();
+        if (options.containsKey("places")) {
+            places = places.subList(0, Math.min(places.size(), Integer.parseInt(options.get("places"))));
+        }
+        LoadGenerator generator = new LoadGenerator(
+                Arrays.asList(options.getOrDefault("target", "http://localhost:8080").split(",")),
+                options.get("fake"), Duration.ofMillis(Long.parseLong(options.getOrDefault("timeout-ms", "30000"))),
+                places);
+
+        if (warmup > 0) {
+            System.out.printf("warm-up: %d s at %.1f req/s%n", warmup, rate);
+            generator.run(rate, warmup, mix, random, false);
+        }
+        JSONObject upstreamBefore = generator.fakeStats();
+        System.out.printf("measuring: %d s at %.1f req/s%n", duration, rate);
+        long elapsedNanos = generator.run(rate, duration, mix, random, true);
+        JSONObject upstreamAfter = generator.fakeStats();
+
+        generator.report(elapsedNanos, upstreamBefore, upstreamAfter);
+    }
+
+    /**
+     * Issues requests at the given rate for the given number of seconds and waits for the
+     * last of them. Returns the elapsed time.
+     */
+    public long run(double rate, int seconds, Map<String, Double> mix, Random random, boolean record)
+            throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long total = (long) (rate * seconds);
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long scheduled = start + i * intervalNanos;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+
+                String endpoint = pick(mix, random);
+                URI uri = uriFor(endpoint, random);
+                executor.execute(() -> send(endpoint, uri, scheduled, record));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void send(String endpoint, URI uri, long scheduledNanos, boolean record) {
+        String outcome;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            outcome = String.valueOf(response.statusCode());
+            if (response.statusCode() == 200) outcome += cacheStatus(response.body());
+            if (response.statusCode() == 200 && response.body().contains("\"partial\":true")) outcome += " partial";
+        } catch (IOException e) {
+            outcome = e.getClass().getSimpleName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (!record) return;
+        Stats s;
+        synchronized (stats) {
+            s = stats.computeIfAbsent(endpoint, k -> new Stats());
+        }
+        s.record(System.nanoTime() - scheduledNanos, outcome);
+    }
+
+    /**
+     * Share of the recorded answers of an endpoint served from the route cache ("hit" or
+     * "stale"), 0 if none were recorded.
+     */
+    public double hitRate(String endpoint) {
+        Stats s;
+        synchronized (stats) {
+            s = stats.get(endpoint);
+        }
+        if (s == null) return 0;
+        synchronized (s) {
+            int cached = 0;
+            for (Map.Entry<String, Integer> e : s.outcomes.entrySet()) {
+                if (e.getKey().startsWith("200 hit") || e.getKey().startsWith("200 stale")) cached += e.getValue();
+            }
+            return s.count == 0 ? 0 : (double) cached / s.count;
+        }
+    }
+
+    // " hit" / " stale" / " miss" for /routes answers, "" otherwise
+    private static String cacheStatus(String body) {
+        int i = body.indexOf("\"cache\":\"");
+        if (i < 0) return "";
+        int start = i + "\"cache\":\"".length();
+        int end = body.indexOf('"', start);
+        return end > start ? " " + body.substring(start, end) : "";
+    }
+
+    private URI uriFor(String endpoint, Random random) {
+        String target = targets.get(random.nextInt(targets.size()));
+        if (endpoint.equals("autocomplete")) {
+            String place = places.get(random.nextInt(places.size()));
+            String prefix = place.substring(0, Math.min(place.length(), 3 + random.nextInt(6)));
+            return URI.create(target + "/autocomplete?q=" + encode(prefix) + "&session=lg" + random.nextInt(1 << 20));
+        }
+        String from = places.get(random.nextInt(places.size()));
+        String to;
+        do {
+            to = places.get(random.nextInt(places.size()));
+        } while (to.equals(from) && places.size() > 1);
+        return URI.create(target + "/routes?from=" + encode(from) + "&to=" + encode(to));
+    }
+
+    // ----------------------------
+    // Report
+    // ----------------------------
+
+    void report(long elapsedNanos, JSONObject upstreamBefore, JSONObject upstreamAfter) {
+        double seconds = elapsedNanos / 1e9;
+        long requests = 0;
+
+        System.out.println();
+        System.out.printf("%-14s %8s %9s %9s %9s %9s %9s   %s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "outcomes");
+        synchronized (stats) {
+            for (Map.Entry<String, Stats> e : stats.entrySet()) {
+                Stats s = e.getValue();
+                synchronized (s) {
+                    long[] sorted = Arrays.copyOf(s.latenciesNanos, s.count);
+                    Arrays.sort(sorted);
+                    StringBuilder row = new StringBuilder(String.format("%-14s %8d %9.1f",
+                            e.getKey(), s.count, s.count / seconds));
+                    for (double p : PERCENTILES) row.append(String.format(" %9.1f", percentile(sorted, p) / 1e6));
+                    row.append("   ").append(s.outcomes);
+                    System.out.println(row);
+                    requests += s.count;
+                }
+            }
+        }
+
+        if (upstreamBefore != null && upstreamAfter != null && requests > 0) {
+            JSONObject before = upstreamBefore.getJSONObject("calls");
+            JSONObject after = upstreamAfter.getJSONObject("calls");
+            long totalCalls = upstreamAfter.getLong("total") - upstreamBefore.getLong("total");
+            System.out.printf("%nupstream calls: %d (%.2f per request)%n", totalCalls, (double) totalCalls / requests);
+            for (String endpoint : after.keySet()) {
+                long calls = after.getLong(endpoint) - before.optLong(endpoint);
+                System.out.printf("  %-14s %8d (%.2f per request)%n", endpoint, calls, (double) calls / requests);
+            }
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    JSONObject fakeStats() {
+        if (fake == null) return null;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(fake + "/__stats")).timeout(timeout).GET().build();
+            return new JSONObject(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        } catch (Exception e) {
+            System.err.println("could not read fake upstream stats: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ----------------------------
+    // Helpers
+    // ----------------------------
+
+    private static Map<String, Double> parseMix(String mix) {
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.split("=");
+            String endpoint = kv[0].trim();
+            if (!endpoint.equals("routes") && !endpoint.equals("autocomplete")) {
+                throw new IllegalArgumentException("Unknown endpoint in --mix: " + endpoint);
+            }
+            out.put(endpoint, Double.parseDouble(kv[1]));
+        }
+        return out;
+    }
+
+    private static String pick(Map<String, Double> mix, Random random) {
+        double total = 0;
+        for (double w : mix.values()) total += w;
+        double r = random.nextDouble() * total;
+        String last = null;
+        for (Map.Entry<String, Double> e : mix.entrySet()) {
+            last = e.getKey();
+            r -= e.getValue();
+            if (r < 0) return last;
+        }
+        return last;
+    }
+
+    public static List<String> loadPlaces() throws IOException {
+        try (InputStream in = LoadGenerator.class.getClassLoader().getResourceAsStream("data/gazetteer.json")) {
+            if (in == null) throw new IOException("data/gazetteer.json not on the classpath");
+            JSONArray places = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .getJSONArray("places");
+            List<String> names = new ArrayList<>(places.length());
+            for (int i = 0; i < places.length(); i++) names.add(places.getJSONObject(i).getString("name"));
+            return names;
+        }
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+}
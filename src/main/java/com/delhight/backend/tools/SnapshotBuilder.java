@@ -0,0 +1,77 @@
+package com.delhight.backend.tools;
+
+import com.delhight.backend.graph.OsmWalkGraphLoader;
+import com.delhight.backend.graph.WalkGraph;
+import com.delhight.backend.graph.WalkRouter;
+import com.delhight.backend.model.FareTable;
+import com.delhight.backend.model.MetroNetwork;
+import com.delhight.backend.service.MetroNetworkService;
+import com.delhight.backend.snapshot.SnapshotWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Offline build step for the network snapshot (delhight.snapshot.file).
+ *
+ *   java -cp delhight-backend.jar -Dloader.main=com.delhight.backend.tools.SnapshotBuilder \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher \
+ *        --out network.snap [--metro metro-network.json] [--osm delhi-ncr.osm.gz]
+ *
+ * --metro defaults to the bundled classpath:data/metro-network.json, which is the sample
+ * fixture: the snapshot is then marked as such (metro.sample). --osm is optional; without it
+ * the snapshot carries no walking graph.
+ */
+public class SnapshotBuilder {
+
+    public static void main(String[] args) throws IOException {
+        String out = null, metro = null, osm = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--out" -> out = args[i + 1];
+                case "--metro" -> metro = args[i + 1];
+                case "--osm" -> osm = args[i + 1];
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (out == null) {
+            System.err.println("usage: SnapshotBuilder --out <file> [--metro <json>] [--osm <file.osm[.gz]>]");
+            System.exit(2);
+        }
+
+        SnapshotWriter writer = new SnapshotWriter();
+
+        long t0 = System.nanoTime();
+        String json = readMetro(metro);
+        boolean sample = MetroNetworkService.isSample(json);
+        MetroNetwork net = MetroNetworkService.parse(json);
+        net = net.withFareTable(FareTable.compute(net));
+        MetroNetworkService.writeSnapshot(net, sample, writer);
+        System.out.printf("metro: %d stations, %d links%s (%d ms)%n", net.size(), net.getLinkCount(),
+                sample ? ", SAMPLE fixture" : "", (System.nanoTime() - t0) / 1_000_000);
+
+        if (osm != null) {
+            long t1 = System.nanoTime();
+            WalkGraph graph = OsmWalkGraphLoader.load(Paths.get(osm));
+            WalkRouter router = WalkRouter.build(graph);
+            router.writeSnapshot(writer);
+            System.out.printf("walk: %d nodes, %d edges, %d shortcuts (%d ms)%n", graph.nodeCount(),
+                    graph.edgeCount(), router.getHierarchy().shortcutCount(), (System.nanoTime() - t1) / 1_000_000);
+        }
+
+        writer.write(Paths.get(out));
+        System.out.printf("wrote %s (%d bytes)%n", out, Files.size(Paths.get(out)));
+    }
+
+    private static String readMetro(String path) throws IOException {
+        if (path != null) return Files.readString(Path.of(path), StandardCharsets.UTF_8);
+        try (InputStream in = SnapshotBuilder.class.getClassLoader().getResourceAsStream("data/metro-network.json")) {
+            if (in == null) throw new IOException("data/metro-network.json not on the classpath");
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.delhight.backend.utils;
+
+/**
+ * Concurrency limit that adapts to observed latency (gradient algorithm):
+ *
+ *   shortRtt  = mean latency of the last window of requests
+ *   longRtt   = lowest recent shortRtt, rising slowly (the "no queueing" latency)
+ *   gradient  = clamp(tolerance x longRtt / shortRtt, 0.5, 1.0)
+ *   newLimit  = limit x gradient + sqrt(limit)
+ *
+ * While latency stays near its baseline the limit grows by sqrt(limit) per window; once
+ * requests start queueing (shortRtt rises above longRtt x tolerance) it shrinks in
+ * proportion. Failed requests (upstream errors, timeouts) back the limit off by 10%.
+ * The limit only grows while it is actually being used, so a quiet period cannot inflate it.
+ *
+ * tryAcquire() never blocks: callers that get no permit are expected to reject the request.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+    private static final int LONG_WINDOW = 200;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final int windowSize;
+
+    private double limit;
+    private int inFlight;
+
+    private long windowNanos;
+    private int windowCount;
+    private int windowMaxInFlight;
+    private boolean windowFailed;
+    private double longRttNanos;
+
+    private long accepted;
+    private long rejected;
+
+    /** One admitted request; call exactly one of success(), failure() or ignore(). */
+    public final class Permit {
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        /** The request completed normally; its latency feeds the limit. */
+        public void success() {
+            release(System.nanoTime() - startNanos, false, true);
+        }
+
+        /** The request failed because of overload (timeout, upstream error). */
+        public void failure() {
+            release(System.nanoTime() - startNanos, true, true);
+        }
+
+        /** The request finished but says nothing about load (e.g. a client error). */
+        public void ignore() {
+            release(0, false, false);
+        }
+
+        private void release(long rttNanos, boolean failed, boolean sample) {
+            synchronized (AdaptiveConcurrencyLimiter.this) {
+                if (released) return;
+                released = true;
+                inFlight--;
+                if (sample) onSample(rttNanos, failed);
+            }
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double tolerance, int windowSize) {
+        if (minLimit <= 0 || maxLimit < minLimit) throw new IllegalArgumentException("need 0 < minLimit <= maxLimit");
+        if (tolerance < 1.0) throw new IllegalArgumentException("tolerance must be >= 1");
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowSize = Math.max(1, windowSize);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /** A permit if fewer than limit() requests are in flight, else null. */
+    public synchronized Permit tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return null;
+        }
+        inFlight++;
+        accepted++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        return new Permit();
+    }
+
+    public String name() { return name; }
+
+    public synchronized int limit() { return (int) limit; }
+
+    public synchronized int inFlight() { return inFlight; }
+
+    public synchronized long accepted() { return accepted; }
+
+    public synchronized long rejected() { return rejected; }
+
+    /** Baseline latency in ms the limit is measured against (0 before the first window). */
+    public synchronized double baselineRttMillis() { return longRttNanos / 1e6; }
+
+    // ----------------------------
+    // Limit update
+    // ----------------------------
+
+    private void onSample(long rttNanos, boolean failed) {
+        windowNanos += rttNanos;
+        windowCount++;
+        windowFailed |= failed;
+        if (windowCount < windowSize) return;
+
+        double shortRtt = (double) windowNanos / windowCount;
+        boolean appLimited = windowMaxInFlight < limit / 2;
+        boolean anyFailed = windowFailed;
+        windowNanos = 0;
+        windowCount = 0;
+        windowMaxInFlight = inFlight;
+        windowFailed = false;
+
+        if (anyFailed) {
+            limit = Math.max(minLimit, limit * BACKOFF);
+            return;
+        }
+
+        // the baseline follows drops at once and rises only slowly, so sustained queueing
+        // cannot pass itself off as the new normal
+        if (longRttNanos == 0 || shortRtt < longRttNanos) longRttNanos = shortRtt;
+        else longRttNanos += (shortRtt - longRttNanos) / LONG_WINDOW;
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        if (target > limit && appLimited) return;
+
+        limit = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+}
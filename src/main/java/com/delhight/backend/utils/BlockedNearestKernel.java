@@ -0,0 +1,59 @@
+package com.delhight.backend.utils;
+
+import java.util.Arrays;
+
+/**
+ * Plain-Java {@link NearestKernel} in two passes per block of BLOCK stations:
+ *
+ * - distances: chord^2 of every station in the block into a float scratch array. The loop
+ *   has no branches and no calls, so C2 compiles it to SIMD (SuperWord)
+ * - selection: a scan of the block against the current k-th best, inserting the few
+ *   stations that beat it
+ *
+ * The block is small enough to stay in L1 between the two passes.
+ */
+public class BlockedNearestKernel implements NearestKernel {
+
+    private static final int BLOCK = 256;
+
+    @Override
+    public String name() {
+        return "blocked-" + BLOCK;
+    }
+
+    @Override
+    public void nearest(float[] sx, float[] sy, float[] sz, int stations,
+                        double[] lats, double[] lngs, int fromPoint, int toPoint, int k,
+                        int[] outIndex, float[] outChord2) {
+        float[] block = new float[BLOCK];
+        float[] px = {0}, py = {0}, pz = {0};
+        for (int pt = fromPoint; pt < toPoint; pt++) {
+            NearestKernel.toUnitVector(lats[pt], lngs[pt], px, py, pz, 0);
+            int row = pt * k;
+            Arrays.fill(outIndex, row, row + k, -1);
+            Arrays.fill(outChord2, row, row + k, Float.POSITIVE_INFINITY);
+
+            float threshold = Float.POSITIVE_INFINITY;
+            int filled = 0;
+            for (int base = 0; base < stations; base += BLOCK) {
+                int length = Math.min(BLOCK, stations - base);
+                distances(sx, sy, sz, base, length, px[0], py[0], pz[0], block);
+                for (int j = 0; j < length; j++) {
+                    if (block[j] < threshold) {
+                        threshold = NearestKernel.insert(outIndex, outChord2, row, k, filled, base + j, block[j]);
+                        filled++;
+                    }
+                }
+            }
+        }
+    }
+
+    // branch-free, so it vectorizes
+    private static void distances(float[] sx, float[] sy, float[] sz, int base, int length,
+                                  float x, float y, float z, float[] out) {
+        for (int j = 0; j < length; j++) {
+            float dx = sx[base + j] - x, dy = sy[base + j] - y, dz = sz[base + j] - z;
+            out[j] = dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.delhight.backend.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Immutable consistent-hash ring of named nodes, each placed at virtualNodes points.
+ *
+ * A key belongs to the first node clockwise from its hash. Adding or removing a node moves
+ * only the keys of the arcs that node takes or gives up (about 1/n of them); membership
+ * changes build a new ring.
+ *
+ * owner(hash, hasCapacity) implements consistent hashing with bounded loads: it walks
+ * clockwise from the key and returns the first distinct node the predicate accepts, so an
+ * overloaded owner spills its keys to the next nodes on the ring (the same ones for the same
+ * key, which keeps spilled keys cache-friendly too).
+ */
+public final class ConsistentHashRing {
+
+    private final long[] points;     // sorted
+    private final String[] owners;   // owner of points[i]
+    private final List<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = List.copyOf(new LinkedHashSet<>(nodes));
+        int n = this.nodes.size() * Math.max(1, virtualNodes);
+        long[] hashes = new long[n];
+        String[] names = new String[n];
+        int i = 0;
+        for (String node : this.nodes) {
+            for (int v = 0; v < Math.max(1, virtualNodes); v++) {
+                hashes[i] = hash(node + "#" + v);
+                names[i] = node;
+                i++;
+            }
+        }
+        // sort points and their owners together
+        Integer[] order = new Integer[n];
+        for (int k = 0; k < n; k++) order[k] = k;
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.points = new long[n];
+        this.owners = new String[n];
+        for (int k = 0; k < n; k++) {
+            points[k] = hashes[order[k]];
+            owners[k] = names[order[k]];
+        }
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /** Owner of a key, ignoring load; null on an empty ring. */
+    public String owner(long keyHash) {
+        return owner(keyHash, node -> true);
+    }
+
+    /**
+     * First node clockwise from the key that hasCapacity accepts; the plain owner if none does.
+     */
+    public String owner(long keyHash, Predicate<String> hasCapacity) {
+        if (points.length == 0) return null;
+        int start = Arrays.binarySearch(points, keyHash);
+        if (start < 0) start = -start - 1;
+        Set<String> seen = new LinkedHashSet<>();
+        for (int k = 0; k < points.length && seen.size() < nodes.size(); k++) {
+            String node = owners[(start + k) % points.length];
+            if (!seen.add(node)) continue;
+            if (hasCapacity.test(node)) return node;
+        }
+        return seen.iterator().next();
+    }
+
+    /** Share of the hash space each node owns (for diagnostics). */
+    public List<String> describe() {
+        List<String> out = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            double share = 0;
+            for (int k = 0; k < points.length; k++) {
+                if (!owners[k].equals(node)) continue;
+                long prev = points[(k - 1 + points.length) % points.length];
+                long arc = points[k] - prev;   // wraps correctly in two's complement
+                share += arc == 0 && points.length == 1 ? Math.pow(2, 64) : unsigned(arc);
+            }
+            out.add(node + " " + Math.round(share / Math.pow(2, 64) * 1000) / 10.0 + "%");
+        }
+        return out;
+    }
+
+    private static double unsigned(long v) {
+        return v >= 0 ? v : v + Math.pow(2, 64);
+    }
+
+    /** 64-bit FNV-1a of the UTF-8 bytes, finished with the murmur3 mixer for spread. */
+    public static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,76 @@
+package com.delhight.backend.utils;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which a request must be answered.
+ *
+ * The deadline of the current request is bound to the thread with enter(); upstream
+ * clients read it with current() and give each call only the time that is left.
+ *
+ *   try (Deadline.Scope ignored = Deadline.after(Duration.ofSeconds(8)).enter()) {
+ *       ...
+ *   }
+ *
+ * Whoever finds the deadline expired (isExpired() returning true) cuts its work short,
+ * so wasReached() tells afterwards whether the result is partial.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+    private volatile boolean reached;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /** Deadline bound to this thread, or null if none. */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /** True if this thread has a deadline and it has passed. */
+    public static boolean currentExpired() {
+        Deadline d = CURRENT.get();
+        return d != null && d.isExpired();
+    }
+
+    public boolean isExpired() {
+        if (reached) return true;
+        if (System.nanoTime() - expiresAtNanos < 0) return false;
+        reached = true;
+        return true;
+    }
+
+    /** True once some caller has seen this deadline expired (and stopped early). */
+    public boolean wasReached() {
+        return reached;
+    }
+
+    /** Time left (zero once expired). */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    /** Binds this deadline to the current thread until the scope is closed. */
+    public Scope enter() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous != null) CURRENT.set(previous);
+            else CURRENT.remove();
+        };
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
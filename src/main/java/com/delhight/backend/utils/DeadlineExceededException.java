@@ -0,0 +1,19 @@
+package com.delhight.backend.utils;
+
+/**
+ * Thrown instead of starting (or while waiting for) an upstream call once the request
+ * deadline has passed.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private final String stage;
+
+    public DeadlineExceededException(String stage) {
+        super("Deadline exceeded in " + stage);
+        this.stage = stage;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+}
@@ -0,0 +1,159 @@
+package com.delhight.backend.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Outline of the set cells of a boolean grid as polygons with holes, in grid coordinates:
+ * cell (row, col) spans x = col..col+1, y = row..row+1 (row 0 at the bottom).
+ *
+ * Boundary edges are walked with the set cells on their left, so outer rings come out
+ * counter-clockwise and holes clockwise (the GeoJSON orientation once x = lng, y = lat).
+ * Where two set cells touch only at a corner the walk turns left, keeping them separate
+ * rings that share a vertex. Straight runs are merged, so a ring has one vertex per corner.
+ */
+public final class GridOutline {
+
+    private static final int[] DX = {1, 0, -1, 0};   // E, N, W, S
+    private static final int[] DY = {0, 1, 0, -1};
+
+    private GridOutline() {
+    }
+
+    /** Polygons: each is [outer ring, holes...], a ring is closed {x0,y0, x1,y1, ..., x0,y0}. */
+    public static List<List<int[]>> polygons(boolean[] set, int rows, int cols) {
+        int width = cols + 1;
+        // boundary edges (start vertex, direction), and the edges leaving each vertex
+        // (two where set cells touch only at a corner)
+        int[] from = new int[16];
+        int[] dir = new int[16];
+        int edges = 0;
+        int[] out = new int[(rows + 1) * width * 2];
+        Arrays.fill(out, -1);
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (!set[r * cols + c]) continue;
+                int[] starts = new int[4];
+                boolean[] open = {
+                        r == 0 || !set[(r - 1) * cols + c],
+                        c == cols - 1 || !set[r * cols + c + 1],
+                        r == rows - 1 || !set[(r + 1) * cols + c],
+                        c == 0 || !set[r * cols + c - 1]};
+                starts[0] = r * width + c;
+                starts[1] = r * width + c + 1;
+                starts[2] = (r + 1) * width + c + 1;
+                starts[3] = (r + 1) * width + c;
+                for (int d = 0; d < 4; d++) {
+                    if (!open[d]) continue;
+                    if (edges == from.length) {
+                        from = Arrays.copyOf(from, edges * 2);
+                        dir = Arrays.copyOf(dir, edges * 2);
+                    }
+                    from[edges] = starts[d];
+                    dir[edges] = d;
+                    out[starts[d] * 2 + (out[starts[d] * 2] < 0 ? 0 : 1)] = edges;
+                    edges++;
+                }
+            }
+        }
+
+        // each ring is a cycle of next(): walk every cycle once
+        List<int[]> outers = new ArrayList<>();
+        List<int[]> holes = new ArrayList<>();
+        boolean[] used = new boolean[edges];
+        for (int first = 0; first < edges; first++) {
+            if (used[first]) continue;
+            int[] ring = walk(first, from, dir, out, used, width);
+            (area2(ring) > 0 ? outers : holes).add(ring);
+        }
+
+        List<List<int[]>> polygons = new ArrayList<>(outers.size());
+        for (int[] outer : outers) {
+            List<int[]> p = new ArrayList<>();
+            p.add(outer);
+            polygons.add(p);
+        }
+        for (int[] hole : holes) {
+            // the set cell left of the hole's first edge lies in the outer ring the hole belongs
+            // to: the smallest one around it (an island in a hole is inside the bigger ring too)
+            int d = direction(hole[0], hole[1], hole[2], hole[3]);
+            double px = hole[0] + DX[d] * 0.5 - DY[d] * 0.5;
+            double py = hole[1] + DY[d] * 0.5 + DX[d] * 0.5;
+            List<int[]> owner = null;
+            long ownerArea = Long.MAX_VALUE;
+            for (List<int[]> p : polygons) {
+                long a = area2(p.get(0));
+                if (a < ownerArea && contains(p.get(0), px, py)) {
+                    owner = p;
+                    ownerArea = a;
+                }
+            }
+            if (owner != null) owner.add(hole);
+        }
+        return polygons;
+    }
+
+    // the ring through edge first, keeping only the vertices where the direction changes
+    private static int[] walk(int first, int[] from, int[] dir, int[] out, boolean[] used, int width) {
+        int[] xy = new int[16];
+        int size = 0;
+        int e = first;
+        int prev = -1;
+        int lastDir = -1;
+        do {
+            used[e] = true;
+            if (dir[e] != lastDir) {
+                if (size == xy.length) xy = Arrays.copyOf(xy, size * 2);
+                xy[size++] = from[e] % width;
+                xy[size++] = from[e] / width;
+            }
+            lastDir = dir[e];
+            prev = e;
+            e = next(e, from, dir, out, width);
+        } while (e != first && e >= 0);
+
+        // the last run may continue into the first one: then the first vertex is not a corner
+        int start = dir[prev] == dir[first] ? 2 : 0;
+        int[] ring = new int[size - start + 2];
+        System.arraycopy(xy, start, ring, 0, size - start);
+        ring[size - start] = ring[0];
+        ring[size - start + 1] = ring[1];
+        return ring;
+    }
+
+    // edge following e: at a touching corner, the one turning left
+    private static int next(int e, int[] from, int[] dir, int[] out, int width) {
+        int v = from[e] + DX[dir[e]] + DY[dir[e]] * width;
+        int a = out[v * 2];
+        int b = out[v * 2 + 1];
+        if (b < 0) return a;
+        return dir[b] == ((dir[e] + 1) & 3) ? b : a;
+    }
+
+    private static int direction(int x0, int y0, int x1, int y1) {
+        if (x1 > x0) return 0;
+        if (y1 > y0) return 1;
+        if (x1 < x0) return 2;
+        return 3;
+    }
+
+    // twice the signed area (shoelace); > 0 counter-clockwise
+    private static long area2(int[] ring) {
+        long a = 0;
+        for (int i = 0; i + 3 < ring.length; i += 2) {
+            a += (long) ring[i] * ring[i + 3] - (long) ring[i + 2] * ring[i + 1];
+        }
+        return a;
+    }
+
+    private static boolean contains(int[] ring, double px, double py) {
+        boolean inside = false;
+        for (int i = 0; i + 3 < ring.length; i += 2) {
+            double x0 = ring[i], y0 = ring[i + 1], x1 = ring[i + 2], y1 = ring[i + 3];
+            if ((y0 > py) != (y1 > py) && px < x0 + (py - y0) * (x1 - x0) / (y1 - y0)) inside = !inside;
+        }
+        return inside;
+    }
+}
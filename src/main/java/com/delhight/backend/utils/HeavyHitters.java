@@ -0,0 +1,170 @@
+package com.delhight.backend.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate top-k of a stream of keys in fixed memory:
+ *
+ * - a count-min sketch (depth x width int counters) estimates the count of any key
+ *   (never under-counts; over-counts by collisions only)
+ * - a min-heap of the k keys with the highest estimates, updated as keys are recorded
+ *
+ * decay() halves every counter, so old popularity fades (call it on a schedule).
+ * Thread-safe: all operations lock the instance, and each is O(depth + log k).
+ */
+public class HeavyHitters<K> {
+
+    public record Counted<K>(K key, long count) {}
+
+    private final int depth;
+    private final int width;
+    private final int[][] counters;
+    private final int[] seeds;
+
+    // min-heap on heapCounts; position of every heap key in heapIndex
+    private final int capacity;
+    private final Object[] heapKeys;
+    private final long[] heapCounts;
+    private final Map<K, Integer> heapIndex;
+    private int heapSize;
+
+    private long total;
+
+    public HeavyHitters(int k, int width, int depth) {
+        if (k <= 0 || width <= 0 || depth <= 0) throw new IllegalArgumentException("k, width and depth must be > 0");
+        this.capacity = k;
+        this.width = width;
+        this.depth = depth;
+        this.counters = new int[depth][width];
+        this.seeds = new int[depth];
+        for (int i = 0; i < depth; i++) seeds[i] = 0x9E3779B9 * (i + 1);
+        this.heapKeys = new Object[k];
+        this.heapCounts = new long[k];
+        this.heapIndex = new HashMap<>(k * 2);
+    }
+
+    /** Counts one occurrence of key and returns its new estimate. */
+    public synchronized long record(K key) {
+        total++;
+        int h = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int[] row = counters[i];
+            int slot = slot(h, i);
+            if (row[slot] < Integer.MAX_VALUE) row[slot]++;
+            estimate = Math.min(estimate, row[slot]);
+        }
+
+        Integer pos = heapIndex.get(key);
+        if (pos != null) {
+            heapCounts[pos] = estimate;
+            siftDown(pos);
+        } else if (heapSize < capacity) {
+            heapKeys[heapSize] = key;
+            heapCounts[heapSize] = estimate;
+            heapIndex.put(key, heapSize);
+            siftUp(heapSize++);
+        } else if (estimate > heapCounts[0]) {
+            heapIndex.remove(key(0));
+            heapKeys[0] = key;
+            heapCounts[0] = estimate;
+            heapIndex.put(key, 0);
+            siftDown(0);
+        }
+        return estimate;
+    }
+
+    /** Estimated count of any key (tracked in the top-k or not). */
+    public synchronized long estimate(K key) {
+        int h = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) estimate = Math.min(estimate, counters[i][slot(h, i)]);
+        return estimate;
+    }
+
+    /** The tracked keys, highest estimate first. */
+    public synchronized List<Counted<K>> top() {
+        List<Counted<K>> out = new ArrayList<>(heapSize);
+        for (int i = 0; i < heapSize; i++) out.add(new Counted<>(key(i), heapCounts[i]));
+        out.sort((a, b) -> Long.compare(b.count(), a.count()));
+        return out;
+    }
+
+    /** Halves all counts; keys whose count drops to 0 leave the top-k. */
+    public synchronized void decay() {
+        for (int[] row : counters) {
+            for (int j = 0; j < width; j++) row[j] >>>= 1;
+        }
+        total >>>= 1;
+
+        int kept = 0;
+        heapIndex.clear();
+        for (int i = 0; i < heapSize; i++) {
+            long c = heapCounts[i] >>> 1;
+            if (c == 0) continue;
+            heapKeys[kept] = heapKeys[i];
+            heapCounts[kept] = c;
+            kept++;
+        }
+        for (int i = kept; i < heapSize; i++) heapKeys[i] = null;
+        heapSize = kept;
+        // halving keeps the order of the remaining entries, but compaction moved them: re-heapify
+        for (int i = heapSize / 2 - 1; i >= 0; i--) siftDown(i);
+        for (int i = 0; i < heapSize; i++) heapIndex.put(key(i), i);
+    }
+
+    public synchronized long total() {
+        return total;
+    }
+
+    // ----------------------------
+    // Internals
+    // ----------------------------
+
+    private int slot(int hash, int row) {
+        int h = (hash ^ seeds[row]) * 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, width);
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int pos) {
+        return (K) heapKeys[pos];
+    }
+
+    private void siftUp(int pos) {
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (heapCounts[parent] <= heapCounts[pos]) break;
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+
+    private void siftDown(int pos) {
+        while (true) {
+            int left = 2 * pos + 1;
+            if (left >= heapSize) return;
+            int smallest = left + 1 < heapSize && heapCounts[left + 1] < heapCounts[left] ? left + 1 : left;
+            if (heapCounts[pos] <= heapCounts[smallest]) return;
+            swap(pos, smallest);
+            pos = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Object k = heapKeys[a];
+        heapKeys[a] = heapKeys[b];
+        heapKeys[b] = k;
+        long c = heapCounts[a];
+        heapCounts[a] = heapCounts[b];
+        heapCounts[b] = c;
+        if (heapIndex.containsKey(key(a))) heapIndex.put(key(a), a);
+        if (heapIndex.containsKey(key(b))) heapIndex.put(key(b), b);
+    }
+}
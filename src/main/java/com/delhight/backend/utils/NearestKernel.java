@@ -0,0 +1,55 @@
+package com.delhight.backend.utils;
+
+/**
+ * Bulk k-nearest search over stations given as unit vectors on the sphere
+ * (structure of arrays: sx[i], sy[i], sz[i]).
+ *
+ * Ranking uses the squared chord between unit vectors, which grows monotonically with
+ * great-circle distance and needs only multiply-adds; callers turn the chord of the
+ * selected stations into meters with {@link #chord2ToMeters(float)}.
+ *
+ * Results for point p are written to out[p*k .. p*k+k) in ascending distance,
+ * padded with index -1 when there are fewer than k stations.
+ */
+public interface NearestKernel {
+
+    double EARTH_RADIUS_METERS = 6371000;
+
+    String name();
+
+    void nearest(float[] sx, float[] sy, float[] sz, int stations,
+                 double[] lats, double[] lngs, int fromPoint, int toPoint, int k,
+                 int[] outIndex, float[] outChord2);
+
+    static double chord2ToMeters(float chord2) {
+        double half = Math.sqrt(chord2) / 2;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, half));
+    }
+
+    /** Unit vector of a lat/lng into x, y, z at index i. */
+    static void toUnitVector(double lat, double lng, float[] x, float[] y, float[] z, int i) {
+        double la = Math.toRadians(lat), ln = Math.toRadians(lng);
+        double c = Math.cos(la);
+        x[i] = (float) (c * Math.cos(ln));
+        y[i] = (float) (c * Math.sin(ln));
+        z[i] = (float) Math.sin(la);
+    }
+
+    /**
+     * Keeps the k smallest (chord2, index) pairs of one point in its output row,
+     * sorted ascending. Returns the current k-th best (the admission threshold).
+     */
+    static float insert(int[] outIndex, float[] outChord2, int row, int k, int filled,
+                        int index, float chord2) {
+        int pos = Math.min(filled, k - 1);
+        // shift larger entries right
+        while (pos > 0 && outChord2[row + pos - 1] > chord2) {
+            outChord2[row + pos] = outChord2[row + pos - 1];
+            outIndex[row + pos] = outIndex[row + pos - 1];
+            pos--;
+        }
+        outChord2[row + pos] = chord2;
+        outIndex[row + pos] = index;
+        return filled + 1 >= k ? outChord2[row + k - 1] : Float.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,30 @@
+package com.delhight.backend.utils;
+
+/**
+ * Google encoded polyline format (precision 1e-5), same as overview_polyline.points.
+ */
+public class PolylineEncoder {
+
+    public static String encode(double[] lats, double[] lngs, int count) {
+        StringBuilder sb = new StringBuilder(count * 6);
+        long prevLat = 0, prevLng = 0;
+        for (int i = 0; i < count; i++) {
+            long lat = Math.round(lats[i] * 1e5);
+            long lng = Math.round(lngs[i] * 1e5);
+            encodeValue(lat - prevLat, sb);
+            encodeValue(lng - prevLng, sb);
+            prevLat = lat;
+            prevLng = lng;
+        }
+        return sb.toString();
+    }
+
+    private static void encodeValue(long value, StringBuilder sb) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
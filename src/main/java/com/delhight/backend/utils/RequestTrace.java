@@ -0,0 +1,187 @@
+package com.delhight.backend.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Per-request record of the upstream lookups (geocode, nearest stations, route legs) made
+ * while serving one request, for the Server-Timing header and the trace=true section.
+ *
+ *   try (RequestTrace trace = RequestTrace.start()) {
+ *       ...                                   // services call begin()/end() around lookups
+ *       response.setHeader(RequestTrace.HEADER, trace.serverTiming(cacheStatus));
+ *   }
+ *
+ * The trace is bound to the thread (like Deadline); lookups made while no trace is bound
+ * (background refreshes, batch workers) cost one ThreadLocal read. Events go into arrays
+ * preallocated per trace, and traces are pooled, so recording allocates nothing: stage,
+ * mode, cache status and outcome are constants. Events past CAPACITY are only counted.
+ *
+ * The cache status of an event is whatever the innermost cache reported with cache()
+ * between begin() and end() ("none" if nothing did).
+ */
+public final class RequestTrace implements AutoCloseable {
+
+    public enum Stage {
+        GEOCODE("geocode"), STATIONS("stations"), LEG("leg"), WAIT("wait");
+
+        private final String metric;
+
+        Stage(String metric) {
+            this.metric = metric;
+        }
+
+        public String metric() { return metric; }
+    }
+
+    public static final String HEADER = "Server-Timing";
+
+    public static final String OK = "ok";
+    public static final String EMPTY = "empty";
+    public static final String DEADLINE = "deadline";
+
+    private static final int CAPACITY = 128;
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final ArrayBlockingQueue<RequestTrace> POOL = new ArrayBlockingQueue<>(256);
+
+    private final Stage[] stages = new Stage[CAPACITY];
+    private final String[] modes = new String[CAPACITY];
+    private final String[] caches = new String[CAPACITY];
+    private final String[] outcomes = new String[CAPACITY];
+    private final long[] startNanos = new long[CAPACITY];
+    private final long[] durationNanos = new long[CAPACITY];
+    private int size;
+    private int dropped;
+    private long beganNanos;
+    private String pendingCache;
+
+    private RequestTrace() {}
+
+    /** Binds a (pooled) trace to the current thread; close() unbinds and recycles it. */
+    public static RequestTrace start() {
+        RequestTrace t = POOL.poll();
+        if (t == null) t = new RequestTrace();
+        t.size = 0;
+        t.dropped = 0;
+        t.pendingCache = null;
+        t.beganNanos = System.nanoTime();
+        CURRENT.set(t);
+        return t;
+    }
+
+    /** Trace bound to this thread, or null. */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) CURRENT.remove();
+        POOL.offer(this);
+    }
+
+    // ----------------------------
+    // Recording
+    // ----------------------------
+
+    /** Start of a lookup: pass the result to end(). 0 when this thread is not traced. */
+    public static long begin() {
+        RequestTrace t = CURRENT.get();
+        if (t == null) return 0;
+        t.pendingCache = null;
+        return System.nanoTime();
+    }
+
+    /** Cache status of the lookup in progress (e.g. "near", "shared", "miss", "gazetteer"). */
+    public static void cache(String status) {
+        RequestTrace t = CURRENT.get();
+        if (t != null) t.pendingCache = status;
+    }
+
+    /** End of a lookup started with begin(); mode may be null. */
+    public static void end(Stage stage, String mode, long began, String outcome) {
+        if (began == 0) return;
+        RequestTrace t = CURRENT.get();
+        if (t == null) return;
+        long now = System.nanoTime();
+        String cache = t.pendingCache != null ? t.pendingCache : "none";
+        t.pendingCache = null;
+        if (t.size == CAPACITY) {
+            t.dropped++;
+            return;
+        }
+        int i = t.size++;
+        t.stages[i] = stage;
+        t.modes[i] = mode;
+        t.caches[i] = cache;
+        t.outcomes[i] = outcome;
+        t.startNanos[i] = began;
+        t.durationNanos[i] = now - began;
+    }
+
+    /** Outcome of a lookup from its result: ok, or empty / deadline when it gave nothing. */
+    public static String outcome(Object result) {
+        if (result != null && !(result instanceof java.util.Collection<?> c && c.isEmpty())) return OK;
+        return Deadline.currentExpired() ? DEADLINE : EMPTY;
+    }
+
+    // ----------------------------
+    // Reporting
+    // ----------------------------
+
+    public long elapsedNanos() {
+        return System.nanoTime() - beganNanos;
+    }
+
+    /**
+     * Server-Timing header value: time and count per stage, the total, and an optional
+     * description (e.g. the route cache status) as a duration-less "cache" metric.
+     *
+     *   geocode;dur=1.2;desc="2", stations;dur=80.1;desc="2", leg;dur=912.4;desc="15", total;dur=1003.7
+     */
+    public String serverTiming(String cacheStatus) {
+        StringBuilder sb = new StringBuilder(160);
+        for (Stage stage : Stage.values()) {
+            long nanos = 0;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (stages[i] != stage) continue;
+                nanos += durationNanos[i];
+                count++;
+            }
+            if (count == 0) continue;
+            sb.append(stage.metric()).append(";dur=").append(millis(nanos))
+                    .append(";desc=\"").append(count).append("\", ");
+        }
+        if (cacheStatus != null) sb.append("cache;desc=\"").append(cacheStatus).append("\", ");
+        sb.append("total;dur=").append(millis(elapsedNanos()));
+        return sb.toString();
+    }
+
+    /** Every recorded event, in call order, for the trace=true response section. */
+    public Map<String, Object> toMap() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("totalMillis", millis(elapsedNanos()));
+        List<Map<String, Object>> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> e = new LinkedHashMap<>();
+            e.put("stage", stages[i].metric());
+            if (modes[i] != null) e.put("mode", modes[i]);
+            e.put("atMillis", millis(startNanos[i] - beganNanos));
+            e.put("durationMillis", millis(durationNanos[i]));
+            e.put("cache", caches[i]);
+            e.put("outcome", outcomes[i]);
+            events.add(e);
+        }
+        out.put("events", events);
+        if (dropped > 0) out.put("dropped", dropped);
+        return out;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e5) / 10.0;
+    }
+}
@@ -0,0 +1,269 @@
+package com.delhight.backend.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.BiConsumer;
+
+/**
+ * Minimal client for the Redis serialization protocol (RESP2), enough for a shared cache:
+ * GET / MGET / SET PX / DEL / PUBLISH and a blocking SUBSCRIBE loop.
+ *
+ * - pipeline() writes a batch of commands in one flush and then reads all replies, so a
+ *   batch costs one network round trip however many commands it holds
+ * - connections are pooled (at most maxIdle kept); a connection that saw an I/O error
+ *   is closed rather than returned, so a reply can never be read by the wrong caller
+ * - every read is bounded by timeoutMillis; callers treat IOException as "store unavailable"
+ *
+ * Replies are returned as byte[] (bulk string, null for nil), Long (integer), String
+ * (simple string) or List<Object> (array). An error reply throws ServerErrorException.
+ */
+public class RespClient implements Closeable {
+
+    /** "-ERR ..." reply from the server. */
+    public static class ServerErrorException extends IOException {
+        public ServerErrorException(String message) {
+            super(message);
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final int timeoutMillis;
+    private final int maxIdle;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+    private volatile Connection subscriber;
+    private volatile boolean closed;
+
+    public RespClient(String host, int port, int timeoutMillis, int maxIdle) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+        this.maxIdle = Math.max(1, maxIdle);
+    }
+
+    /** Command helper: arguments as strings or byte[]. */
+    public static byte[][] command(Object... args) {
+        byte[][] out = new byte[args.length][];
+        for (int i = 0; i < args.length; i++) {
+            Object a = args[i];
+            out[i] = a instanceof byte[] b ? b : String.valueOf(a).getBytes(StandardCharsets.UTF_8);
+        }
+        return out;
+    }
+
+    /** Sends all commands in one write and returns their replies in order. */
+    public List<Object> pipeline(List<byte[][]> commands) throws IOException {
+        if (commands.isEmpty()) return List.of();
+        Connection c = borrow();
+        boolean healthy = false;
+        try {
+            for (byte[][] cmd : commands) c.write(cmd);
+            c.out.flush();
+            List<Object> replies = new ArrayList<>(commands.size());
+            ServerErrorException error = null;
+            for (int i = 0; i < commands.size(); i++) {
+                try {
+                    replies.add(c.read());
+                } catch (ServerErrorException e) {
+                    // keep reading: the remaining replies are still on the wire
+                    if (error == null) error = e;
+                    replies.add(null);
+                }
+            }
+            healthy = true;
+            if (error != null) throw error;
+            return replies;
+        } finally {
+            release(c, healthy);
+        }
+    }
+
+    public Object call(Object... args) throws IOException {
+        return pipeline(List.<byte[][]>of(command(args))).get(0);
+    }
+
+    public byte[] get(String key) throws IOException {
+        return (byte[]) call("GET", key);
+    }
+
+    /** Values for the keys in order (null where absent), in one round trip. */
+    public List<byte[]> mget(List<String> keys) throws IOException {
+        if (keys.isEmpty()) return List.of();
+        Object[] args = new Object[keys.size() + 1];
+        args[0] = "MGET";
+        for (int i = 0; i < keys.size(); i++) args[i + 1] = keys.get(i);
+        List<?> reply = (List<?>) call(args);
+        List<byte[]> out = new ArrayList<>(reply.size());
+        for (Object o : reply) out.add((byte[]) o);
+        return out;
+    }
+
+    public void ping() throws IOException {
+        call("PING");
+    }
+
+    /**
+     * Subscribes on a dedicated connection and hands every message to the listener
+     * (channel, payload) until the connection fails or the client is closed. Blocks.
+     * onSubscribed runs once the server has confirmed the subscription.
+     */
+    public void subscribe(String channel, Runnable onSubscribed, BiConsumer<String, String> listener)
+            throws IOException {
+        try (Connection c = open()) {
+            subscriber = c;
+            c.socket.setSoTimeout(0);   // idle channels are normal
+            c.write(command("SUBSCRIBE", channel));
+            c.out.flush();
+            while (!closed) {
+                Object reply = c.read();
+                if (!(reply instanceof List<?> parts) || parts.size() < 3) continue;
+                String kind = text(parts.get(0));
+                if ("subscribe".equals(kind)) {
+                    onSubscribed.run();
+                } else if ("message".equals(kind)) {
+                    listener.accept(text(parts.get(1)), text(parts.get(2)));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection s = subscriber;
+        if (s != null) s.close();
+        Connection c;
+        while ((c = idle.poll()) != null) c.close();
+    }
+
+    private static String text(Object o) {
+        return o instanceof byte[] b ? new String(b, StandardCharsets.UTF_8) : String.valueOf(o);
+    }
+
+    // ----------------------------
+    // Connections
+    // ----------------------------
+
+    private Connection borrow() throws IOException {
+        Connection c = idle.pollFirst();
+        return c != null ? c : open();
+    }
+
+    private void release(Connection c, boolean healthy) {
+        if (healthy && !closed && idle.size() < maxIdle) {
+            idle.offerFirst(c);
+        } else {
+            c.close();
+        }
+    }
+
+    private Connection open() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            socket.setTcpNoDelay(true);
+            return new Connection(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private static final class Connection implements Closeable {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        }
+
+        void write(byte[][] args) throws IOException {
+            out.write('*');
+            writeNumber(args.length);
+            for (byte[] a : args) {
+                out.write('$');
+                writeNumber(a.length);
+                out.write(a);
+                out.write('\r');
+                out.write('\n');
+            }
+        }
+
+        private void writeNumber(long n) throws IOException {
+            out.write(Long.toString(n).getBytes(StandardCharsets.US_ASCII));
+            out.write('\r');
+            out.write('\n');
+        }
+
+        Object read() throws IOException {
+            int type = in.read();
+            if (type < 0) throw new EOFException("connection closed by server");
+            switch (type) {
+                case '+':
+                    return readLine();
+                case '-':
+                    throw new ServerErrorException(readLine());
+                case ':':
+                    return Long.parseLong(readLine());
+                case '$': {
+                    int len = Integer.parseInt(readLine());
+                    if (len < 0) return null;
+                    byte[] data = in.readNBytes(len);
+                    if (data.length < len) throw new EOFException("truncated bulk reply");
+                    readLine();
+                    return data;
+                }
+                case '*': {
+                    int len = Integer.parseInt(readLine());
+                    if (len < 0) return null;
+                    List<Object> items = new ArrayList<>(len);
+                    for (int i = 0; i < len; i++) {
+                        try {
+                            items.add(read());
+                        } catch (ServerErrorException e) {
+                            items.add(null);
+                        }
+                    }
+                    return items;
+                }
+                default:
+                    throw new IOException("unexpected RESP type byte " + type);
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b < 0) throw new EOFException("connection closed by server");
+                sb.append((char) b);
+            }
+            if (in.read() != '\n') throw new IOException("malformed RESP line");
+            return sb.toString();
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // nothing left to do with it
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.delhight.backend.warmup;
+
+import com.delhight.backend.model.NearbyStation;
+import com.delhight.backend.model.RouteLeg;
+import com.delhight.backend.service.GoogleDirectionsService;
+import com.delhight.backend.service.NearestStationsService;
+import com.delhight.backend.service.RouteLookups;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RouteLookups that replays recorded Google responses instead of calling upstream.
+ * Every lookup still goes through the real JSON parsers, so it exercises the same
+ * code the JIT has to compile for live traffic.
+ */
+public class FixtureRouteLookups implements RouteLookups {
+
+    private final NearestStationsService nearestStationsService;
+    private final GoogleDirectionsService googleDirectionsService;
+
+    private final String placesBody;
+    private final Map<String, String> directionsBodies;   // mode -> body
+
+    public FixtureRouteLookups(NearestStationsService nearestStationsService,
+                               GoogleDirectionsService googleDirectionsService,
+                               String placesBody,
+                               Map<String, String> directionsBodies) {
+        this.nearestStationsService = nearestStationsService;
+        this.googleDirectionsService = googleDirectionsService;
+        this.placesBody = placesBody;
+        this.directionsBodies = directionsBodies;
+    }
+
+    @Override
+    public List<NearbyStation> findNearestStations(double lat, double lng, int top) {
+        return nearestStationsService.parseStations(placesBody, lat, lng, top);
+    }
+
+    @Override
+    public RouteLeg getRouteLeg(double fromLat, double fromLng, double toLat, double toLng,
+                                String mode, long departureTime, String fromName, String toName) {
+        String body = directionsBodies.get(mode);
+        if (body == null) return null;
+        return googleDirectionsService.parseRouteLeg(body, mode, fromName, toName);
+    }
+
+    @Override
+    public boolean isLive() {
+        return false;
+    }
+}
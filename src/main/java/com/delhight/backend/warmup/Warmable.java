@@ -0,0 +1,14 @@
+package com.delhight.backend.warmup;
+
+/**
+ * Implemented by beans that can prepare themselves before the node takes traffic,
+ * e.g. caches loading a persisted snapshot. Called once by WarmupService, off the
+ * main thread, before readiness reports UP.
+ */
+public interface Warmable {
+
+    /** Short name used in logs and in the warm-up health details. */
+    String warmupName();
+
+    void warmUp() throws Exception;
+}
@@ -0,0 +1,30 @@
+package com.delhight.backend.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * "warmup" health contributor. Included in the readiness group, so
+ * /actuator/health/readiness stays OUT_OF_SERVICE while the node is still cold.
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final WarmupService warmupService;
+
+    public WarmupHealthIndicator(WarmupService warmupService) {
+        this.warmupService = warmupService;
+    }
+
+    @Override
+    public Health health() {
+        WarmupService.State state = warmupService.getState();
+        Health.Builder builder = warmupService.isReady() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("state", state.name())
+                .withDetail("elapsedMs", warmupService.getElapsedMillis())
+                .withDetail("iterations", warmupService.getIterationsDone())
+                .build();
+    }
+}
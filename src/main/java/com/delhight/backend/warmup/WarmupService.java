@@ -0,0 +1,230 @@
+package com.delhight.backend.warmup;
+
+import com.delhight.backend.mapper.RouteJsonWriter;
+import com.delhight.backend.model.RouteVariant;
+import com.delhight.backend.service.GeocodingService;
+import com.delhight.backend.service.GoogleDirectionsService;
+import com.delhight.backend.service.NearestStationsService;
+import com.delhight.backend.service.RouteComputationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NativeDetector;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup warm-up, run once the application context is ready:
+ *
+ *   1. Warmable beans (caches) load their persisted snapshots
+ *   2. a few connections to the Google endpoint are opened (TLS handshake + pool)
+ *   3. synthetic computeRoutes + parse + serialization workloads run against the
+ *      recorded fixtures in classpath:fixtures/ so the JIT compiles the hot paths
+ *
+ * Until this finishes (or delhight.warmup.timeoutSeconds passes) the "warmup" health
+ * contributor keeps readiness OUT_OF_SERVICE.
+ */
+@Service
+public class WarmupService {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupService.class);
+
+    private static final String UPSTREAM_PROBE_PATH = "/maps/api/geocode/json?address=warmup";
+
+    public enum State { PENDING, RUNNING, DONE, TIMED_OUT, FAILED, DISABLED }
+
+    private final RouteComputationService routeComputationService;
+    private final GeocodingService geocodingService;
+    private final NearestStationsService nearestStationsService;
+    private final GoogleDirectionsService googleDirectionsService;
+    private final RouteJsonWriter routeJsonWriter;
+    private final ObjectProvider<Warmable> warmables;
+    private final WebClient webClient;
+
+    @Value("${delhight.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${delhight.google.baseUrl:https://maps.googleapis.com}")
+    private String googleBaseUrl;
+
+    @Value("${delhight.warmup.timeoutSeconds:60}")
+    private long timeoutSeconds;
+
+    @Value("${delhight.warmup.iterations:300}")
+    private int iterations;
+
+    @Value("${delhight.warmup.connections:4}")
+    private int connections;
+
+    private volatile State state = State.PENDING;
+    private volatile long startedAtNanos;
+    private volatile long finishedAtNanos;
+    private volatile int iterationsDone;
+
+    public WarmupService(RouteComputationService routeComputationService,
+                         GeocodingService geocodingService,
+                         NearestStationsService nearestStationsService,
+                         GoogleDirectionsService googleDirectionsService,
+                         RouteJsonWriter routeJsonWriter,
+                         ObjectProvider<Warmable> warmables,
+                         WebClient.Builder builder) {
+        this.routeComputationService = routeComputationService;
+        this.geocodingService = geocodingService;
+        this.nearestStationsService = nearestStationsService;
+        this.googleDirectionsService = googleDirectionsService;
+        this.routeJsonWriter = routeJsonWriter;
+        this.warmables = warmables;
+        this.webClient = builder.build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            state = State.DISABLED;
+            return;
+        }
+
+        startedAtNanos = System.nanoTime();
+        state = State.RUNNING;
+
+        Thread worker = new Thread(this::runPhases, "warmup");
+        worker.setDaemon(true);
+        worker.start();
+
+        // readiness must not depend on warm-up actually finishing
+        Thread watchdog = new Thread(() -> {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (state == State.RUNNING) {
+                finish(State.TIMED_OUT);
+                log.warn("Warm-up timed out after {}s, reporting ready anyway", timeoutSeconds);
+            }
+        }, "warmup-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    private void runPhases() {
+        try {
+            loadSnapshots();
+            if (state == State.RUNNING) openUpstreamConnections();
+            // a native image is compiled ahead of time: nothing for a JIT to learn
+            if (state == State.RUNNING && !NativeDetector.inNativeImage()) runSyntheticWorkload();
+
+            if (state == State.RUNNING) {
+                finish(State.DONE);
+                log.info("Warm-up done in {} ms ({} iterations)", getElapsedMillis(), iterationsDone);
+            }
+        } catch (Exception ex) {
+            log.warn("Warm-up failed, reporting ready anyway", ex);
+            if (state == State.RUNNING) finish(State.FAILED);
+        }
+    }
+
+    private synchronized void finish(State end) {
+        if (state != State.RUNNING) return;
+        finishedAtNanos = System.nanoTime();
+        state = end;
+    }
+
+    // ----------------------------
+    // Phases
+    // ----------------------------
+
+    private void loadSnapshots() {
+        warmables.orderedStream().forEach(w -> {
+            long t0 = System.nanoTime();
+            try {
+                w.warmUp();
+                log.info("Warm-up: {} loaded in {} ms", w.warmupName(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+            } catch (Exception ex) {
+                log.warn("Warm-up: {} failed to load: {}", w.warmupName(), ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Fires a few concurrent keyless requests (answered with REQUEST_DENIED, not billed)
+     * so the shared reactor-netty pool holds open TLS connections to the Google host.
+     */
+    private void openUpstreamConnections() {
+        if (connections <= 0) return;
+        try {
+            Flux.range(0, connections)
+                    .flatMap(i -> webClient.get().uri(googleBaseUrl + UPSTREAM_PROBE_PATH)
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .onErrorReturn(""), connections)
+                    .then()
+                    .block(Duration.ofSeconds(10));
+        } catch (Exception ex) {
+            log.warn("Warm-up: could not pre-open upstream connections: {}", ex.getMessage());
+        }
+    }
+
+    private void runSyntheticWorkload() throws IOException {
+        String geocodeBody = fixture("geocode.json");
+        FixtureRouteLookups lookups = new FixtureRouteLookups(
+                nearestStationsService,
+                googleDirectionsService,
+                fixture("places-nearby.json"),
+                Map.of(
+                        "walking", fixture("directions-walking.json"),
+                        "driving", fixture("directions-driving.json"),
+                        "transit", fixture("directions-transit.json")));
+
+        for (int i = 0; i < iterations && state == State.RUNNING; i++) {
+            double[] o = geocodingService.parseGeocode(geocodeBody);
+            List<RouteVariant> variants = routeComputationService.computeRoutes(
+                    o[0], o[1], 28.5709, 77.3261, "Warm-up origin", "Warm-up destination", lookups);
+            // the writer closes its target, so each iteration gets its own sink
+            OutputStream sink = OutputStream.nullOutputStream();
+            routeJsonWriter.writeRoutesResponse(sink, "Warm-up origin", "Warm-up destination", variants);
+            iterationsDone = i + 1;
+        }
+    }
+
+    private static String fixture(String name) throws IOException {
+        return new ClassPathResource("fixtures/" + name).getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    // ----------------------------
+    // State for the health indicator
+    // ----------------------------
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        State s = state;
+        return s != State.PENDING && s != State.RUNNING;
+    }
+
+    public long getElapsedMillis() {
+        if (startedAtNanos == 0) return 0;
+        long end = finishedAtNanos != 0 ? finishedAtNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startedAtNanos);
+    }
+
+    public int getIterationsDone() {
+        return iterationsDone;
+    }
+}
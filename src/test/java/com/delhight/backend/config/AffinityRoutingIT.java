@@ -0,0 +1,161 @@
+package com.delhight.backend.config;
+
+import com.delhight.backend.DelhightBackendApplication;
+import com.delhight.backend.service.RouteResultCache;
+import com.delhight.backend.tools.FakeGoogleServer;
+import com.delhight.backend.tools.LoadGenerator;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Three backend nodes in this JVM, on free ports, with trip affinity on and a
+ * FakeGoogleServer as Google:
+ *
+ * - the same seeded /routes workload (LoadGenerator, requests spread at random over the
+ *   nodes like a round-robin load balancer) runs twice against cold route caches, once
+ *   with every node alone on its ring (plain round-robin) and once with the full ring;
+ *   affinity must raise the route cache hit rate
+ * - a trip is served by the same node whichever node it enters through, moves to another
+ *   node when its owner leaves the ring, and goes back when it joins again
+ *
+ * Run by failsafe (mvn verify): starting the nodes takes a while.
+ */
+class AffinityRoutingIT {
+
+    private static final int NODES = 3;
+    private static final int PLACES = 10;
+    private static final double RATE = 20;
+    private static final int SECONDS = 10;
+
+    private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    private static HttpServer fake;
+    private static final List<String> urls = new ArrayList<>();
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private static List<String> places;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        // constant latency: the two workloads differ only in routing
+        fake = new FakeGoogleServer(Map.of("latency-ms", "20", "latency-sigma", "0")).start(0);
+        places = LoadGenerator.loadPlaces().subList(0, PLACES);
+
+        for (int i = 0; i < NODES; i++) urls.add("http://localhost:" + freePort());
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new SpringApplicationBuilder(DelhightBackendApplication.class).run(
+                    "--server.port=" + URI.create(urls.get(i)).getPort(),
+                    "--google.api.key=test",
+                    "--delhight.google.baseUrl=http://localhost:" + fake.getAddress().getPort(),
+                    "--delhight.warmup.enabled=false",
+                    "--delhight.affinity.enabled=true",
+                    "--delhight.affinity.self=" + urls.get(i),
+                    "--delhight.affinity.peers=" + String.join(",", urls)));
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        for (ConfigurableApplicationContext node : nodes) node.close();
+        if (fake != null) fake.stop(0);
+    }
+
+    @Test
+    void affinityRaisesTheRouteCacheHitRate() throws InterruptedException {
+        double roundRobin;
+        for (int i = 0; i < NODES; i++) {
+            for (String peer : urls) {
+                if (!peer.equals(urls.get(i))) routing(i).removePeer(peer);
+            }
+        }
+        try {
+            roundRobin = hitRate();
+        } finally {
+            for (int i = 0; i < NODES; i++) {
+                for (String peer : urls) {
+                    if (!peer.equals(urls.get(i))) routing(i).addPeer(peer);
+                }
+            }
+        }
+        double affinity = hitRate();
+
+        assertThat(affinity)
+                .as("hit rate with affinity (%.2f) vs round-robin (%.2f)", affinity, roundRobin)
+                .isGreaterThan(roundRobin);
+    }
+
+    @Test
+    void aTripFollowsItsOwnerAcrossLeaveAndJoin() throws Exception {
+        String from = places.get(0), to = places.get(1);
+        String owner = servedBy(0, from, to);
+        for (int i = 1; i < NODES; i++) assertThat(servedBy(i, from, to)).isEqualTo(owner);
+
+        int ownerIndex = urls.indexOf(owner);
+        List<Integer> others = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            if (i != ownerIndex) others.add(i);
+        }
+
+        for (int i : others) routing(i).removePeer(owner);
+        try {
+            String next = servedBy(others.get(0), from, to);
+            assertThat(next).isNotEqualTo(owner);
+            assertThat(servedBy(others.get(1), from, to)).isEqualTo(next);
+        } finally {
+            for (int i : others) routing(i).addPeer(owner);
+        }
+        for (int i : others) assertThat(servedBy(i, from, to)).isEqualTo(owner);
+    }
+
+    // ----------------------------
+    // Helpers
+    // ----------------------------
+
+    // share of route cache hits of the seeded workload, starting from empty caches
+    private static double hitRate() throws InterruptedException {
+        for (ConfigurableApplicationContext node : nodes) node.getBean(RouteResultCache.class).clear();
+        LoadGenerator generator = new LoadGenerator(urls, null, Duration.ofSeconds(30), places);
+        generator.run(RATE, SECONDS, Map.of("routes", 1.0), new Random(1), true);
+        return generator.hitRate("routes");
+    }
+
+    private static String servedBy(int node, String from, String to) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(urls.get(node) + "/routes?from="
+                        + URLEncoder.encode(from, StandardCharsets.UTF_8) + "&to=" + URLEncoder.encode(to, StandardCharsets.UTF_8)))
+                .timeout(Duration.ofSeconds(30)).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return response.headers().firstValue(AffinityRoutingFilter.SERVED_BY).orElseThrow();
+    }
+
+    private static AffinityRouting routing(int node) {
+        return nodes.get(node).getBean(AffinityRouting.class);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
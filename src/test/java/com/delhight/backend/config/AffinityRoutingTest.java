@@ -0,0 +1,170 @@
+package com.delhight.backend.config;
+
+import com.delhight.backend.service.RouteResultCache;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ring membership of AffinityRouting: which node owns a trip before and after a peer
+ * leaves (failed probes, removePeer) and joins again. The peers are small HTTP servers
+ * whose /ping can be switched off.
+ */
+class AffinityRoutingTest {
+
+    private static final String SELF = "http://127.0.0.1:1";
+    private static final int TRIPS = 500;
+
+    private final List<Peer> peers = new ArrayList<>();
+    private AffinityRouting routing;
+    private double[][] trips;
+
+    /** A peer node that answers /ping with 200 while up, 503 otherwise. */
+    private static final class Peer {
+        final HttpServer server;
+        final String url;
+        volatile boolean up = true;
+
+        Peer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/ping", exchange -> {
+                exchange.sendResponseHeaders(up ? 200 : 503, -1);
+                exchange.close();
+            });
+            server.start();
+            url = "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        peers.add(new Peer());
+        peers.add(new Peer());
+
+        // trip keys straight from the coordinates: ownership only depends on the ring
+        RouteResultCache cache = mock(RouteResultCache.class);
+        when(cache.tripKey(anyDouble(), anyDouble(), anyDouble(), anyDouble())).thenAnswer(call ->
+                new RouteResultCache.TripKey(
+                        Double.doubleToLongBits(call.getArgument(0)) * 31 + Double.doubleToLongBits(call.getArgument(1)),
+                        Double.doubleToLongBits(call.getArgument(2)) * 31 + Double.doubleToLongBits(call.getArgument(3)),
+                        0));
+
+        routing = new AffinityRouting(cache);
+        ReflectionTestUtils.setField(routing, "enabled", true);
+        ReflectionTestUtils.setField(routing, "self", SELF);
+        ReflectionTestUtils.setField(routing, "configuredPeers", SELF + "," + peers.get(0).url + "," + peers.get(1).url);
+        ReflectionTestUtils.setField(routing, "virtualNodes", 128);
+        ReflectionTestUtils.setField(routing, "loadFactor", 1.25);
+        ReflectionTestUtils.setField(routing, "probeTimeoutMillis", 500L);
+        ReflectionTestUtils.setField(routing, "failuresToEvict", 2);
+        routing.init();
+
+        Random random = new Random(1);
+        trips = new double[TRIPS][];
+        for (int i = 0; i < TRIPS; i++) {
+            trips[i] = new double[]{28.4 + random.nextDouble() * 0.5, 76.9 + random.nextDouble() * 0.5,
+                    28.4 + random.nextDouble() * 0.5, 76.9 + random.nextDouble() * 0.5};
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Peer p : peers) p.server.stop(0);
+    }
+
+    @Test
+    void everyNodeOwnsAShareOfTheTrips() {
+        List<String> owners = owners();
+        assertThat(owners).contains(SELF, peers.get(0).url, peers.get(1).url);
+    }
+
+    @Test
+    void tripsOfAPeerThatFailsItsProbesMoveAndComeBack() {
+        List<String> before = owners();
+        Peer leaving = peers.get(1);
+
+        leaving.up = false;
+        routing.probePeers();
+        assertThat(owners()).as("one failed probe is not enough to evict").isEqualTo(before);
+        routing.probePeers();
+        assertOnlyTripsOfMoved(before, owners(), leaving.url);
+
+        leaving.up = true;
+        routing.probePeers();
+        assertThat(owners()).as("the rejoined peer gets its trips back").isEqualTo(before);
+    }
+
+    @Test
+    void tripsOfARemovedPeerMoveAndComeBackWhenItIsAdded() {
+        List<String> before = owners();
+        String removed = peers.get(0).url;
+
+        routing.removePeer(removed);
+        assertOnlyTripsOfMoved(before, owners(), removed);
+
+        routing.addPeer(removed + "/");
+        assertThat(owners()).isEqualTo(before);
+    }
+
+    @Test
+    void onlyConfiguredPeersCanJoin() {
+        assertThatThrownBy(() -> routing.addPeer("http://127.0.0.1:2"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> routing.removePeer(SELF))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void forwardTimeoutsCountTowardsEvictionOtherFailuresEvictAtOnce() {
+        List<String> before = owners();
+        String slow = peers.get(0).url, broken = peers.get(1).url;
+
+        routing.forwardFailed(slow, new HttpTimeoutException("timed out"));
+        assertThat(owners()).isEqualTo(before);
+        routing.forwardFailed(slow, new HttpTimeoutException("timed out"));
+        assertOnlyTripsOfMoved(before, owners(), slow);
+
+        routing.forwardFailed(broken, new IOException("connection reset"));
+        assertThat(owners()).containsOnly(SELF);
+    }
+
+    // ----------------------------
+    // Helpers
+    // ----------------------------
+
+    private List<String> owners() {
+        List<String> owners = new ArrayList<>(TRIPS);
+        for (double[] t : trips) {
+            AffinityRouting.Route route = routing.route(t[0], t[1], t[2], t[3]);
+            owners.add(route.node());
+            route.release();
+        }
+        return owners;
+    }
+
+    // the trips of the node that left went to the others; no other trip moved
+    private static void assertOnlyTripsOfMoved(List<String> before, List<String> after, String left) {
+        assertThat(before).contains(left);
+        assertThat(after).doesNotContain(left);
+        for (int i = 0; i < before.size(); i++) {
+            if (!before.get(i).equals(left)) {
+                assertThat(after.get(i)).as("owner of trip %d", i).isEqualTo(before.get(i));
+            }
+        }
+    }
+}
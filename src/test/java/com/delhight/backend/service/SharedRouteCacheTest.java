@@ -0,0 +1,182 @@
+package com.delhight.backend.service;
+
+import com.delhight.backend.tools.MiniRedisServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Two SharedRouteCache instances ("nodes" A and B, each in its own small Spring context)
+ * against an embedded MiniRedisServer:
+ *
+ * - prefetch: B prefetches keys A wrote, plus one nobody wrote, with one MGET; the lookups
+ *   that follow are near-tier hits, and the unknown key goes to the loader without asking
+ *   the store again
+ * - invalidation: A's invalidate() removes the key from B's near tier and the store; A's
+ *   write of a key B remembers as absent replaces B's marker
+ * - resubscribe: the store restarts; B bypasses its near tier while unsubscribed, and
+ *   finds it empty once it has subscribed again
+ *
+ * Geocode entries stand in for every kind (they share the code path).
+ */
+class SharedRouteCacheTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private MiniRedisServer redis;
+    private int port;
+    private AnnotationConfigApplicationContext contextA, contextB;
+    private SharedRouteCache a, b;
+
+    @BeforeEach
+    void startNodes() throws IOException {
+        redis = new MiniRedisServer();
+        port = redis.start(0);
+        contextA = node(port);
+        contextB = node(port);
+        a = contextA.getBean(SharedRouteCache.class);
+        b = contextB.getBean(SharedRouteCache.class);
+        await("both nodes subscribed").atMost(WAIT).until(() -> subscribed(a) && subscribed(b));
+    }
+
+    @AfterEach
+    void stopNodes() throws IOException {
+        if (contextA != null) contextA.close();
+        if (contextB != null) contextB.close();
+        redis.stop();
+    }
+
+    @Test
+    void prefetchLoadsOtherNodesEntriesWithOneRoundTrip() {
+        List<String> keys = List.of("p1", "p2", "p3", "p4", "p5");
+        for (String key : keys) a.geocode(key, () -> point(key));
+
+        List<String> wanted = new ArrayList<>(keys);
+        wanted.add("p-unknown");
+        long roundTrips = stat(b, "prefetchRoundTrips");
+        b.prefetch(SharedRouteCache.Kind.GEOCODE, wanted);
+        assertThat(stat(b, "prefetchRoundTrips") - roundTrips).as("MGETs for %d keys", wanted.size()).isEqualTo(1);
+
+        AtomicInteger loads = new AtomicInteger();
+        long near = tier(b, "near"), shared = tier(b, "shared");
+        for (String key : keys) {
+            double[] value = b.geocode(key, () -> {
+                loads.incrementAndGet();
+                return point("wrong");
+            });
+            assertThat(value).as(key).isEqualTo(point(key));
+        }
+        assertThat(tier(b, "near") - near).as("near hits").isEqualTo(keys.size());
+        assertThat(loads).hasValue(0);
+
+        b.geocode("p-unknown", () -> {
+            loads.incrementAndGet();
+            return point("p-unknown");
+        });
+        assertThat(loads).as("the absent key goes to the loader").hasValue(1);
+        assertThat(tier(b, "shared")).as("without asking the store").isEqualTo(shared);
+    }
+
+    @Test
+    void invalidationReachesTheOtherNode() throws IOException {
+        a.geocode("i1", () -> point("i1"));
+        b.geocode("i1", () -> point("wrong"));
+        assertThat(stat(b, "nearEntries")).isPositive();
+
+        long received = stat(b, "invalidationsReceived");
+        a.invalidate(SharedRouteCache.Kind.GEOCODE, "i1");
+        await("B received A's invalidation").atMost(WAIT).until(() -> stat(b, "invalidationsReceived") > received);
+
+        AtomicInteger loads = new AtomicInteger();
+        double[] value = b.geocode("i1", () -> {
+            loads.incrementAndGet();
+            return point("i1-new");
+        });
+        assertThat(loads).as("gone from B's near tier and the store").hasValue(1);
+        assertThat(value).isEqualTo(point("i1-new"));
+    }
+
+    @Test
+    void aWriteReplacesTheOtherNodesAbsentMarker() {
+        // B remembers "p-new" as absent, then A computes it
+        b.prefetch(SharedRouteCache.Kind.GEOCODE, List.of("p-new"));
+        long received = stat(b, "invalidationsReceived");
+        a.geocode("p-new", () -> point("p-new"));
+        await("B received A's write").atMost(WAIT).until(() -> stat(b, "invalidationsReceived") > received);
+
+        long shared = tier(b, "shared");
+        double[] value = b.geocode("p-new", () -> point("wrong"));
+        assertThat(value).isEqualTo(point("p-new"));
+        assertThat(tier(b, "shared")).as("read from the store").isEqualTo(shared + 1);
+    }
+
+    @Test
+    void nearTierIsBypassedUntilResubscribedAndThenEmpty() throws IOException {
+        b.geocode("r1", () -> point("r1"));
+        assertThat(stat(b, "nearEntries")).isPositive();
+
+        redis.stop();
+        await("B notices the store is gone").atMost(WAIT).until(() -> !subscribed(b));
+        long near = tier(b, "near");
+        b.geocode("r1", () -> point("r1"));
+        assertThat(tier(b, "near")).as("near hits while unsubscribed").isEqualTo(near);
+
+        redis = new MiniRedisServer();
+        redis.start(port);
+        await("B subscribed again").atMost(WAIT).until(() -> subscribed(b));
+        assertThat(stat(b, "nearEntries")).as("near entries after resubscribing").isZero();
+    }
+
+    // ----------------------------
+    // Helpers
+    // ----------------------------
+
+    private static AnnotationConfigApplicationContext node(int port) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "delhight.sharedCache.enabled", "true",
+                "delhight.sharedCache.port", String.valueOf(port),
+                "delhight.sharedCache.timeoutMillis", "500",
+                "delhight.sharedCache.retryMillis", "200",
+                "delhight.sharedCache.absentMillis", "60000")));
+        context.registerBean(PropertySourcesPlaceholderConfigurer.class);
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.registerBean(SharedRouteCache.class);
+        context.refresh();
+        return context;
+    }
+
+    // distinct, recognisable coordinates per key
+    private static double[] point(String key) {
+        return new double[]{28 + (key.hashCode() & 0xffff) / 1e6, 77};
+    }
+
+    private static boolean subscribed(SharedRouteCache cache) {
+        return Boolean.TRUE.equals(cache.stats().get("subscribed"));
+    }
+
+    private static long stat(SharedRouteCache cache, String name) {
+        return ((Number) cache.stats().get(name)).longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long tier(SharedRouteCache cache, String tier) {
+        Map<String, Map<String, Long>> lookups = (Map<String, Map<String, Long>>) cache.stats().get("lookups");
+        return lookups.get("geocode").get(tier);
+    }
+}
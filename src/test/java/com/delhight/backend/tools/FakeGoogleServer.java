@@ -0,0 +1,217 @@
+package com.delhight.backend.tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Google Maps endpoints the backend calls, for load tests without
+ * network or quota. Replays the recorded responses in classpath:fixtures/ (or --fixtures
+ * <dir>), after a log-normally distributed delay, and fails a share of requests.
+ *
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath
+ *   java -cp target/test-classes:target/classes:$(cat target/test.classpath) \
+ *        com.delhight.backend.tools.FakeGoogleServer \
+ *        [--port 18090] [--latency-ms 80] [--latency-sigma 0.6] [--error-rate 0.01] \
+ *        [--directions-latency-ms 250] [--fixtures dir]
+ *
+ * Run the backend with --delhight.google.baseUrl=http://localhost:18090.
+ *
+ *   endpoint      path                                  fixture
+ *   geocode       /maps/api/geocode/json                geocode.json
+ *   nearby        /maps/api/place/nearbysearch/json     places-nearby.json
+ *   directions    /maps/api/directions/json             directions-<mode>.json
+ *   autocomplete  /maps/api/place/autocomplete/json     autocomplete.json
+ *
+ * --latency-ms is the median delay and --latency-sigma the spread of its logarithm
+ * (0 = constant); --<endpoint>-latency-ms overrides the median per endpoint. Failed
+ * requests answer HTTP 500; --over-limit-rate answers status OVER_QUERY_LIMIT instead.
+ * GET /__stats returns the calls per endpoint, POST /__reset zeroes them.
+ */
+public class FakeGoogleServer {
+
+    private static final Map<String, String> PATHS = Map.of(
+            "/maps/api/geocode/json", "geocode",
+            "/maps/api/place/nearbysearch/json", "nearby",
+            "/maps/api/directions/json", "directions",
+            "/maps/api/place/autocomplete/json", "autocomplete");
+
+    private final Map<String, String> options;
+    private final Map<String, byte[]> fixtures = new HashMap<>();
+    private final Map<String, AtomicLong> calls = new LinkedHashMap<>();
+    private final AtomicLong errors = new AtomicLong();
+    private final double latencySigma;
+    private final double errorRate;
+    private final double overLimitRate;
+    private final double maxLatencyMs;
+
+    public FakeGoogleServer(Map<String, String> options) throws IOException {
+        this.options = options;
+        this.latencySigma = Double.parseDouble(options.getOrDefault("latency-sigma", "0.6"));
+        this.errorRate = Double.parseDouble(options.getOrDefault("error-rate", "0"));
+        this.overLimitRate = Double.parseDouble(options.getOrDefault("over-limit-rate", "0"));
+        this.maxLatencyMs = Double.parseDouble(options.getOrDefault("latency-max-ms", "10000"));
+        for (String endpoint : PATHS.values()) calls.put(endpoint, new AtomicLong());
+
+        String dir = options.get("fixtures");
+        for (String name : new String[]{"geocode", "places-nearby", "directions-driving", "directions-transit",
+                "directions-walking", "autocomplete"}) {
+            fixtures.put(name, readFixture(dir, name + ".json"));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int port = Integer.parseInt(options.getOrDefault("port", "18090"));
+
+        FakeGoogleServer fake = new FakeGoogleServer(options);
+        HttpServer server = fake.start(port);
+        System.out.printf("fake Google on http://localhost:%d (median %s ms, sigma %.2f, errors %.1f%%)%n",
+                server.getAddress().getPort(), options.getOrDefault("latency-ms", "80"),
+                fake.latencySigma, fake.errorRate * 100);
+    }
+
+    public HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        // one virtual thread per request: simulated latency costs no platform thread
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+        return server;
+    }
+
+    // ----------------------------
+    // Requests
+    // ----------------------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/__stats")) {
+                respond(exchange, 200, stats().toString().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (path.equals("/__reset")) {
+                calls.values().forEach(c -> c.set(0));
+                errors.set(0);
+                respond(exchange, 200, "{}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            String endpoint = PATHS.get(path);
+            if (endpoint == null) {
+                respond(exchange, 404, "{\"status\":\"NOT_FOUND\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            calls.get(endpoint).incrementAndGet();
+            sleep(latencyMillis(endpoint));
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                respond(exchange, 500, "{\"status\":\"UNKNOWN_ERROR\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (random.nextDouble() < overLimitRate) {
+                errors.incrementAndGet();
+                respond(exchange, 200, "{\"status\":\"OVER_QUERY_LIMIT\",\"results\":[]}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            respond(exchange, 200, fixtures.get(fixtureName(endpoint, exchange.getRequestURI().getRawQuery())));
+        }
+    }
+
+    private static String fixtureName(String endpoint, String query) {
+        return switch (endpoint) {
+            case "geocode" -> "geocode";
+            case "nearby" -> "places-nearby";
+            case "autocomplete" -> "autocomplete";
+            default -> {
+                String mode = param(query, "mode");
+                yield "directions-" + (mode == null || mode.equals("bicycling") ? "driving" : mode);
+            }
+        };
+    }
+
+    private double latencyMillis(String endpoint) {
+        double median = Double.parseDouble(options.getOrDefault(endpoint + "-latency-ms",
+                options.getOrDefault("latency-ms", "80")));
+        double ms = median * Math.exp(latencySigma * ThreadLocalRandom.current().nextGaussian());
+        return Math.min(ms, maxLatencyMs);
+    }
+
+    private JSONObject stats() {
+        JSONObject out = new JSONObject();
+        long total = 0;
+        JSONObject perEndpoint = new JSONObject();
+        for (Map.Entry<String, AtomicLong> e : calls.entrySet()) {
+            perEndpoint.put(e.getKey(), e.getValue().get());
+            total += e.getValue().get();
+        }
+        out.put("calls", perEndpoint);
+        out.put("total", total);
+        out.put("errors", errors.get());
+        return out;
+    }
+
+    // ----------------------------
+    // Helpers
+    // ----------------------------
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String param(String query, String name) {
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static void sleep(double millis) {
+        try {
+            Thread.sleep((long) millis, (int) ((millis % 1) * 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] readFixture(String dir, String name) throws IOException {
+        if (dir != null) {
+            Path file = Path.of(dir, name);
+            if (Files.exists(file)) return Files.readAllBytes(file);
+        }
+        try (InputStream in = FakeGoogleServer.class.getClassLoader().getResourceAsStream("fixtures/" + name)) {
+            if (in == null) throw new IOException("fixtures/" + name + " not found");
+            return in.readAllBytes();
+        }
+    }
+}
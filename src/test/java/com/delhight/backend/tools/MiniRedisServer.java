@@ -0,0 +1,343 @@
+package com.delhight.backend.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local, in-memory stand-in for the Redis server behind SharedRouteCache: speaks RESP2 and
+ * implements the commands the backend uses, so several nodes can share a cache on one
+ * machine without installing Redis.
+ *
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath
+ *   java -cp target/test-classes:target/classes:$(cat target/test.classpath) \
+ *        com.delhight.backend.tools.MiniRedisServer [--port 6379] [--bind 127.0.0.1]
+ *
+ * Run each backend with --delhight.sharedCache.enabled=true --delhight.sharedCache.port=<port>.
+ *
+ * Commands: PING, ECHO, GET, SET key value [EX s | PX ms], MGET, DEL, EXISTS, DBSIZE,
+ * FLUSHALL, PUBLISH, SUBSCRIBE, UNSUBSCRIBE, INFO (command counts), QUIT. Expired keys are
+ * dropped when read and by DBSIZE. No persistence, no eviction: it is a test tool.
+ * It can also be embedded: new MiniRedisServer().start(port).
+ */
+public class MiniRedisServer {
+
+    private record Value(byte[] data, long expiresAtMillis) {
+        boolean expired(long now) {
+            return expiresAtMillis > 0 && expiresAtMillis <= now;
+        }
+    }
+
+    private final Map<String, Value> store = new ConcurrentHashMap<>();
+    private final Map<String, Set<Client>> channels = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> commandCounts = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private ServerSocket serverSocket;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        MiniRedisServer server = new MiniRedisServer();
+        int port = server.start(InetAddress.getByName(options.getOrDefault("bind", "127.0.0.1")),
+                Integer.parseInt(options.getOrDefault("port", "6379")));
+        System.out.printf("mini redis on %s:%d%n", options.getOrDefault("bind", "127.0.0.1"), port);
+    }
+
+    /** Starts accepting on the loopback interface; returns the bound port (0 = any free port). */
+    public int start(int port) throws IOException {
+        return start(InetAddress.getLoopbackAddress(), port);
+    }
+
+    public int start(InetAddress bind, int port) throws IOException {
+        serverSocket = new ServerSocket(port, 128, bind);
+        Thread acceptor = new Thread(this::acceptLoop, "mini-redis-acceptor");
+        acceptor.start();
+        return serverSocket.getLocalPort();
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) System.err.println("accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // ----------------------------
+    // Connections
+    // ----------------------------
+
+    private final class Client {
+        final InputStream in;
+        final OutputStream out;
+        final Set<String> subscriptions = new CopyOnWriteArraySet<>();
+
+        Client(Socket socket) throws IOException {
+            this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        }
+
+        // replies are written from the connection's thread and from publishers
+        synchronized void send(Object reply, boolean flush) throws IOException {
+            writeReply(out, reply);
+            if (flush) out.flush();
+        }
+    }
+
+    private void serve(Socket socket) {
+        Client client = null;
+        try (socket) {
+            client = new Client(socket);
+            while (true) {
+                List<byte[]> command = readCommand(client.in);
+                if (command == null) return;
+                String name = new String(command.get(0), StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+                commandCounts.computeIfAbsent(name, k -> new AtomicLong()).incrementAndGet();
+                if (name.equals("QUIT")) {
+                    client.send("+OK", true);
+                    return;
+                }
+                // pipelined commands: flush once nothing more is waiting to be read
+                client.send(execute(client, name, command), client.in.available() == 0);
+            }
+        } catch (IOException e) {
+            // client went away
+        } finally {
+            if (client != null) {
+                for (String channel : client.subscriptions) unsubscribe(client, channel);
+            }
+        }
+    }
+
+    private Object execute(Client client, String name, List<byte[]> args) throws IOException {
+        long now = System.currentTimeMillis();
+        switch (name) {
+            case "PING":
+                return args.size() > 1 ? args.get(1) : "+PONG";
+            case "ECHO":
+                return arity(args, 2) ? args.get(1) : wrongArgs(name);
+            case "GET":
+                return arity(args, 2) ? read(string(args.get(1)), now) : wrongArgs(name);
+            case "MGET": {
+                if (args.size() < 2) return wrongArgs(name);
+                List<Object> out = new ArrayList<>(args.size() - 1);
+                for (int i = 1; i < args.size(); i++) out.add(read(string(args.get(i)), now));
+                return out;
+            }
+            case "SET":
+                return set(args, now);
+            case "DEL":
+            case "EXISTS": {
+                if (args.size() < 2) return wrongArgs(name);
+                long n = 0;
+                for (int i = 1; i < args.size(); i++) {
+                    String key = string(args.get(i));
+                    if (name.equals("DEL") ? store.remove(key) != null : read(key, now) != null) n++;
+                }
+                return n;
+            }
+            case "DBSIZE":
+                store.entrySet().removeIf(e -> e.getValue().expired(now));
+                return (long) store.size();
+            case "FLUSHALL":
+            case "FLUSHDB":
+                store.clear();
+                return "+OK";
+            case "PUBLISH":
+                return arity(args, 3) ? publish(string(args.get(1)), args.get(2)) : wrongArgs(name);
+            case "SUBSCRIBE":
+                if (args.size() < 2) return wrongArgs(name);
+                for (int i = 1; i < args.size(); i++) {
+                    String channel = string(args.get(i));
+                    client.subscriptions.add(channel);
+                    channels.computeIfAbsent(channel, k -> new CopyOnWriteArraySet<>()).add(client);
+                    Object ack = List.of(bytes("subscribe"), bytes(channel), (long) client.subscriptions.size());
+                    if (i < args.size() - 1) client.send(ack, false);
+                    else return ack;
+                }
+                return null;
+            case "UNSUBSCRIBE": {
+                List<String> targets = new ArrayList<>();
+                for (int i = 1; i < args.size(); i++) targets.add(string(args.get(i)));
+                if (targets.isEmpty()) targets.addAll(client.subscriptions);
+                if (targets.isEmpty()) return Arrays.asList(bytes("unsubscribe"), null, 0L);
+                Object ack = null;
+                for (int i = 0; i < targets.size(); i++) {
+                    unsubscribe(client, targets.get(i));
+                    ack = List.of(bytes("unsubscribe"), bytes(targets.get(i)), (long) client.subscriptions.size());
+                    if (i < targets.size() - 1) client.send(ack, false);
+                }
+                return ack;
+            }
+            case "INFO": {
+                StringBuilder sb = new StringBuilder("# Commandstats\r\n");
+                commandCounts.forEach((k, v) -> sb.append("cmdstat_").append(k.toLowerCase(Locale.ROOT))
+                        .append(":calls=").append(v.get()).append("\r\n"));
+                sb.append("# Keyspace\r\nkeys:").append(store.size()).append("\r\n");
+                return bytes(sb.toString());
+            }
+            default:
+                return "-ERR unknown command '" + name + "'";
+        }
+    }
+
+    private Object set(List<byte[]> args, long now) {
+        if (args.size() < 3) return wrongArgs("SET");
+        long expiresAt = 0;
+        for (int i = 3; i < args.size(); i++) {
+            String option = string(args.get(i)).toUpperCase(Locale.ROOT);
+            if ((option.equals("EX") || option.equals("PX")) && i + 1 < args.size()) {
+                long amount;
+                try {
+                    amount = Long.parseLong(string(args.get(++i)));
+                } catch (NumberFormatException e) {
+                    return "-ERR value is not an integer or out of range";
+                }
+                if (amount <= 0) return "-ERR invalid expire time in 'set' command";
+                expiresAt = now + (option.equals("EX") ? amount * 1000 : amount);
+            } else {
+                return "-ERR syntax error";
+            }
+        }
+        store.put(string(args.get(1)), new Value(args.get(2), expiresAt));
+        return "+OK";
+    }
+
+    private byte[] read(String key, long now) {
+        Value v = store.get(key);
+        if (v == null) return null;
+        if (v.expired(now)) {
+            store.remove(key, v);
+            return null;
+        }
+        return v.data();
+    }
+
+    private long publish(String channel, byte[] message) {
+        Set<Client> subscribers = channels.get(channel);
+        if (subscribers == null) return 0;
+        long delivered = 0;
+        for (Client c : subscribers) {
+            try {
+                c.send(List.of(bytes("message"), bytes(channel), message), true);
+                delivered++;
+            } catch (IOException e) {
+                unsubscribe(c, channel);
+            }
+        }
+        return delivered;
+    }
+
+    private void unsubscribe(Client client, String channel) {
+        client.subscriptions.remove(channel);
+        Set<Client> subscribers = channels.get(channel);
+        if (subscribers != null) subscribers.remove(client);
+    }
+
+    // ----------------------------
+    // Protocol
+    // ----------------------------
+
+    // one command: an array of bulk strings, or an inline command (telnet / redis-cli)
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) return null;
+        if (type != '*') {
+            String line = (char) type + readLine(in);
+            List<byte[]> args = new ArrayList<>();
+            for (String part : line.trim().split("\\s+")) {
+                if (!part.isEmpty()) args.add(bytes(part));
+            }
+            return args.isEmpty() ? readCommand(in) : args;
+        }
+        int count = Integer.parseInt(readLine(in));
+        List<byte[]> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') throw new IOException("expected bulk string");
+            int len = Integer.parseInt(readLine(in));
+            byte[] data = in.readNBytes(len);
+            if (data.length < len) throw new EOFException();
+            readLine(in);
+            args.add(data);
+        }
+        return args.isEmpty() ? readCommand(in) : args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) throw new EOFException();
+            if (b != '\r') sb.append((char) b);
+        }
+        return sb.toString();
+    }
+
+    // "+..." / "-..." Strings are status and error replies
+    private static void writeReply(OutputStream out, Object reply) throws IOException {
+        if (reply == null) {
+            out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof String s) {
+            out.write((s + "\r\n").getBytes(StandardCharsets.UTF_8));
+        } else if (reply instanceof Long n) {
+            out.write((":" + n + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof byte[] data) {
+            out.write(("$" + data.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(data);
+            out.write('\r');
+            out.write('\n');
+        } else if (reply instanceof List<?> items) {
+            out.write(("*" + items.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (Object item : items) writeReply(out, item);
+        } else {
+            throw new IllegalArgumentException("cannot encode " + reply.getClass());
+        }
+    }
+
+    private static boolean arity(List<byte[]> args, int n) {
+        return args.size() == n;
+    }
+
+    private static String wrongArgs(String name) {
+        return "-ERR wrong number of arguments for '" + name.toLowerCase(Locale.ROOT) + "' command";
+    }
+
+    private static String string(byte[] b) {
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}